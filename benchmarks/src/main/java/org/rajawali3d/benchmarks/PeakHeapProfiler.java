@@ -0,0 +1,75 @@
+/**
+ * Copyright 2013 Dennis Ippel
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.rajawali3d.benchmarks;
+
+import org.openjdk.jmh.infra.BenchmarkParams;
+import org.openjdk.jmh.infra.IterationParams;
+import org.openjdk.jmh.profile.InternalProfiler;
+import org.openjdk.jmh.results.AggregationPolicy;
+import org.openjdk.jmh.results.IterationResult;
+import org.openjdk.jmh.results.Result;
+import org.openjdk.jmh.results.ScalarResult;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Reports the peak heap usage of each iteration as {@code peak.heap}, in megabytes. Enable it with
+ * {@code -prof org.rajawali3d.benchmarks.PeakHeapProfiler}.
+ *
+ * The peak is the sum of the peaks of the heap memory pools, which are reset before each iteration. The pools don't
+ * peak at the same time and their usage includes garbage which hasn't been collected yet, so this is an upper bound of
+ * the memory a benchmarked operation needs rather than an exact figure.
+ */
+public class PeakHeapProfiler implements InternalProfiler {
+
+    private static final double BYTES_PER_MEGABYTE = 1024 * 1024;
+
+    @Override
+    public String getDescription() {
+        return "Peak heap usage of each iteration";
+    }
+
+    @Override
+    public void beforeIteration(BenchmarkParams benchmarkParams, IterationParams iterationParams) {
+        for (MemoryPoolMXBean pool : getHeapPools()) {
+            pool.resetPeakUsage();
+        }
+    }
+
+    @Override
+    public Collection<? extends Result> afterIteration(BenchmarkParams benchmarkParams, IterationParams iterationParams,
+                                                       IterationResult result) {
+        long peak = 0;
+        for (MemoryPoolMXBean pool : getHeapPools()) {
+            peak += pool.getPeakUsage().getUsed();
+        }
+        final List<Result> results = new ArrayList<>();
+        results.add(new ScalarResult("peak.heap", peak / BYTES_PER_MEGABYTE, "MB", AggregationPolicy.MAX));
+        return results;
+    }
+
+    private static List<MemoryPoolMXBean> getHeapPools() {
+        final List<MemoryPoolMXBean> pools = new ArrayList<>();
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP && pool.isValid()) {
+                pools.add(pool);
+            }
+        }
+        return pools;
+    }
+}
@@ -0,0 +1,57 @@
+/**
+ * Copyright 2013 Dennis Ippel
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.rajawali3d.benchmarks.bounds;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.rajawali3d.bounds.BoundingBox;
+import org.rajawali3d.math.Matrix4;
+import org.rajawali3d.math.Quaternion;
+import org.rajawali3d.math.vector.Vector3;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark of the {@link BoundingBox} transform made for each object whose model matrix changed.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BoundingBoxBenchmark {
+
+    private final Matrix4 mModel = new Matrix4();
+    private BoundingBox mBoundingBox;
+
+    @Setup
+    public void setup() {
+        mModel.setAll(new Vector3(1, 2, 3), new Vector3(2, 2, 2), new Quaternion(new Vector3(1, 1, 0), 30));
+        mBoundingBox = new BoundingBox(new Vector3(-1, -2, -3), new Vector3(1, 2, 3));
+    }
+
+    @Benchmark
+    public BoundingBox transform() {
+        mBoundingBox.transform(mModel);
+        return mBoundingBox;
+    }
+}
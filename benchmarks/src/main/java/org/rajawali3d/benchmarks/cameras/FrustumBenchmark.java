@@ -0,0 +1,75 @@
+/**
+ * Copyright 2013 Dennis Ippel
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.rajawali3d.benchmarks.cameras;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.rajawali3d.bounds.BoundingBox;
+import org.rajawali3d.cameras.Frustum;
+import org.rajawali3d.math.Matrix4;
+import org.rajawali3d.math.vector.Vector3;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of the {@link Frustum} updates and the culling test made for each object and frame.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FrustumBenchmark {
+
+    private final Frustum mFrustum = new Frustum();
+    private final Matrix4 mViewProjection = new Matrix4();
+    private BoundingBox mInside;
+    private BoundingBox mOutside;
+
+    @Setup
+    public void setup() {
+        final Matrix4 view = new Matrix4().setToLookAt(new Vector3(0, 0, 10), Vector3.ZERO, Vector3.Y);
+        mViewProjection.setToPerspective(1, 100, 60, 16.0 / 9.0).multiply(view);
+        mFrustum.update(mViewProjection);
+
+        mInside = new BoundingBox(new Vector3(-1, -1, -1), new Vector3(1, 1, 1));
+        mInside.transform(new Matrix4());
+        mOutside = new BoundingBox(new Vector3(-1, -1, -1), new Vector3(1, 1, 1));
+        mOutside.transform(new Matrix4().setTranslation(200, 0, 0));
+    }
+
+    @Benchmark
+    public Frustum update() {
+        mFrustum.update(mViewProjection);
+        return mFrustum;
+    }
+
+    @Benchmark
+    public boolean boundsInFrustumInside() {
+        return mFrustum.boundsInFrustum(mInside);
+    }
+
+    @Benchmark
+    public boolean boundsInFrustumOutside() {
+        return mFrustum.boundsInFrustum(mOutside);
+    }
+}
@@ -0,0 +1,120 @@
+/**
+ * Copyright 2013 Dennis Ippel
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.rajawali3d.benchmarks.loader;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.rajawali3d.loader.ParsingException;
+import org.rajawali3d.materials.MaterialManager;
+import org.rajawali3d.renderer.gl.AGLBackend;
+import org.rajawali3d.renderer.gl.HeadlessGLBackend;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark of parsing model files of each supported format, from files of a few sizes.
+ *
+ * Besides the number of parses per second, the {@link Counters} report the throughput in megabytes and vertices per
+ * second. The fixtures are generated by {@link ModelFixtures} on the first run. Parsing the largest ones takes
+ * several seconds and gigabytes of heap, hence the long iterations and the large heap of the fork.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 10)
+@Measurement(iterations = 5, time = 10)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g", "-XX:MaxDirectMemorySize=4g"})
+public class LoaderBenchmark {
+
+    /**
+     * Throughput of the parsed data, reported next to the number of parses per second.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Counters {
+
+        /**
+         * Megabytes parsed per second.
+         */
+        public double parsedMegabytes;
+
+        /**
+         * Vertices produced per second, as counted by {@link ModelFormat#load(File)}.
+         */
+        public long parsedVertices;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            parsedMegabytes = 0;
+            parsedVertices = 0;
+        }
+    }
+
+    @Param({"OBJ", "STL_ASCII", "STL_BINARY", "MD2", "MD5_MESH", "MD5_ANIM", "MAX_3DS", "FBX", "AWD", "GCODE"})
+    public ModelFormat format;
+
+    @Param({"1", "20", "100"})
+    public int megabytes;
+
+    private File mFile;
+    private double mFileMegabytes;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException, ParsingException {
+        mFile = ModelFixtures.get(format, megabytes);
+        mFileMegabytes = mFile.length() / (double) ModelFixtures.BYTES_PER_MEGABYTE;
+        // The sanity parse below may create buffers as well
+        setupBackend();
+        // Some loaders log errors rather than throwing, so a fixture they can't read would be measured as a fast parse
+        final long vertices = format.load(mFile);
+        MaterialManager.getInstance().taskReset();
+        if (vertices == 0) {
+            throw new IllegalStateException("No vertices were parsed from " + mFile);
+        }
+    }
+
+    @Setup(Level.Iteration)
+    public void setupBackend() {
+        // Loaders may create buffers, which must not reach the platform stubs
+        AGLBackend.setCurrent(new HeadlessGLBackend());
+    }
+
+    @TearDown(Level.Invocation)
+    public void releaseMaterials() {
+        // Without a renderer the material manager keeps every material created by the loaders, so each parse would
+        // start with more of them to look through
+        MaterialManager.getInstance().taskReset();
+    }
+
+    @Benchmark
+    public long parse(Counters counters) throws ParsingException {
+        final long vertices = format.load(mFile);
+        counters.parsedMegabytes += mFileMegabytes;
+        counters.parsedVertices += vertices;
+        return vertices;
+    }
+}
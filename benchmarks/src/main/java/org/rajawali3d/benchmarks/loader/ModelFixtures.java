@@ -0,0 +1,830 @@
+/**
+ * Copyright 2013 Dennis Ippel
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.rajawali3d.benchmarks.loader;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Locale;
+
+/**
+ * Writes the model files parsed by {@link LoaderBenchmark}.
+ *
+ * Checking in 100 MB models isn't an option, so every fixture is generated from the same kind of content: patches of
+ * a regular grid over a wavy surface, with positions, normals and texture coordinates, written the way the exporters
+ * of each format lay them out. Patches are appended until the file reaches the requested size, so a fixture is
+ * slightly larger than requested. The content is deterministic, so fixtures written on different machines are
+ * identical, and they are kept in the directory set by the {@code rajawali.fixtures} system property, or the
+ * temporary directory, to be written only once.
+ */
+final class ModelFixtures {
+
+    static final int BYTES_PER_MEGABYTE = 1024 * 1024;
+
+    private static final String COMMENT = "Rajawali loader benchmark fixture";
+    // The skeletal formats share the same skeleton
+    private static final int JOINTS = 64;
+    // Values per line of the FBX arrays
+    private static final int FBX_LINE_LENGTH = 16;
+
+    private ModelFixtures() {
+    }
+
+    /**
+     * Retrieves the fixture of a format and size, writing it first if it doesn't exist yet.
+     *
+     * @param format    {@link ModelFormat} The format of the fixture.
+     * @param megabytes {@code int} The minimum size of the fixture in megabytes.
+     *
+     * @return {@link File} The fixture.
+     *
+     * @throws IOException if the fixture could not be written.
+     */
+    static File get(ModelFormat format, int megabytes) throws IOException {
+        final File directory = new File(System.getProperty("rajawali.fixtures",
+            new File(System.getProperty("java.io.tmpdir"), "rajawali-fixtures").getPath()));
+        final File file = new File(directory,
+            format.name().toLowerCase(Locale.US) + "-" + megabytes + "mb." + format.getExtension());
+        if (file.isFile()) {
+            return file;
+        }
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Could not create " + directory);
+        }
+        // Written under another name first, so an interrupted run doesn't leave a truncated fixture behind
+        final File temp = new File(directory, file.getName() + ".tmp");
+        format.write(temp, (long) megabytes * BYTES_PER_MEGABYTE);
+        if (!temp.renameTo(file)) {
+            throw new IOException("Could not rename " + temp + " to " + file);
+        }
+        return file;
+    }
+
+    static void writeObj(File file, long size) throws IOException {
+        final Grid grid = new Grid(64, 64);
+        final int[] triangle = new int[3];
+        final StringBuilder sb = new StringBuilder();
+        final Writer out = openText(file);
+        try {
+            sb.append("# ").append(COMMENT).append('\n');
+            long written = 0;
+            for (int patch = 0; written < size; ++patch) {
+                // Indices are global and start at 1
+                final int first = patch * grid.getVertexCount() + 1;
+                sb.append("o Patch").append(patch).append('\n');
+                for (int i = 0; i < grid.getVertexCount(); ++i) {
+                    appendFloats(sb.append('v'), ' ', grid.x(patch, i), grid.y(patch, i), grid.z(i)).append('\n');
+                }
+                for (int i = 0; i < grid.getVertexCount(); ++i) {
+                    appendFloats(sb.append("vt"), ' ', grid.u(i), grid.v(i)).append('\n');
+                }
+                for (int i = 0; i < grid.getVertexCount(); ++i) {
+                    grid.normal(patch, i, sb.append("vn"), ' ').append('\n');
+                }
+                for (int t = 0; t < grid.getTriangleCount(); ++t) {
+                    grid.triangle(t, triangle);
+                    sb.append('f');
+                    for (int k = 0; k < 3; ++k) {
+                        final int index = first + triangle[k];
+                        sb.append(' ').append(index).append('/').append(index).append('/').append(index);
+                    }
+                    sb.append('\n');
+                }
+                written += flush(sb, out);
+            }
+        } finally {
+            out.close();
+        }
+    }
+
+    static void writeStlAscii(File file, long size) throws IOException {
+        final Grid grid = new Grid(64, 64);
+        final int[] triangle = new int[3];
+        final StringBuilder sb = new StringBuilder();
+        final Writer out = openText(file);
+        try {
+            sb.append("solid ").append(COMMENT).append('\n');
+            long written = 0;
+            for (int patch = 0; written < size; ++patch) {
+                for (int t = 0; t < grid.getTriangleCount(); ++t) {
+                    grid.triangle(t, triangle);
+                    grid.normal(patch, triangle[0], sb.append("facet normal"), ' ').append('\n');
+                    sb.append(" outer loop\n");
+                    for (int k = 0; k < 3; ++k) {
+                        final int vertex = triangle[k];
+                        appendFloats(sb.append("  vertex"), ' ', grid.x(patch, vertex), grid.y(patch, vertex),
+                            grid.z(vertex)).append('\n');
+                    }
+                    sb.append(" endloop\nendfacet\n");
+                }
+                written += flush(sb, out);
+            }
+            sb.append("endsolid ").append(COMMENT).append('\n');
+            flush(sb, out);
+        } finally {
+            out.close();
+        }
+    }
+
+    static void writeStlBinary(File file, long size) throws IOException {
+        final Grid grid = new Grid(64, 64);
+        final int[] triangle = new int[3];
+        final float[] normal = new float[3];
+        final long facets = Math.max(1, (size - 84 + 49) / 50);
+        final BinaryWriter out = new BinaryWriter(file);
+        try {
+            out.putString(COMMENT, 80);
+            out.putInt((int) facets);
+            long written = 0;
+            for (int patch = 0; written < facets; ++patch) {
+                for (int t = 0; t < grid.getTriangleCount() && written < facets; ++t, ++written) {
+                    grid.triangle(t, triangle);
+                    grid.normal(patch, triangle[0], normal);
+                    out.putFloat(normal[0]).putFloat(normal[1]).putFloat(normal[2]);
+                    for (int k = 0; k < 3; ++k) {
+                        final int vertex = triangle[k];
+                        out.putFloat(grid.x(patch, vertex)).putFloat(grid.y(patch, vertex)).putFloat(grid.z(vertex));
+                    }
+                    // Attribute byte count
+                    out.putShort(0);
+                }
+            }
+        } finally {
+            out.close();
+        }
+    }
+
+    /**
+     * Writes a single model whose size comes from the number of key frames. MD2 models are limited to 2048 vertices.
+     */
+    static void writeMd2(File file, long size) throws IOException {
+        final Grid grid = new Grid(32, 64);
+        final int vertices = grid.getVertexCount();
+        final int triangles = grid.getTriangleCount();
+        final int headerSize = 17 * 4;
+        final int frameSize = 40 + 4 * vertices;
+        // A triangle strip per row of cells, each a count followed by the texture coordinates and index of its
+        // vertices, and a terminating 0
+        final int glCommands = (grid.getRows() - 1) * (1 + 2 * grid.getColumns() * 3) + 1;
+        final int offsetTriangles = headerSize + 4 * vertices;
+        final int offsetFrames = offsetTriangles + 12 * triangles;
+        final int frames = (int) Math.max(1, (size - offsetFrames - 4 * glCommands + frameSize - 1) / frameSize);
+        final int offsetGlCommands = offsetFrames + frames * frameSize;
+        final int offsetEnd = offsetGlCommands + 4 * glCommands;
+        final int[] triangle = new int[3];
+
+        final BinaryWriter out = new BinaryWriter(file);
+        try {
+            // "IDP2", version 8
+            out.putInt(844121161).putInt(8);
+            // Skin width and height, frame size
+            out.putInt(256).putInt(256).putInt(frameSize);
+            // Skins, vertices, texture coordinates, triangles, GL commands, frames
+            out.putInt(0).putInt(vertices).putInt(vertices).putInt(triangles).putInt(glCommands).putInt(frames);
+            // Offsets of the skins, texture coordinates, triangles, frames, GL commands and end
+            out.putInt(headerSize).putInt(headerSize).putInt(offsetTriangles).putInt(offsetFrames)
+                .putInt(offsetGlCommands).putInt(offsetEnd);
+
+            for (int i = 0; i < vertices; ++i) {
+                out.putShort(Math.round(grid.u(i) * 255)).putShort(Math.round(grid.v(i) * 255));
+            }
+            // One texture coordinate per vertex, so no vertex has to be split
+            for (int t = 0; t < triangles; ++t) {
+                grid.triangle(t, triangle);
+                out.putShort(triangle[0]).putShort(triangle[1]).putShort(triangle[2]);
+                out.putShort(triangle[0]).putShort(triangle[1]).putShort(triangle[2]);
+            }
+            for (int frame = 0; frame < frames; ++frame) {
+                // Scale and translation of the compressed vertices
+                out.putFloat(0.25f).putFloat(0.25f).putFloat(0.01f).putFloat(0).putFloat(0).putFloat(0);
+                out.putString("frame" + frame, 16);
+                for (int i = 0; i < vertices; ++i) {
+                    final double wave = Math.sin(0.3 * grid.column(i) + 0.2 * grid.row(i) + 0.05 * frame);
+                    out.putByte(grid.column(i) * 8).putByte(grid.row(i) * 4).putByte((int) (127.5 + 127 * wave))
+                        .putByte(0);
+                }
+            }
+            for (int row = 0; row < grid.getRows() - 1; ++row) {
+                out.putInt(2 * grid.getColumns());
+                for (int column = 0; column < grid.getColumns(); ++column) {
+                    for (int i = 0; i < 2; ++i) {
+                        final int vertex = (row + 1 - i) * grid.getColumns() + column;
+                        out.putFloat(grid.u(vertex)).putFloat(grid.v(vertex)).putInt(vertex);
+                    }
+                }
+            }
+            out.putInt(0);
+        } finally {
+            out.close();
+        }
+    }
+
+    /**
+     * Writes a model with a mesh per patch. The shader names are empty, as the loader looks textures up in the
+     * resources of the application.
+     */
+    static void writeMd5Mesh(File file, long size) throws IOException {
+        final Grid grid = new Grid(32, 32);
+        final int[] triangle = new int[3];
+        final StringBuilder sb = new StringBuilder();
+
+        // The number of meshes goes in the header, so the size of a mesh is measured first
+        appendMd5Mesh(sb, grid, 0, triangle);
+        final int meshes = (int) Math.max(1, (size + sb.length() - 1) / sb.length());
+        sb.setLength(0);
+
+        final Writer out = openText(file);
+        try {
+            sb.append("MD5Version 10\n");
+            sb.append("commandline \"").append(COMMENT).append("\"\n\n");
+            sb.append("numJoints ").append(JOINTS).append('\n');
+            sb.append("numMeshes ").append(meshes).append("\n\n");
+            sb.append("joints {\n");
+            for (int j = 0; j < JOINTS; ++j) {
+                sb.append("\t\"joint").append(j).append("\" ").append(getParentJoint(j)).append(" (");
+                appendFloats(sb, ' ', j, 0, 0).append(" ) (");
+                appendFloats(sb, ' ', 0, 0, 0).append(" )\n");
+            }
+            sb.append("}\n\n");
+            for (int mesh = 0; mesh < meshes; ++mesh) {
+                appendMd5Mesh(sb, grid, mesh, triangle);
+                flush(sb, out);
+            }
+        } finally {
+            out.close();
+        }
+    }
+
+    private static void appendMd5Mesh(StringBuilder sb, Grid grid, int patch, int[] triangle) {
+        sb.append("mesh {\n");
+        sb.append("\tshader \"\"\n\n");
+        sb.append("\tnumverts ").append(grid.getVertexCount()).append('\n');
+        // A single weight per vertex, with the same index as the vertex
+        for (int i = 0; i < grid.getVertexCount(); ++i) {
+            sb.append("\tvert ").append(i).append(" (");
+            appendFloats(sb, ' ', grid.u(i), grid.v(i)).append(" ) ").append(i).append(" 1\n");
+        }
+        sb.append("\n\tnumtris ").append(grid.getTriangleCount()).append('\n');
+        for (int t = 0; t < grid.getTriangleCount(); ++t) {
+            grid.triangle(t, triangle);
+            sb.append("\ttri ").append(t).append(' ').append(triangle[0]).append(' ').append(triangle[1]).append(' ')
+                .append(triangle[2]).append('\n');
+        }
+        sb.append("\n\tnumweights ").append(grid.getVertexCount()).append('\n');
+        for (int i = 0; i < grid.getVertexCount(); ++i) {
+            // Joint j is at (j, 0, 0), weights are relative to their joint
+            final int joint = i % JOINTS;
+            sb.append("\tweight ").append(i).append(' ').append(joint).append(" 1.0000 (");
+            appendFloats(sb, ' ', grid.x(patch, i) - joint, grid.y(patch, i), grid.z(i)).append(" )\n");
+        }
+        sb.append("}\n\n");
+    }
+
+    /**
+     * Writes an animation of the skeleton of {@link #writeMd5Mesh(File, long)} whose size comes from the number of
+     * frames. All components of all joints are animated.
+     */
+    static void writeMd5Anim(File file, long size) throws IOException {
+        final StringBuilder sb = new StringBuilder();
+
+        // The number of frames goes in the header, so the size of a frame and its bounds is measured first
+        appendMd5Bounds(sb, 0);
+        appendMd5Frame(sb, 0);
+        final int frames = (int) Math.max(1, (size + sb.length() - 1) / sb.length());
+        sb.setLength(0);
+
+        final Writer out = openText(file);
+        try {
+            sb.append("MD5Version 10\n");
+            sb.append("commandline \"").append(COMMENT).append("\"\n\n");
+            sb.append("numFrames ").append(frames).append('\n');
+            sb.append("numJoints ").append(JOINTS).append('\n');
+            sb.append("frameRate 24\n");
+            sb.append("numAnimatedComponents ").append(JOINTS * 6).append("\n\n");
+            sb.append("hierarchy {\n");
+            for (int j = 0; j < JOINTS; ++j) {
+                // All six components are animated
+                sb.append("\t\"joint").append(j).append("\" ").append(getParentJoint(j)).append(" 63 ").append(j * 6)
+                    .append('\n');
+            }
+            sb.append("}\n\n");
+            sb.append("bounds {\n");
+            for (int frame = 0; frame < frames; ++frame) {
+                appendMd5Bounds(sb, frame);
+            }
+            sb.append("}\n\n");
+            sb.append("baseframe {\n");
+            for (int j = 0; j < JOINTS; ++j) {
+                sb.append("\t(");
+                appendFloats(sb, ' ', j, 0, 0).append(" ) (");
+                appendFloats(sb, ' ', 0, 0, 0).append(" )\n");
+            }
+            sb.append("}\n\n");
+            flush(sb, out);
+            for (int frame = 0; frame < frames; ++frame) {
+                appendMd5Frame(sb, frame);
+                flush(sb, out);
+            }
+        } finally {
+            out.close();
+        }
+    }
+
+    private static void appendMd5Bounds(StringBuilder sb, int frame) {
+        final float extent = JOINTS + (float) Math.sin(0.1 * frame);
+        sb.append("\t(");
+        appendFloats(sb, ' ', -extent, -extent, -extent).append(" ) (");
+        appendFloats(sb, ' ', extent, extent, extent).append(" )\n");
+    }
+
+    private static void appendMd5Frame(StringBuilder sb, int frame) {
+        sb.append("frame ").append(frame).append(" {\n");
+        for (int j = 0; j < JOINTS; ++j) {
+            final float wave = (float) Math.sin(0.1 * frame + j);
+            // The loader computes the w of the orientations, which must therefore have a length below 1
+            appendFloats(sb.append('\t'), ' ', j + wave, wave, 0, 0.1f * wave, 0.2f * wave, 0.1f * wave).append('\n');
+        }
+        sb.append("}\n\n");
+    }
+
+    private static int getParentJoint(int joint) {
+        return joint == 0 ? -1 : (joint - 1) / 2;
+    }
+
+    /**
+     * Writes an object per patch. Objects are kept small, as the loader compares every vertex of an object with every
+     * index to compute the vertex normals.
+     */
+    static void write3ds(File file, long size) throws IOException {
+        final Grid grid = new Grid(16, 8);
+        final int[] triangle = new int[3];
+        final int vertices = grid.getVertexCount();
+        final int triangles = grid.getTriangleCount();
+        // Names have a fixed length, so all objects have the same size
+        final int nameLength = String.format(Locale.US, "Object%06d", 0).length() + 1;
+        final int vertexChunk = 6 + 2 + 12 * vertices;
+        final int texCoordChunk = 6 + 2 + 8 * vertices;
+        final int faceChunk = 6 + 2 + 8 * triangles;
+        final int meshChunk = 6 + vertexChunk + texCoordChunk + faceChunk;
+        final int objectChunk = 6 + nameLength + meshChunk;
+        final int objects = (int) Math.max(1, (size - 12 + objectChunk - 1) / objectChunk);
+        final int editorChunk = 6 + objects * objectChunk;
+
+        final BinaryWriter out = new BinaryWriter(file);
+        try {
+            out.putShort(0x4D4D).putInt(6 + editorChunk);
+            out.putShort(0x3D3D).putInt(editorChunk);
+            for (int patch = 0; patch < objects; ++patch) {
+                out.putShort(0x4000).putInt(objectChunk);
+                out.putString(String.format(Locale.US, "Object%06d", patch), nameLength);
+                out.putShort(0x4100).putInt(meshChunk);
+                out.putShort(0x4110).putInt(vertexChunk).putShort(vertices);
+                for (int i = 0; i < vertices; ++i) {
+                    out.putFloat(grid.x(patch, i)).putFloat(grid.y(patch, i)).putFloat(grid.z(i));
+                }
+                out.putShort(0x4140).putInt(texCoordChunk).putShort(vertices);
+                for (int i = 0; i < vertices; ++i) {
+                    out.putFloat(grid.u(i)).putFloat(grid.v(i));
+                }
+                out.putShort(0x4120).putInt(faceChunk).putShort(triangles);
+                for (int t = 0; t < triangles; ++t) {
+                    grid.triangle(t, triangle);
+                    // The last value holds the edge visibility flags
+                    out.putShort(triangle[0]).putShort(triangle[1]).putShort(triangle[2]).putShort(7);
+                }
+            }
+        } finally {
+            out.close();
+        }
+    }
+
+    /**
+     * Writes an FBX 6.1 ASCII file with a mesh model per patch. There are no cameras, as the loader needs a renderer to
+     * apply them to.
+     */
+    static void writeFbx(File file, long size) throws IOException {
+        final Grid grid = new Grid(32, 32);
+        final int[] triangle = new int[3];
+        final float[] normal = new float[3];
+        final float[] positions = new float[3 * grid.getVertexCount()];
+        final float[] normals = new float[3 * grid.getVertexCount()];
+        final float[] texCoords = new float[2 * grid.getVertexCount()];
+        final int[] polygons = new int[3 * grid.getTriangleCount()];
+        final int[] texCoordIndices = new int[polygons.length];
+        final StringBuilder sb = new StringBuilder();
+        final Writer out = openText(file);
+        try {
+            sb.append("; FBX 6.1.0 project file\n");
+            sb.append("; ").append(COMMENT).append("\n\n");
+            sb.append("FBXHeaderExtension:  {\n");
+            sb.append("\tFBXHeaderVersion: 1003\n");
+            sb.append("\tFBXVersion: 6100\n");
+            sb.append("\tCreator: \"").append(COMMENT).append("\"\n");
+            sb.append("}\n\n");
+            sb.append("Objects:  {\n");
+            long written = flush(sb, out);
+            for (int patch = 0; written < size; ++patch) {
+                for (int i = 0; i < grid.getVertexCount(); ++i) {
+                    positions[3 * i] = grid.x(patch, i);
+                    positions[3 * i + 1] = grid.y(patch, i);
+                    positions[3 * i + 2] = grid.z(i);
+                    grid.normal(patch, i, normal);
+                    System.arraycopy(normal, 0, normals, 3 * i, 3);
+                    texCoords[2 * i] = grid.u(i);
+                    texCoords[2 * i + 1] = grid.v(i);
+                }
+                for (int t = 0; t < grid.getTriangleCount(); ++t) {
+                    grid.triangle(t, triangle);
+                    polygons[3 * t] = texCoordIndices[3 * t] = triangle[0];
+                    polygons[3 * t + 1] = texCoordIndices[3 * t + 1] = triangle[1];
+                    // The last index of a polygon is stored as -(index + 1)
+                    polygons[3 * t + 2] = -triangle[2] - 1;
+                    texCoordIndices[3 * t + 2] = triangle[2];
+                }
+
+                sb.append("\tModel: \"Model::Patch").append(patch).append("\", \"Mesh\" {\n");
+                sb.append("\t\tVersion: 232\n");
+                sb.append("\t\tProperties60:  {\n");
+                sb.append("\t\t\tProperty: \"Lcl Translation\", \"Lcl Translation\", \"A+\",0,0,0\n");
+                sb.append("\t\t\tProperty: \"Lcl Rotation\", \"Lcl Rotation\", \"A+\",0,0,0\n");
+                sb.append("\t\t\tProperty: \"Lcl Scaling\", \"Lcl Scaling\", \"A+\",1,1,1\n");
+                sb.append("\t\t}\n");
+                appendFbxArray(sb, "\t\t", "Vertices", positions);
+                appendFbxArray(sb, "\t\t", "PolygonVertexIndex", polygons);
+                sb.append("\t\tLayerElementNormal: 0 {\n");
+                sb.append("\t\t\tVersion: 101\n");
+                sb.append("\t\t\tName: \"\"\n");
+                sb.append("\t\t\tMappingInformationType: \"ByVertice\"\n");
+                sb.append("\t\t\tReferenceInformationType: \"Direct\"\n");
+                appendFbxArray(sb, "\t\t\t", "Normals", normals);
+                sb.append("\t\t}\n");
+                sb.append("\t\tLayerElementUV: 0 {\n");
+                sb.append("\t\t\tVersion: 101\n");
+                sb.append("\t\t\tName: \"UVChannel_1\"\n");
+                sb.append("\t\t\tMappingInformationType: \"ByPolygonVertex\"\n");
+                sb.append("\t\t\tReferenceInformationType: \"IndexToDirect\"\n");
+                appendFbxArray(sb, "\t\t\t", "UV", texCoords);
+                appendFbxArray(sb, "\t\t\t", "UVIndex", texCoordIndices);
+                sb.append("\t\t}\n");
+                sb.append("\t}\n");
+                written += flush(sb, out);
+            }
+            sb.append("}\n");
+            flush(sb, out);
+        } finally {
+            out.close();
+        }
+    }
+
+    private static void appendFbxArray(StringBuilder sb, String indent, String name, float[] values) {
+        sb.append(indent).append(name).append(": ");
+        for (int i = 0; i < values.length; ++i) {
+            appendFbxSeparator(sb, indent, i);
+            appendFloat(sb, values[i]);
+        }
+        sb.append('\n');
+    }
+
+    private static void appendFbxArray(StringBuilder sb, String indent, String name, int[] values) {
+        sb.append(indent).append(name).append(": ");
+        for (int i = 0; i < values.length; ++i) {
+            appendFbxSeparator(sb, indent, i);
+            sb.append(values[i]);
+        }
+        sb.append('\n');
+    }
+
+    private static void appendFbxSeparator(StringBuilder sb, String indent, int index) {
+        // Long arrays are wrapped, continuation lines start with the separator
+        if (index > 0 && index % FBX_LINE_LENGTH == 0) {
+            sb.append('\n').append(indent).append(',');
+        } else if (index > 0) {
+            sb.append(',');
+        }
+    }
+
+    /**
+     * Writes a triangle geometry block per patch, each placed in the scene by a mesh instance block. The instances
+     * share a single color material, as the default material of the loader needs a bitmap.
+     */
+    static void writeAwd(File file, long size) throws IOException {
+        final Grid grid = new Grid(64, 64);
+        final int[] triangle = new int[3];
+        final float[] normal = new float[3];
+        final int vertices = grid.getVertexCount();
+        final int triangles = grid.getTriangleCount();
+        final int blockHeader = 4 + 1 + 1 + 1 + 4;
+        // Names have a fixed length, so all blocks have the same size
+        final int nameLength = String.format(Locale.US, "Geometry%06d", 0).length();
+        // Name, type, shading methods, properties and user attributes
+        final int material = 2 + nameLength + 1 + 1 + 4 + 4;
+        // Positions, indices, texture coordinates and normals, each with a 6 byte header
+        final int streams = 4 * 6 + 12 * vertices + 6 * triangles + 8 * vertices + 12 * vertices;
+        // Length, properties, streams and user attributes
+        final int subGeometry = 4 + 4 + streams + 4;
+        // Name, sub geometry count, properties, sub geometry and user attributes
+        final int geometry = 2 + nameLength + 2 + 4 + subGeometry + 4;
+        // Parent, transformation, name, geometry, material count and material, properties and user attributes
+        final int instance = 4 + 12 * 4 + 2 + nameLength + 4 + 2 + 4 + 4 + 4;
+        final int patchSize = 2 * blockHeader + geometry + instance;
+        final int patches = (int) Math.max(1, (size - 12 - blockHeader - material + patchSize - 1) / patchSize);
+
+        final BinaryWriter out = new BinaryWriter(file);
+        try {
+            out.putString("AWD", 3);
+            // Version 2.1, no flags, no compression, body length
+            out.putByte(2).putByte(1).putShort(0).putByte(0).putInt(blockHeader + material + patches * patchSize);
+
+            // Id, namespace, type, flags and length of each block
+            out.putInt(1).putByte(0).putByte(81).putByte(0).putInt(material);
+            out.putShort(nameLength).putString(String.format(Locale.US, "Material%06d", 0), nameLength);
+            // Color material without shading methods, properties or user attributes
+            out.putByte(1).putByte(0).putInt(0).putInt(0);
+
+            for (int patch = 0; patch < patches; ++patch) {
+                final int geometryId = 2 * patch + 2;
+                out.putInt(geometryId).putByte(0).putByte(1).putByte(0).putInt(geometry);
+                out.putShort(nameLength).putString(String.format(Locale.US, "Geometry%06d", patch), nameLength);
+                // A single sub geometry, no properties
+                out.putShort(1).putInt(0);
+                // The loader measures the length of the sub geometry from the start of the length
+                out.putInt(4 + 4 + streams).putInt(0);
+                out.putByte(1).putByte(7).putInt(12 * vertices);
+                for (int i = 0; i < vertices; ++i) {
+                    out.putFloat(grid.x(patch, i)).putFloat(grid.y(patch, i)).putFloat(grid.z(i));
+                }
+                out.putByte(2).putByte(5).putInt(6 * triangles);
+                for (int t = 0; t < triangles; ++t) {
+                    grid.triangle(t, triangle);
+                    out.putShort(triangle[0]).putShort(triangle[1]).putShort(triangle[2]);
+                }
+                out.putByte(3).putByte(7).putInt(8 * vertices);
+                for (int i = 0; i < vertices; ++i) {
+                    out.putFloat(grid.u(i)).putFloat(grid.v(i));
+                }
+                out.putByte(4).putByte(7).putInt(12 * vertices);
+                for (int i = 0; i < vertices; ++i) {
+                    grid.normal(patch, i, normal);
+                    out.putFloat(normal[0]).putFloat(normal[1]).putFloat(normal[2]);
+                }
+                // User attributes of the sub geometry and of the block
+                out.putInt(0).putInt(0);
+
+                out.putInt(geometryId + 1).putByte(0).putByte(23).putByte(0).putInt(instance);
+                // No parent, identity rotation and scale without translation
+                out.putInt(0);
+                out.putFloat(1).putFloat(0).putFloat(0).putFloat(0).putFloat(1).putFloat(0).putFloat(0).putFloat(0)
+                    .putFloat(1).putFloat(0).putFloat(0).putFloat(0);
+                out.putShort(nameLength).putString(String.format(Locale.US, "Instance%06d", patch), nameLength);
+                out.putInt(geometryId).putShort(1).putInt(1);
+                // Properties and user attributes
+                out.putInt(0).putInt(0);
+            }
+        } finally {
+            out.close();
+        }
+    }
+
+    /**
+     * Writes the tool path of a print, with a circle of extruding moves per layer. All coordinates are positive, as
+     * the loader uses -1 to mark missing values.
+     */
+    static void writeGCode(File file, long size) throws IOException {
+        final int moves = 2000;
+        final StringBuilder sb = new StringBuilder();
+        final Writer out = openText(file);
+        try {
+            sb.append("; ").append(COMMENT).append('\n');
+            sb.append("G21\nG90\nG92 E0\n");
+            long written = 0;
+            float extruded = 0;
+            for (int layer = 0; written < size; ++layer) {
+                appendFloat(sb.append("G1 Z"), 0.3f * (layer + 1)).append(" F7800.0000\n");
+                final float radius = 20 + (layer % 10);
+                for (int i = 0; i <= moves; ++i) {
+                    final double angle = 2 * Math.PI * i / moves;
+                    extruded += 0.05f;
+                    appendFloat(sb.append("G1 X"), (float) (100 + radius * Math.cos(angle)));
+                    appendFloat(sb.append(" Y"), (float) (100 + radius * Math.sin(angle)));
+                    appendFloat(sb.append(" E"), extruded).append('\n');
+                }
+                written += flush(sb, out);
+            }
+            sb.append("M84\n");
+            flush(sb, out);
+        } finally {
+            out.close();
+        }
+    }
+
+    private static Writer openText(File file) throws IOException {
+        return new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), "US-ASCII"), 1 << 16);
+    }
+
+    private static long flush(StringBuilder sb, Writer out) throws IOException {
+        final int length = sb.length();
+        out.append(sb);
+        sb.setLength(0);
+        return length;
+    }
+
+    private static StringBuilder appendFloats(StringBuilder sb, char separator, float... values) {
+        for (float value : values) {
+            appendFloat(sb.append(separator), value);
+        }
+        return sb;
+    }
+
+    /**
+     * Appends a value with 4 decimals, as exporters write fixed point values rather than the shortest representation.
+     */
+    private static StringBuilder appendFloat(StringBuilder sb, float value) {
+        long scaled = Math.round(value * 10000.0);
+        if (scaled < 0) {
+            sb.append('-');
+            scaled = -scaled;
+        }
+        sb.append(scaled / 10000).append('.');
+        final long fraction = scaled % 10000;
+        for (long digit = 1000; digit > fraction && digit > 1; digit /= 10) {
+            sb.append('0');
+        }
+        return sb.append(fraction);
+    }
+
+    /**
+     * Grid of vertices over a wavy surface. Vertices are numbered row by row and each cell is split into two
+     * triangles. Patches are laid out next to each other along the x axis.
+     */
+    private static final class Grid {
+
+        private final int mColumns;
+        private final int mRows;
+
+        Grid(int columns, int rows) {
+            mColumns = columns;
+            mRows = rows;
+        }
+
+        int getColumns() {
+            return mColumns;
+        }
+
+        int getRows() {
+            return mRows;
+        }
+
+        int getVertexCount() {
+            return mColumns * mRows;
+        }
+
+        int getTriangleCount() {
+            return 2 * (mColumns - 1) * (mRows - 1);
+        }
+
+        int column(int vertex) {
+            return vertex % mColumns;
+        }
+
+        int row(int vertex) {
+            return vertex / mColumns;
+        }
+
+        float x(int patch, int vertex) {
+            return patch * (mColumns - 1) + column(vertex);
+        }
+
+        float y(int patch, int vertex) {
+            return (float) (0.5 * Math.sin(0.3 * x(patch, vertex)) * Math.cos(0.2 * row(vertex)));
+        }
+
+        float z(int vertex) {
+            return row(vertex);
+        }
+
+        float u(int vertex) {
+            return column(vertex) / (float) (mColumns - 1);
+        }
+
+        float v(int vertex) {
+            return row(vertex) / (float) (mRows - 1);
+        }
+
+        void normal(int patch, int vertex, float[] normal) {
+            final double x = x(patch, vertex);
+            final double z = z(vertex);
+            // Derivatives of the height along x and z
+            final double dx = 0.15 * Math.cos(0.3 * x) * Math.cos(0.2 * z);
+            final double dz = -0.1 * Math.sin(0.3 * x) * Math.sin(0.2 * z);
+            final double length = Math.sqrt(dx * dx + 1 + dz * dz);
+            normal[0] = (float) (-dx / length);
+            normal[1] = (float) (1 / length);
+            normal[2] = (float) (-dz / length);
+        }
+
+        StringBuilder normal(int patch, int vertex, StringBuilder sb, char separator) {
+            final float[] normal = new float[3];
+            normal(patch, vertex, normal);
+            return appendFloats(sb, separator, normal);
+        }
+
+        void triangle(int triangle, int[] indices) {
+            final int cell = triangle / 2;
+            final int first = (cell / (mColumns - 1)) * mColumns + cell % (mColumns - 1);
+            if (triangle % 2 == 0) {
+                indices[0] = first;
+                indices[1] = first + mColumns;
+                indices[2] = first + 1;
+            } else {
+                indices[0] = first + 1;
+                indices[1] = first + mColumns;
+                indices[2] = first + mColumns + 1;
+            }
+        }
+    }
+
+    /**
+     * Buffered writer of little endian binary data.
+     */
+    private static final class BinaryWriter implements Closeable {
+
+        private final OutputStream mOut;
+        private final ByteBuffer mBuffer = ByteBuffer.allocate(1 << 16).order(ByteOrder.LITTLE_ENDIAN);
+
+        BinaryWriter(File file) throws IOException {
+            mOut = new FileOutputStream(file);
+        }
+
+        BinaryWriter putByte(int value) throws IOException {
+            ensureRemaining(1);
+            mBuffer.put((byte) value);
+            return this;
+        }
+
+        BinaryWriter putShort(int value) throws IOException {
+            ensureRemaining(2);
+            mBuffer.putShort((short) value);
+            return this;
+        }
+
+        BinaryWriter putInt(int value) throws IOException {
+            ensureRemaining(4);
+            mBuffer.putInt(value);
+            return this;
+        }
+
+        BinaryWriter putFloat(float value) throws IOException {
+            ensureRemaining(4);
+            mBuffer.putFloat(value);
+            return this;
+        }
+
+        /**
+         * Writes an ASCII string padded with zeros to the provided length.
+         */
+        BinaryWriter putString(String value, int length) throws IOException {
+            final byte[] bytes = value.getBytes("US-ASCII");
+            for (int i = 0; i < length; ++i) {
+                putByte(i < bytes.length ? bytes[i] : 0);
+            }
+            return this;
+        }
+
+        private void ensureRemaining(int bytes) throws IOException {
+            if (mBuffer.remaining() < bytes) {
+                flush();
+            }
+        }
+
+        private void flush() throws IOException {
+            mOut.write(mBuffer.array(), 0, mBuffer.position());
+            mBuffer.clear();
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                flush();
+            } finally {
+                mOut.close();
+            }
+        }
+    }
+}
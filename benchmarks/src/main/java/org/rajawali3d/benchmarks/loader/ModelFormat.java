@@ -0,0 +1,201 @@
+/**
+ * Copyright 2013 Dennis Ippel
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.rajawali3d.benchmarks.loader;
+
+import org.rajawali3d.Object3D;
+import org.rajawali3d.animation.mesh.AAnimationObject3D;
+import org.rajawali3d.animation.mesh.SkeletalAnimationSequence;
+import org.rajawali3d.loader.Loader3DSMax;
+import org.rajawali3d.loader.LoaderAWD;
+import org.rajawali3d.loader.LoaderGCode;
+import org.rajawali3d.loader.LoaderMD2;
+import org.rajawali3d.loader.LoaderOBJ;
+import org.rajawali3d.loader.LoaderSTL;
+import org.rajawali3d.loader.ParsingException;
+import org.rajawali3d.loader.fbx.LoaderFBX;
+import org.rajawali3d.loader.md5.LoaderMD5Anim;
+import org.rajawali3d.loader.md5.LoaderMD5Mesh;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * The model formats benchmarked by {@link LoaderBenchmark}, each with the writer of its fixtures and its loader.
+ *
+ * Loading a fixture returns the number of vertices the loader produced, which is what the model costs once it is on
+ * the GPU. It follows each loader's output rather than the file: vertices shared by faces are duplicated by the
+ * loaders which don't index their output, and the animated formats count the vertices or joints of every frame.
+ */
+public enum ModelFormat {
+
+    OBJ("obj") {
+        @Override
+        void write(File file, long size) throws IOException {
+            ModelFixtures.writeObj(file, size);
+        }
+
+        @Override
+        long load(File file) throws ParsingException {
+            return countVertices(new LoaderOBJ(file).parse().getParsedObject());
+        }
+    },
+    STL_ASCII("stl") {
+        @Override
+        void write(File file, long size) throws IOException {
+            ModelFixtures.writeStlAscii(file, size);
+        }
+
+        @Override
+        long load(File file) throws ParsingException {
+            return countVertices(new LoaderSTL(file).parse().getParsedObject());
+        }
+    },
+    STL_BINARY("stl") {
+        @Override
+        void write(File file, long size) throws IOException {
+            ModelFixtures.writeStlBinary(file, size);
+        }
+
+        @Override
+        long load(File file) throws ParsingException {
+            return countVertices(new LoaderSTL(file).parse().getParsedObject());
+        }
+    },
+    MD2("md2") {
+        @Override
+        void write(File file, long size) throws IOException {
+            ModelFixtures.writeMd2(file, size);
+        }
+
+        @Override
+        long load(File file) throws ParsingException {
+            final AAnimationObject3D object = new LoaderMD2(file).parse().getParsedAnimationObject();
+            long vertices = 0;
+            for (int i = 0; i < object.getNumFrames(); ++i) {
+                vertices += object.getFrame(i).getGeometry().getNumVertices();
+            }
+            return vertices;
+        }
+    },
+    MD5_MESH("md5mesh") {
+        @Override
+        void write(File file, long size) throws IOException {
+            ModelFixtures.writeMd5Mesh(file, size);
+        }
+
+        @Override
+        long load(File file) throws ParsingException {
+            return countVertices(new LoaderMD5Mesh(file).parse().getParsedAnimationObject());
+        }
+    },
+    MD5_ANIM("md5anim") {
+        @Override
+        void write(File file, long size) throws IOException {
+            ModelFixtures.writeMd5Anim(file, size);
+        }
+
+        @Override
+        long load(File file) throws ParsingException {
+            final SkeletalAnimationSequence sequence = (SkeletalAnimationSequence) new LoaderMD5Anim("fixture", file)
+                .parse().getParsedAnimationSequence();
+            long joints = 0;
+            for (int i = 0; i < sequence.getNumFrames(); ++i) {
+                joints += sequence.getFrame(i).getSkeleton().getJoints().length;
+            }
+            return joints;
+        }
+    },
+    MAX_3DS("3ds") {
+        @Override
+        void write(File file, long size) throws IOException {
+            ModelFixtures.write3ds(file, size);
+        }
+
+        @Override
+        long load(File file) throws ParsingException {
+            return countVertices(new Loader3DSMax(file).parse().getParsedObject());
+        }
+    },
+    FBX("fbx") {
+        @Override
+        void write(File file, long size) throws IOException {
+            ModelFixtures.writeFbx(file, size);
+        }
+
+        @Override
+        long load(File file) throws ParsingException {
+            return countVertices(new LoaderFBX(file).parse().getParsedObject());
+        }
+    },
+    AWD("awd") {
+        @Override
+        void write(File file, long size) throws IOException {
+            ModelFixtures.writeAwd(file, size);
+        }
+
+        @Override
+        long load(File file) throws ParsingException {
+            return countVertices(new LoaderAWD(file).parse().getParsedObject());
+        }
+    },
+    GCODE("gcode") {
+        @Override
+        void write(File file, long size) throws IOException {
+            ModelFixtures.writeGCode(file, size);
+        }
+
+        @Override
+        long load(File file) throws ParsingException {
+            return countVertices(new LoaderGCode(file).parse().getParsedObject());
+        }
+    };
+
+    private final String mExtension;
+
+    ModelFormat(String extension) {
+        mExtension = extension;
+    }
+
+    String getExtension() {
+        return mExtension;
+    }
+
+    /**
+     * Writes a fixture in this format.
+     *
+     * @param file {@link File} to write to.
+     * @param size {@code long} The minimum size of the fixture in bytes.
+     *
+     * @throws IOException if the fixture could not be written.
+     */
+    abstract void write(File file, long size) throws IOException;
+
+    /**
+     * Parses a file in this format.
+     *
+     * @param file {@link File} to parse.
+     *
+     * @return {@code long} The number of vertices produced by the loader.
+     *
+     * @throws ParsingException if the loader rejected the file.
+     */
+    abstract long load(File file) throws ParsingException;
+
+    private static long countVertices(Object3D object) {
+        long vertices = object.getGeometry() == null ? 0 : object.getGeometry().getNumVertices();
+        for (int i = 0; i < object.getNumChildren(); ++i) {
+            vertices += countVertices(object.getChildAt(i));
+        }
+        return vertices;
+    }
+}
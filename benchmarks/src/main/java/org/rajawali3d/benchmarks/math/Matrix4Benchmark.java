@@ -0,0 +1,110 @@
+/**
+ * Copyright 2013 Dennis Ippel
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.rajawali3d.benchmarks.math;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.rajawali3d.math.Matrix4;
+import org.rajawali3d.math.Quaternion;
+import org.rajawali3d.math.vector.Vector3;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of the {@link Matrix4} operations made for each object and frame.
+ *
+ * The operations work in place, so each one first copies its input into the result. {@link #copy()} measures that
+ * copy on its own. The model matrix is uniformly scaled and the view matrix rigid, so the specialized inverses can
+ * be compared with the general ones on the same input.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class Matrix4Benchmark {
+
+    private final Matrix4 mModel = new Matrix4();
+    private final Matrix4 mView = new Matrix4();
+    private final Matrix4 mResult = new Matrix4();
+
+    @Setup
+    public void setup() {
+        mModel.setAll(new Vector3(1, 2, 3), new Vector3(2, 2, 2), new Quaternion(new Vector3(1, 1, 0), 30));
+        mView.setToLookAt(new Vector3(0, 5, 10), Vector3.ZERO, Vector3.Y);
+    }
+
+    @Benchmark
+    public Matrix4 copy() {
+        return mResult.setAll(mModel);
+    }
+
+    @Benchmark
+    public Matrix4 multiply() {
+        return mResult.setAll(mView).multiply(mModel);
+    }
+
+    @Benchmark
+    public Matrix4 leftMultiply() {
+        return mResult.setAll(mModel).leftMultiply(mView);
+    }
+
+    @Benchmark
+    public Matrix4 inverse() {
+        return mResult.setAll(mModel).inverse();
+    }
+
+    @Benchmark
+    public Matrix4 setToNormalMatrix() {
+        return mResult.setAll(mModel).setToNormalMatrix();
+    }
+
+    @Benchmark
+    public Matrix4.TransformType getTransformType() {
+        return mModel.getTransformType();
+    }
+
+    @Benchmark
+    public Matrix4 inverseUniformScale() {
+        return mResult.setAll(mModel).inverse(Matrix4.TransformType.UNIFORM_SCALE);
+    }
+
+    @Benchmark
+    public Matrix4 inverseAffine() {
+        return mResult.setAll(mModel).inverse(Matrix4.TransformType.AFFINE);
+    }
+
+    @Benchmark
+    public Matrix4 inverseRigid() {
+        return mResult.setAll(mView).inverse(Matrix4.TransformType.RIGID);
+    }
+
+    @Benchmark
+    public Matrix4 setToNormalMatrixUniformScale() {
+        return mResult.setAll(mModel).setToNormalMatrix(Matrix4.TransformType.UNIFORM_SCALE);
+    }
+
+    @Benchmark
+    public Matrix4 setToNormalMatrixAffine() {
+        return mResult.setAll(mModel).setToNormalMatrix(Matrix4.TransformType.AFFINE);
+    }
+}
@@ -0,0 +1,102 @@
+/**
+ * Copyright 2013 Dennis Ippel
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.rajawali3d.benchmarks.math;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.rajawali3d.math.Matrix4;
+import org.rajawali3d.math.Quaternion;
+import org.rajawali3d.math.vector.Vector3;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of transforming packed points with {@link Matrix4}, as done when geometry is baked.
+ *
+ * {@link #vector3Multiply()} transforms the points one {@link Vector3} at a time, which is what the batch methods
+ * replace. The time is per batch, so divide it by {@link #points} for the time per point.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class Matrix4TransformBenchmark {
+
+    @Param({"1024", "262144"})
+    public int points;
+
+    private final Matrix4 mModel = new Matrix4();
+    private final Vector3 mVector = new Vector3();
+    private float[] mSource;
+    private float[] mResult;
+    private FloatBuffer mSourceBuffer;
+    private FloatBuffer mResultBuffer;
+
+    @Setup
+    public void setup() {
+        mModel.setAll(new Vector3(1, 2, 3), new Vector3(2, 2, 2), new Quaternion(new Vector3(1, 1, 0), 30));
+        final Random random = new Random(42);
+        mSource = new float[points * 3];
+        for (int i = 0; i < mSource.length; ++i) {
+            mSource[i] = random.nextFloat() * 100 - 50;
+        }
+        mResult = new float[mSource.length];
+        mSourceBuffer = ByteBuffer.allocateDirect(mSource.length * 4).order(ByteOrder.nativeOrder()).asFloatBuffer();
+        mSourceBuffer.put(mSource).position(0);
+        mResultBuffer = ByteBuffer.allocateDirect(mSource.length * 4).order(ByteOrder.nativeOrder()).asFloatBuffer();
+    }
+
+    @Benchmark
+    public float[] transformPoints() {
+        mModel.transformPoints(mSource, 0, 3, mResult, 0, 3, points);
+        return mResult;
+    }
+
+    @Benchmark
+    public float[] transformDirections() {
+        mModel.transformDirections(mSource, 0, 3, mResult, 0, 3, points);
+        return mResult;
+    }
+
+    @Benchmark
+    public FloatBuffer transformPointsDirectBuffer() {
+        mModel.transformPoints(mSourceBuffer, 0, 3, mResultBuffer, 0, 3, points);
+        return mResultBuffer;
+    }
+
+    @Benchmark
+    public float[] vector3Multiply() {
+        for (int i = 0; i < mSource.length; i += 3) {
+            mVector.setAll(mSource[i], mSource[i + 1], mSource[i + 2]).multiply(mModel);
+            mResult[i] = (float) mVector.x;
+            mResult[i + 1] = (float) mVector.y;
+            mResult[i + 2] = (float) mVector.z;
+        }
+        return mResult;
+    }
+}
@@ -0,0 +1,78 @@
+/**
+ * Copyright 2013 Dennis Ippel
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.rajawali3d.benchmarks.math;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.rajawali3d.math.Matrix4;
+import org.rajawali3d.math.Quaternion;
+import org.rajawali3d.math.vector.Vector3;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of the {@link Quaternion} operations used by rotations and animations.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class QuaternionBenchmark {
+
+    private final Quaternion mStart = new Quaternion();
+    private final Quaternion mEnd = new Quaternion();
+    private final Quaternion mResult = new Quaternion();
+    private final Matrix4 mMatrix = new Matrix4();
+    private double mT;
+
+    @Setup
+    public void setup() {
+        mStart.fromAngleAxis(new Vector3(1, 1, 0), 30);
+        mEnd.fromEuler(45, 10, 80);
+    }
+
+    @Benchmark
+    public Quaternion slerp() {
+        // Step through the interpolation range so neither of the special cases at its ends is measured alone
+        mT += 0.01;
+        if (mT > 1) {
+            mT = 0;
+        }
+        return mResult.slerp(mStart, mEnd, mT);
+    }
+
+    @Benchmark
+    public Quaternion multiply() {
+        return mResult.setAll(mStart).multiply(mEnd);
+    }
+
+    @Benchmark
+    public Quaternion fromEuler() {
+        return mResult.fromEuler(45, 10, 80);
+    }
+
+    @Benchmark
+    public Matrix4 toRotationMatrix() {
+        return mStart.toRotationMatrix(mMatrix);
+    }
+}
@@ -0,0 +1,74 @@
+/**
+ * Copyright 2013 Dennis Ippel
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.rajawali3d.benchmarks.math;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.rajawali3d.math.Matrix4;
+import org.rajawali3d.math.Quaternion;
+import org.rajawali3d.math.vector.Vector3;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of the {@link Vector3} transforms.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class Vector3Benchmark {
+
+    private final Vector3 mPoint = new Vector3(1, 2, 3);
+    private final Vector3 mResult = new Vector3();
+    private final Matrix4 mMatrix = new Matrix4();
+    private final Matrix4 mProjection = new Matrix4();
+    private final Quaternion mRotation = new Quaternion();
+
+    @Setup
+    public void setup() {
+        mRotation.fromAngleAxis(new Vector3(1, 1, 0), 30);
+        mMatrix.setAll(new Vector3(1, 2, 3), new Vector3(2, 2, 2), mRotation);
+        mProjection.setToPerspective(1, 100, 60, 16.0 / 9.0);
+    }
+
+    @Benchmark
+    public Vector3 multiplyMatrix() {
+        return mResult.setAll(mPoint).multiply(mMatrix);
+    }
+
+    @Benchmark
+    public Vector3 project() {
+        return mResult.setAll(mPoint).project(mProjection);
+    }
+
+    @Benchmark
+    public Vector3 rotateBy() {
+        return mResult.setAll(mPoint).rotateBy(mRotation);
+    }
+
+    @Benchmark
+    public Vector3 cross() {
+        return mResult.setAll(mPoint).cross(Vector3.Y);
+    }
+}
@@ -0,0 +1,129 @@
+package org.rajawali3d;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+import android.test.suitebuilder.annotation.SmallTest;
+import org.junit.Test;
+import org.rajawali3d.bounds.BoundingBox;
+import org.rajawali3d.cameras.Frustum;
+import org.rajawali3d.math.Matrix4;
+import org.rajawali3d.math.Quaternion;
+import org.rajawali3d.scenegraph.Octree;
+
+@SmallTest
+public class Object3DTest {
+
+    @Test
+    public void testUpdateTransformsSkipsStaticSubtrees() throws Exception {
+        final Object3D root = new Object3D();
+        final Object3D moving = new Object3D();
+        final Object3D still = new Object3D();
+        final Object3D leaf = new Object3D();
+        root.addChild(moving);
+        root.addChild(still);
+        moving.addChild(leaf);
+        root.updateTransforms();
+
+        final int rootVersion = root.getModelMatrixVersion();
+        final int stillVersion = still.getModelMatrixVersion();
+        final int leafVersion = leaf.getModelMatrixVersion();
+        root.updateTransforms();
+        assertEquals(rootVersion, root.getModelMatrixVersion());
+        assertEquals(leafVersion, leaf.getModelMatrixVersion());
+
+        moving.setPosition(0, 2, 0);
+        root.updateTransforms();
+        assertEquals(rootVersion, root.getModelMatrixVersion());
+        assertEquals(stillVersion, still.getModelMatrixVersion());
+        assertNotEquals(leafVersion, leaf.getModelMatrixVersion());
+        assertEquals(2, leaf.getModelMatrix().getTranslation().y, 1e-14);
+    }
+
+    @Test
+    public void testUpdateTransformsPropagatesParentChanges() throws Exception {
+        final Object3D root = new Object3D();
+        final Object3D child = new Object3D();
+        final Object3D grandChild = new Object3D();
+        root.addChild(child);
+        child.addChild(grandChild);
+        child.setPosition(1, 0, 0);
+        grandChild.setScale(2);
+        grandChild.setPosition(0, 0, 3);
+        root.updateTransforms();
+
+        root.setRotY(90);
+        root.setPosition(0, 5, 0);
+        root.updateTransforms();
+        final Matrix4 expected = new Matrix4().setAll(root.getPosition(), root.getScale(), root.getOrientation())
+                .multiply(new Matrix4().setAll(child.getPosition(), child.getScale(), child.getOrientation()))
+                .multiply(new Matrix4().setAll(grandChild.getPosition(), grandChild.getScale(),
+                        grandChild.getOrientation()));
+        final double[] e = expected.getDoubleValues();
+        final double[] a = grandChild.getModelMatrix().getDoubleValues();
+        for (int i = 0; i < 16; ++i) {
+            assertEquals("Index " + i, e[i], a[i], 1e-12);
+        }
+    }
+
+    @Test
+    public void testModelMatrixType() throws Exception {
+        final Object3D root = new Object3D();
+        final Object3D child = new Object3D();
+        root.addChild(child);
+        root.setRotY(30);
+        child.setPosition(1, 2, 3);
+        root.updateTransforms();
+        assertEquals(Matrix4.TransformType.RIGID, child.getModelMatrixType());
+
+        root.setScale(2);
+        root.updateTransforms();
+        assertEquals(Matrix4.TransformType.UNIFORM_SCALE, root.getModelMatrixType());
+        assertEquals(Matrix4.TransformType.UNIFORM_SCALE, child.getModelMatrixType());
+
+        child.setScale(1, 2, 1);
+        root.updateTransforms();
+        assertEquals(Matrix4.TransformType.AFFINE, child.getModelMatrixType());
+        assertEquals(child.getModelMatrix().getTransformType(), child.getModelMatrixType());
+    }
+
+    @Test
+    public void testNonUnitOrientationIsAffine() throws Exception {
+        final Object3D object = new Object3D();
+        final Quaternion orientation = new Quaternion(1, 0, 1, 0);
+        object.setOrientation(orientation);
+        object.updateTransforms();
+        assertEquals(Matrix4.TransformType.AFFINE, object.getModelMatrixType());
+        assertEquals(object.getModelMatrix().getTransformType(), object.getModelMatrixType());
+
+        orientation.normalize();
+        object.setOrientation(orientation);
+        object.updateTransforms();
+        assertEquals(Matrix4.TransformType.RIGID, object.getModelMatrixType());
+        assertEquals(object.getModelMatrix().getTransformType(), object.getModelMatrixType());
+    }
+
+    @Test
+    public void testContainerIsCulledByItsSubtreeBounds() throws Exception {
+        final Object3D container = new Object3D();
+        final Object3D child = new Object3D();
+        child.setData(new float[]{-1, -1, -1, 1, 1, 1, 1, -1, 1}, null, null, null, new int[]{0, 1, 2}, false);
+        // The pivot of the container is behind the camera, the child in front of it
+        container.setPosition(0, 0, 10);
+        child.setPosition(0, 0, -20);
+        container.addChild(child);
+        container.updateTransforms();
+
+        final BoundingBox box = (BoundingBox) container.getTransformedBoundingVolume();
+        assertEquals(-11, box.getTransformedMin().z, 1e-12);
+        assertEquals(-9, box.getTransformedMax().z, 1e-12);
+
+        final Octree graph = new Octree();
+        graph.addObject(container);
+        final Frustum frustum = new Frustum();
+        frustum.update(new Matrix4().setToPerspective(1, 100, 60, 1));
+        graph.cullFromFrustum(frustum);
+        assertTrue(graph.getVisibleObjects().contains(container));
+    }
+}
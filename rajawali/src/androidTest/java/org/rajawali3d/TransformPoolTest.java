@@ -0,0 +1,199 @@
+package org.rajawali3d;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import android.test.suitebuilder.annotation.SmallTest;
+import org.junit.Test;
+import org.rajawali3d.math.Matrix4;
+import org.rajawali3d.math.Quaternion;
+import org.rajawali3d.math.vector.Vector3;
+
+@SmallTest
+public class TransformPoolTest {
+
+    private static void assertMatrixEquals(Matrix4 expected, Matrix4 actual) {
+        final double[] e = expected.getDoubleValues();
+        final double[] a = actual.getDoubleValues();
+        for (int i = 0; i < 16; ++i) {
+            assertEquals("Index " + i, e[i], a[i], 1e-12);
+        }
+    }
+
+    @Test
+    public void testWorldMatrixHierarchy() throws Exception {
+        final TransformPool pool = new TransformPool(1);
+        final int root = pool.allocate(TransformPool.NO_PARENT);
+        final int child = pool.allocate(root);
+        final int grandChild = pool.allocate(child);
+        assertTrue(root < child && child < grandChild);
+
+        final Vector3 rootPosition = new Vector3(1, 2, 3);
+        final Vector3 rootScale = new Vector3(2, 2, 2);
+        final Quaternion rootOrientation = new Quaternion().fromAngleAxis(Vector3.Axis.Y, 45);
+        pool.setAll(root, rootPosition, rootScale, rootOrientation);
+        pool.setPosition(child, 0, 1, 0);
+        pool.setOrientation(child, Math.cos(Math.PI / 8), 0, 0, Math.sin(Math.PI / 8));
+        pool.setScale(grandChild, 1, 3, 1);
+        pool.setPosition(grandChild, 4, 0, 0);
+
+        final Matrix4 expected = new Matrix4().setAll(rootPosition, rootScale, rootOrientation);
+        expected.multiply(new Matrix4().setAll(new Vector3(0, 1, 0), new Vector3(1, 1, 1),
+                new Quaternion(Math.cos(Math.PI / 8), 0, 0, Math.sin(Math.PI / 8))));
+        expected.multiply(new Matrix4().setAll(new Vector3(4, 0, 0), new Vector3(1, 3, 1), new Quaternion()));
+        assertMatrixEquals(expected, pool.getWorldMatrix(grandChild, new Matrix4()));
+
+        final Matrix4 world = new Matrix4();
+        System.arraycopy(pool.getWorldMatrices(), grandChild * 16, world.getDoubleValues(), 0, 16);
+        assertMatrixEquals(expected, world);
+    }
+
+    @Test
+    public void testUpdateOnlyRecalculatesChangedTransforms() throws Exception {
+        final TransformPool pool = new TransformPool();
+        final int root = pool.allocate(TransformPool.NO_PARENT);
+        final int child = pool.allocate(root);
+        final int other = pool.allocate(TransformPool.NO_PARENT);
+        assertEquals(3, pool.update());
+        assertEquals(0, pool.update());
+
+        final int version = pool.getWorldMatrixVersion(child);
+        pool.setPosition(other, 1, 0, 0);
+        assertEquals(1, pool.update());
+        assertEquals(version, pool.getWorldMatrixVersion(child));
+
+        pool.setPosition(root, 0, 1, 0);
+        assertEquals(2, pool.update());
+        assertNotEquals(version, pool.getWorldMatrixVersion(child));
+        assertEquals(1, pool.getWorldMatrix(child, new Matrix4()).getTranslation().y, 1e-14);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testParentMustComeFirst() throws Exception {
+        final TransformPool pool = new TransformPool();
+        final int first = pool.allocate(TransformPool.NO_PARENT);
+        final int second = pool.allocate(TransformPool.NO_PARENT);
+        pool.setParent(first, second);
+    }
+
+    @Test
+    public void testReleaseAndReuse() throws Exception {
+        final TransformPool pool = new TransformPool();
+        final int root = pool.allocate(TransformPool.NO_PARENT);
+        final int child = pool.allocate(root);
+        try {
+            pool.release(root);
+            throw new AssertionError("A transform with children was released.");
+        } catch (IllegalStateException e) {
+            // Expected
+        }
+        pool.release(child);
+        pool.release(root);
+        assertEquals(0, pool.getCount());
+
+        final int newRoot = pool.allocate(TransformPool.NO_PARENT);
+        final int newChild = pool.allocate(newRoot);
+        assertTrue(newRoot < newChild);
+        assertEquals(2, pool.getSize());
+        assertEquals(0, pool.getPosition(newChild, new Vector3()).length(), 0);
+    }
+
+    @Test
+    public void testObject3DInPool() throws Exception {
+        final TransformPool pool = new TransformPool();
+        final Object3D parent = new Object3D();
+        final Object3D child = new Object3D();
+        parent.addChild(child);
+        parent.setTransformPool(pool);
+        assertSame(pool, child.getTransformPool());
+        assertEquals(parent.getTransformIndex(), pool.getParent(child.getTransformIndex()));
+
+        parent.setPosition(1, 2, 3);
+        parent.setRotY(30);
+        child.setPosition(0, 0, 5);
+        child.setScale(2);
+        parent.onRecalculateModelMatrix(null);
+        child.onRecalculateModelMatrix(parent.getModelMatrix());
+
+        final Matrix4 expected = new Matrix4().setAll(parent.getPosition(), parent.getScale(),
+                parent.getOrientation()).multiply(new Matrix4().setAll(child.getPosition(), child.getScale(),
+                child.getOrientation()));
+        assertMatrixEquals(expected, child.getModelMatrix());
+
+        parent.removeChild(child);
+        assertEquals(TransformPool.NO_PARENT, pool.getParent(child.getTransformIndex()));
+        parent.setTransformPool(null);
+        assertNull(parent.getTransformPool());
+        assertEquals(1, pool.getCount());
+    }
+
+    @Test
+    public void testObject3DAccessorsAreViews() throws Exception {
+        final TransformPool pool = new TransformPool();
+        final Object3D parent = new Object3D();
+        final Object3D child = new Object3D();
+        parent.setPosition(1, 0, 0);
+        parent.addChild(child);
+        parent.setTransformPool(pool);
+        assertEquals(1, pool.getPosition(parent.getTransformIndex(), new Vector3()).x, 0);
+        assertEquals(2, pool.update());
+
+        // Calculating the model matrices reads the pool, it doesn't mark the slots for recalculation
+        parent.onRecalculateModelMatrix(null);
+        child.onRecalculateModelMatrix(parent.getModelMatrix());
+        assertEquals(0, pool.update());
+
+        // Values written to the pool are seen through the accessors, and the setters build on them
+        pool.setPosition(child.getTransformIndex(), 0, 2, 0);
+        pool.setScale(child.getTransformIndex(), 3, 3, 3);
+        assertEquals(2, child.getY(), 0);
+        assertEquals(3, child.getScale().x, 0);
+        assertEquals(1, pool.update());
+        child.setX(5);
+        assertEquals(1, pool.update());
+        assertEquals(5, child.getPosition().x, 0);
+        assertEquals(2, child.getPosition().y, 0);
+        assertEquals(3, child.getScaleZ(), 0);
+        child.rotate(Vector3.Axis.Y, 90);
+        final Quaternion orientation = pool.getOrientation(child.getTransformIndex(), new Quaternion());
+        assertEquals(Math.sqrt(0.5), Math.abs(orientation.y), 1e-14);
+        assertEquals(orientation.y, child.getOrientation().y, 0);
+
+        // The values are kept when the object leaves the pool
+        parent.setTransformPool(null);
+        assertEquals(0, pool.getCount());
+        assertEquals(5, child.getX(), 0);
+        assertEquals(3, child.getScaleY(), 0);
+    }
+
+    @Test
+    public void testPoolWritesReachModelMatrix() throws Exception {
+        final TransformPool pool = new TransformPool();
+        final Object3D parent = new Object3D();
+        final Object3D child = new Object3D();
+        parent.addChild(child);
+        parent.setTransformPool(pool);
+        parent.updateTransforms();
+        final int version = child.getModelMatrixVersion();
+
+        // Written through the pool only, the objects learn about it from the pool
+        pool.setPosition(child.getTransformIndex(), 0, 0, 4);
+        parent.updateTransforms();
+        assertNotEquals(version, child.getModelMatrixVersion());
+        assertEquals(4, child.getModelMatrix().getTranslation().z, 1e-14);
+
+        pool.update();
+        pool.setOrientation(parent.getTransformIndex(), Math.cos(Math.PI / 4), 0, Math.sin(Math.PI / 4), 0);
+        pool.setPosition(parent.getTransformIndex(), 1, 0, 0);
+        pool.update();
+        parent.updateTransforms();
+        final Matrix4 expected = new Matrix4().setAll(new Vector3(1, 0, 0), new Vector3(1, 1, 1),
+                new Quaternion(Math.cos(Math.PI / 4), 0, Math.sin(Math.PI / 4), 0))
+                .multiply(new Matrix4().setAll(new Vector3(0, 0, 4), new Vector3(1, 1, 1), new Quaternion()));
+        assertEquals(1, parent.getModelMatrix().getTranslation().x, 1e-14);
+        assertMatrixEquals(expected, child.getModelMatrix());
+    }
+}
@@ -0,0 +1,183 @@
+package org.rajawali3d.materials;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+import android.opengl.GLES20;
+import android.opengl.GLES30;
+import android.test.suitebuilder.annotation.SmallTest;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.rajawali3d.renderer.gl.AGLBackend;
+import org.rajawali3d.renderer.gl.GLES20Backend;
+import org.rajawali3d.renderer.gl.HeadlessGLBackend;
+
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.util.concurrent.Executor;
+
+@SmallTest
+public class ProgramBinaryCacheTest {
+
+    private static final String VERTEX_SOURCE = "void main() { gl_Position = vec4(0.0); }";
+    private static final String FRAGMENT_SOURCE = "void main() { gl_FragColor = vec4(1.0); }";
+
+    private File mDirectory;
+    private HeadlessGLBackend mBackend;
+    private ProgramBinaryCache mCache;
+
+    @Before
+    public void setUp() throws Exception {
+        mDirectory = File.createTempFile("programs", "");
+        assertTrue(mDirectory.delete());
+        assertTrue(mDirectory.mkdirs());
+        mBackend = new HeadlessGLBackend();
+        AGLBackend.setCurrent(mBackend);
+        mCache = ProgramBinaryCache.getInstance();
+        mCache.setCacheDirectory(mDirectory);
+        mCache.setEnabled(true);
+        // Write on the calling thread so the files exist when the tests look for them
+        mCache.setWriteExecutor(new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                command.run();
+            }
+        });
+        mCache.onContextCreated();
+        mCache.resetStatistics();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        mCache.clear();
+        mCache.setCacheDirectory(null);
+        mCache.setWriteExecutor(null);
+        AGLBackend.setCurrent(new GLES20Backend());
+        mDirectory.delete();
+    }
+
+    @Test
+    public void testRoundTrip() throws Exception {
+        assertTrue(mCache.isSupported());
+        assertEquals(0, mCache.loadProgram(VERTEX_SOURCE, FRAGMENT_SOURCE));
+        assertEquals(1, mCache.getMissCount());
+
+        final int linked = linkProgram();
+        mCache.storeProgram(linked, VERTEX_SOURCE, FRAGMENT_SOURCE);
+        assertEquals(1, mCache.getStoredCount());
+        assertEquals(1, getBinaryFiles().length);
+
+        final int loaded = mCache.loadProgram(VERTEX_SOURCE, FRAGMENT_SOURCE);
+        assertNotEquals(0, loaded);
+        assertNotEquals(linked, loaded);
+        assertEquals(1, mCache.getHitCount());
+        assertArrayEquals(getBinary(linked), getBinary(loaded));
+
+        // Other source is stored under another key
+        assertEquals(0, mCache.loadProgram(VERTEX_SOURCE, "void main() {}"));
+    }
+
+    @Test
+    public void testUnlinkedProgramIsNotStored() throws Exception {
+        final int program = mBackend.glCreateProgram();
+        mBackend.glProgramBinary(program, 0, ByteBuffer.allocateDirect(4), 4);
+        mCache.storeProgram(program, VERTEX_SOURCE, FRAGMENT_SOURCE);
+        assertEquals(0, mCache.getStoredCount());
+        assertEquals(0, getBinaryFiles().length);
+    }
+
+    @Test
+    public void testDriverChangeIsAMiss() throws Exception {
+        mCache.storeProgram(linkProgram(), VERTEX_SOURCE, FRAGMENT_SOURCE);
+        AGLBackend.setCurrent(new HeadlessGLBackend() {
+            @Override
+            public String glGetString(int name) {
+                return name == GLES20.GL_RENDERER ? "Updated" : super.glGetString(name);
+            }
+        });
+        mCache.onContextCreated();
+        assertEquals(0, mCache.loadProgram(VERTEX_SOURCE, FRAGMENT_SOURCE));
+        assertEquals(0, mCache.getHitCount());
+    }
+
+    @Test
+    public void testRejectedBinary() throws Exception {
+        mCache.storeProgram(linkProgram(), VERTEX_SOURCE, FRAGMENT_SOURCE);
+        final File file = getBinaryFiles()[0];
+        final RandomAccessFile access = new RandomAccessFile(file, "rw");
+        try {
+            access.seek(4);
+            access.writeInt(HeadlessGLBackend.BINARY_FORMAT + 1);
+        } finally {
+            access.close();
+        }
+
+        assertEquals(0, mCache.loadProgram(VERTEX_SOURCE, FRAGMENT_SOURCE));
+        assertEquals(1, mCache.getRejectedCount());
+        assertFalse(file.exists());
+        // Only the linked program is left
+        assertEquals(1, mBackend.getProgramCount());
+    }
+
+    @Test
+    public void testCorruptFiles() throws Exception {
+        assertCorruptFileIsAMiss(new int[]{ 2, HeadlessGLBackend.BINARY_FORMAT, 4 }, 4);
+        assertCorruptFileIsAMiss(new int[]{ 1, HeadlessGLBackend.BINARY_FORMAT, -1 }, 4);
+        assertCorruptFileIsAMiss(new int[]{ 1, HeadlessGLBackend.BINARY_FORMAT, 0 }, 4);
+        assertCorruptFileIsAMiss(new int[]{ 1, HeadlessGLBackend.BINARY_FORMAT, Integer.MAX_VALUE }, 4);
+        assertCorruptFileIsAMiss(new int[]{ 1, HeadlessGLBackend.BINARY_FORMAT, 8 }, 4);
+        assertCorruptFileIsAMiss(new int[]{ 1 }, 0);
+        assertEquals(0, mCache.getHitCount());
+        assertEquals(0, mCache.getRejectedCount());
+    }
+
+    private void assertCorruptFileIsAMiss(int[] header, int binaryLength) throws IOException {
+        mCache.storeProgram(linkProgram(), VERTEX_SOURCE, FRAGMENT_SOURCE);
+        final File file = getBinaryFiles()[0];
+        final DataOutputStream stream = new DataOutputStream(new FileOutputStream(file));
+        try {
+            for (int value : header) {
+                stream.writeInt(value);
+            }
+            stream.write(new byte[binaryLength]);
+        } finally {
+            stream.close();
+        }
+
+        final int programs = mBackend.getProgramCount();
+        final int misses = mCache.getMissCount();
+        assertEquals(0, mCache.loadProgram(VERTEX_SOURCE, FRAGMENT_SOURCE));
+        assertEquals(misses + 1, mCache.getMissCount());
+        assertEquals(programs, mBackend.getProgramCount());
+        assertFalse(file.exists());
+    }
+
+    private int linkProgram() {
+        final int program = mBackend.glCreateProgram();
+        mCache.prepareForLink(program);
+        mBackend.glLinkProgram(program);
+        return program;
+    }
+
+    private byte[] getBinary(int program) {
+        final int[] length = new int[1];
+        mBackend.glGetProgramiv(program, GLES30.GL_PROGRAM_BINARY_LENGTH, length, 0);
+        final ByteBuffer buffer = ByteBuffer.allocate(length[0]);
+        mBackend.glGetProgramBinary(program, length[0], IntBuffer.allocate(1), IntBuffer.allocate(1), buffer);
+        return buffer.array();
+    }
+
+    private File[] getBinaryFiles() {
+        final File[] files = mDirectory.listFiles();
+        return files == null ? new File[0] : files;
+    }
+}
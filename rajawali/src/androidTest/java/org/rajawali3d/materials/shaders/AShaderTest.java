@@ -232,4 +232,35 @@ public class AShaderTest {
           + "v.z = (0+0);\n"
           + "}\n", s.getShaderString());
     }
+
+    @Test
+    public void testCofactorMatrix() throws Exception {
+        AShader s = new AShader() {
+          @Override
+          public void main() {
+            RVec3 x = new RVec3("x");
+            RVec3 y = new RVec3("y");
+            RVec3 z = new RVec3("z");
+            x.assign(0);
+            y.assign(0);
+            z.assign(0);
+            RMat3 m = new RMat3("m");
+            m.assign(castMat3(cross(y, z), cross(z, x), cross(x, y)));
+            RVec3 n = new RVec3("n");
+            n.assign(m.multiply(x));
+            n.assignMultiply(sign(dot(x, cross(y, z))));
+          }
+        };
+        s.initialize();
+        s.buildShader();
+        assertEquals("\n"
+          + "void main() {\n"
+          + "vec3 x = vec3(0.0);\n"
+          + "vec3 y = vec3(0.0);\n"
+          + "vec3 z = vec3(0.0);\n"
+          + "mat3 m = mat3(cross(y, z), cross(z, x), cross(x, y));\n"
+          + "vec3 n = m * x;\n"
+          + "n *= sign(dot(x, cross(y, z)));\n"
+          + "}\n", s.getShaderString());
+    }
 }
@@ -6,12 +6,16 @@ import static org.junit.Assert.assertNotEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 import android.test.suitebuilder.annotation.SmallTest;
 import org.junit.Test;
 import org.rajawali3d.math.vector.Vector3;
 import org.rajawali3d.math.vector.Vector3.Axis;
 
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
 import java.util.Arrays;
 
 /**
@@ -1003,6 +1007,98 @@ public class Matrix4Test {
         assertEquals(1d, out.z, 1e-14);
     }
 
+    @Test
+    public void testTransformPoints() throws Exception {
+        final Matrix4 matrix = new Matrix4().setAll(new Vector3(1d, 2d, 3d), new Vector3(2d, 2d, 2d),
+                new Quaternion().fromAngleAxis(Axis.Y, 90d));
+        // Two points with a stride of 4 after a one float offset
+        final float[] src = new float[]{9f, 1f, 0f, 0f, 9f, 0f, 1f, 2f, 9f};
+        final float[] dst = new float[8];
+        matrix.transformPoints(src, 1, 4, dst, 2, 3, 2);
+        for (int i = 0; i < 2; ++i) {
+            final Vector3 expected = new Vector3(src[1 + i * 4], src[2 + i * 4], src[3 + i * 4]).multiply(matrix);
+            assertEquals(expected.x, dst[2 + i * 3], 1e-5);
+            assertEquals(expected.y, dst[3 + i * 3], 1e-5);
+            assertEquals(expected.z, dst[4 + i * 3], 1e-5);
+        }
+        assertEquals(0f, dst[0], 0f);
+        assertEquals(0f, dst[1], 0f);
+        matrix.transformPoints(src, 1, 4, 2);
+        for (int i = 0; i < 2; ++i) {
+            assertEquals(dst[2 + i * 3], src[1 + i * 4], 0f);
+            assertEquals(dst[3 + i * 3], src[2 + i * 4], 0f);
+            assertEquals(dst[4 + i * 3], src[3 + i * 4], 0f);
+        }
+        assertEquals(9f, src[0], 0f);
+        assertEquals(9f, src[4], 0f);
+        assertEquals(9f, src[8], 0f);
+    }
+
+    @Test
+    public void testTransformDirections() throws Exception {
+        final Matrix4 matrix = new Matrix4().setAll(new Vector3(1d, 2d, 3d), new Vector3(2d, 2d, 2d),
+                new Quaternion().fromAngleAxis(Axis.Y, 90d));
+        final float[] directions = new float[]{1f, 0f, 0f, 0f, 0f, 1f};
+        final float[] expected = new float[6];
+        for (int i = 0; i < 2; ++i) {
+            final Vector3 v = new Vector3(directions[i * 3], directions[i * 3 + 1], directions[i * 3 + 2]);
+            matrix.rotateVector(v);
+            expected[i * 3] = (float) v.x;
+            expected[i * 3 + 1] = (float) v.y;
+            expected[i * 3 + 2] = (float) v.z;
+        }
+        matrix.transformDirections(directions, 0, 3, 2);
+        for (int i = 0; i < expected.length; ++i) {
+            assertEquals(expected[i], directions[i], 1e-5);
+        }
+        assertEquals(2d, Math.abs(directions[2]), 1e-5);
+        assertEquals(2d, Math.abs(directions[3]), 1e-5);
+    }
+
+    @Test
+    public void testTransformPointsFloatBuffer() throws Exception {
+        final Matrix4 matrix = new Matrix4().setToTranslation(1d, 2d, 3d);
+        final float[] points = new float[]{1f, 2f, 3f, 4f, 5f, 6f};
+        final FloatBuffer heap = FloatBuffer.wrap(points.clone());
+        final FloatBuffer direct = ByteBuffer.allocateDirect(points.length * 4).order(ByteOrder.nativeOrder())
+                .asFloatBuffer();
+        direct.put(points).position(3);
+        matrix.transformPoints(direct, 0, 3, 2);
+        matrix.transformPoints(heap, 0, 3, heap, 0, 3, 2);
+        final float[] expected = new float[]{2f, 4f, 6f, 5f, 7f, 9f};
+        for (int i = 0; i < expected.length; ++i) {
+            assertEquals(expected[i], direct.get(i), 0f);
+            assertEquals(expected[i], heap.get(i), 0f);
+        }
+        assertEquals(3, direct.position());
+        assertEquals(0, heap.position());
+    }
+
+    @Test
+    public void testTransformPointsInvalidRange() throws Exception {
+        final Matrix4 matrix = new Matrix4();
+        final float[] points = new float[6];
+        matrix.transformPoints(points, 6, 3, 0);
+        try {
+            matrix.transformPoints(points, 1, 3, 2);
+            fail();
+        } catch (IndexOutOfBoundsException e) {
+            // Expected
+        }
+        try {
+            matrix.transformPoints(points, 0, 2, 2);
+            fail();
+        } catch (IllegalArgumentException e) {
+            // Expected
+        }
+        try {
+            matrix.transformDirections(FloatBuffer.wrap(points), 0, 3, -1);
+            fail();
+        } catch (IllegalArgumentException e) {
+            // Expected
+        }
+    }
+
     @Test
     public void testLerp() throws Exception {
         final double[] expected = new double[] {
@@ -1710,6 +1806,69 @@ public class Matrix4Test {
         }
     }
 
+    @Test
+    public void testGetTransformType() throws Exception {
+        final Quaternion orientation = new Quaternion().fromAngleAxis(new Vector3(1, 2, 3), 37);
+        final Vector3 position = new Vector3(4, -5, 6);
+        assertEquals(Matrix4.TransformType.RIGID, new Matrix4().getTransformType());
+        assertEquals(Matrix4.TransformType.RIGID,
+                new Matrix4().setAll(position, new Vector3(1, 1, 1), orientation).getTransformType());
+        assertEquals(Matrix4.TransformType.UNIFORM_SCALE,
+                new Matrix4().setAll(position, new Vector3(3, 3, 3), orientation).getTransformType());
+        assertEquals(Matrix4.TransformType.AFFINE,
+                new Matrix4().setAll(position, new Vector3(1, 2, 3), orientation).getTransformType());
+        assertEquals(Matrix4.TransformType.PROJECTIVE,
+                new Matrix4().setToPerspective(1, 100, 60, 1.5).getTransformType());
+        assertEquals(Matrix4.TransformType.AFFINE,
+                Matrix4.TransformType.UNIFORM_SCALE.combine(Matrix4.TransformType.AFFINE));
+        assertEquals(Matrix4.TransformType.UNIFORM_SCALE,
+                Matrix4.TransformType.UNIFORM_SCALE.combine(Matrix4.TransformType.RIGID));
+    }
+
+    @Test
+    public void testInverseWithTransformType() throws Exception {
+        final Quaternion orientation = new Quaternion().fromAngleAxis(new Vector3(1, 2, 3), 37);
+        final Vector3 position = new Vector3(4, -5, 6);
+        final Vector3[] scales = new Vector3[]{
+                new Vector3(1, 1, 1), new Vector3(-2, -2, -2), new Vector3(1, 2, 3)
+        };
+        for (Vector3 scale : scales) {
+            final Matrix4 matrix = new Matrix4().setAll(position, scale, orientation);
+            final Matrix4.TransformType type = matrix.getTransformType();
+            final double[] expected = matrix.clone().inverse().getDoubleValues();
+            final double[] result = matrix.clone().inverse(type).getDoubleValues();
+            for (int i = 0; i < 16; ++i) {
+                assertEquals(type + " index " + i, expected[i], result[i], 1e-12);
+            }
+        }
+    }
+
+    @Test
+    public void testSetToNormalMatrixWithTransformType() throws Exception {
+        final Quaternion orientation = new Quaternion().fromAngleAxis(new Vector3(-3, 1, 2), 71);
+        final Vector3 position = new Vector3(4, -5, 6);
+        final Vector3[] scales = new Vector3[]{
+                new Vector3(1, 1, 1), new Vector3(0.5, 0.5, 0.5), new Vector3(1, -2, 3)
+        };
+        for (Vector3 scale : scales) {
+            final Matrix4 matrix = new Matrix4().setAll(position, scale, orientation);
+            final Matrix4.TransformType type = matrix.getTransformType();
+            final double[] expected = matrix.clone().setToNormalMatrix().getDoubleValues();
+            final double[] result = matrix.clone().setToNormalMatrix(type).getDoubleValues();
+            // Only the upper 3x3 is used as normal matrix
+            for (int i = 0; i < 11; ++i) {
+                if (i % 4 != 3) {
+                    assertEquals(type + " index " + i, expected[i], result[i], 1e-12);
+                }
+            }
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testInverseWithTransformTypeSingular() throws Exception {
+        new Matrix4().scale(1, 0, 1).inverse(Matrix4.TransformType.AFFINE);
+    }
+
     @Test
     public void testEquals() throws Exception {
         final double[] from = new double[]{
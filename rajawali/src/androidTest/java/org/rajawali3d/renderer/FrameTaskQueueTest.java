@@ -0,0 +1,160 @@
+package org.rajawali3d.renderer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import android.test.suitebuilder.annotation.SmallTest;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@SmallTest
+public class FrameTaskQueueTest {
+
+    private FrameTaskQueue mQueue;
+    private List<String> mLog;
+
+    @Before
+    public void setup() throws Exception {
+        mQueue = new FrameTaskQueue();
+        mLog = new ArrayList<>();
+    }
+
+    @Test
+    public void testPriorityOrder() throws Exception {
+        mQueue.offer(new LogTask("low0").setPriority(AFrameTask.PRIORITY_LOW));
+        mQueue.offer(new LogTask("normal0"));
+        mQueue.offer(new LogTask("high0").setPriority(AFrameTask.PRIORITY_HIGH));
+        mQueue.offer(new LogTask("normal1"));
+        mQueue.offer(new LogTask("high1").setPriority(AFrameTask.PRIORITY_HIGH));
+
+        assertEquals(5, mQueue.run());
+        assertEquals("[high0, high1, normal0, normal1, low0]", mLog.toString());
+        assertTrue(mQueue.isEmpty());
+    }
+
+    @Test
+    public void testBudgetCarriesOverToNextFrame() throws Exception {
+        // Any task uses up a budget of one nanosecond
+        mQueue.setFrameBudget(1);
+        mQueue.offer(new LogTask("normal0"));
+        mQueue.offer(new LogTask("normal1"));
+        mQueue.offer(new LogTask("low0").setPriority(AFrameTask.PRIORITY_LOW));
+
+        assertEquals(1, mQueue.run());
+        assertEquals("[normal0]", mLog.toString());
+        assertFalse(mQueue.isEmpty());
+
+        assertEquals(1, mQueue.run());
+        assertEquals(1, mQueue.run());
+        assertEquals("[normal0, normal1, low0]", mLog.toString());
+        assertTrue(mQueue.isEmpty());
+        assertEquals(0, mQueue.run());
+    }
+
+    @Test
+    public void testHighPriorityIgnoresBudget() throws Exception {
+        mQueue.setFrameBudget(1);
+        mQueue.offer(new LogTask("normal0"));
+        mQueue.offer(new LogTask("normal1"));
+        for (int i = 0; i < 3; ++i) {
+            mQueue.offer(new LogTask("high" + i).setPriority(AFrameTask.PRIORITY_HIGH));
+        }
+
+        assertEquals(4, mQueue.run());
+        assertEquals("[high0, high1, high2, normal0]", mLog.toString());
+    }
+
+    @Test
+    public void testAtLeastOneTaskPerFrame() throws Exception {
+        // The budget is used up before the first task even starts, it still has to run
+        mQueue.setFrameBudget(1);
+        mQueue.offer(new AFrameTask() {
+            @Override
+            protected void doTask() {
+                final long start = System.nanoTime();
+                while (System.nanoTime() - start < 1000000) {
+                    // Spin well past the budget
+                }
+                mLog.add("slow");
+            }
+        });
+        mQueue.offer(new LogTask("normal0"));
+
+        assertEquals(1, mQueue.run());
+        assertEquals("[slow]", mLog.toString());
+        assertEquals(1, mQueue.run());
+        assertEquals("[slow, normal0]", mLog.toString());
+    }
+
+    @Test
+    public void testNoBudgetRunsEverything() throws Exception {
+        for (int i = 0; i < 100; ++i) {
+            mQueue.offer(new LogTask("normal" + i));
+        }
+        assertEquals(100, mQueue.run());
+        assertTrue(mQueue.isEmpty());
+    }
+
+    @Test
+    public void testCoalescing() throws Exception {
+        final LogCoalescingTask task = new LogCoalescingTask();
+        assertFalse(task.isQueued());
+        assertTrue(task.add("a"));
+        mQueue.offer(task);
+        assertTrue(task.isQueued());
+        // Already queued, the caller must not queue it again
+        assertFalse(task.add("b"));
+        assertFalse(task.add("c"));
+
+        assertEquals(1, mQueue.run());
+        assertEquals(1, task.mRuns);
+        assertEquals("[a, b, c]", mLog.toString());
+        assertFalse(task.isQueued());
+
+        // The next addition after a run queues the task again
+        assertTrue(task.add("d"));
+        mQueue.offer(task);
+        assertEquals(1, mQueue.run());
+        assertEquals(2, task.mRuns);
+        assertEquals("[a, b, c, d]", mLog.toString());
+    }
+
+    @Test
+    public void testClear() throws Exception {
+        mQueue.offer(new LogTask("normal0"));
+        mQueue.offer(new LogTask("high0").setPriority(AFrameTask.PRIORITY_HIGH));
+        mQueue.clear();
+        assertTrue(mQueue.isEmpty());
+        assertEquals(0, mQueue.run());
+        assertEquals(0, mLog.size());
+    }
+
+    private class LogTask extends AFrameTask {
+
+        private final String mName;
+
+        LogTask(String name) {
+            mName = name;
+        }
+
+        @Override
+        protected void doTask() {
+            mLog.add(mName);
+        }
+    }
+
+    private class LogCoalescingTask extends ACoalescingFrameTask<String> {
+
+        int mRuns;
+
+        @Override
+        protected void doTask(List<String> items) {
+            ++mRuns;
+            mLog.addAll(items);
+        }
+    }
+}
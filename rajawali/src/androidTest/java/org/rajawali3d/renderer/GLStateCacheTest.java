@@ -0,0 +1,123 @@
+package org.rajawali3d.renderer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import android.opengl.GLES20;
+import android.test.suitebuilder.annotation.SmallTest;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.rajawali3d.renderer.gl.AGLBackend;
+import org.rajawali3d.renderer.gl.GLES20Backend;
+import org.rajawali3d.renderer.gl.HeadlessGLBackend;
+
+@SmallTest
+public class GLStateCacheTest {
+
+    private HeadlessGLBackend mBackend;
+    private GLStateCache mCache;
+
+    @Before
+    public void setup() throws Exception {
+        mBackend = new HeadlessGLBackend();
+        AGLBackend.setCurrent(mBackend);
+        mCache = new GLStateCache();
+    }
+
+    @After
+    public void teardown() throws Exception {
+        AGLBackend.setCurrent(new GLES20Backend());
+    }
+
+    @Test
+    public void testSkipAndIssueCounts() throws Exception {
+        // Each state is set to a new value, to the same value again and then to another value
+        mCache.setCullFaceEnabled(true);
+        mCache.setCullFaceEnabled(true);
+        mCache.setCullFaceEnabled(false);
+        mCache.setCullFace(GLES20.GL_FRONT);
+        mCache.setCullFace(GLES20.GL_FRONT);
+        mCache.setCullFace(GLES20.GL_BACK);
+        mCache.setFrontFace(GLES20.GL_CW);
+        mCache.setFrontFace(GLES20.GL_CW);
+        mCache.setFrontFace(GLES20.GL_CCW);
+        mCache.setDepthMask(false);
+        mCache.setDepthMask(false);
+        mCache.setDepthMask(true);
+        mCache.setBlendEnabled(true);
+        mCache.setBlendEnabled(true);
+        mCache.setBlendEnabled(false);
+        mCache.setBlendFunc(GLES20.GL_SRC_ALPHA, GLES20.GL_ONE_MINUS_SRC_ALPHA);
+        mCache.setBlendFunc(GLES20.GL_SRC_ALPHA, GLES20.GL_ONE_MINUS_SRC_ALPHA);
+        mCache.setBlendFunc(GLES20.GL_SRC_ALPHA, GLES20.GL_ONE);
+        mCache.setStencilTestEnabled(true);
+        mCache.setStencilTestEnabled(true);
+        mCache.setStencilTestEnabled(false);
+        mCache.useProgram(3);
+        mCache.useProgram(3);
+        mCache.useProgram(4);
+        assertEquals(16, mCache.getIssuedCalls());
+        assertEquals(8, mCache.getSkippedCalls());
+        assertEquals(2, mCache.getProgramSwitches());
+        assertEquals(16, mBackend.getTotalCallCount());
+
+        mCache.onFrameStart();
+        assertEquals(16, mCache.getLastFrameIssuedCalls());
+        assertEquals(8, mCache.getLastFrameSkippedCalls());
+        assertEquals(0, mCache.getIssuedCalls());
+        assertEquals(0, mCache.getSkippedCalls());
+        assertEquals(0, mCache.getProgramSwitches());
+    }
+
+    @Test
+    public void testRedundantStateCallsAreSkipped() throws Exception {
+        mCache.setDepthTestEnabled(true);
+        mCache.setDepthTestEnabled(true);
+        mCache.setDepthFunc(GLES20.GL_LEQUAL);
+        mCache.setDepthFunc(GLES20.GL_LEQUAL);
+        mCache.useProgram(3);
+        mCache.useProgram(3);
+        assertEquals(1, mBackend.getCallCount("glEnable"));
+        assertEquals(1, mBackend.getCallCount("glDepthFunc"));
+        assertEquals(1, mBackend.getCallCount("glUseProgram"));
+        assertTrue(mBackend.isEnabled(GLES20.GL_DEPTH_TEST));
+        assertEquals(GLES20.GL_LEQUAL, mBackend.getDepthFunc());
+        assertEquals(3, mBackend.getCurrentProgram());
+    }
+
+    @Test
+    public void testTextureBindsPerUnit() throws Exception {
+        mCache.bindTexture(0, GLES20.GL_TEXTURE_2D, 5);
+        mCache.bindTexture(1, GLES20.GL_TEXTURE_2D, 5);
+        mCache.bindTexture(0, GLES20.GL_TEXTURE_2D, 5);
+        assertEquals(2, mBackend.getCallCount("glBindTexture"));
+        assertEquals(2, mBackend.getCallCount("glActiveTexture"));
+        assertEquals(5, mBackend.getBoundTexture(0, GLES20.GL_TEXTURE_2D));
+        assertEquals(5, mBackend.getBoundTexture(1, GLES20.GL_TEXTURE_2D));
+        assertEquals(2, mCache.getTextureBinds());
+    }
+
+    @Test
+    public void testInvalidateReissuesCalls() throws Exception {
+        mCache.setBlendEnabled(false);
+        mCache.invalidate();
+        mCache.setBlendEnabled(false);
+        assertEquals(2, mBackend.getCallCount("glDisable"));
+        assertFalse(mBackend.isEnabled(GLES20.GL_BLEND));
+    }
+
+    @Test
+    public void testStateCarriesOverFrames() throws Exception {
+        mCache.setDepthTestEnabled(true);
+        mCache.useProgram(3);
+        mCache.onFrameStart();
+        mCache.setDepthTestEnabled(true);
+        mCache.useProgram(3);
+        assertEquals(1, mBackend.getCallCount("glEnable"));
+        assertEquals(1, mBackend.getCallCount("glUseProgram"));
+        assertEquals(0, mCache.getIssuedCalls());
+        assertEquals(2, mCache.getSkippedCalls());
+    }
+}
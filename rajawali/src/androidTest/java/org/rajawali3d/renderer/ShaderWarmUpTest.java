@@ -0,0 +1,83 @@
+package org.rajawali3d.renderer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import android.test.suitebuilder.annotation.SmallTest;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.rajawali3d.lights.ALight;
+import org.rajawali3d.lights.DirectionalLight;
+import org.rajawali3d.materials.Material;
+import org.rajawali3d.materials.methods.DiffuseMethod;
+import org.rajawali3d.renderer.gl.AGLBackend;
+import org.rajawali3d.renderer.gl.GLES20Backend;
+import org.rajawali3d.renderer.gl.HeadlessGLBackend;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+@SmallTest
+public class ShaderWarmUpTest {
+
+    private static final Executor DIRECT_EXECUTOR = new Executor() {
+        @Override
+        public void execute(Runnable command) {
+            command.run();
+        }
+    };
+
+    @Before
+    public void setUp() throws Exception {
+        AGLBackend.setCurrent(new HeadlessGLBackend());
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        AGLBackend.setCurrent(new GLES20Backend());
+    }
+
+    @Test
+    public void testCompilesLitMaterialsWithLights() throws Exception {
+        final Material unlit = new Material(true);
+        final Material lit = createLitMaterial();
+        final List<ALight> lights = new ArrayList<>();
+        lights.add(new DirectionalLight(0, -1, 0));
+        lit.setLights(lights);
+
+        final ShaderWarmUp shaderWarmUp = new ShaderWarmUp(Arrays.asList(unlit, lit), Long.MAX_VALUE, null);
+        assertFalse(shaderWarmUp.isStarted());
+        shaderWarmUp.start(DIRECT_EXECUTOR);
+        assertTrue(shaderWarmUp.onFrame());
+        assertEquals(2, shaderWarmUp.getTotalCount());
+        assertEquals(2, shaderWarmUp.getCompiledCount());
+        assertFalse(unlit.needsShaderCompilation());
+        assertFalse(lit.needsShaderCompilation());
+    }
+
+    @Test
+    public void testSkipsLitMaterialsWithoutLights() throws Exception {
+        final Material unlit = new Material(true);
+        final Material lit = createLitMaterial();
+
+        final ShaderWarmUp shaderWarmUp = new ShaderWarmUp(Arrays.asList(unlit, lit), Long.MAX_VALUE, null);
+        assertEquals(2, shaderWarmUp.getTotalCount());
+        shaderWarmUp.start(DIRECT_EXECUTOR);
+        assertEquals(1, shaderWarmUp.getTotalCount());
+        assertTrue(shaderWarmUp.onFrame());
+        assertEquals(1, shaderWarmUp.getCompiledCount());
+        assertEquals(1f, shaderWarmUp.getProgress(), 0);
+        assertTrue(lit.needsShaderCompilation());
+    }
+
+    private static Material createLitMaterial() {
+        final Material material = new Material(true);
+        material.enableLighting(true);
+        material.setDiffuseMethod(new DiffuseMethod.Lambert());
+        return material;
+    }
+}
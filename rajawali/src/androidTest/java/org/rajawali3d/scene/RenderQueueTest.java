@@ -0,0 +1,159 @@
+package org.rajawali3d.scene;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import android.test.suitebuilder.annotation.SmallTest;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.rajawali3d.Object3D;
+import org.rajawali3d.materials.Material;
+import org.rajawali3d.primitives.Cube;
+import org.rajawali3d.renderer.FrameProfiler;
+import org.rajawali3d.renderer.GLStateCache;
+import org.rajawali3d.renderer.gl.AGLBackend;
+import org.rajawali3d.renderer.gl.GLES20Backend;
+import org.rajawali3d.renderer.gl.HeadlessGLBackend;
+
+@SmallTest
+public class RenderQueueTest {
+
+    private HeadlessGLBackend mBackend;
+    private GLStateCache mGLState;
+    private Scene mScene;
+
+    @Before
+    public void setUp() throws Exception {
+        mBackend = new HeadlessGLBackend();
+        mGLState = new GLStateCache();
+        AGLBackend.setCurrent(mBackend);
+        GLStateCache.setCurrent(mGLState);
+        FrameProfiler.setCurrent(new FrameProfiler());
+        mScene = new Scene(new SceneTest.TestRenderer(null));
+        mScene.getCamera().setProjectionMatrix(640, 480);
+        // At the origin the view depth of an object is its negated z
+        mScene.getCamera().setPosition(0, 0, 0);
+        mScene.setRenderQueueEnabled(true);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        AGLBackend.setCurrent(new GLES20Backend());
+        GLStateCache.setCurrent(new GLStateCache());
+        FrameProfiler.setCurrent(new FrameProfiler());
+    }
+
+    @Test
+    public void testStateSortOrdersByDepth() throws Exception {
+        final Material material = new Material(true);
+        final Object3D[] opaque = addAtDepths(material, false);
+        final Object3D[] transparent = addAtDepths(material, true);
+
+        render();
+        assertDepthOrder(opaque, transparent);
+    }
+
+    @Test
+    public void testFrontToBackSortOrdersByDepth() throws Exception {
+        mScene.setOpaqueSortMode(RenderQueue.OpaqueSortMode.FRONT_TO_BACK);
+        final Material material = new Material(true);
+        final Object3D[] opaque = addAtDepths(material, false);
+        final Object3D[] transparent = addAtDepths(material, true);
+
+        render();
+        assertDepthOrder(opaque, transparent);
+    }
+
+    @Test
+    public void testStateSortReducesBinds() throws Exception {
+        // Both textured materials share a program, the plain material has one of its own
+        final Material first = SceneTest.createTexturedMaterial();
+        final Material second = SceneTest.createTexturedMaterial();
+        final Material plain = new Material(true);
+        final Material[] order = { first, plain, second, plain, first, second };
+        for (int i = 0; i < order.length; ++i) {
+            final Cube cube = new Cube(1);
+            cube.setMaterial(order[i]);
+            cube.setPosition(i * 2 - 5, 0, -10);
+            mScene.addChild(cube);
+        }
+
+        render();
+        final RenderQueue queue = mScene.getRenderQueue();
+        assertEquals(6, queue.size());
+        assertEquals(5, queue.getUnsortedProgramBinds());
+        assertEquals(6, queue.getUnsortedTextureBinds());
+        assertEquals(2, queue.getSortedProgramBinds());
+        // Each material is bound once, items sharing one are adjacent
+        assertEquals(3, queue.getSortedTextureBinds());
+        // The sorted counts are what actually reaches GL
+        assertEquals(2, mGLState.getProgramSwitches());
+        assertEquals(2, mBackend.getCallCount("glUseProgram"));
+        assertEquals(6, mBackend.getDrawCallCount());
+    }
+
+    @Test
+    public void testNewMaterialsAreKeyedByProgram() throws Exception {
+        final Material first = SceneTest.createTexturedMaterial();
+        final Material plain = new Material(true);
+        final Cube textured = new Cube(1);
+        textured.setMaterial(first);
+        mScene.addChild(textured);
+        final Cube untextured = new Cube(1);
+        untextured.setMaterial(plain);
+        mScene.addChild(untextured);
+
+        // The first frame already sorts by the programs compiled while collecting
+        render();
+        final RenderQueue queue = mScene.getRenderQueue();
+        assertTrue(first.getProgramHandle() > 0);
+        assertTrue(plain.getProgramHandle() > 0);
+        for (int i = 0; i < queue.size(); ++i) {
+            final RenderQueue.RenderItem item = queue.get(i);
+            assertEquals(item.getMaterial().getProgramHandle(), item.mProgramHandle);
+        }
+        assertEquals(2, queue.getSortedProgramBinds());
+    }
+
+    private Object3D[] addAtDepths(Material material, boolean blended) {
+        // Added in neither depth order, at view depths 10, 5 and 15
+        final double[] depths = { 10, 5, 15 };
+        final Object3D[] objects = new Object3D[depths.length];
+        for (int i = 0; i < depths.length; ++i) {
+            final Cube cube = new Cube(1);
+            cube.setMaterial(material);
+            cube.setBlendingEnabled(blended);
+            cube.setPosition(0, 0, -depths[i]);
+            mScene.addChild(cube);
+            objects[i] = cube;
+        }
+        return objects;
+    }
+
+    private void assertDepthOrder(Object3D[] opaque, Object3D[] transparent) {
+        final RenderQueue queue = mScene.getRenderQueue();
+        assertEquals(3, queue.getOpaqueCount());
+        assertEquals(3, queue.getTransparentCount());
+        // Opaque front to back, then transparent back to front
+        assertSame(opaque[1], queue.get(0).getObject());
+        assertSame(opaque[0], queue.get(1).getObject());
+        assertSame(opaque[2], queue.get(2).getObject());
+        assertSame(transparent[2], queue.get(3).getObject());
+        assertSame(transparent[0], queue.get(4).getObject());
+        assertSame(transparent[1], queue.get(5).getObject());
+        assertEquals(5, queue.get(0).getDepth(), 1e-9);
+        assertEquals(10, queue.get(1).getDepth(), 1e-9);
+        assertEquals(15, queue.get(2).getDepth(), 1e-9);
+        assertEquals(15, queue.get(3).getDepth(), 1e-9);
+        assertEquals(10, queue.get(4).getDepth(), 1e-9);
+        assertEquals(5, queue.get(5).getDepth(), 1e-9);
+    }
+
+    private void render() {
+        mGLState.onFrameStart();
+        mBackend.resetCounters();
+        mScene.render(0, 0, null);
+    }
+}
@@ -0,0 +1,158 @@
+package org.rajawali3d.scene;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import android.content.Context;
+import android.opengl.GLES20;
+import android.test.suitebuilder.annotation.SmallTest;
+import android.view.MotionEvent;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.rajawali3d.Object3D;
+import org.rajawali3d.materials.Material;
+import org.rajawali3d.materials.textures.ATexture;
+import org.rajawali3d.materials.textures.Texture;
+import org.rajawali3d.materials.textures.TextureManager;
+import org.rajawali3d.primitives.Cube;
+import org.rajawali3d.renderer.FrameProfiler;
+import org.rajawali3d.renderer.GLStateCache;
+import org.rajawali3d.renderer.Renderer;
+import org.rajawali3d.renderer.gl.AGLBackend;
+import org.rajawali3d.renderer.gl.GLES20Backend;
+import org.rajawali3d.renderer.gl.HeadlessGLBackend;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+
+@SmallTest
+public class SceneTest {
+
+    private HeadlessGLBackend mBackend;
+    private GLStateCache mGLState;
+    private Scene mScene;
+
+    @Before
+    public void setUp() throws Exception {
+        mBackend = new HeadlessGLBackend();
+        mGLState = new GLStateCache();
+        AGLBackend.setCurrent(mBackend);
+        GLStateCache.setCurrent(mGLState);
+        FrameProfiler.setCurrent(new FrameProfiler());
+        mScene = new Scene(new TestRenderer(null));
+        mScene.getCamera().setProjectionMatrix(640, 480);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        AGLBackend.setCurrent(new GLES20Backend());
+        GLStateCache.setCurrent(new GLStateCache());
+        FrameProfiler.setCurrent(new FrameProfiler());
+    }
+
+    @Test
+    public void testRenderCounts() throws Exception {
+        // The texture name is the sampler name, so both textured materials share a program and only the
+        // texture handle differs. The plain material needs a program of its own.
+        final Material first = createTexturedMaterial();
+        final Material second = createTexturedMaterial();
+        final Material plain = new Material(true);
+        addCubes(first, 3);
+        addCubes(second, 2);
+        addCubes(plain, 1);
+
+        render();
+        assertEquals(6, mBackend.getDrawCallCount());
+        assertEquals(6, mBackend.getCallCount("glDrawElements"));
+        assertEquals(2, mGLState.getProgramSwitches());
+        assertEquals(2, mGLState.getTextureBinds());
+        assertEquals(2, mBackend.getCallCount("glUseProgram"));
+
+        // Nothing changes between frames, the objects are drawn the same way
+        render();
+        assertEquals(6, mBackend.getDrawCallCount());
+        assertEquals(2, mGLState.getTextureBinds());
+        assertEquals(mGLState.getProgramSwitches(), mBackend.getCallCount("glUseProgram"));
+    }
+
+    @Test
+    public void testCoalescedAdditionsKeepOrder() throws Exception {
+        final Cube first = new Cube(1);
+        final Cube second = new Cube(1);
+        final Cube third = new Cube(1);
+        mScene.setCoalesceChildAdditions(true);
+        mScene.addChild(first);
+        mScene.clearChildren();
+        mScene.addChild(second);
+        mScene.addChild(third);
+        mScene.applyPendingChanges();
+
+        final List<Object3D> children = mScene.getChildrenCopy();
+        assertEquals(2, children.size());
+        assertSame(second, children.get(0));
+        assertSame(third, children.get(1));
+
+        mScene.addChild(first);
+        mScene.removeChild(second);
+        mScene.applyPendingChanges();
+        final List<Object3D> remaining = mScene.getChildrenCopy();
+        assertEquals(2, remaining.size());
+        assertSame(third, remaining.get(0));
+        assertSame(first, remaining.get(1));
+    }
+
+    private void render() {
+        mGLState.onFrameStart();
+        mBackend.resetCounters();
+        mScene.render(0, 0, null);
+    }
+
+    private void addCubes(Material material, int count) {
+        for (int i = 0; i < count; ++i) {
+            final Cube cube = new Cube(1);
+            cube.setMaterial(material);
+            cube.setPosition(i * 2, 0, -10);
+            mScene.addChild(cube);
+        }
+    }
+
+    static Material createTexturedMaterial() throws ATexture.TextureException {
+        final Texture texture = new Texture("albedo");
+        texture.setByteBuffer(ByteBuffer.allocateDirect(4));
+        texture.setWidth(1);
+        texture.setHeight(1);
+        texture.setBitmapFormat(GLES20.GL_RGBA);
+        final Material material = new Material(true);
+        material.setColorInfluence(0);
+        material.addTexture(texture);
+        // The renderer would add the texture before the next frame
+        TextureManager.getInstance().taskAdd(texture);
+        return material;
+    }
+
+    static final class TestRenderer extends Renderer {
+
+        TestRenderer(Context context) {
+            super(context, true);
+        }
+
+        @Override
+        public double getRefreshRate() {
+            return 60;
+        }
+
+        @Override
+        protected void initScene() {
+        }
+
+        @Override
+        public void onOffsetsChanged(float xOffset, float yOffset, float xOffsetStep, float yOffsetStep,
+                                     int xPixelOffset, int yPixelOffset) {
+        }
+
+        @Override
+        public void onTouchEvent(MotionEvent event) {
+        }
+    }
+}
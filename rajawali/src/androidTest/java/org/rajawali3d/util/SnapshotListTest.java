@@ -0,0 +1,60 @@
+package org.rajawali3d.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import android.test.suitebuilder.annotation.SmallTest;
+import org.junit.Test;
+import org.rajawali3d.util.SnapshotList;
+
+import java.util.Arrays;
+import java.util.List;
+
+@SmallTest
+public class SnapshotListTest {
+
+    @Test
+    public void testModificationsInvisibleUntilPublished() throws Exception {
+        final SnapshotList<String> list = new SnapshotList<>();
+        list.add("a");
+        list.add("b");
+        assertTrue(list.getSnapshot().isEmpty());
+        assertEquals(2, list.getWorkingCopy().size());
+        assertTrue(list.publish());
+        assertEquals(Arrays.asList("a", "b"), list.getSnapshot());
+        assertEquals(1, list.getVersion());
+    }
+
+    @Test
+    public void testPublishedSnapshotIsStable() throws Exception {
+        final SnapshotList<String> list = new SnapshotList<>();
+        list.addAll(Arrays.asList("a", "b", "c"));
+        list.publish();
+        final List<String> snapshot = list.getSnapshot();
+        list.remove("b");
+        list.set(0, "d");
+        list.publish();
+        assertEquals(Arrays.asList("a", "b", "c"), snapshot);
+        assertEquals(Arrays.asList("d", "c"), list.getSnapshot());
+        assertEquals(2, list.getVersion());
+    }
+
+    @Test
+    public void testPublishWithoutModifications() throws Exception {
+        final SnapshotList<String> list = new SnapshotList<>();
+        assertFalse(list.publish());
+        list.remove("a");
+        list.clear();
+        assertFalse(list.publish());
+        assertEquals(0, list.getVersion());
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testSnapshotIsReadOnly() throws Exception {
+        final SnapshotList<String> list = new SnapshotList<>();
+        list.add("a");
+        list.publish();
+        list.getSnapshot().add("b");
+    }
+}
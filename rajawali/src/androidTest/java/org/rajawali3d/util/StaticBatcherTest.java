@@ -0,0 +1,150 @@
+package org.rajawali3d.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import android.test.suitebuilder.annotation.SmallTest;
+import org.junit.Test;
+import org.rajawali3d.Geometry3D;
+import org.rajawali3d.Object3D;
+import org.rajawali3d.materials.Material;
+import org.rajawali3d.math.vector.Vector3;
+
+import java.nio.FloatBuffer;
+import java.nio.ShortBuffer;
+
+@SmallTest
+public class StaticBatcherTest {
+
+    private static final float[] VERTICES = { 0, 0, 0, 1, 0, 0, 0, 1, 0 };
+    private static final float[] NORMALS = { 0, 0, 1, 0, 0, 1, 0, 0, 1 };
+    private static final float[] TEXTURE_COORDS = { 0, 0, 1, 0, 0, 1 };
+    private static final int[] INDICES = { 0, 1, 2 };
+
+    @Test
+    public void testMergesMeshesPerMaterial() throws Exception {
+        final Material material = new Material(true);
+        final Material other = new Material(true);
+        final Object3D root = new Object3D();
+        final Object3D first = createTriangle(material, null);
+        final Object3D second = createTriangle(material, null);
+        final Object3D third = createTriangle(other, null);
+        first.setPosition(0, 0, 0);
+        second.setPosition(10, 0, 0);
+        second.setRotation(Vector3.Axis.Z, 90);
+        third.setPosition(20, 0, 0);
+        root.addChild(first);
+        root.addChild(second);
+        root.addChild(third);
+
+        final Object3D container = StaticBatcher.batch(root);
+        assertEquals(2, container.getNumChildren());
+        assertTrue(first.isContainer());
+        assertTrue(second.isContainer());
+        assertTrue(third.isContainer());
+
+        final Object3D batch = container.getChildAt(0);
+        assertSame(material, batch.getMaterial());
+        final Geometry3D geometry = batch.getGeometry();
+        assertFloats(new float[]{ 0, 0, 0, 1, 0, 0, 0, 1, 0, 10, 0, 0, 10, -1, 0, 11, 0, 0 },
+                geometry.getVertices());
+        assertFloats(new float[]{ 0, 0, 1, 0, 0, 1, 0, 0, 1, 0, 0, 1, 0, 0, 1, 0, 0, 1 }, geometry.getNormals());
+        assertIndices(new int[]{ 0, 1, 2, 3, 4, 5 }, geometry);
+
+        final Object3D otherBatch = container.getChildAt(1);
+        assertSame(other, otherBatch.getMaterial());
+        assertFloats(new float[]{ 20, 0, 0, 21, 0, 0, 20, 1, 0 }, otherBatch.getGeometry().getVertices());
+        assertIndices(new int[]{ 0, 1, 2 }, otherBatch.getGeometry());
+    }
+
+    @Test
+    public void testBakesNestedTransformations() throws Exception {
+        final Material material = new Material(true);
+        final Object3D root = new Object3D();
+        final Object3D parent = new Object3D();
+        final Object3D child = createTriangle(material, null);
+        parent.setStatic(true);
+        parent.setPosition(0, 5, 0);
+        parent.setScale(2, 1, 1);
+        child.setPosition(1, 0, 0);
+        root.addChild(parent);
+        parent.addChild(child);
+
+        final Object3D container = StaticBatcher.batch(root);
+        assertEquals(1, container.getNumChildren());
+        final Geometry3D geometry = container.getChildAt(0).getGeometry();
+        assertFloats(new float[]{ 2, 5, 0, 4, 5, 0, 2, 6, 0 }, geometry.getVertices());
+        assertFloats(new float[]{ 0, 0, 1, 0, 0, 1, 0, 0, 1 }, geometry.getNormals());
+    }
+
+    @Test
+    public void testTextureCoordinates() throws Exception {
+        final Material material = new Material(true);
+        final Object3D root = new Object3D();
+        root.addChild(createTriangle(material, null));
+        Object3D container = StaticBatcher.batch(root);
+        assertFalse(container.getChildAt(0).getGeometry().hasTextureCoordinates());
+
+        final Object3D textured = new Object3D();
+        final Object3D withCoords = createTriangle(material, TEXTURE_COORDS);
+        final Object3D withoutCoords = createTriangle(material, null);
+        withCoords.setPosition(0, 0, 0);
+        withoutCoords.setPosition(10, 0, 0);
+        textured.addChild(withCoords);
+        textured.addChild(withoutCoords);
+        container = StaticBatcher.batch(textured);
+        final Geometry3D geometry = container.getChildAt(0).getGeometry();
+        assertTrue(geometry.hasTextureCoordinates());
+        assertFloats(new float[]{ 0, 0, 1, 0, 0, 1, 0, 0, 0, 0, 0, 0 }, geometry.getTextureCoords());
+    }
+
+    @Test
+    public void testMirroredMeshKeepsWinding() throws Exception {
+        final Material material = new Material(true);
+        final Object3D root = new Object3D();
+        final Object3D mirrored = createTriangle(material, null);
+        mirrored.setScale(-1, 1, 1);
+        root.addChild(mirrored);
+
+        final Object3D container = StaticBatcher.batch(root);
+        final Geometry3D geometry = container.getChildAt(0).getGeometry();
+        assertFloats(new float[]{ 0, 0, 0, -1, 0, 0, 0, 1, 0 }, geometry.getVertices());
+        assertIndices(new int[]{ 0, 2, 1 }, geometry);
+        assertFloats(new float[]{ 0, 0, 1, 0, 0, 1, 0, 0, 1 }, geometry.getNormals());
+    }
+
+    private static Object3D createTriangle(Material material, float[] textureCoords) {
+        final Object3D object = new Object3D();
+        // Geometry3D#setData fills in texture coordinates, so the buffers are set one by one
+        final Geometry3D geometry = object.getGeometry();
+        geometry.setVertices(VERTICES.clone());
+        geometry.setNormals(NORMALS.clone());
+        if (textureCoords != null) {
+            geometry.setTextureCoords(textureCoords.clone());
+        }
+        geometry.setIndices(INDICES.clone());
+        object.isContainer(false);
+        object.setMaterial(material);
+        object.setStatic(true);
+        return object;
+    }
+
+    private static void assertFloats(float[] expected, FloatBuffer actual) {
+        assertNotNull(actual);
+        assertEquals(expected.length, actual.limit());
+        for (int i = 0; i < expected.length; ++i) {
+            assertEquals("Index " + i, expected[i], actual.get(i), 1e-5);
+        }
+    }
+
+    private static void assertIndices(int[] expected, Geometry3D geometry) {
+        final ShortBuffer indices = (ShortBuffer) geometry.getIndexBuffer();
+        assertEquals(expected.length, geometry.getNumIndices());
+        for (int i = 0; i < expected.length; ++i) {
+            assertEquals("Index " + i, expected[i], indices.get(i) & 0xFFFF);
+        }
+    }
+}
@@ -21,6 +21,10 @@ import org.rajawali3d.scenegraph.IGraphNode;
 import org.rajawali3d.scenegraph.IGraphNodeMember;
 
 public abstract class ATransformable3D implements IGraphNodeMember {
+    // The tolerance on the squared length of the orientation, within which it is taken to be a pure rotation. As
+    // tight as the one Matrix4#getTransformType() classifies the resulting matrix with.
+    private static final double UNIT_ORIENTATION_TOLERANCE = 1e-10;
+
     protected final Matrix4 mMMatrix = new Matrix4(); //The model matrix
     protected final Vector3 mPosition; //The position
     protected final Vector3 mScale; //The scale
@@ -34,8 +38,13 @@ public abstract class ATransformable3D implements IGraphNodeMember {
     protected boolean mLookAtEnabled; //Should we auto enforce look at target?
     protected boolean mIsCamera; //is this a camera object?
     protected boolean mIsModelMatrixDirty = true; // If true, the model matrix needs to be recalculated.
+    protected int mModelMatrixVersion; // Incremented every time the model matrix is recalculated.
+    protected Matrix4.TransformType mModelMatrixType = Matrix4.TransformType.RIGID; // The class of the model matrix
+    protected TransformPool mTransformPool; // The pool calculating the model matrix, if any
+    protected int mTransformIndex = -1; // The index of the transform in the pool
     protected boolean mInsideGraph = false; //Default to being outside the graph
     protected IGraphNode mGraphNode; //Which graph node are we in?
+    protected boolean mInsideFrustum = false; //Did the last frustum cull of the graph find us fully inside?
 
     /**
      * Default constructor for {@link ATransformable3D}.
@@ -57,6 +66,49 @@ public abstract class ATransformable3D implements IGraphNodeMember {
         mIsModelMatrixDirty = true;
     }
 
+    /**
+     * While this object is in a {@link TransformPool}, its slot holds the position, scale and orientation and the
+     * fields are views of it. The read methods refresh a field from the slot before it is used, so values written to
+     * the pool directly are seen as well. The write methods copy a field into the slot after a setter changed it, which
+     * is the only way the slot of an object is marked for recalculation. Outside of a pool, they do nothing.
+     */
+    protected void readPosition() {
+        if (mTransformPool != null) {
+            mTransformPool.getPosition(mTransformIndex, mPosition);
+        }
+    }
+
+    protected void writePosition() {
+        if (mTransformPool != null) {
+            mTransformPool.setPosition(mTransformIndex, mPosition.x, mPosition.y, mPosition.z);
+        }
+    }
+
+    protected void readScale() {
+        if (mTransformPool != null) {
+            mTransformPool.getScale(mTransformIndex, mScale);
+        }
+    }
+
+    protected void writeScale() {
+        if (mTransformPool != null) {
+            mTransformPool.setScale(mTransformIndex, mScale.x, mScale.y, mScale.z);
+        }
+    }
+
+    protected void readOrientation() {
+        if (mTransformPool != null) {
+            mTransformPool.getOrientation(mTransformIndex, mOrientation);
+        }
+    }
+
+    protected void writeOrientation() {
+        if (mTransformPool != null) {
+            mTransformPool.setOrientation(mTransformIndex, mOrientation.w, mOrientation.x, mOrientation.y,
+                                          mOrientation.z);
+        }
+    }
+
     /**
      * Recalculates the model matrix for this {@link ATransformable3D} object if necessary.
      *
@@ -88,10 +140,91 @@ public abstract class ATransformable3D implements IGraphNodeMember {
      * @param parentMatrix {@link Matrix4} The parent matrix, if any, to apply to this object.
      */
     public void calculateModelMatrix(final Matrix4 parentMatrix) {
-        mMMatrix.setAll(mPosition, mScale, mOrientation);
-        if (parentMatrix != null) {
-            mMMatrix.leftMultiply(parentMatrix);
+        if (mTransformPool != null) {
+            // The pool holds the parent's transform as well, the parent matrix is the one it calculated. The scene
+            // usually updated the whole pool already, in which case this is only a copy.
+            mTransformPool.getWorldMatrix(mTransformIndex, mMMatrix);
+            readScale();
+            readOrientation();
+            // The parent matrix isn't necessarily provided for pooled transforms
+            mModelMatrixType = mTransformPool.getParent(mTransformIndex) == TransformPool.NO_PARENT
+                ? getLocalMatrixType() : mMMatrix.getTransformType();
+        } else {
+            mMMatrix.setAll(mPosition, mScale, mOrientation);
+            mModelMatrixType = getLocalMatrixType();
+            if (parentMatrix != null) {
+                mMMatrix.leftMultiply(parentMatrix);
+                mModelMatrixType = mModelMatrixType.combine(getParentMatrixType(parentMatrix));
+            }
         }
+        ++mModelMatrixVersion;
+    }
+
+    /**
+     * Determines the class of transformation of the local position, scale and orientation of this object.
+     *
+     * @return {@link Matrix4.TransformType} The class, which depends on the scale. An orientation which isn't a unit
+     * quaternion doesn't describe a rotation, so it always makes the transformation affine.
+     */
+    protected Matrix4.TransformType getLocalMatrixType() {
+        if (Math.abs(mOrientation.length2() - 1) > UNIT_ORIENTATION_TOLERANCE) {
+            return Matrix4.TransformType.AFFINE;
+        }
+        final double x = Math.abs(mScale.x);
+        if (x != Math.abs(mScale.y) || x != Math.abs(mScale.z)) {
+            return Matrix4.TransformType.AFFINE;
+        }
+        return x == 1 ? Matrix4.TransformType.RIGID : Matrix4.TransformType.UNIFORM_SCALE;
+    }
+
+    /**
+     * Determines the class of transformation of the parent matrix passed to
+     * {@link #calculateModelMatrix(Matrix4)}. Subclasses which know where the matrix comes from can avoid classifying
+     * it.
+     *
+     * @param parentMatrix {@link Matrix4} The parent matrix.
+     * @return {@link Matrix4.TransformType} The class of the parent matrix.
+     */
+    protected Matrix4.TransformType getParentMatrixType(Matrix4 parentMatrix) {
+        return parentMatrix.getTransformType();
+    }
+
+    /**
+     * Retrieves the class of transformation the model matrix holds, as of the last time it was calculated. Rigid and
+     * uniformly scaled model matrices have much cheaper inverses and normal matrices, see
+     * {@link Matrix4#inverse(Matrix4.TransformType)} and {@link Matrix4#setToNormalMatrix(Matrix4.TransformType)}.
+     *
+     * @return {@link Matrix4.TransformType} The class of the model matrix.
+     */
+    public Matrix4.TransformType getModelMatrixType() {
+        return mModelMatrixType;
+    }
+
+    /**
+     * Retrieves the version of the model matrix. It changes every time the model matrix is recalculated, so matrices
+     * derived from it only need to be recalculated when the version differs from the one they were derived from.
+     *
+     * @return {@code int} The current model matrix version.
+     */
+    public int getModelMatrixVersion() {
+        return mModelMatrixVersion;
+    }
+
+    /**
+     * Retrieves the {@link TransformPool} the model matrix of this {@link ATransformable3D} is calculated by.
+     *
+     * @return {@link TransformPool} The pool, or null if the model matrix is calculated by this object.
+     */
+    public TransformPool getTransformPool() {
+        return mTransformPool;
+    }
+
+    /**
+     * @return {@code int} The index of the transform of this {@link ATransformable3D} in its {@link TransformPool},
+     * or -1 if it isn't in a pool.
+     */
+    public int getTransformIndex() {
+        return mTransformIndex;
     }
 
     /**
@@ -103,6 +236,7 @@ public abstract class ATransformable3D implements IGraphNodeMember {
      */
     public void setPosition(Vector3 position) {
         mPosition.setAll(position);
+        writePosition();
         if (mLookAtEnabled && mLookAtValid)
             resetToLookAt();
         markModelMatrixDirty();
@@ -118,6 +252,7 @@ public abstract class ATransformable3D implements IGraphNodeMember {
      */
     public void setPosition(double x, double y, double z) {
         mPosition.setAll(x, y, z);
+        writePosition();
         if (mLookAtEnabled && mLookAtValid)
             resetToLookAt();
         markModelMatrixDirty();
@@ -130,10 +265,13 @@ public abstract class ATransformable3D implements IGraphNodeMember {
      * @param units {@code double} Number of units to move. If negative, movement will be in the "back" direction.
      */
     public void moveForward(double units) {
+        readPosition();
+        readOrientation();
         mTempVec.setAll(WorldParameters.FORWARD_AXIS);
         mTempVec.rotateBy(mOrientation).normalize();
         mTempVec.multiply(units);
         mPosition.add(mTempVec);
+        writePosition();
         if (mLookAtEnabled && mLookAtValid) {
             mLookAt.add(mTempVec);
             resetToLookAt();
@@ -148,10 +286,13 @@ public abstract class ATransformable3D implements IGraphNodeMember {
      * @param units {@code double} Number of units to move. If negative, movement will be in the "left" direction.
      */
     public void moveRight(double units) {
+        readPosition();
+        readOrientation();
         mTempVec.setAll(WorldParameters.RIGHT_AXIS);
         mTempVec.rotateBy(mOrientation).normalize();
         mTempVec.multiply(units);
         mPosition.add(mTempVec);
+        writePosition();
         if (mLookAtValid) {
             mLookAt.add(mTempVec);
             resetToLookAt();
@@ -166,10 +307,13 @@ public abstract class ATransformable3D implements IGraphNodeMember {
      * @param units {@code double} Number of units to move. If negative, movement will be in the "down" direction.
      */
     public void moveUp(double units) {
+        readPosition();
+        readOrientation();
         mTempVec.setAll(WorldParameters.UP_AXIS);
         mTempVec.rotateBy(mOrientation).normalize();
         mTempVec.multiply(units);
         mPosition.add(mTempVec);
+        writePosition();
         if (mLookAtEnabled && mLookAtValid) {
             mLookAt.add(mTempVec);
             resetToLookAt();
@@ -184,7 +328,9 @@ public abstract class ATransformable3D implements IGraphNodeMember {
      * @param x double The new x component for the position.
      */
     public void setX(double x) {
+        readPosition();
         mPosition.x = x;
+        writePosition();
         if (mLookAtEnabled && mLookAtValid)
             resetToLookAt();
         markModelMatrixDirty();
@@ -197,7 +343,9 @@ public abstract class ATransformable3D implements IGraphNodeMember {
      * @param y double The new y component for the position.
      */
     public void setY(double y) {
+        readPosition();
         mPosition.y = y;
+        writePosition();
         if (mLookAtEnabled && mLookAtValid)
             resetToLookAt();
         markModelMatrixDirty();
@@ -210,7 +358,9 @@ public abstract class ATransformable3D implements IGraphNodeMember {
      * @param z double The new z component for the position.
      */
     public void setZ(double z) {
+        readPosition();
         mPosition.z = z;
+        writePosition();
         if (mLookAtEnabled && mLookAtValid)
             resetToLookAt();
         markModelMatrixDirty();
@@ -222,6 +372,7 @@ public abstract class ATransformable3D implements IGraphNodeMember {
      * @return {@link Vector3} The position.
      */
     public Vector3 getPosition() {
+        readPosition();
         return mPosition;
     }
 
@@ -231,6 +382,7 @@ public abstract class ATransformable3D implements IGraphNodeMember {
      * @return double The x component of the position.
      */
     public double getX() {
+        readPosition();
         return mPosition.x;
     }
 
@@ -240,6 +392,7 @@ public abstract class ATransformable3D implements IGraphNodeMember {
      * @return double The y component of the position.
      */
     public double getY() {
+        readPosition();
         return mPosition.y;
     }
 
@@ -249,6 +402,7 @@ public abstract class ATransformable3D implements IGraphNodeMember {
      * @return double The z component of the position.
      */
     public double getZ() {
+        readPosition();
         return mPosition.z;
     }
 
@@ -267,7 +421,9 @@ public abstract class ATransformable3D implements IGraphNodeMember {
      * @return A reference to this {@link ATransformable3D} to facilitate chaining.
      */
     public ATransformable3D rotate(final Quaternion quat) {
+        readOrientation();
         mOrientation.multiply(quat);
+        writeOrientation();
         mLookAtValid = false;
         markModelMatrixDirty();
         return this;
@@ -284,7 +440,9 @@ public abstract class ATransformable3D implements IGraphNodeMember {
      * @return A reference to this {@link ATransformable3D} to facilitate chaining.
      */
     public ATransformable3D rotate(final Vector3 axis, double angle) {
+        readOrientation();
         mOrientation.multiply(mTmpOrientation.fromAngleAxis(axis, angle));
+        writeOrientation();
         mLookAtValid = false;
         markModelMatrixDirty();
         return this;
@@ -301,7 +459,9 @@ public abstract class ATransformable3D implements IGraphNodeMember {
      * @return A reference to this {@link ATransformable3D} to facilitate chaining.
      */
     public ATransformable3D rotate(final Vector3.Axis axis, double angle) {
+        readOrientation();
         mOrientation.multiply(mTmpOrientation.fromAngleAxis(axis, angle));
+        writeOrientation();
         mLookAtValid = false;
         markModelMatrixDirty();
         return this;
@@ -320,7 +480,9 @@ public abstract class ATransformable3D implements IGraphNodeMember {
      * @return A reference to this {@link ATransformable3D} to facilitate chaining.
      */
     public ATransformable3D rotate(double x, double y, double z, double angle) {
+        readOrientation();
         mOrientation.multiply(mTmpOrientation.fromAngleAxis(x, y, z, angle));
+        writeOrientation();
         mLookAtValid = false;
         markModelMatrixDirty();
         return this;
@@ -336,7 +498,9 @@ public abstract class ATransformable3D implements IGraphNodeMember {
      * @return A reference to this {@link ATransformable3D} to facilitate chaining.
      */
     public ATransformable3D rotate(final Matrix4 matrix) {
+        readOrientation();
         mOrientation.multiply(mTmpOrientation.fromMatrix(matrix));
+        writeOrientation();
         mLookAtValid = false;
         markModelMatrixDirty();
         return this;
@@ -353,6 +517,7 @@ public abstract class ATransformable3D implements IGraphNodeMember {
      */
     public ATransformable3D setRotation(final Quaternion quat) {
         mOrientation.setAll(quat);
+        writeOrientation();
         mLookAtValid = false;
         markModelMatrixDirty();
         return this;
@@ -370,6 +535,7 @@ public abstract class ATransformable3D implements IGraphNodeMember {
      */
     public ATransformable3D setRotation(final Vector3 axis, double angle) {
         mOrientation.fromAngleAxis(axis, angle);
+        writeOrientation();
         mLookAtValid = false;
         markModelMatrixDirty();
         return this;
@@ -387,6 +553,7 @@ public abstract class ATransformable3D implements IGraphNodeMember {
      */
     public ATransformable3D setRotation(final Vector3.Axis axis, double angle) {
         mOrientation.fromAngleAxis(axis, angle);
+        writeOrientation();
         mLookAtValid = false;
         markModelMatrixDirty();
         return this;
@@ -406,6 +573,7 @@ public abstract class ATransformable3D implements IGraphNodeMember {
      */
     public ATransformable3D setRotation(double x, double y, double z, double angle) {
         mOrientation.fromAngleAxis(x, y, z, angle);
+        writeOrientation();
         mLookAtValid = false;
         markModelMatrixDirty();
         return this;
@@ -422,6 +590,7 @@ public abstract class ATransformable3D implements IGraphNodeMember {
      */
     public ATransformable3D setRotation(final Matrix4 matrix) {
         mOrientation.fromMatrix(matrix);
+        writeOrientation();
         mLookAtValid = false;
         markModelMatrixDirty();
         return this;
@@ -439,6 +608,7 @@ public abstract class ATransformable3D implements IGraphNodeMember {
      */
     public ATransformable3D setRotation(Vector3 rotation) {
         mOrientation.fromEuler(rotation.y, rotation.z, rotation.x);
+        writeOrientation();
         mLookAtValid = false;
         markModelMatrixDirty();
         return this;
@@ -457,6 +627,7 @@ public abstract class ATransformable3D implements IGraphNodeMember {
      */
     public ATransformable3D setRotation(double rotX, double rotY, double rotZ) {
         mOrientation.fromEuler(rotY, rotZ, rotX);
+        writeOrientation();
         mLookAtValid = false;
         markModelMatrixDirty();
         return this;
@@ -472,9 +643,11 @@ public abstract class ATransformable3D implements IGraphNodeMember {
      * @return A reference to this {@link ATransformable3D} to facilitate chaining.
      */
     public ATransformable3D setRotX(double rotX) {
+        readOrientation();
         mOrientation.fromEuler(MathUtil.PRE_180_DIV_PI * mOrientation.getRotationY(),
                                MathUtil.PRE_180_DIV_PI * mOrientation.getRotationX(),
                                rotX);
+        writeOrientation();
         mLookAtValid = false;
         markModelMatrixDirty();
         return this;
@@ -490,9 +663,11 @@ public abstract class ATransformable3D implements IGraphNodeMember {
      * @return A reference to this {@link ATransformable3D} to facilitate chaining.
      */
     public ATransformable3D setRotY(double rotY) {
+        readOrientation();
         mOrientation.fromEuler(rotY,
                                MathUtil.PRE_180_DIV_PI * mOrientation.getRotationX(),
                                MathUtil.PRE_180_DIV_PI * mOrientation.getRotationZ());
+        writeOrientation();
         mLookAtValid = false;
         markModelMatrixDirty();
         return this;
@@ -508,9 +683,11 @@ public abstract class ATransformable3D implements IGraphNodeMember {
      * @return A reference to this {@link ATransformable3D} to facilitate chaining.
      */
     public ATransformable3D setRotZ(double rotZ) {
+        readOrientation();
         mOrientation.fromEuler(MathUtil.PRE_180_DIV_PI * mOrientation.getRotationY(),
                                rotZ,
                                MathUtil.PRE_180_DIV_PI * mOrientation.getRotationZ());
+        writeOrientation();
         mLookAtValid = false;
         markModelMatrixDirty();
         return this;
@@ -522,6 +699,7 @@ public abstract class ATransformable3D implements IGraphNodeMember {
      * @return double The roll Euler angle.
      */
     public double getRotX() {
+        readOrientation();
         return mOrientation.getRotationX();
     }
 
@@ -531,6 +709,7 @@ public abstract class ATransformable3D implements IGraphNodeMember {
      * @return double The yaw Euler angle.
      */
     public double getRotY() {
+        readOrientation();
         return mOrientation.getRotationY();
     }
 
@@ -540,6 +719,7 @@ public abstract class ATransformable3D implements IGraphNodeMember {
      * @return double The pitch Euler angle.
      */
     public double getRotZ() {
+        readOrientation();
         return mOrientation.getRotationZ();
     }
 
@@ -562,10 +742,13 @@ public abstract class ATransformable3D implements IGraphNodeMember {
      */
     public void rotateAround(Vector3 axis, double angle, boolean append) {
         if (append) {
+            readOrientation();
             mTmpOrientation.fromAngleAxis(axis, angle);
             mOrientation.multiply(mTmpOrientation);
+            writeOrientation();
         } else {
             mOrientation.fromAngleAxis(axis, angle);
+            writeOrientation();
         }
         markModelMatrixDirty();
     }
@@ -585,6 +768,7 @@ public abstract class ATransformable3D implements IGraphNodeMember {
      */
     public ATransformable3D setOrientation(Quaternion quat) {
         mOrientation.setAll(quat);
+        writeOrientation();
         mLookAtValid = false;
         markModelMatrixDirty();
         return this;
@@ -598,6 +782,7 @@ public abstract class ATransformable3D implements IGraphNodeMember {
      * @return The provided {@link Quaternion} to facilitate chaining.
      */
     public Quaternion getOrientation(Quaternion quat) {
+        readOrientation();
         quat.setAll(mOrientation);
         return quat;
     }
@@ -715,10 +900,12 @@ public abstract class ATransformable3D implements IGraphNodeMember {
      * @return A reference to this {@link ATransformable3D} to facilitate chaining.
      */
     public ATransformable3D resetToLookAt(Vector3 upAxis) {
+        readPosition();
         mTempVec.subtractAndSet(mLookAt, mPosition);
         // In OpenGL, Cameras are defined such that their forward axis is -Z, not +Z like we have defined objects.
         if (mIsCamera) mTempVec.inverse();
         mOrientation.lookAt(mTempVec, upAxis);
+        writeOrientation();
         mLookAtValid = true;
         markModelMatrixDirty();
         return this;
@@ -736,6 +923,7 @@ public abstract class ATransformable3D implements IGraphNodeMember {
         mUpAxis.setAll(upAxis);
         if (mLookAtEnabled && mLookAtValid) {
             mOrientation.lookAt(mLookAt, mUpAxis);
+            writeOrientation();
             markModelMatrixDirty();
         }
         return this;
@@ -753,6 +941,7 @@ public abstract class ATransformable3D implements IGraphNodeMember {
         mUpAxis.setAll(upAxis);
         if (mLookAtEnabled && mLookAtValid) {
             mOrientation.lookAt(mLookAt, mUpAxis);
+            writeOrientation();
             markModelMatrixDirty();
         }
         return this;
@@ -772,6 +961,7 @@ public abstract class ATransformable3D implements IGraphNodeMember {
         mUpAxis.setAll(x, y, z);
         if (mLookAtEnabled && mLookAtValid) {
             mOrientation.lookAt(mLookAt, mUpAxis);
+            writeOrientation();
             markModelMatrixDirty();
         }
         return this;
@@ -787,6 +977,7 @@ public abstract class ATransformable3D implements IGraphNodeMember {
         mUpAxis.setAll(Vector3.getAxisVector(Vector3.Axis.Y));
         if (mLookAtEnabled && mLookAtValid) {
             mOrientation.lookAt(mLookAt, mUpAxis);
+            writeOrientation();
             markModelMatrixDirty();
         }
         return this;
@@ -808,6 +999,7 @@ public abstract class ATransformable3D implements IGraphNodeMember {
      */
     public ATransformable3D setScale(Vector3 scale) {
         mScale.setAll(scale);
+        writeScale();
         markModelMatrixDirty();
         return this;
     }
@@ -826,6 +1018,7 @@ public abstract class ATransformable3D implements IGraphNodeMember {
         mScale.x = scaleX;
         mScale.y = scaleY;
         mScale.z = scaleZ;
+        writeScale();
         markModelMatrixDirty();
         return this;
     }
@@ -842,6 +1035,7 @@ public abstract class ATransformable3D implements IGraphNodeMember {
         mScale.x = scale;
         mScale.y = scale;
         mScale.z = scale;
+        writeScale();
         markModelMatrixDirty();
         return this;
     }
@@ -855,7 +1049,9 @@ public abstract class ATransformable3D implements IGraphNodeMember {
      * @return A reference to this {@link ATransformable3D} to facilitate chaining.
      */
     public ATransformable3D setScaleX(double scale) {
+        readScale();
         mScale.x = scale;
+        writeScale();
         markModelMatrixDirty();
         return this;
     }
@@ -869,7 +1065,9 @@ public abstract class ATransformable3D implements IGraphNodeMember {
      * @return A reference to this {@link ATransformable3D} to facilitate chaining.
      */
     public ATransformable3D setScaleY(double scale) {
+        readScale();
         mScale.y = scale;
+        writeScale();
         markModelMatrixDirty();
         return this;
     }
@@ -883,7 +1081,9 @@ public abstract class ATransformable3D implements IGraphNodeMember {
      * @return A reference to this {@link ATransformable3D} to facilitate chaining.
      */
     public ATransformable3D setScaleZ(double scale) {
+        readScale();
         mScale.z = scale;
+        writeScale();
         markModelMatrixDirty();
         return this;
     }
@@ -894,6 +1094,7 @@ public abstract class ATransformable3D implements IGraphNodeMember {
      * @return {@link Vector3} containing the scaling factors for each axis.
      */
     public Vector3 getScale() {
+        readScale();
         return mScale;
     }
 
@@ -903,6 +1104,7 @@ public abstract class ATransformable3D implements IGraphNodeMember {
      * @return double containing the scaling factor for the x axis.
      */
     public double getScaleX() {
+        readScale();
         return mScale.x;
     }
 
@@ -912,6 +1114,7 @@ public abstract class ATransformable3D implements IGraphNodeMember {
      * @return double containing the scaling factor for the y axis.
      */
     public double getScaleY() {
+        readScale();
         return mScale.y;
     }
 
@@ -921,6 +1124,7 @@ public abstract class ATransformable3D implements IGraphNodeMember {
      * @return double containing the scaling factor for the z axis.
      */
     public double getScaleZ() {
+        readScale();
         return mScale.z;
     }
 
@@ -930,6 +1134,7 @@ public abstract class ATransformable3D implements IGraphNodeMember {
      * @return true if all three factors are zero
      */
     public boolean isZeroScale() {
+        readScale();
         return (mScale.x == 0d) && (mScale.y == 0d) && (mScale.z == 0d);
     }
 
@@ -946,6 +1151,17 @@ public abstract class ATransformable3D implements IGraphNodeMember {
     public void setGraphNode(IGraphNode node, boolean inside) {
         mGraphNode = node;
         mInsideGraph = inside;
+        if (node == null) {
+            mInsideFrustum = false;
+        }
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see rajawali.scenegraph.IGraphNodeMember#setInsideFrustum(boolean)
+     */
+    public void setInsideFrustum(boolean inside) {
+        mInsideFrustum = inside;
     }
 
     /*
@@ -18,6 +18,8 @@ import org.rajawali3d.animation.mesh.VertexAnimationObject3D;
 import org.rajawali3d.bounds.BoundingBox;
 import org.rajawali3d.bounds.BoundingSphere;
 import org.rajawali3d.math.vector.Vector3;
+import org.rajawali3d.renderer.FrameProfiler;
+import org.rajawali3d.renderer.gl.AGLBackend;
 
 import java.nio.Buffer;
 import java.nio.ByteBuffer;
@@ -219,7 +221,7 @@ public class Geometry3D {
                 } else if (buffer instanceof ShortBuffer) {
                     int count = 0;
                     while (buffer.hasRemaining()) {
-                        array[count] = (int) (((ShortBuffer) buffer).get());
+                        array[count] = ((ShortBuffer) buffer).get() & 0xFFFF;
                         ++count;
                     }
                 }
@@ -305,7 +307,7 @@ public class Geometry3D {
         float[] addNormals = getFloatArrayFromBuffer(geometry.getNormals());
         float[] addColors = getFloatArrayFromBuffer(geometry.getColors());
         float[] addTextureCoords = getFloatArrayFromBuffer(geometry.getTextureCoords());
-        int[] addIndices = getIntArrayFromBuffer(geometry.getIndices());
+        int[] addIndices = getIntArrayFromBuffer(geometry.getIndexBuffer());
         int index_offset = 0;
         if (mVerticesArray != null) {
             index_offset = (mVerticesArray.length / 3);
@@ -470,6 +472,7 @@ public class Geometry3D {
      * Creates the actual Buffer objects.
      */
     public void createBuffers() {
+        final AGLBackend gl = AGLBackend.getCurrent();
 
         for (BufferInfo info : mBuffers) {
             if (info.buffer != null) {
@@ -493,8 +496,8 @@ public class Geometry3D {
             createBuffer(info);
         }
 
-        GLES20.glBindBuffer(GLES20.GL_ELEMENT_ARRAY_BUFFER, 0);
-        GLES20.glBindBuffer(GLES20.GL_ARRAY_BUFFER, 0);
+        gl.glBindBuffer(GLES20.GL_ELEMENT_ARRAY_BUFFER, 0);
+        gl.glBindBuffer(GLES20.GL_ARRAY_BUFFER, 0);
 
         mHaveCreatedBuffers = true;
     }
@@ -522,7 +525,7 @@ public class Geometry3D {
      * @return
      */
     public boolean isValid() {
-        return GLES20.glIsBuffer(mBuffers.get(VERTEX_BUFFER_KEY).bufferHandle);
+        return AGLBackend.getCurrent().glIsBuffer(mBuffers.get(VERTEX_BUFFER_KEY).bufferHandle);
     }
 
     /**
@@ -532,14 +535,15 @@ public class Geometry3D {
      * @see VertexAnimationObject3D
      */
     public void createVertexAndNormalBuffersOnly() {
+        final AGLBackend gl = AGLBackend.getCurrent();
         ((FloatBuffer) mBuffers.get(VERTEX_BUFFER_KEY).buffer).compact().position(0);
         ((FloatBuffer) mBuffers.get(NORMAL_BUFFER_KEY).buffer).compact().position(0);
 
         createBuffer(mBuffers.get(VERTEX_BUFFER_KEY), BufferType.FLOAT_BUFFER, GLES20.GL_ARRAY_BUFFER);
         createBuffer(mBuffers.get(NORMAL_BUFFER_KEY), BufferType.FLOAT_BUFFER, GLES20.GL_ARRAY_BUFFER);
 
-        GLES20.glBindBuffer(GLES20.GL_ELEMENT_ARRAY_BUFFER, 0);
-        GLES20.glBindBuffer(GLES20.GL_ARRAY_BUFFER, 0);
+        gl.glBindBuffer(GLES20.GL_ELEMENT_ARRAY_BUFFER, 0);
+        gl.glBindBuffer(GLES20.GL_ARRAY_BUFFER, 0);
     }
 
     /**
@@ -562,6 +566,7 @@ public class Geometry3D {
      * @param usage
      */
     public void createBuffer(BufferInfo bufferInfo, BufferType type, int target, int usage) {
+        final AGLBackend gl = AGLBackend.getCurrent();
         int byteSize = FLOAT_SIZE_BYTES;
         if (type == BufferType.SHORT_BUFFER) {
             byteSize = SHORT_SIZE_BYTES;
@@ -574,7 +579,7 @@ public class Geometry3D {
         bufferInfo.byteSize = byteSize;
 
         int buff[] = new int[1];
-        GLES20.glGenBuffers(1, buff, 0);
+        gl.glGenBuffers(1, buff, 0);
 
         int handle = buff[0];
 
@@ -582,9 +587,10 @@ public class Geometry3D {
 
         if (buffer != null) {
             buffer.rewind();
-            GLES20.glBindBuffer(target, handle);
-            GLES20.glBufferData(target, buffer.capacity() * byteSize, buffer, usage);
-            GLES20.glBindBuffer(target, 0);
+            gl.glBindBuffer(target, handle);
+            gl.glBufferData(target, buffer.capacity() * byteSize, buffer, usage);
+            gl.glBindBuffer(target, 0);
+            FrameProfiler.getCurrent().countBufferUpload(buffer.capacity() * byteSize);
         }
 
         bufferInfo.bufferHandle = handle;
@@ -666,7 +672,7 @@ public class Geometry3D {
      * @param usage
      */
     public void changeBufferUsage(BufferInfo bufferInfo, final int usage) {
-        GLES20.glDeleteBuffers(1, new int[]{ bufferInfo.bufferHandle }, 0);
+        AGLBackend.getCurrent().glDeleteBuffers(1, new int[]{ bufferInfo.bufferHandle }, 0);
         createBuffer(bufferInfo, bufferInfo.bufferType, bufferInfo.target, usage);
     }
 
@@ -715,16 +721,18 @@ public class Geometry3D {
      * @param resizeBuffer
      */
     public void changeBufferData(BufferInfo bufferInfo, Buffer newData, int index, int size, boolean resizeBuffer) {
+        final AGLBackend gl = AGLBackend.getCurrent();
         newData.rewind();
 
-        GLES20.glBindBuffer(bufferInfo.target, bufferInfo.bufferHandle);
+        gl.glBindBuffer(bufferInfo.target, bufferInfo.bufferHandle);
         if (resizeBuffer) {
             bufferInfo.buffer = newData;
-            GLES20.glBufferData(bufferInfo.target, size * bufferInfo.byteSize, newData, bufferInfo.usage);
+            gl.glBufferData(bufferInfo.target, size * bufferInfo.byteSize, newData, bufferInfo.usage);
         } else {
-            GLES20.glBufferSubData(bufferInfo.target, index * bufferInfo.byteSize, size * bufferInfo.byteSize, newData);
+            gl.glBufferSubData(bufferInfo.target, index * bufferInfo.byteSize, size * bufferInfo.byteSize, newData);
         }
-        GLES20.glBindBuffer(bufferInfo.target, 0);
+        gl.glBindBuffer(bufferInfo.target, 0);
+        FrameProfiler.getCurrent().countBufferUpload(size * bufferInfo.byteSize);
     }
 
     public void setVertices(float[] vertices) {
@@ -811,10 +819,11 @@ public class Geometry3D {
 
     public void setIndices(int[] indices, boolean override) {
         final BufferInfo indexInfo = mBuffers.get(INDEX_BUFFER_KEY);
-        if (indexInfo.buffer == null || override == true) {
+        if (indexInfo.buffer == null || override == true || !(indexInfo.buffer instanceof IntBuffer)) {
             indexInfo.buffer = ByteBuffer.allocateDirect(indices.length * INT_SIZE_BYTES)
                     .order(ByteOrder.nativeOrder()).asIntBuffer();
             ((IntBuffer) indexInfo.buffer).put(indices).position(0);
+            indexInfo.bufferType = BufferType.INT_BUFFER;
 
             mNumIndices = indices.length;
         } else {
@@ -822,11 +831,43 @@ public class Geometry3D {
         }
     }
 
+    /**
+     * Sets 16 bit indices. These take half the memory and bandwidth of 32 bit indices and don't need the
+     * OES_element_index_uint extension on OpenGL ES 2.0, but can only address the first 65536 vertices.
+     *
+     * @param indices {@code short[]} The indices, interpreted as unsigned values.
+     */
+    public void setIndices(short[] indices) {
+        final BufferInfo indexInfo = mBuffers.get(INDEX_BUFFER_KEY);
+        indexInfo.buffer = ByteBuffer.allocateDirect(indices.length * SHORT_SIZE_BYTES)
+                .order(ByteOrder.nativeOrder()).asShortBuffer();
+        ((ShortBuffer) indexInfo.buffer).put(indices).position(0);
+        indexInfo.bufferType = BufferType.SHORT_BUFFER;
+
+        mNumIndices = indices.length;
+    }
+
+    /**
+     * Retrieves the 32 bit indices.
+     *
+     * @return {@link IntBuffer} The indices, or null if the indices are stored as 16 bit values. Use
+     * {@link #getIndexBuffer()} to access either.
+     */
     public IntBuffer getIndices() {
+        final Buffer buffer = getIndexBuffer();
+        return buffer instanceof IntBuffer ? (IntBuffer) buffer : null;
+    }
+
+    /**
+     * Retrieves the indices as they are stored.
+     *
+     * @return {@link Buffer} Either an {@link IntBuffer} or a {@link ShortBuffer}.
+     */
+    public Buffer getIndexBuffer() {
         if (mBuffers.get(INDEX_BUFFER_KEY).buffer == null && mOriginalGeometry != null) {
-            return mOriginalGeometry.getIndices();
+            return mOriginalGeometry.getIndexBuffer();
         }
-        return (IntBuffer) mBuffers.get(INDEX_BUFFER_KEY).buffer;
+        return mBuffers.get(INDEX_BUFFER_KEY).buffer;
     }
 
     public void setTextureCoords(float[] textureCoords) {
@@ -907,6 +948,7 @@ public class Geometry3D {
     }
 
     public void setColor(float r, float g, float b, float a, boolean createNewBuffer) {
+        final AGLBackend gl = AGLBackend.getCurrent();
         BufferInfo colorInfo = mBuffers.get(COLOR_BUFFER_KEY);
         if (colorInfo.buffer == null || colorInfo.buffer.limit() == 0) {
             colorInfo = new BufferInfo();
@@ -929,11 +971,12 @@ public class Geometry3D {
         if (createNewBuffer) {
             createBuffer(colorInfo, BufferType.FLOAT_BUFFER, GLES20.GL_ARRAY_BUFFER);
         } else {
-            GLES20.glBindBuffer(GLES20.GL_ARRAY_BUFFER, colorInfo.bufferHandle);
-            GLES20.glBufferData(GLES20.GL_ARRAY_BUFFER, colorInfo.buffer.limit() * FLOAT_SIZE_BYTES, colorInfo.buffer,
+            gl.glBindBuffer(GLES20.GL_ARRAY_BUFFER, colorInfo.bufferHandle);
+            gl.glBufferData(GLES20.GL_ARRAY_BUFFER, colorInfo.buffer.limit() * FLOAT_SIZE_BYTES, colorInfo.buffer,
                                 GLES20.GL_STATIC_DRAW);
+            FrameProfiler.getCurrent().countBufferUpload(colorInfo.buffer.limit() * FLOAT_SIZE_BYTES);
         }
-        GLES20.glBindBuffer(GLES20.GL_ARRAY_BUFFER, 0);
+        gl.glBindBuffer(GLES20.GL_ARRAY_BUFFER, 0);
     }
 
     public String toString() {
@@ -983,7 +1026,7 @@ public class Geometry3D {
                 info.buffer = null;
             }
         }
-        GLES20.glDeleteBuffers(buffers.length, buffers, 0);
+        AGLBackend.getCurrent().glDeleteBuffers(buffers.length, buffers, 0);
 
         mOriginalGeometry = null;
 
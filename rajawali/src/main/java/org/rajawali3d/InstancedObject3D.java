@@ -0,0 +1,293 @@
+/**
+ * Copyright 2013 Dennis Ippel
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.rajawali3d;
+
+import android.graphics.Color;
+import android.opengl.GLES20;
+
+import org.rajawali3d.Geometry3D.BufferType;
+import org.rajawali3d.bounds.BoundingBox;
+import org.rajawali3d.materials.Material;
+import org.rajawali3d.math.Matrix4;
+import org.rajawali3d.math.Quaternion;
+import org.rajawali3d.math.vector.Vector3;
+import org.rajawali3d.renderer.FrameProfiler;
+import org.rajawali3d.renderer.gl.AGLBackend;
+import org.rajawali3d.util.Capabilities;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+
+/**
+ * Draws many copies of the same geometry with a single material. Every instance has its own model matrix, color and
+ * four custom floats which are passed to the vertex shader as attributes. The instance transforms are applied in the
+ * object space of this object, so moving, rotating or scaling the object itself moves all instances.
+ *
+ * On OpenGL ES 3.0 devices all instances are drawn with a single {@link AGLBackend#glDrawElementsInstanced} call. On
+ * OpenGL ES 2.0 devices the instance attributes are set as constant vertex attributes and each instance is drawn
+ * with its own draw call, which still saves the per object matrix, uniform and material work.
+ *
+ * The material is switched to instancing with {@link Material#useInstancing(boolean)} and can't be shared with
+ * regular objects. The instance color multiplies the material or vertex color and the custom data is available to
+ * shader fragments as the {@code aInstanceData} attribute.
+ */
+public class InstancedObject3D extends Object3D {
+
+    /**
+     * Number of floats per instance: a column major model matrix, a color and custom data.
+     */
+    public static final int INSTANCE_STRIDE = 24;
+    public static final int INSTANCE_MATRIX_OFFSET = 0;
+    public static final int INSTANCE_COLOR_OFFSET = 16;
+    public static final int INSTANCE_DATA_OFFSET = 20;
+
+    protected final int mMaxInstances;
+    protected final float[] mInstanceData;
+    protected final FloatBuffer mInstanceBuffer;
+    protected final BufferInfo mInstanceBufferInfo = new BufferInfo();
+    protected final BoundingBox mInstanceBounds = new BoundingBox(new Vector3(), new Vector3());
+    protected final Matrix4 mTmpMatrix = new Matrix4();
+    protected int mInstanceCount;
+    protected boolean mInstanceBufferCreated;
+    protected boolean mInstanceDataDirty = true;
+    protected boolean mInstanceBoundsDirty = true;
+
+    /**
+     * Creates an instanced object without instances.
+     *
+     * @param geometry     {@link Geometry3D} The geometry drawn for every instance. The buffers are shared.
+     * @param material     {@link Material} The material used for all instances.
+     * @param maxInstances {@code int} The maximum number of instances.
+     */
+    public InstancedObject3D(Geometry3D geometry, Material material, int maxInstances) {
+        super();
+        mGeometry.copyFromGeometry3D(geometry);
+        mGeometry.getBoundingBox().calculateBounds(mGeometry);
+        mIsContainerOnly = false;
+        setMaterial(material);
+
+        mMaxInstances = maxInstances;
+        mInstanceData = new float[maxInstances * INSTANCE_STRIDE];
+        for (int i = 0; i < maxInstances; ++i) {
+            final int offset = i * INSTANCE_STRIDE;
+            // Identity transform and white color
+            mInstanceData[offset + INSTANCE_MATRIX_OFFSET] = 1;
+            mInstanceData[offset + INSTANCE_MATRIX_OFFSET + 5] = 1;
+            mInstanceData[offset + INSTANCE_MATRIX_OFFSET + 10] = 1;
+            mInstanceData[offset + INSTANCE_MATRIX_OFFSET + 15] = 1;
+            for (int j = 0; j < 4; ++j) {
+                mInstanceData[offset + INSTANCE_COLOR_OFFSET + j] = 1;
+            }
+        }
+        mInstanceBuffer = ByteBuffer.allocateDirect(mInstanceData.length * Geometry3D.FLOAT_SIZE_BYTES)
+                .order(ByteOrder.nativeOrder()).asFloatBuffer();
+        mInstanceBuffer.put(mInstanceData).position(0);
+        mInstanceBufferInfo.buffer = mInstanceBuffer;
+    }
+
+    @Override
+    public void setMaterial(Material material) {
+        if (material != null) {
+            material.useInstancing(true);
+        }
+        super.setMaterial(material);
+    }
+
+    public int getMaxInstances() {
+        return mMaxInstances;
+    }
+
+    public int getInstanceCount() {
+        return mInstanceCount;
+    }
+
+    /**
+     * Sets the number of instances which are drawn. These are the first instances in the instance data.
+     *
+     * @param count {@code int} The number of instances, clamped to the maximum number of instances.
+     */
+    public void setInstanceCount(int count) {
+        mInstanceCount = Math.max(0, Math.min(count, mMaxInstances));
+        invalidateInstanceData();
+    }
+
+    public void setInstanceTransform(int index, Matrix4 transform) {
+        final double[] values = transform.getDoubleValues();
+        final int offset = index * INSTANCE_STRIDE + INSTANCE_MATRIX_OFFSET;
+        for (int i = 0; i < 16; ++i) {
+            mInstanceData[offset + i] = (float) values[i];
+        }
+        invalidateInstanceData();
+    }
+
+    public void setInstanceTransform(int index, Vector3 position, Vector3 scale, Quaternion orientation) {
+        setInstanceTransform(index, mTmpMatrix.setAll(position, scale, orientation));
+    }
+
+    public void setInstancePosition(int index, double x, double y, double z) {
+        final int offset = index * INSTANCE_STRIDE + INSTANCE_MATRIX_OFFSET;
+        mInstanceData[offset + 12] = (float) x;
+        mInstanceData[offset + 13] = (float) y;
+        mInstanceData[offset + 14] = (float) z;
+        invalidateInstanceData();
+    }
+
+    public void setInstanceColor(int index, int color) {
+        setInstanceColor(index, Color.red(color) / 255.f, Color.green(color) / 255.f, Color.blue(color) / 255.f,
+                Color.alpha(color) / 255.f);
+    }
+
+    public void setInstanceColor(int index, float r, float g, float b, float a) {
+        final int offset = index * INSTANCE_STRIDE + INSTANCE_COLOR_OFFSET;
+        mInstanceData[offset] = r;
+        mInstanceData[offset + 1] = g;
+        mInstanceData[offset + 2] = b;
+        mInstanceData[offset + 3] = a;
+        mInstanceDataDirty = true;
+    }
+
+    public void setInstanceData(int index, float x, float y, float z, float w) {
+        final int offset = index * INSTANCE_STRIDE + INSTANCE_DATA_OFFSET;
+        mInstanceData[offset] = x;
+        mInstanceData[offset + 1] = y;
+        mInstanceData[offset + 2] = z;
+        mInstanceData[offset + 3] = w;
+        mInstanceDataDirty = true;
+    }
+
+    /**
+     * Retrieves the instance data for bulk modification. Every instance occupies {@link #INSTANCE_STRIDE} floats,
+     * laid out as described by the offset constants. Call {@link #invalidateInstanceData()} after changing it.
+     *
+     * @return {@code float[]} The internal instance data.
+     */
+    public float[] getInstanceData() {
+        return mInstanceData;
+    }
+
+    /**
+     * Marks the instance data as changed so it is uploaded again and the bounds are recalculated.
+     */
+    public void invalidateInstanceData() {
+        mInstanceDataDirty = true;
+        mInstanceBoundsDirty = true;
+        markSubtreeBoundsDirty();
+    }
+
+    /**
+     * Returns the local bounds of all instances, so the frustum test and the scene graph see where the instances
+     * actually are rather than the bounds of a single copy of the geometry.
+     */
+    @Override
+    public BoundingBox getBoundingBox() {
+        if (mInstanceBoundsDirty) {
+            calculateInstanceBounds();
+        }
+        return mInstanceBounds;
+    }
+
+    @Override
+    protected BoundingBox getGeometryBoundingBox() {
+        return getBoundingBox();
+    }
+
+    @Override
+    protected void drawElements(Material material) {
+        if (mInstanceCount == 0) {
+            return;
+        }
+        final AGLBackend gl = AGLBackend.getCurrent();
+        final BufferInfo indexBufferInfo = mGeometry.getIndexBufferInfo();
+        final int bufferType = indexBufferInfo.bufferType == BufferType.SHORT_BUFFER
+                ? GLES20.GL_UNSIGNED_SHORT : GLES20.GL_UNSIGNED_INT;
+
+        if (Capabilities.getGLESMajorVersion() >= 3) {
+            updateInstanceBuffer();
+            material.setInstanceAttributes(mInstanceBufferInfo.bufferHandle,
+                    INSTANCE_STRIDE * Geometry3D.FLOAT_SIZE_BYTES);
+            gl.glBindBuffer(GLES20.GL_ELEMENT_ARRAY_BUFFER, indexBufferInfo.bufferHandle);
+            gl.glDrawElementsInstanced(mDrawingMode, mGeometry.getNumIndices(), bufferType, 0, mInstanceCount);
+            FrameProfiler.getCurrent().countDrawCall(mDrawingMode, mGeometry.getNumIndices(), mInstanceCount);
+            gl.glBindBuffer(GLES20.GL_ELEMENT_ARRAY_BUFFER, 0);
+            material.unsetInstanceAttributes();
+            gl.glBindBuffer(GLES20.GL_ARRAY_BUFFER, 0);
+        } else {
+            // Pseudo instancing: constant attributes are cheap to change between draw calls
+            gl.glBindBuffer(GLES20.GL_ELEMENT_ARRAY_BUFFER, indexBufferInfo.bufferHandle);
+            final FrameProfiler profiler = FrameProfiler.getCurrent();
+            for (int i = 0; i < mInstanceCount; ++i) {
+                material.setInstanceValues(mInstanceData, i * INSTANCE_STRIDE);
+                gl.glDrawElements(mDrawingMode, mGeometry.getNumIndices(), bufferType, 0);
+                profiler.countDrawCall(mDrawingMode, mGeometry.getNumIndices(), 1);
+            }
+            gl.glBindBuffer(GLES20.GL_ELEMENT_ARRAY_BUFFER, 0);
+        }
+    }
+
+    /**
+     * Creates the instance buffer on first use and uploads the instance data when it changed. The buffer is added
+     * to the geometry so it is recreated on context loss and deleted with the geometry.
+     */
+    protected void updateInstanceBuffer() {
+        if (!mInstanceBufferCreated) {
+            mInstanceBuffer.position(0);
+            mInstanceBuffer.put(mInstanceData).position(0);
+            mGeometry.addBuffer(mInstanceBufferInfo, BufferType.FLOAT_BUFFER, GLES20.GL_ARRAY_BUFFER,
+                    GLES20.GL_DYNAMIC_DRAW);
+            mInstanceBufferCreated = true;
+            mInstanceDataDirty = false;
+        } else if (mInstanceDataDirty) {
+            final int size = mInstanceCount * INSTANCE_STRIDE;
+            mInstanceBuffer.position(0);
+            mInstanceBuffer.put(mInstanceData, 0, size).position(0);
+            mGeometry.changeBufferData(mInstanceBufferInfo, mInstanceBuffer, 0, size);
+            mInstanceDataDirty = false;
+        }
+    }
+
+    protected void calculateInstanceBounds() {
+        final BoundingBox geometryBounds = mGeometry.getBoundingBox();
+        final Vector3 min = geometryBounds.getMin();
+        final Vector3 max = geometryBounds.getMax();
+        double minX = Double.MAX_VALUE, minY = Double.MAX_VALUE, minZ = Double.MAX_VALUE;
+        double maxX = -Double.MAX_VALUE, maxY = -Double.MAX_VALUE, maxZ = -Double.MAX_VALUE;
+        for (int i = 0; i < mInstanceCount; ++i) {
+            final int m = i * INSTANCE_STRIDE + INSTANCE_MATRIX_OFFSET;
+            for (int corner = 0; corner < 8; ++corner) {
+                final double x = (corner & 1) == 0 ? min.x : max.x;
+                final double y = (corner & 2) == 0 ? min.y : max.y;
+                final double z = (corner & 4) == 0 ? min.z : max.z;
+                final double tx = mInstanceData[m] * x + mInstanceData[m + 4] * y + mInstanceData[m + 8] * z
+                        + mInstanceData[m + 12];
+                final double ty = mInstanceData[m + 1] * x + mInstanceData[m + 5] * y + mInstanceData[m + 9] * z
+                        + mInstanceData[m + 13];
+                final double tz = mInstanceData[m + 2] * x + mInstanceData[m + 6] * y + mInstanceData[m + 10] * z
+                        + mInstanceData[m + 14];
+                minX = Math.min(minX, tx);
+                minY = Math.min(minY, ty);
+                minZ = Math.min(minZ, tz);
+                maxX = Math.max(maxX, tx);
+                maxY = Math.max(maxY, ty);
+                maxZ = Math.max(maxZ, tz);
+            }
+        }
+        if (mInstanceCount == 0) {
+            minX = minY = minZ = maxX = maxY = maxZ = 0;
+        }
+        mInstanceBounds.getMin().setAll(minX, minY, minZ);
+        mInstanceBounds.getMax().setAll(maxX, maxY, maxZ);
+        mInstanceBounds.calculatePoints();
+        mInstanceBoundsDirty = false;
+    }
+}
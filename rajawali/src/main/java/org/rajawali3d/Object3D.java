@@ -19,13 +19,20 @@ import android.support.annotation.NonNull;
 import org.rajawali3d.bounds.BoundingBox;
 import org.rajawali3d.bounds.IBoundingVolume;
 import org.rajawali3d.cameras.Camera;
+import org.rajawali3d.cameras.CameraFrameConstants;
+import org.rajawali3d.cameras.Frustum;
 import org.rajawali3d.materials.Material;
 import org.rajawali3d.materials.MaterialManager;
 import org.rajawali3d.materials.textures.TextureAtlas;
 import org.rajawali3d.materials.textures.TexturePacker.Tile;
 import org.rajawali3d.math.Matrix;
 import org.rajawali3d.math.Matrix4;
+import org.rajawali3d.math.Matrix4f;
 import org.rajawali3d.math.vector.Vector3;
+import org.rajawali3d.renderer.FrameProfiler;
+import org.rajawali3d.renderer.GLStateCache;
+import org.rajawali3d.renderer.gl.AGLBackend;
+import org.rajawali3d.scene.RenderQueue;
 import org.rajawali3d.util.GLU;
 import org.rajawali3d.util.RajLog;
 import org.rajawali3d.visitors.INode;
@@ -54,6 +61,16 @@ public class Object3D extends ATransformable3D implements Comparable<Object3D>,
 
     protected final Matrix4 mMVMatrix = new Matrix4();
     protected final Matrix4 mInverseViewMatrix = new Matrix4();
+    protected final Matrix4f mMVPFloatMatrix = new Matrix4f();
+    protected final Matrix4f mMVFloatMatrix = new Matrix4f();
+    protected final Matrix4f mInverseViewFloatMatrix = new Matrix4f();
+    protected final Matrix4f mModelFloatMatrix = new Matrix4f();
+    protected final Matrix4 mNormalScratchMatrix = new Matrix4();
+    protected final float[] mNormalMatrix = new float[9];
+    protected int mFloatMatricesModelVersion = -1;
+    protected CameraFrameConstants mCachedFrameConstants;
+    protected int mCachedCameraVersion;
+    protected int mCachedModelVersion;
     protected Matrix4 mPMatrix;
     protected Matrix4 mParentMatrix;
     protected final Matrix4 mRotationMatrix = new Matrix4();
@@ -85,6 +102,26 @@ public class Object3D extends ATransformable3D implements Comparable<Object3D>,
 
     protected boolean mFrustumTest = false;
     protected boolean mIsInFrustum;
+    protected boolean mIsSubtreeInFrustum = true;
+
+    // World space bounds of this object and all of its descendants, recalculated when marked dirty
+    protected final Vector3 mSubtreeMin = new Vector3();
+    protected final Vector3 mSubtreeMax = new Vector3();
+    protected boolean mHasSubtreeBounds;
+    protected boolean mSubtreeBoundsDirty = true;
+    protected final BoundingBox mSubtreeBoundingBox = new BoundingBox(); // The subtree bounds handed to the graph
+
+    // State of the transform update: the version of the parent model matrix the model matrix was calculated from,
+    // and whether a descendant changed since the last update
+    protected int mParentModelMatrixVersion = -1;
+    protected boolean mHasDirtyDescendants;
+
+    // The bounding box transformed last, along with the model matrix and corner point versions it was transformed with
+    protected BoundingBox mTransformedBoundingBox;
+    protected int mTransformedBoundingBoxModelVersion;
+    protected int mTransformedBoundingBoxPointsVersion;
+
+    protected boolean mIsStatic = false;
 
     protected boolean mRenderChildrenAsBatch = false;
     protected boolean mIsPartOfBatch = false;
@@ -128,6 +165,11 @@ public class Object3D extends ATransformable3D implements Comparable<Object3D>,
                         float[] colors, int[] indices, boolean createVBOs) {
         mGeometry.setData(vertexBufferInfo, normalBufferInfo, textureCoords, colors, indices, createVBOs);
         mIsContainerOnly = false;
+        if (mGeometry.hasBoundingBox()) {
+            // The bounding box may have been created before there was any data
+            mGeometry.getBoundingBox().calculateBounds(mGeometry);
+        }
+        markSubtreeBoundsDirty();
         mElementsBufferType = GLES20.GL_UNSIGNED_INT;
     }
 
@@ -153,6 +195,11 @@ public class Object3D extends ATransformable3D implements Comparable<Object3D>,
         mGeometry.setData(vertices, verticesUsage, normals, normalsUsage, textureCoords, textureCoordsUsage, colors,
                 colorsUsage, indices, indicesUsage, createVBOs);
         mIsContainerOnly = false;
+        if (mGeometry.hasBoundingBox()) {
+            // The bounding box may have been created before there was any data
+            mGeometry.getBoundingBox().calculateBounds(mGeometry);
+        }
+        markSubtreeBoundsDirty();
         mElementsBufferType = GLES20.GL_UNSIGNED_INT;
     }
 
@@ -193,6 +240,175 @@ public class Object3D extends ATransformable3D implements Comparable<Object3D>,
             return;
         }
 
+        Material material = sceneMaterial == null ? mMaterial : sceneMaterial;
+        boolean modelMatrixWasRecalculated = prepareForRender(camera, vpMatrix, vMatrix, parentMatrix);
+        if (!mIsSubtreeInFrustum) {
+            // Neither this object nor any of its descendants can be seen
+            return;
+        }
+
+        if (!mIsContainerOnly && mIsInFrustum) {
+            mPMatrix = projMatrix;
+            draw(camera, material, !mIsPartOfBatch, !mIsPartOfBatch,
+                    !mIsPartOfBatch && !mRenderChildrenAsBatch && sceneMaterial == null);
+        }
+
+        if (mShowBoundingVolume) {
+            drawBoundingVolumes(camera, vpMatrix, projMatrix, vMatrix);
+        }
+        // Draw children without frustum test
+        for (int i = 0, j = mChildren.size(); i < j; i++) {
+            Object3D child = mChildren.get(i);
+            if (mRenderChildrenAsBatch || mIsPartOfBatch) {
+                child.setPartOfBatch(true);
+            }
+            if (modelMatrixWasRecalculated) {
+                child.markModelMatrixDirty();
+            }
+            child.render(camera, vpMatrix, projMatrix, vMatrix, mMMatrix, sceneMaterial);
+        }
+
+        if (mRenderChildrenAsBatch && sceneMaterial == null && material != null) {
+            material.unbindTextures();
+        }
+    }
+
+    /**
+     * Adds this object and its children to a {@link RenderQueue} instead of drawing them immediately. Matrices,
+     * bounding volumes and the frustum test are updated exactly as in
+     * {@link #render(Camera, Matrix4, Matrix4, Matrix4, Matrix4, Material)}; the actual draw happens when the queue
+     * is submitted.
+     *
+     * @param queue         The {@link RenderQueue} to add the visible draws to
+     * @param camera        The camera
+     * @param vpMatrix      {@link Matrix4} The view-projection matrix
+     * @param projMatrix    {@link Matrix4} The projection matrix
+     * @param vMatrix       {@link Matrix4} The view matrix
+     * @param parentMatrix  {@link Matrix4} This object's parent matrix
+     * @param sceneMaterial The scene-wide Material to use, if any.
+     */
+    public void queueForRender(RenderQueue queue, Camera camera, final Matrix4 vpMatrix, final Matrix4 projMatrix,
+                               final Matrix4 vMatrix, final Matrix4 parentMatrix, Material sceneMaterial) {
+        if (isDestroyed() || (!mIsVisible && !mRenderChildrenAsBatch) || isZeroScale()) {
+            return;
+        }
+
+        Material material = sceneMaterial == null ? mMaterial : sceneMaterial;
+        boolean modelMatrixWasRecalculated = prepareForRender(camera, vpMatrix, vMatrix, parentMatrix);
+        if (!mIsSubtreeInFrustum) {
+            // Neither this object nor any of its descendants can be seen
+            return;
+        }
+
+        if (!mIsContainerOnly && mIsInFrustum && mIsVisible) {
+            mPMatrix = projMatrix;
+            if (material == null) {
+                RajLog.e("[" + this.getClass().getName()
+                        + "] This object can't render because there's no material attached to it.");
+            } else {
+                queue.add(this, material);
+            }
+        }
+
+        if (mShowBoundingVolume) {
+            drawBoundingVolumes(camera, vpMatrix, projMatrix, vMatrix);
+        }
+
+        for (int i = 0, j = mChildren.size(); i < j; i++) {
+            Object3D child = mChildren.get(i);
+            if (modelMatrixWasRecalculated) {
+                child.markModelMatrixDirty();
+            }
+            child.queueForRender(queue, camera, vpMatrix, projMatrix, vMatrix, mMMatrix, sceneMaterial);
+        }
+    }
+
+    /**
+     * Recalculates the model matrix if necessary. When it was recalculated the children are marked dirty as well,
+     * since their model matrices depend on it. This allows the model matrix to be updated ahead of
+     * {@link #render(Camera, Matrix4, Matrix4, Matrix4, Material)}, for instance so the scene graph can be updated
+     * before culling.
+     */
+    @Override
+    public boolean onRecalculateModelMatrix(Matrix4 parentMatrix) {
+        if (super.onRecalculateModelMatrix(parentMatrix)) {
+            for (int i = 0, j = mChildren.size(); i < j; i++) {
+                mChildren.get(i).markModelMatrixDirty();
+            }
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Brings the model matrices of this object and all of its descendants up to date, ahead of culling and rendering
+     * them. Called by the {@link org.rajawali3d.scene.Scene} on each of its children before the frame is drawn.
+     *
+     * A model matrix is only recalculated when the object itself changed, or when the version of its parent's model
+     * matrix differs from the one it was calculated from. Changes are flagged on the ancestors, so subtrees in which
+     * nothing changed are skipped without being visited and static parts of the scene cost nothing per frame.
+     */
+    public void updateTransforms() {
+        // Model matrix versions start at 1 once calculated, so 0 is never the version of an actual parent
+        updateTransforms(null, 0);
+    }
+
+    /**
+     * Brings the model matrices of this object and all of its descendants up to date.
+     *
+     * @param parentMatrix  {@link Matrix4} This object's parent matrix, or null.
+     * @param parentVersion {@code int} The version of the parent matrix.
+     */
+    protected void updateTransforms(Matrix4 parentMatrix, int parentVersion) {
+        if (isDestroyed()) {
+            return;
+        }
+        if (mParentModelMatrixVersion != parentVersion) {
+            mParentModelMatrixVersion = parentVersion;
+            mIsModelMatrixDirty = true;
+        } else if (!mIsModelMatrixDirty && !mHasDirtyDescendants) {
+            return;
+        }
+        final boolean hadDirtyDescendants = mHasDirtyDescendants;
+        mHasDirtyDescendants = false;
+        // The children notice the new version of the model matrix, they don't need to be marked dirty
+        final boolean recalculated = mIsModelMatrixDirty;
+        if (recalculated) {
+            calculateModelMatrix(parentMatrix);
+            mIsModelMatrixDirty = false;
+            markSubtreeBoundsDirty();
+        }
+        for (int i = 0, j = mChildren.size(); i < j; i++) {
+            mChildren.get(i).updateTransforms(mMMatrix, mModelMatrixVersion);
+        }
+        // The graph places this object by the bounds of its whole subtree, which are only current now
+        if (mGraphNode != null && (recalculated || hadDirtyDescendants)) {
+            mGraphNode.updateObject(this);
+        }
+    }
+
+    @Override
+    protected Matrix4.TransformType getParentMatrixType(Matrix4 parentMatrix) {
+        // The parent classified its own model matrix when it calculated it
+        if (mParent != null && parentMatrix == mParent.mMMatrix) {
+            return mParent.mModelMatrixType;
+        }
+        return super.getParentMatrixType(parentMatrix);
+    }
+
+    /**
+     * Updates the model and derived matrices, transforms the bounding volumes and performs the frustum test. Called
+     * once per frame before this object is drawn or queued.
+     *
+     * @param camera       The camera
+     * @param vpMatrix     {@link Matrix4} The view-projection matrix
+     * @param vMatrix      {@link Matrix4} The view matrix
+     * @param parentMatrix {@link Matrix4} This object's parent matrix
+     *
+     * @return {@code boolean} True if the model matrix was recalculated.
+     */
+    protected boolean prepareForRender(Camera camera, final Matrix4 vpMatrix, final Matrix4 vMatrix,
+                                       final Matrix4 parentMatrix) {
         if (parentMatrix != null) {
             if (mParentMatrix == null) {
                 mParentMatrix = new Matrix4();
@@ -200,160 +416,327 @@ public class Object3D extends ATransformable3D implements Comparable<Object3D>,
             mParentMatrix.setAll(parentMatrix);
         }
 
-        Material material = sceneMaterial == null ? mMaterial : sceneMaterial;
         preRender();
 
         // -- move view matrix transformation first
         boolean modelMatrixWasRecalculated = onRecalculateModelMatrix(parentMatrix);
-        // -- calculate model view matrix;
-        mMVMatrix.setAll(vMatrix).multiply(mMMatrix);
-        // -- calculate inverse view matrix;
-        mInverseViewMatrix.setAll(vMatrix).inverse().transpose();
-        //Create MVP Matrix from View-Projection Matrix
-        mMVPMatrix.setAll(vpMatrix).multiply(mMMatrix);
+        updateViewDependentMatrices(camera, vpMatrix, vMatrix);
 
-        // Transform the bounding volumes if they exist
+        // Transform the bounding volumes if they exist. The bounding box only changes with the model matrix or its
+        // corner points.
         if (mGeometry.hasBoundingBox()) {
-            getBoundingBox().transform(getModelMatrix());
+            final BoundingBox bbox = getBoundingBox();
+            if (bbox != mTransformedBoundingBox || mTransformedBoundingBoxModelVersion != mModelMatrixVersion
+                    || mTransformedBoundingBoxPointsVersion != bbox.getPointsVersion()) {
+                bbox.transform(getModelMatrix());
+                mTransformedBoundingBox = bbox;
+                mTransformedBoundingBoxModelVersion = mModelMatrixVersion;
+                mTransformedBoundingBoxPointsVersion = bbox.getPointsVersion();
+            }
         }
         if (mGeometry.hasBoundingSphere()) {
             mGeometry.getBoundingSphere().transform(getModelMatrix());
         }
 
         mIsInFrustum = true; // only if mFrustrumTest == true it check frustum
+        mIsSubtreeInFrustum = true;
+        if (mInsideFrustum) {
+            // The scene graph found this object and its subtree in a node entirely inside the frustum
+            return modelMatrixWasRecalculated;
+        }
+        if (mFrustumTest && mChildren.size() > 0) {
+            updateSubtreeBounds();
+            mIsSubtreeInFrustum = !mHasSubtreeBounds
+                    || camera.getFrustum().classifyBounds(mSubtreeMin, mSubtreeMax) != Frustum.OUTSIDE;
+        }
         if (mFrustumTest && mGeometry.hasBoundingBox()) {
             BoundingBox bbox = getBoundingBox();
             if (!camera.getFrustum().boundsInFrustum(bbox)) {
                 mIsInFrustum = false;
             }
         }
+        return modelMatrixWasRecalculated;
+    }
 
-        if (!mIsContainerOnly && mIsInFrustum) {
-            mPMatrix = projMatrix;
-            if (mDoubleSided) {
-                GLES20.glDisable(GLES20.GL_CULL_FACE);
-            } else {
-                GLES20.glEnable(GLES20.GL_CULL_FACE);
-                if (mBackSided) {
-                    GLES20.glCullFace(GLES20.GL_FRONT);
-                } else {
-                    GLES20.glCullFace(GLES20.GL_BACK);
-                    GLES20.glFrontFace(GLES20.GL_CCW);
-                }
-            }
-            if (mEnableBlending) {
-                GLES20.glEnable(GLES20.GL_BLEND);
-                GLES20.glBlendFunc(mBlendFuncSFactor, mBlendFuncDFactor);
+    /**
+     * Updates the model view, model view projection and inverse view matrices. When rendering with the frame
+     * constants of the camera they are only recalculated if the camera or the model matrix changed since the
+     * last frame.
+     *
+     * @param camera   The camera
+     * @param vpMatrix {@link Matrix4} The view-projection matrix
+     * @param vMatrix  {@link Matrix4} The view matrix
+     */
+    protected void updateViewDependentMatrices(Camera camera, final Matrix4 vpMatrix, final Matrix4 vMatrix) {
+        final CameraFrameConstants constants = camera == null ? null : camera.getFrameConstants();
+        if (constants == null || !constants.isCurrent(vMatrix, vpMatrix)) {
+            // Custom matrices, nothing to cache against
+            mCachedFrameConstants = null;
+            mMVMatrix.setAll(vMatrix).multiply(mMMatrix);
+            mInverseViewMatrix.setAll(vMatrix).inverse(vMatrix.getTransformType()).transpose();
+            mMVPMatrix.setAll(vpMatrix).multiply(mMMatrix);
+            updateViewDependentFloatMatrices(true);
+            return;
+        }
+
+        final boolean cameraChanged = mCachedFrameConstants != constants
+                || mCachedCameraVersion != constants.getVersion();
+        if (!cameraChanged && mCachedModelVersion == mModelMatrixVersion) {
+            return;
+        }
+        if (cameraChanged) {
+            mInverseViewMatrix.setAll(constants.getInverseViewMatrix());
+        }
+        mMVMatrix.setAll(vMatrix).multiply(mMMatrix);
+        mMVPMatrix.setAll(vpMatrix).multiply(mMMatrix);
+        updateViewDependentFloatMatrices(cameraChanged);
+        mCachedFrameConstants = constants;
+        mCachedCameraVersion = constants.getVersion();
+        mCachedModelVersion = mModelMatrixVersion;
+    }
+
+    /**
+     * Converts the view dependent matrices to the single precision copies which are uploaded to the shaders. The
+     * products are calculated in double precision first so large world space translations cancel out accurately.
+     *
+     * @param inverseViewChanged {@code boolean} Whether the inverse view matrix needs to be converted as well.
+     */
+    protected void updateViewDependentFloatMatrices(boolean inverseViewChanged) {
+        mMVFloatMatrix.setAll(mMVMatrix);
+        mMVPFloatMatrix.setAll(mMVPMatrix);
+        if (inverseViewChanged) {
+            mInverseViewFloatMatrix.setAll(mInverseViewMatrix);
+        }
+    }
+
+    /**
+     * Updates the single precision model matrix and the normal matrix, but only if the model matrix changed since
+     * they were last calculated.
+     */
+    protected void updateModelDependentFloatMatrices() {
+        if (mFloatMatricesModelVersion != mModelMatrixVersion) {
+            mModelFloatMatrix.setAll(mMMatrix);
+            Material.calculateNormalMatrix(mMMatrix, mModelMatrixType, mNormalScratchMatrix, mNormalMatrix);
+            mFloatMatricesModelVersion = mModelMatrixVersion;
+        }
+    }
+
+    /**
+     * Marks the cached subtree bounds of this object and all of its ancestors as out of date. Called whenever the
+     * transformation, the geometry or the children of this object change.
+     */
+    protected void markSubtreeBoundsDirty() {
+        Object3D object = this;
+        // An ancestor of a dirty object is always dirty as well, so we can stop at the first dirty one
+        while (object != null && !object.mSubtreeBoundsDirty) {
+            object.mSubtreeBoundsDirty = true;
+            object = object.mParent;
+        }
+    }
+
+    /**
+     * Recalculates the world space bounds of this object and its descendants if they are out of date. The model
+     * matrices of the descendants are brought up to date on the way, the model matrix of this object must already
+     * be current.
+     */
+    protected void updateSubtreeBounds() {
+        if (!mSubtreeBoundsDirty) {
+            return;
+        }
+        mHasSubtreeBounds = false;
+        if (!mIsContainerOnly && (mGeometry.hasBoundingBox() || mGeometry.getVertices() != null)) {
+            final BoundingBox bbox = getGeometryBoundingBox();
+            bbox.transform(mMMatrix);
+            mSubtreeMin.setAll(bbox.getTransformedMin());
+            mSubtreeMax.setAll(bbox.getTransformedMax());
+            mHasSubtreeBounds = true;
+        }
+        for (int i = 0, j = mChildren.size(); i < j; i++) {
+            final Object3D child = mChildren.get(i);
+            child.onRecalculateModelMatrix(mMMatrix);
+            child.updateSubtreeBounds();
+            if (!child.mHasSubtreeBounds) {
+                continue;
             }
-            if (!mEnableDepthTest) {
-                GLES20.glDisable(GLES20.GL_DEPTH_TEST);
+            if (mHasSubtreeBounds) {
+                mSubtreeMin.setAll(Math.min(mSubtreeMin.x, child.mSubtreeMin.x),
+                        Math.min(mSubtreeMin.y, child.mSubtreeMin.y), Math.min(mSubtreeMin.z, child.mSubtreeMin.z));
+                mSubtreeMax.setAll(Math.max(mSubtreeMax.x, child.mSubtreeMax.x),
+                        Math.max(mSubtreeMax.y, child.mSubtreeMax.y), Math.max(mSubtreeMax.z, child.mSubtreeMax.z));
             } else {
-                GLES20.glEnable(GLES20.GL_DEPTH_TEST);
-                GLES20.glDepthFunc(GLES20.GL_LESS);
+                mSubtreeMin.setAll(child.mSubtreeMin);
+                mSubtreeMax.setAll(child.mSubtreeMax);
+                mHasSubtreeBounds = true;
             }
+        }
+        mSubtreeBoundsDirty = false;
+    }
 
-            GLES20.glDepthMask(mEnableDepthMask);
-
-            if (!mIsPartOfBatch) {
-                if (material == null) {
-                    RajLog.e("[" + this.getClass().getName()
-                            + "] This object can't render because there's no material attached to it.");
-                    /*throw new RuntimeException(
-							"This object can't render because there's no material attached to it.");*/
-                    if (mEnableBlending) {
-                        GLES20.glDisable(GLES20.GL_BLEND);
-                    }
-
-                    if (mDoubleSided) {
-                        GLES20.glEnable(GLES20.GL_CULL_FACE);
-                    } else if (mBackSided) {
-                        GLES20.glCullFace(GLES20.GL_BACK);
-                    }
-                    if (!mEnableDepthTest) {
-                        GLES20.glEnable(GLES20.GL_DEPTH_TEST);
-                        GLES20.glDepthFunc(GLES20.GL_LESS);
-                    }
-                    return;
-                }
-                material.useProgram();
+    /**
+     * Retrieves the bounds of the geometry drawn by this object itself, excluding its children.
+     *
+     * @return {@link BoundingBox} The local bounds of the geometry.
+     */
+    protected BoundingBox getGeometryBoundingBox() {
+        return mGeometry.getBoundingBox();
+    }
 
-                setShaderParams(camera);
-                material.bindTextures();
-                if (mGeometry.hasTextureCoordinates()) {
-                    material.setTextureCoords(mGeometry.getTexCoordBufferInfo());
-                }
-                if (mGeometry.hasNormals()) {
-                    material.setNormals(mGeometry.getNormalBufferInfo());
-                }
-                if (mMaterial.usingVertexColors()) {
-                    material.setVertexColors(mGeometry.getColorBufferInfo());
-                }
+    /**
+     * Retrieves the world space minimum of the bounds of this object and all of its descendants, as of the last
+     * frame in which the frustum test of this object was enabled.
+     *
+     * @return {@link Vector3} The internal minimum. Do not modify.
+     */
+    public Vector3 getSubtreeMin() {
+        return mSubtreeMin;
+    }
 
-                material.setVertices(mGeometry.getVertexBufferInfo());
-            }
-            material.setCurrentObject(this);
-            if (mOverrideMaterialColor) {
-                material.setColor(mColor);
-            }
-            material.applyParams();
+    /**
+     * Retrieves the world space maximum of the bounds of this object and all of its descendants, as of the last
+     * frame in which the frustum test of this object was enabled.
+     *
+     * @return {@link Vector3} The internal maximum. Do not modify.
+     */
+    public Vector3 getSubtreeMax() {
+        return mSubtreeMax;
+    }
 
-            GLES20.glBindBuffer(GLES20.GL_ARRAY_BUFFER, 0);
+    @Override
+    protected void markModelMatrixDirty() {
+        super.markModelMatrixDirty();
+        markSubtreeBoundsDirty();
+        // Flag the path from the root, so updateTransforms() finds this object. As with the subtree bounds, the
+        // ancestors of a flagged object are always flagged as well.
+        Object3D ancestor = mParent;
+        while (ancestor != null && !ancestor.mHasDirtyDescendants) {
+            ancestor.mHasDirtyDescendants = true;
+            ancestor = ancestor.mParent;
+        }
+    }
 
-            material.setMVPMatrix(mMVPMatrix);
-            material.setModelMatrix(mMMatrix);
-            material.setInverseViewMatrix(mInverseViewMatrix);
-            material.setModelViewMatrix(mMVMatrix);
+    /**
+     * Issues the draw call for this object's own geometry. The matrices must have been updated by
+     * {@link #prepareForRender(Camera, Matrix4, Matrix4, Matrix4)} beforehand.
+     *
+     * @param camera         The camera
+     * @param material       The {@link Material} to draw with
+     * @param bindMaterial   Whether the material's program and textures need to be bound. False when the caller
+     *                       already bound them, as is the case for batched children and {@link RenderQueue} draws.
+     * @param bindAttributes Whether the shader params and vertex attributes of this object need to be set.
+     * @param unbindTextures Whether the material's textures should be unbound after drawing.
+     */
+    public void draw(Camera camera, Material material, boolean bindMaterial, boolean bindAttributes,
+                     boolean unbindTextures) {
+        if (bindAttributes && material == null) {
+            RajLog.e("[" + this.getClass().getName()
+                    + "] This object can't render because there's no material attached to it.");
+            /*throw new RuntimeException(
+                    "This object can't render because there's no material attached to it.");*/
+            return;
+        }
 
-            if (mIsVisible) {
-                int bufferType = mGeometry.getIndexBufferInfo().bufferType == Geometry3D.BufferType.SHORT_BUFFER
-                        ? GLES20.GL_UNSIGNED_SHORT : GLES20.GL_UNSIGNED_INT;
-                GLES20.glBindBuffer(GLES20.GL_ELEMENT_ARRAY_BUFFER, mGeometry.getIndexBufferInfo().bufferHandle);
-                GLES20.glDrawElements(mDrawingMode, mGeometry.getNumIndices(), bufferType, 0);
-                GLES20.glBindBuffer(GLES20.GL_ELEMENT_ARRAY_BUFFER, 0);
+        // Every draw sets the complete state it depends on, the state cache skips whatever is already current
+        final GLStateCache glState = GLStateCache.getCurrent();
+        applyCullState(glState);
+        glState.setBlendEnabled(mEnableBlending);
+        if (mEnableBlending) {
+            glState.setBlendFunc(mBlendFuncSFactor, mBlendFuncDFactor);
+        }
+        applyDepthState(glState);
+
+        if (bindMaterial) {
+            material.useProgram();
+        }
+        if (bindAttributes) {
+            setShaderParams(camera);
+        }
+        if (bindMaterial) {
+            material.bindTextures();
+        }
+        if (bindAttributes) {
+            if (mGeometry.hasTextureCoordinates()) {
+                material.setTextureCoords(mGeometry.getTexCoordBufferInfo());
+            }
+            if (mGeometry.hasNormals()) {
+                material.setNormals(mGeometry.getNormalBufferInfo());
             }
-            if (!mIsPartOfBatch && !mRenderChildrenAsBatch && sceneMaterial == null) {
-                material.unbindTextures();
+            if (material.usingVertexColors()) {
+                material.setVertexColors(mGeometry.getColorBufferInfo());
             }
 
-            material.unsetCurrentObject(this);
+            material.setVertices(mGeometry.getVertexBufferInfo());
+        }
+        material.setCurrentObject(this);
+        if (mOverrideMaterialColor) {
+            material.setColor(mColor);
+        }
+        material.applyParams();
+
+        AGLBackend.getCurrent().glBindBuffer(GLES20.GL_ARRAY_BUFFER, 0);
 
-            if (mEnableBlending) {
-                GLES20.glDisable(GLES20.GL_BLEND);
-            }
+        updateModelDependentFloatMatrices();
+        material.setMVPMatrix(mMVPFloatMatrix);
+        material.setModelMatrix(mModelFloatMatrix, mNormalMatrix);
+        material.setInverseViewMatrix(mInverseViewFloatMatrix);
+        material.setModelViewMatrix(mMVFloatMatrix);
 
-            if (mDoubleSided) {
-                GLES20.glEnable(GLES20.GL_CULL_FACE);
-            } else if (mBackSided) {
-                GLES20.glCullFace(GLES20.GL_BACK);
-            }
-            if (!mEnableDepthTest) {
-                GLES20.glEnable(GLES20.GL_DEPTH_TEST);
-                GLES20.glDepthFunc(GLES20.GL_LESS);
-            }
+        if (mIsVisible) {
+            drawElements(material);
+        }
+        if (unbindTextures) {
+            material.unbindTextures();
         }
 
-        if (mShowBoundingVolume) {
-            if (mGeometry.hasBoundingBox()) {
-                getBoundingBox().drawBoundingVolume(camera, vpMatrix, projMatrix, vMatrix, mMMatrix);
-            }
-            if (mGeometry.hasBoundingSphere()) {
-                mGeometry.getBoundingSphere().drawBoundingVolume(camera, vpMatrix, projMatrix, vMatrix, mMMatrix);
+        material.unsetCurrentObject(this);
+    }
+
+    /**
+     * Issues the actual draw call once the program, attributes and uniforms are set up.
+     *
+     * @param material The {@link Material} being drawn with
+     */
+    protected void drawElements(Material material) {
+        final AGLBackend gl = AGLBackend.getCurrent();
+        int bufferType = mGeometry.getIndexBufferInfo().bufferType == Geometry3D.BufferType.SHORT_BUFFER
+                ? GLES20.GL_UNSIGNED_SHORT : GLES20.GL_UNSIGNED_INT;
+        gl.glBindBuffer(GLES20.GL_ELEMENT_ARRAY_BUFFER, mGeometry.getIndexBufferInfo().bufferHandle);
+        gl.glDrawElements(mDrawingMode, mGeometry.getNumIndices(), bufferType, 0);
+        gl.glBindBuffer(GLES20.GL_ELEMENT_ARRAY_BUFFER, 0);
+        FrameProfiler.getCurrent().countDrawCall(mDrawingMode, mGeometry.getNumIndices(), 1);
+    }
+
+    private void applyCullState(GLStateCache glState) {
+        if (mDoubleSided) {
+            glState.setCullFaceEnabled(false);
+        } else {
+            glState.setCullFaceEnabled(true);
+            if (mBackSided) {
+                glState.setCullFace(GLES20.GL_FRONT);
+            } else {
+                glState.setCullFace(GLES20.GL_BACK);
+                glState.setFrontFace(GLES20.GL_CCW);
             }
         }
-        // Draw children without frustum test
-        for (int i = 0, j = mChildren.size(); i < j; i++) {
-            Object3D child = mChildren.get(i);
-            if (mRenderChildrenAsBatch || mIsPartOfBatch) {
-                child.setPartOfBatch(true);
-            }
-            if (modelMatrixWasRecalculated) {
-                child.markModelMatrixDirty();
-            }
-            child.render(camera, vpMatrix, projMatrix, vMatrix, mMMatrix, sceneMaterial);
+    }
+
+    private void applyDepthState(GLStateCache glState) {
+        if (!mEnableDepthTest) {
+            glState.setDepthTestEnabled(false);
+        } else {
+            glState.setDepthTestEnabled(true);
+            glState.setDepthFunc(GLES20.GL_LESS);
         }
 
-        if (mRenderChildrenAsBatch && sceneMaterial == null) {
-            material.unbindTextures();
+        glState.setDepthMask(mEnableDepthMask);
+    }
+
+    private void drawBoundingVolumes(Camera camera, final Matrix4 vpMatrix, final Matrix4 projMatrix,
+                                     final Matrix4 vMatrix) {
+        if (mGeometry.hasBoundingBox()) {
+            getBoundingBox().drawBoundingVolume(camera, vpMatrix, projMatrix, vMatrix, mMMatrix);
+        }
+        if (mGeometry.hasBoundingSphere()) {
+            mGeometry.getBoundingSphere().drawBoundingVolume(camera, vpMatrix, projMatrix, vMatrix, mMMatrix);
         }
     }
 
@@ -437,31 +820,15 @@ public class Object3D extends ATransformable3D implements Comparable<Object3D>,
 
         // Render this object only if it has visible geometry and didn't fail frustum test
         if (!mIsContainerOnly && mIsInFrustum && mIsVisible) {
+            final GLStateCache glState = GLStateCache.getCurrent();
             // Render same faces as visible render
-            if (mDoubleSided) {
-                GLES20.glDisable(GLES20.GL_CULL_FACE);
-            } else {
-                GLES20.glEnable(GLES20.GL_CULL_FACE);
-                if (mBackSided) {
-                    GLES20.glCullFace(GLES20.GL_FRONT);
-                } else {
-                    GLES20.glCullFace(GLES20.GL_BACK);
-                    GLES20.glFrontFace(GLES20.GL_CCW);
-                }
-            }
+            applyCullState(glState);
 
             // Blending test is set up globally in Scene.doColorPicking()
 
             // Depth testing is set-up per-object in order to avoid ScreenQuads to overshadow other
             // objects, see https://github.com/Rajawali/Rajawali/issues/1634
-            if (!mEnableDepthTest) {
-                GLES20.glDisable(GLES20.GL_DEPTH_TEST);
-            } else {
-                GLES20.glEnable(GLES20.GL_DEPTH_TEST);
-                GLES20.glDepthFunc(GLES20.GL_LESS);
-            }
-
-            GLES20.glDepthMask(mEnableDepthMask);
+            applyDepthState(glState);
 
             // Material setup is independent of batching, and has no need for
             // shader params, textures, normals, vertex colors, or current object...
@@ -470,28 +837,24 @@ public class Object3D extends ATransformable3D implements Comparable<Object3D>,
             pickingMaterial.setColor(mPickingColor);
             pickingMaterial.applyParams();
 
+            final AGLBackend gl = AGLBackend.getCurrent();
             // Unbind the array buffer
-            GLES20.glBindBuffer(GLES20.GL_ARRAY_BUFFER, 0);
+            gl.glBindBuffer(GLES20.GL_ARRAY_BUFFER, 0);
 
             // Apply this object's matrices to the pickingMaterial
-            pickingMaterial.setMVPMatrix(mMVPMatrix);
-            pickingMaterial.setModelMatrix(mMMatrix);
-            pickingMaterial.setInverseViewMatrix(mInverseViewMatrix);
-            pickingMaterial.setModelViewMatrix(mMVMatrix);
+            updateModelDependentFloatMatrices();
+            pickingMaterial.setMVPMatrix(mMVPFloatMatrix);
+            pickingMaterial.setModelMatrix(mModelFloatMatrix, mNormalMatrix);
+            pickingMaterial.setInverseViewMatrix(mInverseViewFloatMatrix);
+            pickingMaterial.setModelViewMatrix(mMVFloatMatrix);
 
             // Draw the object using its picking color
             int bufferType = mGeometry.getIndexBufferInfo().bufferType == Geometry3D.BufferType.SHORT_BUFFER
                     ? GLES20.GL_UNSIGNED_SHORT : GLES20.GL_UNSIGNED_INT;
-            GLES20.glBindBuffer(GLES20.GL_ELEMENT_ARRAY_BUFFER, mGeometry.getIndexBufferInfo().bufferHandle);
-            GLES20.glDrawElements(mDrawingMode, mGeometry.getNumIndices(), bufferType, 0);
-            GLES20.glBindBuffer(GLES20.GL_ELEMENT_ARRAY_BUFFER, 0);
-
-            // Only need to undo face culling
-            if (mDoubleSided) {
-                GLES20.glEnable(GLES20.GL_CULL_FACE);
-            } else if (mBackSided) {
-                GLES20.glCullFace(GLES20.GL_BACK);
-            }
+            gl.glBindBuffer(GLES20.GL_ELEMENT_ARRAY_BUFFER, mGeometry.getIndexBufferInfo().bufferHandle);
+            gl.glDrawElements(mDrawingMode, mGeometry.getNumIndices(), bufferType, 0);
+            gl.glBindBuffer(GLES20.GL_ELEMENT_ARRAY_BUFFER, 0);
+            FrameProfiler.getCurrent().countDrawCall(mDrawingMode, mGeometry.getNumIndices(), 1);
         }
 
         // No need to draw bounding volumes..
@@ -515,7 +878,7 @@ public class Object3D extends ATransformable3D implements Comparable<Object3D>,
 
     protected void checkGlError(String op) {
         int error;
-        while ((error = GLES20.glGetError()) != GLES20.GL_NO_ERROR) {
+        while ((error = AGLBackend.getCurrent().glGetError()) != GLES20.GL_NO_ERROR) {
             RajLog.e(op + ": glError " + error + " in class " + this.getClass().getName());
             throw new RuntimeException(op + ": glError " + error);
         }
@@ -640,9 +1003,10 @@ public class Object3D extends ATransformable3D implements Comparable<Object3D>,
         if (mForcedDepth) {
             return -1;
         }
-        if (mPosition.z < another.getZ()) {
+        final double z = getZ();
+        if (z < another.getZ()) {
             return 1;
-        } else if (mPosition.z > another.getZ()) {
+        } else if (z > another.getZ()) {
             return -1;
         } else {
             return 0;
@@ -656,7 +1020,14 @@ public class Object3D extends ATransformable3D implements Comparable<Object3D>,
         mChildren.add(child);
         child.setParent(this);
         child.mParentMatrix = new Matrix4();
+        if (mTransformPool != null || child.mTransformPool != null) {
+            // A child shares the pool of its parent, or isn't in a pool if the parent isn't either
+            child.attachTransforms(mTransformPool, mTransformIndex);
+        }
+        // The model matrix is relative to a different parent now
+        child.markModelMatrixDirty();
         child.ensureModelMatrix();
+        markSubtreeBoundsDirty();
         if (mRenderChildrenAsBatch) {
             child.setPartOfBatch(true);
         }
@@ -674,7 +1045,78 @@ public class Object3D extends ATransformable3D implements Comparable<Object3D>,
     }
 
     public boolean removeChild(Object3D child) {
-        return mChildren.remove(child);
+        final boolean removed = mChildren.remove(child);
+        if (removed) {
+            markSubtreeBoundsDirty();
+            if (child.mTransformPool != null) {
+                // The child stays in the pool, as a root
+                child.mTransformPool.setParent(child.mTransformIndex, TransformPool.NO_PARENT);
+                child.markModelMatrixDirty();
+            }
+        }
+        return removed;
+    }
+
+    /**
+     * Moves the transformation of this object and all of its descendants into a {@link TransformPool}, which then
+     * calculates their model matrices, or back into the objects if the pool is null. Children added later are moved
+     * into the pool of their parent, and an object added to a parent which isn't in a pool is moved out of its pool.
+     *
+     * While in the pool, the position, orientation and scale accessors of the objects read and write their slots.
+     * Values written to a slot directly through the pool are picked up as well, the next time the model matrices are
+     * brought up to date. A {@link org.rajawali3d.scene.Scene} calculates the model matrices of all objects in the
+     * pools of its children at once with {@link TransformPool#update()}, once per frame.
+     *
+     * Pooled objects still own their position, scale, orientation and model matrix instances, since the public API
+     * hands those out, so the pool doesn't make them any smaller. What the pool provides for objects is the packed,
+     * ordered update. The heap saving comes from transforms which use a pool without an object.
+     *
+     * @param pool {@link TransformPool} The pool, or null to calculate the model matrices in the objects again.
+     *
+     * @throws IllegalStateException if this object has a parent which isn't in the same pool.
+     */
+    public void setTransformPool(TransformPool pool) {
+        final boolean isChild = mParent != null && mParent.mChildren.contains(this);
+        if (isChild && mParent.mTransformPool != pool) {
+            throw new IllegalStateException("An object must be in the same transform pool as its parent.");
+        }
+        attachTransforms(pool, isChild && pool != null ? mParent.mTransformIndex : TransformPool.NO_PARENT);
+    }
+
+    private void attachTransforms(TransformPool pool, int parentIndex) {
+        if (pool != null && pool == mTransformPool && parentIndex < mTransformIndex) {
+            // The descendants come after this object in the pool already
+            pool.setParent(mTransformIndex, parentIndex);
+        } else {
+            releaseTransforms();
+            if (pool != null) {
+                mTransformPool = pool;
+                mTransformIndex = pool.allocate(parentIndex);
+                // From here on the slot holds the values, see ATransformable3D#readPosition()
+                pool.setAll(mTransformIndex, mPosition, mScale, mOrientation);
+                pool.setOwner(mTransformIndex, this);
+            }
+            for (int i = 0, j = mChildren.size(); i < j; i++) {
+                mChildren.get(i).attachTransforms(pool, mTransformIndex);
+            }
+        }
+        markModelMatrixDirty();
+    }
+
+    private void releaseTransforms() {
+        if (mTransformPool == null) {
+            return;
+        }
+        for (int i = 0, j = mChildren.size(); i < j; i++) {
+            mChildren.get(i).releaseTransforms();
+        }
+        // Take the values back out of the slot before it can be reused
+        readPosition();
+        readScale();
+        readOrientation();
+        mTransformPool.release(mTransformIndex);
+        mTransformPool = null;
+        mTransformIndex = -1;
     }
 
     public Object3D getParent() {
@@ -860,6 +1302,12 @@ public class Object3D extends ATransformable3D implements Comparable<Object3D>,
         this.mShowBoundingVolume = showBoundingVolume;
     }
 
+    /**
+     * Enables the frustum test for this object. For objects with children the cached bounds of the whole subtree are
+     * tested as well, and the children are skipped entirely if those bounds are outside of the frustum.
+     *
+     * @param value {@code boolean} True to enable the frustum test.
+     */
     public void setFrustumTest(boolean value) {
         mFrustumTest = value;
     }
@@ -872,6 +1320,20 @@ public class Object3D extends ATransformable3D implements Comparable<Object3D>,
         return mIsInFrustum;
     }
 
+    /**
+     * Marks this object as static, meaning its geometry and transformation won't change anymore. Static objects
+     * can be merged with other static objects by {@link org.rajawali3d.util.StaticBatcher}.
+     *
+     * @param value {@code boolean} True if this object is static.
+     */
+    public void setStatic(boolean value) {
+        mIsStatic = value;
+    }
+
+    public boolean isStatic() {
+        return mIsStatic;
+    }
+
     public boolean getRenderChildrenAsBatch() {
         return mRenderChildrenAsBatch;
     }
@@ -901,6 +1363,14 @@ public class Object3D extends ATransformable3D implements Comparable<Object3D>,
         mBlendFuncDFactor = dFactor;
     }
 
+    public int getBlendFuncSFactor() {
+        return mBlendFuncSFactor;
+    }
+
+    public int getBlendFuncDFactor() {
+        return mBlendFuncDFactor;
+    }
+
     public void setDepthTestEnabled(boolean value) {
         mEnableDepthTest = value;
     }
@@ -919,9 +1389,9 @@ public class Object3D extends ATransformable3D implements Comparable<Object3D>,
 
     public Vector3 getWorldPosition() {
         if (mParentMatrix == null) {
-            return mPosition;
+            return getPosition();
         }
-        Vector3 worldPos = mPosition.clone();
+        Vector3 worldPos = getPosition().clone();
         worldPos.multiply(mParentMatrix);
         return worldPos;
     }
@@ -964,6 +1434,7 @@ public class Object3D extends ATransformable3D implements Comparable<Object3D>,
 
     public void destroy() {
         mIsDestroyed = true;
+        releaseTransforms();
         mGeometry.destroy();
         mMaterial = null;
         mGeometry = null;
@@ -980,8 +1451,18 @@ public class Object3D extends ATransformable3D implements Comparable<Object3D>,
     @Override
     public IBoundingVolume getTransformedBoundingVolume() {
         IBoundingVolume volume = null;
+        if (mIsModelMatrixDirty) {
+            calculateModelMatrix(null);
+        }
+        if (mChildren.size() > 0) {
+            // The own geometry of a container doesn't cover its children, or is empty altogether
+            updateSubtreeBounds();
+            if (mHasSubtreeBounds) {
+                mSubtreeBoundingBox.setWorldBounds(mSubtreeMin, mSubtreeMax);
+                return mSubtreeBoundingBox;
+            }
+        }
         volume = getBoundingBox();
-        calculateModelMatrix(null);
         volume.transform(mMMatrix);
         return volume;
     }
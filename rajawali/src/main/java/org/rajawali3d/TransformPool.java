@@ -0,0 +1,445 @@
+/**
+ * Copyright 2013 Dennis Ippel
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.rajawali3d;
+
+import org.rajawali3d.math.Matrix;
+import org.rajawali3d.math.Matrix4;
+import org.rajawali3d.math.Quaternion;
+import org.rajawali3d.math.vector.Vector3;
+
+import java.util.Arrays;
+
+/**
+ * Stores the positions, orientations, scales and world matrices of many transforms in packed primitive arrays, rather
+ * than in a {@link Vector3}, a {@link Quaternion} and a {@link Matrix4} per transform. Transforms are referred to by
+ * the index returned by {@link #allocate(int)}.
+ *
+ * The hierarchy is kept as the index of each parent, and a parent always has a lower index than its children. This
+ * allows {@link #update()} to bring every world matrix up to date in a single pass over the arrays, in which parents
+ * are always calculated before their children. Each world matrix has a version which is incremented whenever it is
+ * recalculated, so only transforms whose own values or whose parent changed are calculated again.
+ *
+ * An {@link Object3D} can keep its transformation in a pool with {@link Object3D#setTransformPool(TransformPool)}, which
+ * gives it the ordered update but not a smaller heap, as the object still holds its own vectors and matrices.
+ * Transforms which don't need a whole object, for instance those of the instances of an {@link InstancedObject3D},
+ * can use a pool directly and only take up their slot. A pool should only be used from one thread.
+ */
+public class TransformPool {
+
+    /**
+     * The parent index of transforms without a parent.
+     */
+    public static final int NO_PARENT = -1;
+
+    private static final int DEFAULT_CAPACITY = 64;
+
+    private double[] mPositions; // x, y, z per transform
+    private double[] mOrientations; // w, x, y, z per transform
+    private double[] mScales; // x, y, z per transform
+    private double[] mWorldMatrices; // 16 per transform, column major as in Matrix4
+    private int[] mParents;
+    private int[] mChildCounts;
+    private int[] mVersions; // Incremented every time the world matrix is recalculated
+    private int[] mParentVersions; // The version of the parent world matrix the world matrix was calculated from
+    private boolean[] mDirty; // True if the position, orientation or scale changed
+    private boolean[] mAllocated;
+    private ATransformable3D[] mOwners; // The object the transform belongs to, if any
+    private int[] mFreeIndices;
+    private int mFreeCount;
+    private int mSize; // One past the highest index ever allocated
+    private int mCount;
+
+    private final double[] mLocalMatrix = new double[16];
+
+    /**
+     * Creates an empty pool.
+     */
+    public TransformPool() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Creates an empty pool with room for the specified number of transforms. The pool grows when more are allocated.
+     *
+     * @param capacity {@code int} The initial number of transforms.
+     */
+    public TransformPool(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Capacity must be at least 1: " + capacity);
+        }
+        mPositions = new double[capacity * 3];
+        mOrientations = new double[capacity * 4];
+        mScales = new double[capacity * 3];
+        mWorldMatrices = new double[capacity * 16];
+        mParents = new int[capacity];
+        mChildCounts = new int[capacity];
+        mVersions = new int[capacity];
+        mParentVersions = new int[capacity];
+        mDirty = new boolean[capacity];
+        mAllocated = new boolean[capacity];
+        mOwners = new ATransformable3D[capacity];
+        mFreeIndices = new int[capacity];
+    }
+
+    /**
+     * Allocates an identity transform.
+     *
+     * @param parent {@code int} The index of the parent transform, or {@link #NO_PARENT}.
+     *
+     * @return {@code int} The index of the new transform, which is always higher than the index of its parent.
+     */
+    public int allocate(int parent) {
+        if (parent != NO_PARENT) {
+            checkIndex(parent);
+        }
+        int index = -1;
+        // Released indices are reused as long as they come after the parent
+        for (int i = mFreeCount - 1; i >= 0; --i) {
+            if (mFreeIndices[i] > parent) {
+                index = mFreeIndices[i];
+                mFreeIndices[i] = mFreeIndices[--mFreeCount];
+                break;
+            }
+        }
+        if (index < 0) {
+            if (mSize == mParents.length) {
+                grow();
+            }
+            index = mSize++;
+        }
+
+        mPositions[index * 3] = mPositions[index * 3 + 1] = mPositions[index * 3 + 2] = 0;
+        mOrientations[index * 4] = 1;
+        mOrientations[index * 4 + 1] = mOrientations[index * 4 + 2] = mOrientations[index * 4 + 3] = 0;
+        mScales[index * 3] = mScales[index * 3 + 1] = mScales[index * 3 + 2] = 1;
+        mParents[index] = parent;
+        mChildCounts[index] = 0;
+        mDirty[index] = true;
+        mAllocated[index] = true;
+        mOwners[index] = null;
+        if (parent != NO_PARENT) {
+            ++mChildCounts[parent];
+        }
+        ++mCount;
+        return index;
+    }
+
+    /**
+     * Releases a transform, so its index can be reused.
+     *
+     * @param index {@code int} The index of the transform.
+     *
+     * @throws IllegalStateException if other transforms still have this one as their parent.
+     */
+    public void release(int index) {
+        checkIndex(index);
+        if (mChildCounts[index] > 0) {
+            throw new IllegalStateException("Transform " + index + " still has " + mChildCounts[index] + " children.");
+        }
+        if (mParents[index] != NO_PARENT) {
+            --mChildCounts[mParents[index]];
+        }
+        mAllocated[index] = false;
+        mOwners[index] = null;
+        mFreeIndices[mFreeCount++] = index;
+        --mCount;
+    }
+
+    /**
+     * Changes the parent of a transform.
+     *
+     * @param index  {@code int} The index of the transform.
+     * @param parent {@code int} The index of the new parent, or {@link #NO_PARENT}.
+     *
+     * @throws IllegalArgumentException if the parent doesn't have a lower index than the transform.
+     */
+    public void setParent(int index, int parent) {
+        checkIndex(index);
+        if (parent != NO_PARENT) {
+            checkIndex(parent);
+            if (parent >= index) {
+                throw new IllegalArgumentException("The parent " + parent + " must have a lower index than "
+                                                   + index + ".");
+            }
+        }
+        if (mParents[index] == parent) {
+            return;
+        }
+        if (mParents[index] != NO_PARENT) {
+            --mChildCounts[mParents[index]];
+        }
+        if (parent != NO_PARENT) {
+            ++mChildCounts[parent];
+        }
+        mParents[index] = parent;
+        markDirty(index);
+    }
+
+    /**
+     * Sets the object the transform belongs to. Whenever the values of the transform are changed, including directly
+     * through this pool, the model matrix of the owner is marked dirty, so the owner copies the new world matrix the
+     * next time it brings its model matrix up to date.
+     *
+     * @param index {@code int} The index of the transform.
+     * @param owner {@link ATransformable3D} The owner, or null.
+     */
+    void setOwner(int index, ATransformable3D owner) {
+        checkIndex(index);
+        mOwners[index] = owner;
+    }
+
+    /**
+     * @param index {@code int} The index of the transform.
+     *
+     * @return {@code int} The index of the parent, or {@link #NO_PARENT}.
+     */
+    public int getParent(int index) {
+        checkIndex(index);
+        return mParents[index];
+    }
+
+    public void setPosition(int index, double x, double y, double z) {
+        checkIndex(index);
+        mPositions[index * 3] = x;
+        mPositions[index * 3 + 1] = y;
+        mPositions[index * 3 + 2] = z;
+        markDirty(index);
+    }
+
+    public void setOrientation(int index, double w, double x, double y, double z) {
+        checkIndex(index);
+        mOrientations[index * 4] = w;
+        mOrientations[index * 4 + 1] = x;
+        mOrientations[index * 4 + 2] = y;
+        mOrientations[index * 4 + 3] = z;
+        markDirty(index);
+    }
+
+    public void setScale(int index, double x, double y, double z) {
+        checkIndex(index);
+        mScales[index * 3] = x;
+        mScales[index * 3 + 1] = y;
+        mScales[index * 3 + 2] = z;
+        markDirty(index);
+    }
+
+    /**
+     * Sets the position, scale and orientation of a transform at once.
+     *
+     * @param index       {@code int} The index of the transform.
+     * @param position    {@link Vector3} The position relative to the parent.
+     * @param scale       {@link Vector3} The scale.
+     * @param orientation {@link Quaternion} The orientation relative to the parent.
+     */
+    public void setAll(int index, Vector3 position, Vector3 scale, Quaternion orientation) {
+        checkIndex(index);
+        mPositions[index * 3] = position.x;
+        mPositions[index * 3 + 1] = position.y;
+        mPositions[index * 3 + 2] = position.z;
+        mScales[index * 3] = scale.x;
+        mScales[index * 3 + 1] = scale.y;
+        mScales[index * 3 + 2] = scale.z;
+        mOrientations[index * 4] = orientation.w;
+        mOrientations[index * 4 + 1] = orientation.x;
+        mOrientations[index * 4 + 2] = orientation.y;
+        mOrientations[index * 4 + 3] = orientation.z;
+        markDirty(index);
+    }
+
+    public Vector3 getPosition(int index, Vector3 out) {
+        checkIndex(index);
+        return out.setAll(mPositions[index * 3], mPositions[index * 3 + 1], mPositions[index * 3 + 2]);
+    }
+
+    public Quaternion getOrientation(int index, Quaternion out) {
+        checkIndex(index);
+        return out.setAll(mOrientations[index * 4], mOrientations[index * 4 + 1], mOrientations[index * 4 + 2],
+                          mOrientations[index * 4 + 3]);
+    }
+
+    public Vector3 getScale(int index, Vector3 out) {
+        checkIndex(index);
+        return out.setAll(mScales[index * 3], mScales[index * 3 + 1], mScales[index * 3 + 2]);
+    }
+
+    /**
+     * Recalculates the world matrices of all transforms which changed, or whose parent's world matrix changed, since
+     * they were last calculated.
+     *
+     * @return {@code int} The number of world matrices which were recalculated.
+     */
+    public int update() {
+        int updated = 0;
+        // Parents have lower indices than their children, so they are always up to date when a child is reached
+        for (int i = 0; i < mSize; ++i) {
+            if (mAllocated[i] && isOutdated(i)) {
+                calculateWorldMatrix(i);
+                ++updated;
+            }
+        }
+        return updated;
+    }
+
+    /**
+     * Copies the world matrix of a transform, after bringing it and the world matrices of its ancestors up to date.
+     *
+     * @param index {@code int} The index of the transform.
+     * @param out   {@link Matrix4} The matrix to copy the world matrix into.
+     *
+     * @return {@link Matrix4} The out matrix.
+     */
+    public Matrix4 getWorldMatrix(int index, Matrix4 out) {
+        checkIndex(index);
+        updateWorldMatrix(index);
+        System.arraycopy(mWorldMatrices, index * 16, out.getDoubleValues(), 0, 16);
+        return out;
+    }
+
+    /**
+     * Retrieves the array holding the world matrices, for instance to copy them into an instance buffer. The matrix
+     * of a transform starts at 16 times its index, and is only up to date after {@link #update()}.
+     *
+     * @return {@code double[]} The internal world matrices. The array is replaced when the pool grows.
+     */
+    public double[] getWorldMatrices() {
+        return mWorldMatrices;
+    }
+
+    /**
+     * Retrieves the version of the world matrix of a transform. It changes every time the world matrix is
+     * recalculated, so anything derived from it only needs to be recalculated when the version differs from the one it
+     * was derived from.
+     *
+     * @param index {@code int} The index of the transform.
+     *
+     * @return {@code int} The current world matrix version.
+     */
+    public int getWorldMatrixVersion(int index) {
+        checkIndex(index);
+        return mVersions[index];
+    }
+
+    /**
+     * @return {@code int} The number of allocated transforms.
+     */
+    public int getCount() {
+        return mCount;
+    }
+
+    /**
+     * @return {@code int} One past the highest index allocated so far, the number of entries {@link #update()}
+     * goes through.
+     */
+    public int getSize() {
+        return mSize;
+    }
+
+    private void updateWorldMatrix(int index) {
+        final int parent = mParents[index];
+        if (parent != NO_PARENT) {
+            updateWorldMatrix(parent);
+        }
+        if (isOutdated(index)) {
+            calculateWorldMatrix(index);
+        }
+    }
+
+    private boolean isOutdated(int index) {
+        final int parent = mParents[index];
+        return mDirty[index] || (parent != NO_PARENT && mParentVersions[index] != mVersions[parent]);
+    }
+
+    private void calculateWorldMatrix(int index) {
+        final double[] m = mLocalMatrix;
+        final int p = index * 3;
+        final int o = index * 4;
+        final double sx = mScales[p];
+        final double sy = mScales[p + 1];
+        final double sz = mScales[p + 2];
+        final double w = mOrientations[o];
+        final double x = mOrientations[o + 1];
+        final double y = mOrientations[o + 2];
+        final double z = mOrientations[o + 3];
+
+        // The same composition as Matrix4.setAll(Vector3, Vector3, Quaternion)
+        final double x2 = x * x;
+        final double y2 = y * y;
+        final double z2 = z * z;
+        final double xy = x * y;
+        final double xz = x * z;
+        final double yz = y * z;
+        final double wx = w * x;
+        final double wy = w * y;
+        final double wz = w * z;
+
+        m[Matrix4.M00] = sx * (1.0 - 2.0 * (y2 + z2));
+        m[Matrix4.M10] = 2.0 * sy * (xy - wz);
+        m[Matrix4.M20] = 2.0 * sz * (xz + wy);
+        m[Matrix4.M30] = 0;
+
+        m[Matrix4.M01] = 2.0 * sx * (xy + wz);
+        m[Matrix4.M11] = sy * (1.0 - 2.0 * (x2 + z2));
+        m[Matrix4.M21] = 2.0 * sz * (yz - wx);
+        m[Matrix4.M31] = 0;
+
+        m[Matrix4.M02] = 2.0 * sx * (xz - wy);
+        m[Matrix4.M12] = 2.0 * sy * (yz + wx);
+        m[Matrix4.M22] = sz * (1.0 - 2.0 * (x2 + y2));
+        m[Matrix4.M32] = 0;
+
+        m[Matrix4.M03] = mPositions[p];
+        m[Matrix4.M13] = mPositions[p + 1];
+        m[Matrix4.M23] = mPositions[p + 2];
+        m[Matrix4.M33] = 1.0;
+
+        final int parent = mParents[index];
+        if (parent == NO_PARENT) {
+            System.arraycopy(m, 0, mWorldMatrices, index * 16, 16);
+        } else {
+            Matrix.multiplyMM(mWorldMatrices, index * 16, mWorldMatrices, parent * 16, m, 0);
+            mParentVersions[index] = mVersions[parent];
+        }
+        ++mVersions[index];
+        mDirty[index] = false;
+    }
+
+    private void markDirty(int index) {
+        mDirty[index] = true;
+        final ATransformable3D owner = mOwners[index];
+        if (owner != null) {
+            owner.markModelMatrixDirty();
+        }
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= mSize || !mAllocated[index]) {
+            throw new IndexOutOfBoundsException("No transform is allocated at index " + index + ".");
+        }
+    }
+
+    private void grow() {
+        final int capacity = mParents.length * 2;
+        mPositions = Arrays.copyOf(mPositions, capacity * 3);
+        mOrientations = Arrays.copyOf(mOrientations, capacity * 4);
+        mScales = Arrays.copyOf(mScales, capacity * 3);
+        mWorldMatrices = Arrays.copyOf(mWorldMatrices, capacity * 16);
+        mParents = Arrays.copyOf(mParents, capacity);
+        mChildCounts = Arrays.copyOf(mChildCounts, capacity);
+        mVersions = Arrays.copyOf(mVersions, capacity);
+        mParentVersions = Arrays.copyOf(mParentVersions, capacity);
+        mDirty = Arrays.copyOf(mDirty, capacity);
+        mAllocated = Arrays.copyOf(mAllocated, capacity);
+        mOwners = Arrays.copyOf(mOwners, capacity);
+        mFreeIndices = Arrays.copyOf(mFreeIndices, capacity);
+    }
+}
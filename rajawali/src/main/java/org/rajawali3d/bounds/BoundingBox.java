@@ -36,6 +36,7 @@ public class BoundingBox implements IBoundingVolume {
     protected       Cube      mVisualBox;
     protected final Matrix4       mTmpMatrix     = new Matrix4(); //Assumed to never leave identity state
     protected       AtomicInteger mBoundingColor = new AtomicInteger(0xffffff00);
+    protected       int           mPointsVersion; // Incremented every time the corner points are recalculated
 
     public BoundingBox() {
         this(new Vector3[8]);
@@ -215,6 +216,7 @@ public class BoundingBox implements IBoundingVolume {
     }
 
     public void calculatePoints() {
+        ++mPointsVersion;
         // -- bottom plane
         // -- -x, -y, -z
         mPoints[0].setAll(mMin.x, mMin.y, mMin.z);
@@ -285,6 +287,30 @@ public class BoundingBox implements IBoundingVolume {
         mMax.setAll(max);
     }
 
+    /**
+     * Sets the bounds to a box which is already in world space, so the transformed bounds are the same as the
+     * untransformed ones.
+     *
+     * @param min {@link Vector3} The world space minimum.
+     * @param max {@link Vector3} The world space maximum.
+     */
+    public void setWorldBounds(Vector3 min, Vector3 max) {
+        mMin.setAll(min);
+        mMax.setAll(max);
+        calculatePoints();
+        transform(mTmpMatrix);
+    }
+
+    /**
+     * Retrieves the version of the corner points. It changes every time they are recalculated from the minimum and
+     * maximum, so the transformed bounds only need to be recalculated when either the version or the matrix changed.
+     *
+     * @return {@code int} The current version of the corner points.
+     */
+    public int getPointsVersion() {
+        return mPointsVersion;
+    }
+
     public Vector3 getTransformedMin() {
         return mTransformedMin;
     }
@@ -44,6 +44,11 @@ public class Camera extends ATransformable3D {
 	 * End guarded members
 	 */
 
+	/**
+	 * The matrices derived from this camera for the frame being rendered. Only accessed from the GL thread.
+	 */
+	protected final CameraFrameConstants mFrameConstants = new CameraFrameConstants();
+
 	public Camera() {
 		super();
 		mLocalOrientation = Quaternion.getIdentity();
@@ -82,6 +87,16 @@ public class Camera extends ATransformable3D {
         mLocalOrientation.identity();
     }
 
+	/**
+	 * Retrieves the per-frame constants of this camera. These are updated by the {@link org.rajawali3d.scene.Scene}
+	 * once per frame and should not be modified.
+	 *
+	 * @return {@link CameraFrameConstants} The constants of the current frame.
+	 */
+	public CameraFrameConstants getFrameConstants() {
+		return mFrameConstants;
+	}
+
 	public Matrix4 getViewMatrix() {
 		synchronized (mFrustumLock) {
             // Create an inverted orientation. This is because the view matrix is the
@@ -182,9 +197,9 @@ public class Camera extends ATransformable3D {
         }
 	}
 
-	public void updateFrustum(Matrix4 invVPMatrix) {
+	public void updateFrustum(Matrix4 vpMatrix) {
 		synchronized (mFrustumLock) {
-			mFrustum.update(invVPMatrix);
+			mFrustum.update(vpMatrix);
 		}
 	}
 
@@ -0,0 +1,102 @@
+/**
+ * Copyright 2013 Dennis Ippel
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.rajawali3d.cameras;
+
+import org.rajawali3d.math.Matrix4;
+
+import java.util.Arrays;
+
+/**
+ * The camera dependent matrices of a frame. They are updated once per frame by the {@link org.rajawali3d.scene.Scene}
+ * and shared by all objects, instead of every object deriving them from the view matrix again.
+ *
+ * The version is incremented whenever the view or projection matrix actually changed, so objects can keep their
+ * model view and model view projection matrices until either the camera or their model matrix changes.
+ */
+public class CameraFrameConstants {
+
+    private final Matrix4 mViewMatrix = new Matrix4();
+    private final Matrix4 mProjectionMatrix = new Matrix4();
+    private final Matrix4 mViewProjectionMatrix = new Matrix4();
+    private final Matrix4 mInverseViewProjectionMatrix = new Matrix4();
+    private final Matrix4 mInverseViewMatrix = new Matrix4();
+    private int mVersion;
+
+    /**
+     * Updates the constants for a new frame. The derived matrices are only recalculated if the camera changed.
+     *
+     * @param viewMatrix       {@link Matrix4} The view matrix of the camera.
+     * @param projectionMatrix {@link Matrix4} The projection matrix of the camera.
+     *
+     * @return {@code boolean} True if the camera changed since the last update.
+     */
+    public boolean update(Matrix4 viewMatrix, Matrix4 projectionMatrix) {
+        if (mVersion != 0 && Arrays.equals(mViewMatrix.getDoubleValues(), viewMatrix.getDoubleValues())
+                && Arrays.equals(mProjectionMatrix.getDoubleValues(), projectionMatrix.getDoubleValues())) {
+            return false;
+        }
+        mViewMatrix.setAll(viewMatrix);
+        mProjectionMatrix.setAll(projectionMatrix);
+        mViewProjectionMatrix.setAll(projectionMatrix).multiply(viewMatrix);
+        mInverseViewProjectionMatrix.setAll(mViewProjectionMatrix).inverse();
+        // Transforms reflections for every object drawn with this camera. Rigid view matrices invert by transposing
+        mInverseViewMatrix.setAll(viewMatrix).inverse(viewMatrix.getTransformType()).transpose();
+        ++mVersion;
+        return true;
+    }
+
+    /**
+     * Checks whether the provided matrices are the ones held by these constants, meaning the caller is rendering
+     * with the camera of the current frame.
+     *
+     * @param viewMatrix           {@link Matrix4} The view matrix used for rendering.
+     * @param viewProjectionMatrix {@link Matrix4} The view projection matrix used for rendering.
+     *
+     * @return {@code boolean} True if both are the instances held by these constants.
+     */
+    public boolean isCurrent(Matrix4 viewMatrix, Matrix4 viewProjectionMatrix) {
+        return viewMatrix == mViewMatrix && viewProjectionMatrix == mViewProjectionMatrix;
+    }
+
+    /**
+     * @return {@code int} The version, incremented every time the view or projection matrix changes. Zero before the
+     * first update.
+     */
+    public int getVersion() {
+        return mVersion;
+    }
+
+    public Matrix4 getViewMatrix() {
+        return mViewMatrix;
+    }
+
+    public Matrix4 getProjectionMatrix() {
+        return mProjectionMatrix;
+    }
+
+    public Matrix4 getViewProjectionMatrix() {
+        return mViewProjectionMatrix;
+    }
+
+    public Matrix4 getInverseViewProjectionMatrix() {
+        return mInverseViewProjectionMatrix;
+    }
+
+    /**
+     * @return {@link Matrix4} The transposed inverse of the view matrix, as used by materials to transform
+     * reflections.
+     */
+    public Matrix4 getInverseViewMatrix() {
+        return mInverseViewMatrix;
+    }
+}
@@ -8,6 +8,7 @@ import org.rajawali3d.materials.Material;
 import org.rajawali3d.math.Matrix4;
 import org.rajawali3d.math.vector.Vector3;
 import org.rajawali3d.primitives.Sphere;
+import org.rajawali3d.scene.RenderQueue;
 
 import java.nio.FloatBuffer;
 import java.util.Stack;
@@ -100,4 +101,13 @@ public class DebugCamera extends DebugObject3D {
         mPositionBall.render(camera, vpMatrix, projMatrix, vMatrix, parentMatrix, sceneMaterial);
         super.render(camera, vpMatrix, projMatrix, vMatrix, parentMatrix, sceneMaterial);
     }
+
+    @Override
+    public void queueForRender(RenderQueue queue, Camera camera, final Matrix4 vpMatrix, final Matrix4 projMatrix,
+                               final Matrix4 vMatrix, final Matrix4 parentMatrix, Material sceneMaterial) {
+        updateFrustum();
+        mPositionBall.setPosition(mCamera.getPosition());
+        mPositionBall.queueForRender(queue, camera, vpMatrix, projMatrix, vMatrix, parentMatrix, sceneMaterial);
+        super.queueForRender(queue, camera, vpMatrix, projMatrix, vMatrix, parentMatrix, sceneMaterial);
+    }
 }
@@ -10,6 +10,7 @@ import org.rajawali3d.math.MathUtil;
 import org.rajawali3d.math.Matrix4;
 import org.rajawali3d.math.vector.Vector3;
 import org.rajawali3d.primitives.Line3D;
+import org.rajawali3d.scene.RenderQueue;
 
 import java.util.Stack;
 
@@ -103,4 +104,12 @@ public class DebugLight extends DebugObject3D {
 
         super.render(camera, vpMatrix, projMatrix, vMatrix, parentMatrix, sceneMaterial);
     }
+
+    @Override
+    public void queueForRender(RenderQueue queue, Camera camera, final Matrix4 vpMatrix, final Matrix4 projMatrix,
+                               final Matrix4 vMatrix, final Matrix4 parentMatrix, Material sceneMaterial) {
+        updateLightTransform(camera);
+
+        super.queueForRender(queue, camera, vpMatrix, projMatrix, vMatrix, parentMatrix, sceneMaterial);
+    }
 }
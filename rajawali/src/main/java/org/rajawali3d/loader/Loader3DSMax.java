@@ -69,6 +69,10 @@ public class Loader3DSMax extends AMeshLoader {
 		super(renderer, file);
 	}
 
+	public Loader3DSMax(File file) {
+		super(file);
+	}
+
 	@Override
 	public AMeshLoader parse() throws ParsingException {
 		RajLog.i("Start parsing 3DS");
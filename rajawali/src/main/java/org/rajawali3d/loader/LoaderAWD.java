@@ -117,6 +117,11 @@ public class LoaderAWD extends AMeshLoader {
         init();
     }
 
+    public LoaderAWD(File file) {
+        super(file);
+        init();
+    }
+
     public LoaderAWD(Resources resources, TextureManager textureManager, int resourceId) {
         super(resources, textureManager, resourceId);
         init();
@@ -67,6 +67,10 @@ public class LoaderMD2 extends AMeshLoader implements IAnimatedMeshLoader {
 		super(renderer, file);
 	}
 
+	public LoaderMD2(File file) {
+		super(file);
+	}
+
 	public AAnimationObject3D getParsedAnimationObject() {
 		return (AAnimationObject3D) mRootObject;
 	}
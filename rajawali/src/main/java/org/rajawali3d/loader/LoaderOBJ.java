@@ -114,6 +114,10 @@ public class LoaderOBJ extends AMeshLoader {
         super(renderer, file);
     }
 
+    public LoaderOBJ(File file) {
+        super(file);
+    }
+
     /**
      * 解析数据
      *
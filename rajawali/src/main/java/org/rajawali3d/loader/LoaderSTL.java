@@ -54,6 +54,10 @@ public class LoaderSTL extends AMeshLoader {
 		super(renderer, file);
 	}
 
+	public LoaderSTL(File file) {
+		super(file);
+	}
+
     public LoaderSTL(Resources resources, TextureManager textureManager, int resourceId) {
         super(resources, textureManager, resourceId);
     }
@@ -90,22 +90,30 @@ public class LoaderFBX extends AMeshLoader {
 	public LoaderFBX(Renderer renderer, String fileOnSDCard) {
 		super(renderer, fileOnSDCard);
 		mRenderer = renderer;
-		mObjStack = new Stack<Object>();
-		mFbx = new FBXValues();
-		mObjStack.add(mFbx);
+		initValues();
 	}
 
 	public LoaderFBX(Renderer renderer, File file) {
 		super(renderer, file);
 		mRenderer = renderer;
-		mObjStack = new Stack<Object>();
-		mFbx = new FBXValues();
-		mObjStack.add(mFbx);
+		initValues();
+	}
+
+	/**
+	 * Loads the file without a renderer. Cameras in the file are ignored, as there is no renderer to apply them to.
+	 */
+	public LoaderFBX(File file) {
+		super(file);
+		initValues();
 	}
 
 	public LoaderFBX(Renderer renderer, int resourceId) {
 		super(renderer.getContext().getResources(), renderer.getTextureManager(), resourceId);
 		mRenderer = renderer;
+		initValues();
+	}
+
+	private void initValues() {
 		mObjStack = new Stack<Object>();
 		mFbx = new FBXValues();
 		mObjStack.add(mFbx);
@@ -200,7 +208,7 @@ public class LoaderFBX extends AMeshLoader {
 			}
 		}
 
-		if(camera != null) { //TODO: FIX
+		if(camera != null && mRenderer != null) { //TODO: FIX
 			Camera cam = mRenderer.getCurrentCamera();
 			cam.setPosition(camera.position);
 			cam.setX(mRenderer.getCurrentCamera().getX() * -1);
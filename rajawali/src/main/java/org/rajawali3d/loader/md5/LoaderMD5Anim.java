@@ -13,6 +13,7 @@
 package org.rajawali3d.loader.md5;
 
 import java.io.BufferedReader;
+import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.FileReader;
 import java.io.InputStream;
@@ -63,6 +64,12 @@ public class LoaderMD5Anim extends ALoader implements IAnimationSequenceLoader {
 		mAnimationName = animationName;
 	}
 
+	public LoaderMD5Anim(String animationName, File file)
+	{
+		super(file);
+		mAnimationName = animationName;
+	}
+
 	public LoaderMD5Anim parse() throws ParsingException {
 		super.parse();
 
@@ -16,6 +16,7 @@ import android.content.res.Resources;
 import android.opengl.GLES20;
 
 import java.io.BufferedReader;
+import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.FileReader;
 import java.io.InputStream;
@@ -83,6 +84,10 @@ public class LoaderMD5Mesh extends AMeshLoader implements IAnimatedMeshLoader {
 		super(resources, textureManager, resourceId);
 	}
 
+	public LoaderMD5Mesh(File file) {
+		super(file);
+	}
+
 	public AAnimationObject3D getParsedAnimationObject() {
 		return (AAnimationObject3D) mRootObject;
 	}
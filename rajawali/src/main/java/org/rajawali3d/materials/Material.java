@@ -40,7 +40,10 @@ import org.rajawali3d.materials.textures.CubeMapTexture;
 import org.rajawali3d.materials.textures.SphereMapTexture;
 import org.rajawali3d.materials.textures.TextureManager;
 import org.rajawali3d.math.Matrix4;
+import org.rajawali3d.math.Matrix4f;
+import org.rajawali3d.renderer.GLStateCache;
 import org.rajawali3d.renderer.Renderer;
+import org.rajawali3d.renderer.gl.AGLBackend;
 import org.rajawali3d.scene.Scene;
 import org.rajawali3d.util.Capabilities;
 import org.rajawali3d.util.RajLog;
@@ -120,6 +123,11 @@ public class Material {
      * contained in a separate color buffer.
      */
     private boolean mUseVertexColors;
+    /**
+     * Indicates that this material is used to draw an {@link org.rajawali3d.InstancedObject3D}. The vertex
+     * shader reads a model matrix, a color and custom data for every instance.
+     */
+    private boolean mUseInstancing;
     /**
      * Indicates whether lighting should be used or not. This must be set to true when using a
      * {@link DiffuseMethod} or a {@link SpecularMethod}. Lights are added to a scene {@link Scene}
@@ -137,7 +145,13 @@ public class Material {
      * Indicates that one of the material properties was changed and that the shader program should
      * be re-compiled.
      */
-    private boolean mIsDirty = true;
+    private volatile boolean mIsDirty = true;
+    /**
+     * Indicates that the shader source was generated ahead of time and only needs to be compiled.
+     * Guarded by {@link #mShaderSourceLock}.
+     */
+    private boolean mShaderSourceReady;
+    private final Object mShaderSourceLock = new Object();
     /**
      * Holds a reference to the shader program
      */
@@ -150,6 +164,10 @@ public class Material {
      * Holds a reference to the fragment shader
      */
     private int mFShaderHandle;
+    /**
+     * The program shared with all other materials generating the same shader source
+     */
+    private MaterialManager.SharedProgram mSharedProgram;
     /**
      * The model matrix holds the object's local coordinates
      */
@@ -238,6 +256,17 @@ public class Material {
     protected ArrayList<ATexture> mTextureList;
 
     protected Map<String, Integer> mTextureHandles;
+    /**
+     * The sampler uniform locations of the textures in {@link #mTextureList}, by index. Resolved when the program
+     * is linked so binding the textures doesn't need name lookups.
+     */
+    protected int[] mSamplerHandles = new int[0];
+    /**
+     * The texture unit last assigned to each sampler in {@link #mSamplerHandles}, -1 if unknown. Sampler values
+     * are part of the program state, so they only need to be set once per link.
+     */
+    protected int[] mSamplerUnits = new int[0];
+    protected boolean mSamplerHandlesDirty = true;
     /**
      * Contains the normal matrix. The normal matrix is used in the shaders to transform
      * the normal into eye space.
@@ -319,11 +348,34 @@ public class Material {
      */
     public void useVertexColors(boolean value) {
         if (value != mUseVertexColors) {
-            mIsDirty = true;
+            markShadersDirty();
             mUseVertexColors = value;
         }
     }
 
+    /**
+     * Indicates that this material is used to draw instances of an {@link org.rajawali3d.InstancedObject3D}.
+     *
+     * @return A boolean indicating that the vertex shader reads per instance attributes.
+     */
+    public boolean usingInstancing() {
+        return mUseInstancing;
+    }
+
+    /**
+     * Indicates that this material is used to draw instances of an {@link org.rajawali3d.InstancedObject3D}.
+     * The vertex shader will read a model matrix, a color and custom data for every instance. A material
+     * with instancing enabled can't be used for regular objects.
+     *
+     * @param value A boolean indicating whether per instance attributes should be used or not
+     */
+    public void useInstancing(boolean value) {
+        if (value != mUseInstancing) {
+            markShadersDirty();
+            mUseInstancing = value;
+        }
+    }
+
     /**
      * The material's diffuse color. This can be overwritten by {@link Object3D#setColor(int)}.
      * This color will be applied to the whole object. For vertex colors use {@link Material#useVertexColors(boolean)}
@@ -480,11 +532,11 @@ public class Material {
             mLights.clear();
         if (mTextureList != null)
             mTextureList.clear();
+        mSamplerHandlesDirty = true;
 
-        if (Renderer.hasGLContext()) {
-            GLES20.glDeleteShader(mVShaderHandle);
-            GLES20.glDeleteShader(mFShaderHandle);
-            GLES20.glDeleteProgram(mProgramHandle);
+        if (mSharedProgram != null) {
+            MaterialManager.getInstance().releaseProgram(mSharedProgram);
+            mSharedProgram = null;
         }
     }
 
@@ -492,7 +544,9 @@ public class Material {
      * {@inheritDoc}
      */
     void reload() {
-        mIsDirty = true;
+        // The program was lost with the context, there is nothing left to release
+        mSharedProgram = null;
+        markShadersDirty();
         createShaders();
     }
 
@@ -515,12 +569,67 @@ public class Material {
     }
 
     /**
-     * Takes all material parameters and creates the vertex shader and fragment shader and then compiles the program.
-     * This method should only be called on initialization or when parameters have changed.
+     * Marks the shaders as out of date so they are generated and compiled again before the next use.
      */
-    protected void createShaders() {
-        if (!mIsDirty)
+    private void markShadersDirty() {
+        synchronized (mShaderSourceLock) {
+            mIsDirty = true;
+            mShaderSourceReady = false;
+        }
+    }
+
+    /**
+     * Checks whether the shader program of this material still has to be generated and compiled.
+     *
+     * @return {@code boolean} True if the next use of this material would compile its shaders.
+     */
+    public boolean needsShaderCompilation() {
+        return mIsDirty;
+    }
+
+    /**
+     * Checks whether the shader program can be generated now. Lit materials have to wait until the scene they are
+     * drawn in hands them its lights.
+     *
+     * @return {@code boolean} True if the shaders can be compiled.
+     */
+    public boolean canCompileShaders() {
+        return !(mLightingEnabled && mLights == null);
+    }
+
+    /**
+     * Generates the shader source ahead of time so that compiling the program on the GL thread doesn't have to. This
+     * may be called from any thread, but not concurrently with changes to the material.
+     *
+     * @return {@code boolean} True if the source was generated, false if it was not needed.
+     */
+    public boolean prepareShaderSource() {
+        synchronized (mShaderSourceLock) {
+            // Lit materials are compiled once their lights are known, see add()
+            if (!mIsDirty || mShaderSourceReady || (mLightingEnabled && mLights == null)) {
+                return false;
+            }
+            generateShaderSource();
+            mShaderSourceReady = true;
+            return true;
+        }
+    }
+
+    /**
+     * Compiles and links the shader program if needed, using source prepared by {@link #prepareShaderSource()} if
+     * available. Must be called on the GL thread.
+     */
+    public void compileShaders() {
+        if (mLightingEnabled && mLights == null)
             return;
+        createShaders();
+    }
+
+    /**
+     * Generates the source of the vertex and fragment shader from the material parameters. This doesn't need
+     * a GL context.
+     */
+    private void generateShaderSource() {
         if (mCustomVertexShader == null && mCustomFragmentShader == null) {
             //
             // -- Check textures
@@ -594,6 +703,7 @@ public class Material {
             mVertexShader.hasCubeMaps(hasCubeMaps);
             mVertexShader.hasSkyTexture(skyTextures != null && skyTextures.size() > 0);
             mVertexShader.useVertexColors(mUseVertexColors);
+            mVertexShader.useInstancing(mUseInstancing);
             onPreVertexShaderInitialize(mVertexShader);
             mVertexShader.initialize();
             mFragmentShader = new FragmentShader();
@@ -697,6 +807,22 @@ public class Material {
             if (mVertexShader.needsBuild()) mVertexShader.buildShader();
             if (mFragmentShader.needsBuild()) mFragmentShader.buildShader();
         }
+    }
+
+    /**
+     * Takes all material parameters and creates the vertex shader and fragment shader and then compiles the program.
+     * This method should only be called on initialization or when parameters have changed.
+     */
+    protected void createShaders() {
+        if (!mIsDirty)
+            return;
+        synchronized (mShaderSourceLock) {
+            // The source may have been generated ahead of time by prepareShaderSource()
+            if (!mShaderSourceReady) {
+                generateShaderSource();
+            }
+            mShaderSourceReady = false;
+        }
 
         if (RajLog.isDebugEnabled()) {
             RajLog.d("-=-=-=- VERTEX SHADER -=-=-=-");
@@ -705,22 +831,51 @@ public class Material {
             RajLog.d(mFragmentShader.getShaderString());
         }
 
-        mProgramHandle = createProgram(mVertexShader.getShaderString(), mFragmentShader.getShaderString());
-        if (mProgramHandle == 0) {
+        final String vertexSource = mVertexShader.getShaderString();
+        final String fragmentSource = mFragmentShader.getShaderString();
+        final MaterialManager materialManager = MaterialManager.getInstance();
+        final MaterialManager.SharedProgram previousProgram = mSharedProgram;
+
+        // Materials generating identical source share one program
+        mSharedProgram = materialManager.acquireProgram(vertexSource, fragmentSource);
+        if (mSharedProgram == null) {
+            final int program = createProgram(vertexSource, fragmentSource);
+            if (program != 0) {
+                mSharedProgram = materialManager.registerProgram(vertexSource, fragmentSource, program,
+                    mVShaderHandle, mFShaderHandle);
+            }
+        }
+        if (previousProgram != null) {
+            materialManager.releaseProgram(previousProgram);
+        }
+        if (mSharedProgram == null) {
+            mProgramHandle = 0;
             mIsDirty = false;
             return;
         }
-
+        mProgramHandle = mSharedProgram.getProgramHandle();
+        mVShaderHandle = mSharedProgram.getVertexShaderHandle();
+        mFShaderHandle = mSharedProgram.getFragmentShaderHandle();
+
+        // Locations are resolved once per program and shared by the shaders of all materials using it
+        mVertexShader.setLocationCache(mProgramHandle, mSharedProgram.getUniformLocations(),
+            mSharedProgram.getAttributeLocations());
+        mFragmentShader.setLocationCache(mProgramHandle, mSharedProgram.getUniformLocations(),
+            mSharedProgram.getAttributeLocations());
         mVertexShader.setLocations(mProgramHandle);
         mFragmentShader.setLocations(mProgramHandle);
 
-        for (String name : mTextureHandles.keySet()) {
+        // Sampler locations of the previous program are no longer valid
+        final String[] samplerNames = mTextureHandles.keySet().toArray(new String[mTextureHandles.size()]);
+        mTextureHandles.clear();
+        for (String name : samplerNames) {
             setTextureHandleForName(name);
         }
 
         for (int i = 0; i < mTextureList.size(); i++) {
             setTextureParameters(mTextureList.get(i));
         }
+        resolveSamplerHandles();
 
         mIsDirty = false;
     }
@@ -758,17 +913,18 @@ public class Material {
      * @return
      */
     private int loadShader(int shaderType, String source) {
-        int shader = GLES20.glCreateShader(shaderType);
+        final AGLBackend gl = AGLBackend.getCurrent();
+        int shader = gl.glCreateShader(shaderType);
         if (shader != 0) {
-            GLES20.glShaderSource(shader, source);
-            GLES20.glCompileShader(shader);
+            gl.glShaderSource(shader, source);
+            gl.glCompileShader(shader);
             int[] compiled = new int[1];
-            GLES20.glGetShaderiv(shader, GLES20.GL_COMPILE_STATUS, compiled, 0);
+            gl.glGetShaderiv(shader, GLES20.GL_COMPILE_STATUS, compiled, 0);
             if (compiled[0] == 0) {
                 RajLog.e("[" + getClass().getName() + "] Could not compile "
                     + (shaderType == GLES20.GL_FRAGMENT_SHADER ? "fragment" : "vertex") + " shader:");
-                RajLog.e("Shader log: " + GLES20.glGetShaderInfoLog(shader));
-                GLES20.glDeleteShader(shader);
+                RajLog.e("Shader log: " + gl.glGetShaderInfoLog(shader));
+                gl.glDeleteShader(shader);
                 shader = 0;
             }
         }
@@ -785,6 +941,16 @@ public class Material {
      * @return
      */
     private int createProgram(String vertexSource, String fragmentSource) {
+        final AGLBackend gl = AGLBackend.getCurrent();
+        final ProgramBinaryCache binaryCache = ProgramBinaryCache.getInstance();
+        int cachedProgram = binaryCache.loadProgram(vertexSource, fragmentSource);
+        if (cachedProgram != 0) {
+            // Linked from a stored binary, there are no shader objects
+            mVShaderHandle = 0;
+            mFShaderHandle = 0;
+            return cachedProgram;
+        }
+
         mVShaderHandle = loadShader(GLES20.GL_VERTEX_SHADER, vertexSource);
         if (mVShaderHandle == 0) {
             return 0;
@@ -795,19 +961,22 @@ public class Material {
             return 0;
         }
 
-        int program = GLES20.glCreateProgram();
+        int program = gl.glCreateProgram();
         if (program != 0) {
-            GLES20.glAttachShader(program, mVShaderHandle);
-            GLES20.glAttachShader(program, mFShaderHandle);
-            GLES20.glLinkProgram(program);
+            gl.glAttachShader(program, mVShaderHandle);
+            gl.glAttachShader(program, mFShaderHandle);
+            binaryCache.prepareForLink(program);
+            gl.glLinkProgram(program);
 
             int[] linkStatus = new int[1];
-            GLES20.glGetProgramiv(program, GLES20.GL_LINK_STATUS, linkStatus, 0);
+            gl.glGetProgramiv(program, GLES20.GL_LINK_STATUS, linkStatus, 0);
             if (linkStatus[0] != GLES20.GL_TRUE) {
                 RajLog.e("Could not link program in " + getClass().getCanonicalName() + ": ");
-                RajLog.e(GLES20.glGetProgramInfoLog(program));
-                GLES20.glDeleteProgram(program);
+                RajLog.e(gl.glGetProgramInfoLog(program));
+                gl.glDeleteProgram(program);
                 program = 0;
+            } else {
+                binaryCache.storeProgram(program, vertexSource, fragmentSource);
             }
         }
         return program;
@@ -820,7 +989,16 @@ public class Material {
         if (mIsDirty) {
             createShaders();
         }
-        GLES20.glUseProgram(mProgramHandle);
+        GLStateCache.getCurrent().useProgram(mProgramHandle);
+    }
+
+    /**
+     * Returns the OpenGL handle of this material's shader program.
+     *
+     * @return {@code int} The program handle or -1 if the shaders haven't been created yet.
+     */
+    public int getProgramHandle() {
+        return mProgramHandle;
     }
 
     /**
@@ -844,7 +1022,7 @@ public class Material {
     private void setTextureParameters(ATexture texture) {
         if (mTextureHandles.containsKey(texture.getTextureName())) return;
 
-        int textureHandle = GLES20.glGetUniformLocation(mProgramHandle, texture.getTextureName());
+        int textureHandle = mFragmentShader.getUniformHandle(texture.getTextureName());
         if (textureHandle == -1 && RajLog.isDebugEnabled()) {
             RajLog.e("Could not get uniform location for " + texture.getTextureName() + ", "
                      + texture.getTextureType());
@@ -857,7 +1035,7 @@ public class Material {
         if (mProgramHandle < 0 || mTextureHandles.containsKey(name) && mTextureHandles.get(name) > -1) {
             return;
         }
-        int textureHandle = GLES20.glGetUniformLocation(mProgramHandle, name);
+        int textureHandle = mFragmentShader.getUniformHandle(name);
         if (textureHandle == -1 && RajLog.isDebugEnabled()) {
             RajLog.e("Could not get uniform location for " + name + " Program Handle: " + mProgramHandle);
             return;
@@ -881,8 +1059,17 @@ public class Material {
             num = mMaxTextures;
         }
 
+        if (mSamplerHandlesDirty) {
+            resolveSamplerHandles();
+        }
+        final GLStateCache glState = GLStateCache.getCurrent();
         for (int i = 0; i < num; i++) {
-            bindTextureByName(i, mTextureList.get(i));
+            final ATexture texture = mTextureList.get(i);
+            glState.bindTexture(i, texture.getGLTextureType(), texture.getTextureId());
+            if (mSamplerUnits[i] != i && mSamplerHandles[i] > -1) {
+                AGLBackend.getCurrent().glUniform1i(mSamplerHandles[i], i);
+                mSamplerUnits[i] = i;
+            }
         }
 
         if (mPlugins != null)
@@ -890,40 +1077,53 @@ public class Material {
                 plugin.bindTextures(num);
     }
 
+    /**
+     * Resolves the sampler locations of all textures in {@link #mTextureList} into {@link #mSamplerHandles}.
+     */
+    protected void resolveSamplerHandles() {
+        final int num = mTextureList.size();
+        if (mSamplerHandles.length != num) {
+            mSamplerHandles = new int[num];
+            mSamplerUnits = new int[num];
+        }
+        for (int i = 0; i < num; i++) {
+            final ATexture texture = mTextureList.get(i);
+            if (!mTextureHandles.containsKey(texture.getTextureName())) {
+                setTextureParameters(texture);
+            }
+            final Integer handle = mTextureHandles.get(texture.getTextureName());
+            mSamplerHandles[i] = handle == null ? -1 : handle;
+            mSamplerUnits[i] = -1;
+        }
+        mSamplerHandlesDirty = false;
+    }
+
     public void bindTextureByName(int index, ATexture texture) {
         if (!mTextureHandles.containsKey(texture.getTextureName())) {
             setTextureParameters(texture);
         }
-        GLES20.glActiveTexture(GLES20.GL_TEXTURE0 + index);
-        GLES20.glBindTexture(texture.getGLTextureType(), texture.getTextureId());
-        GLES20.glUniform1i(mTextureHandles.get(texture.getTextureName()), index);
+        GLStateCache.getCurrent().bindTexture(index, texture.getGLTextureType(), texture.getTextureId());
+        AGLBackend.getCurrent().glUniform1i(mTextureHandles.get(texture.getTextureName()), index);
     }
 
     public void bindTextureByName(String name, int index, ATexture texture) {
         if (!mTextureHandles.containsKey(texture.getTextureName())) {
             setTextureHandleForName(name);
         }
-        GLES20.glActiveTexture(GLES20.GL_TEXTURE0 + index);
-        GLES20.glBindTexture(texture.getGLTextureType(), texture.getTextureId());
-        GLES20.glUniform1i(mTextureHandles.get(name), index);
+        GLStateCache.getCurrent().bindTexture(index, texture.getGLTextureType(), texture.getTextureId());
+        AGLBackend.getCurrent().glUniform1i(mTextureHandles.get(name), index);
     }
 
     /**
-     * Unbinds the texture from an OpenGL texturing target.
+     * Unbinds the textures of the material plugins. The textures of this material itself are left bound so that the
+     * next object using them doesn't need to bind them again; the {@link GLStateCache} keeps track of them.
      */
     public void unbindTextures() {
-        int num = mTextureList.size();
-
         if (mPlugins != null)
             for (IMaterialPlugin plugin : mPlugins)
                 plugin.unbindTextures();
 
-        for (int i = 0; i < num; i++) {
-            ATexture texture = mTextureList.get(i);
-            GLES20.glBindTexture(texture.getGLTextureType(), 0);
-        }
-
-        GLES20.glBindBuffer(GLES20.GL_ARRAY_BUFFER, 0);
+        AGLBackend.getCurrent().glBindBuffer(GLES20.GL_ARRAY_BUFFER, 0);
     }
 
     /**
@@ -943,7 +1143,8 @@ public class Material {
         TextureManager.getInstance().addTexture(texture);
         texture.registerMaterial(this);
 
-        mIsDirty = true;
+        markShadersDirty();
+        mSamplerHandlesDirty = true;
     }
 
     /**
@@ -954,6 +1155,7 @@ public class Material {
     public void removeTexture(ATexture texture) {
         mTextureList.remove(texture);
         texture.unregisterMaterial(this);
+        mSamplerHandlesDirty = true;
     }
 
     /**
@@ -1051,6 +1253,34 @@ public class Material {
         mVertexShader.setVertexColors(bufferInfo.bufferHandle, bufferInfo.type, bufferInfo.stride, bufferInfo.offset);
     }
 
+    /**
+     * Sources the per instance attributes from a buffer. This is passed to
+     * {@link VertexShader#setInstanceAttributes(int, int)}
+     *
+     * @param instanceBufferHandle
+     * @param stride
+     */
+    public void setInstanceAttributes(final int instanceBufferHandle, final int stride) {
+        mVertexShader.setInstanceAttributes(instanceBufferHandle, stride);
+    }
+
+    /**
+     * Resets the per instance attributes. This is passed to {@link VertexShader#unsetInstanceAttributes()}
+     */
+    public void unsetInstanceAttributes() {
+        mVertexShader.unsetInstanceAttributes();
+    }
+
+    /**
+     * Sets constant per instance attributes. This is passed to {@link VertexShader#setInstanceValues(float[], int)}
+     *
+     * @param instanceData
+     * @param offset
+     */
+    public void setInstanceValues(final float[] instanceData, final int offset) {
+        mVertexShader.setInstanceValues(instanceData, offset);
+    }
+
     /**
      * Returns the inverse view matrix. The inverse view matrix is used to transform reflections.
      *
@@ -1079,34 +1309,93 @@ public class Material {
         mVertexShader.setMVPMatrix(mvpMatrix.getFloatValues());
     }
 
+    /**
+     * Sets the model view projection matrix from its single precision copy, which is uploaded without conversion.
+     *
+     * @param mvpMatrix
+     */
+    public void setMVPMatrix(Matrix4f mvpMatrix) {
+        mVertexShader.setMVPMatrix(mvpMatrix.getFloatValues());
+    }
+
     /**
      * Sets the model matrix. The model matrix holds the object's local coordinates.
      *
      * @param modelMatrix
      */
     public void setModelMatrix(Matrix4 modelMatrix) {
+        calculateNormalMatrix(modelMatrix, mNormalMatrix, mNormalFloats);
+        setModelMatrix(modelMatrix, mNormalFloats);
+    }
+
+    /**
+     * Sets the model matrix together with a normal matrix that was already calculated for it. This avoids
+     * the inverse needed for the normal matrix when the model matrix did not change since the last draw.
+     *
+     * @param modelMatrix
+     * @param normalMatrix The 3x3 normal matrix, as calculated by
+     *                     {@link #calculateNormalMatrix(Matrix4, Matrix4, float[])}.
+     */
+    public void setModelMatrix(Matrix4 modelMatrix, float[] normalMatrix) {
         mModelMatrix = modelMatrix;//.getFloatValues();
         mVertexShader.setModelMatrix(mModelMatrix);
+        mVertexShader.setNormalMatrix(normalMatrix);
+    }
 
-        mNormalMatrix.setAll(modelMatrix);
+    /**
+     * Sets the single precision copy of the model matrix together with its normal matrix. Both are uploaded
+     * without conversion.
+     *
+     * @param modelMatrix
+     * @param normalMatrix The 3x3 normal matrix, as calculated by
+     *                     {@link #calculateNormalMatrix(Matrix4, Matrix4, float[])}.
+     */
+    public void setModelMatrix(Matrix4f modelMatrix, float[] normalMatrix) {
+        mModelMatrix = null;
+        mVertexShader.setModelMatrix(modelMatrix.getFloatValues());
+        mVertexShader.setNormalMatrix(normalMatrix);
+    }
+
+    /**
+     * Calculates the 3x3 normal matrix for a model matrix.
+     *
+     * @param modelMatrix   The model matrix.
+     * @param scratchMatrix A {@link Matrix4} to do the calculation in.
+     * @param normalMatrix  The float array of at least 9 elements to store the result in.
+     */
+    public static void calculateNormalMatrix(Matrix4 modelMatrix, Matrix4 scratchMatrix, float[] normalMatrix) {
+        calculateNormalMatrix(modelMatrix, modelMatrix.getTransformType(), scratchMatrix, normalMatrix);
+    }
+
+    /**
+     * Calculates the 3x3 normal matrix for a model matrix of a known class of transformation. Rigid and uniformly
+     * scaled model matrices don't need an inverse at all.
+     *
+     * @param modelMatrix   The model matrix.
+     * @param type          The class of transformation of the model matrix, as returned by
+     *                      {@link org.rajawali3d.ATransformable3D#getModelMatrixType()}.
+     * @param scratchMatrix A {@link Matrix4} to do the calculation in.
+     * @param normalMatrix  The float array of at least 9 elements to store the result in.
+     */
+    public static void calculateNormalMatrix(Matrix4 modelMatrix, Matrix4.TransformType type, Matrix4 scratchMatrix,
+                                             float[] normalMatrix) {
+        scratchMatrix.setAll(modelMatrix);
         try {
-            mNormalMatrix.setToNormalMatrix();
+            scratchMatrix.setToNormalMatrix(type);
         } catch (IllegalStateException exception) {
             RajLog.d("modelMatrix is degenerate (zero scale)...");
         }
-        float[] matrix = mNormalMatrix.getFloatValues();
+        float[] matrix = scratchMatrix.getFloatValues();
 
-        mNormalFloats[0] = matrix[0];
-        mNormalFloats[1] = matrix[1];
-        mNormalFloats[2] = matrix[2];
-        mNormalFloats[3] = matrix[4];
-        mNormalFloats[4] = matrix[5];
-        mNormalFloats[5] = matrix[6];
-        mNormalFloats[6] = matrix[8];
-        mNormalFloats[7] = matrix[9];
-        mNormalFloats[8] = matrix[10];
-
-        mVertexShader.setNormalMatrix(mNormalFloats);
+        normalMatrix[0] = matrix[0];
+        normalMatrix[1] = matrix[1];
+        normalMatrix[2] = matrix[2];
+        normalMatrix[3] = matrix[4];
+        normalMatrix[4] = matrix[5];
+        normalMatrix[5] = matrix[6];
+        normalMatrix[6] = matrix[8];
+        normalMatrix[7] = matrix[9];
+        normalMatrix[8] = matrix[10];
     }
 
     /**
@@ -1119,6 +1408,16 @@ public class Material {
         mVertexShader.setInverseViewMatrix(mInverseViewMatrix);
     }
 
+    /**
+     * Sets the single precision copy of the inverse view matrix, which is uploaded without conversion.
+     *
+     * @param inverseViewMatrix
+     */
+    public void setInverseViewMatrix(Matrix4f inverseViewMatrix) {
+        mInverseViewMatrix = inverseViewMatrix.getFloatValues();
+        mVertexShader.setInverseViewMatrix(mInverseViewMatrix);
+    }
+
     /**
      * Sets the model view matrix. The model view matrix is used to transform vertices to eye coordinates
      *
@@ -1129,6 +1428,16 @@ public class Material {
         mVertexShader.setModelViewMatrix(mModelViewMatrix);
     }
 
+    /**
+     * Sets the single precision copy of the model view matrix, which is uploaded without conversion.
+     *
+     * @param modelViewMatrix
+     */
+    public void setModelViewMatrix(Matrix4f modelViewMatrix) {
+        mModelViewMatrix = modelViewMatrix.getFloatValues();
+        mVertexShader.setModelViewMatrix(mModelViewMatrix);
+    }
+
     /**
      * Indicates whether lighting should be used or not. This must be set to true when using a
      * {@link DiffuseMethod} or a {@link SpecularMethod}. Lights are added to a scene {@link Scene}
@@ -1245,7 +1554,7 @@ public class Material {
                 }
             }
         } else {
-            mIsDirty = true;
+            markShadersDirty();
             mLights = lights;
         }
     }
@@ -1263,7 +1572,7 @@ public class Material {
     public void setDiffuseMethod(IDiffuseMethod diffuseMethod) {
         if (mDiffuseMethod == diffuseMethod) return;
         mDiffuseMethod = diffuseMethod;
-        mIsDirty = true;
+        markShadersDirty();
     }
 
     /**
@@ -1294,7 +1603,7 @@ public class Material {
     public void setSpecularMethod(ISpecularMethod specularMethod) {
         if (mSpecularMethod == specularMethod) return;
         mSpecularMethod = specularMethod;
-        mIsDirty = true;
+        markShadersDirty();
     }
 
     /**
@@ -1330,7 +1639,7 @@ public class Material {
         }
 
         mPlugins.add(plugin);
-        mIsDirty = true;
+        markShadersDirty();
     }
 
     /**
@@ -1369,7 +1678,7 @@ public class Material {
     public void removePlugin(IMaterialPlugin plugin) {
         if (mPlugins != null && mPlugins.contains(plugin)) {
             mPlugins.remove(plugin);
-            mIsDirty = true;
+            markShadersDirty();
         }
     }
 
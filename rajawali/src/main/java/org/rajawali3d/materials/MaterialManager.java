@@ -12,15 +12,70 @@
  */
 package org.rajawali3d.materials;
 
+import org.rajawali3d.renderer.GLStateCache;
 import org.rajawali3d.renderer.Renderer;
+import org.rajawali3d.renderer.gl.AGLBackend;
 
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.CopyOnWriteArrayList;
 
 public class MaterialManager extends AResourceManager {
 	private static MaterialManager instance = null;
 	private List<Material> mMaterialList;
+	/**
+	 * Linked programs by their vertex and fragment shader source, shared by all materials generating that source.
+	 */
+	private final Map<String, SharedProgram> mPrograms = new HashMap<>();
+
+	/**
+	 * A linked shader program which is shared by all materials with identical shader source. Locations are resolved
+	 * once per program and stored here; everything else a material sets is uploaded on each draw and stays per
+	 * material.
+	 */
+	public static final class SharedProgram {
+		private final String mKey;
+		private final int mProgramHandle;
+		private final int mVertexShaderHandle;
+		private final int mFragmentShaderHandle;
+		private final Map<String, Integer> mUniformLocations = new HashMap<>();
+		private final Map<String, Integer> mAttributeLocations = new HashMap<>();
+		private int mReferenceCount = 1;
+
+		private SharedProgram(String key, int programHandle, int vertexShaderHandle, int fragmentShaderHandle) {
+			mKey = key;
+			mProgramHandle = programHandle;
+			mVertexShaderHandle = vertexShaderHandle;
+			mFragmentShaderHandle = fragmentShaderHandle;
+		}
+
+		public int getProgramHandle() {
+			return mProgramHandle;
+		}
+
+		public int getVertexShaderHandle() {
+			return mVertexShaderHandle;
+		}
+
+		public int getFragmentShaderHandle() {
+			return mFragmentShaderHandle;
+		}
+
+		public Map<String, Integer> getUniformLocations() {
+			return mUniformLocations;
+		}
+
+		public Map<String, Integer> getAttributeLocations() {
+			return mAttributeLocations;
+		}
+
+		public int getReferenceCount() {
+			return mReferenceCount;
+		}
+	}
 
 	private MaterialManager() {
 		mMaterialList = Collections.synchronizedList(new CopyOnWriteArrayList<Material>());
@@ -40,7 +95,10 @@ public class MaterialManager extends AResourceManager {
 			if(mat == material)
 				return material;
 		}
-		mRenderer.addMaterial(material);
+		// Models may be loaded before a renderer exists. The material is still tracked so it is reloaded with the
+		// others, its shaders are created when it is first used.
+		if(mRenderer != null)
+			mRenderer.addMaterial(material);
 		mMaterialList.add(material);
 		return material;
 	}
@@ -65,6 +123,10 @@ public class MaterialManager extends AResourceManager {
 	}
 
 	public void taskReload() {
+		synchronized (mPrograms) {
+			// The context was lost along with all programs, materials link them again while reloading
+			mPrograms.clear();
+		}
 		for(Material material: mMaterialList) {
 			material.reload();
 		}
@@ -105,4 +167,89 @@ public class MaterialManager extends AResourceManager {
 	public int getMaterialCount() {
 		return mMaterialList.size();
 	}
+
+	/**
+	 * @return A snapshot of all registered materials.
+	 */
+	public List<Material> getMaterials() {
+		return new ArrayList<>(mMaterialList);
+	}
+
+	/**
+	 * Looks up an already linked program for the provided shader source and adds a reference to it. This should
+	 * only be called on the GL thread.
+	 *
+	 * @param vertexSource The final vertex shader source
+	 * @param fragmentSource The final fragment shader source
+	 * @return The shared program, or null if a program has to be linked and registered with
+	 * {@link #registerProgram(String, String, int, int, int)}
+	 */
+	public SharedProgram acquireProgram(String vertexSource, String fragmentSource) {
+		synchronized (mPrograms) {
+			SharedProgram program = mPrograms.get(getProgramKey(vertexSource, fragmentSource));
+			if (program != null) {
+				++program.mReferenceCount;
+			}
+			return program;
+		}
+	}
+
+	/**
+	 * Registers a newly linked program so materials with the same shader source can share it. The returned program
+	 * holds one reference for the caller.
+	 *
+	 * @param vertexSource The final vertex shader source
+	 * @param fragmentSource The final fragment shader source
+	 * @param programHandle The linked program
+	 * @param vertexShaderHandle The vertex shader attached to the program, 0 if it was loaded from a binary
+	 * @param fragmentShaderHandle The fragment shader attached to the program, 0 if it was loaded from a binary
+	 * @return The shared program
+	 */
+	public SharedProgram registerProgram(String vertexSource, String fragmentSource, int programHandle,
+										 int vertexShaderHandle, int fragmentShaderHandle) {
+		final String key = getProgramKey(vertexSource, fragmentSource);
+		final SharedProgram program = new SharedProgram(key, programHandle, vertexShaderHandle, fragmentShaderHandle);
+		synchronized (mPrograms) {
+			mPrograms.put(key, program);
+		}
+		return program;
+	}
+
+	/**
+	 * Removes a reference to a shared program. The program and its shaders are deleted once no material uses them
+	 * anymore. This should only be called on the GL thread.
+	 *
+	 * @param program The program to release
+	 */
+	public void releaseProgram(SharedProgram program) {
+		synchronized (mPrograms) {
+			if (--program.mReferenceCount > 0) {
+				return;
+			}
+			// Only remove it if the registry still knows it, it may have been replaced after a context loss
+			if (mPrograms.get(program.mKey) == program) {
+				mPrograms.remove(program.mKey);
+			}
+		}
+		if (Renderer.hasGLContext()) {
+			final AGLBackend gl = AGLBackend.getCurrent();
+			gl.glDeleteShader(program.mVertexShaderHandle);
+			gl.glDeleteShader(program.mFragmentShaderHandle);
+			gl.glDeleteProgram(program.mProgramHandle);
+			GLStateCache.getCurrent().forgetProgram(program.mProgramHandle);
+		}
+	}
+
+	/**
+	 * @return The number of distinct linked programs currently in use.
+	 */
+	public int getProgramCount() {
+		synchronized (mPrograms) {
+			return mPrograms.size();
+		}
+	}
+
+	private static String getProgramKey(String vertexSource, String fragmentSource) {
+		return vertexSource + '\0' + fragmentSource;
+	}
 }
@@ -0,0 +1,437 @@
+/**
+ * Copyright 2013 Dennis Ippel
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.rajawali3d.materials;
+
+import android.opengl.GLES20;
+import android.opengl.GLES30;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import org.rajawali3d.renderer.gl.AGLBackend;
+import org.rajawali3d.util.RajLog;
+
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Stores linked shader programs on disk so they don't have to be compiled again on the next start. Programs are
+ * keyed by a hash of their vertex and fragment shader source, combined with the GL renderer and version strings so
+ * a driver update never loads a binary it didn't create.
+ *
+ * Program binaries are only available through the Java bindings on OpenGL ES 3.0 and up. The
+ * {@code GL_OES_get_program_binary} extension has no Java binding in the Android SDK, so on OpenGL ES 2.0 devices
+ * every lookup is a miss and programs are compiled from source as before. Binaries the driver rejects, and files
+ * which can't be read, are deleted and the caller falls back to compiling the source.
+ *
+ * Binaries are retrieved on the GL thread, hashing their key and writing them to disk happens on a background
+ * thread. Files are written under a temporary name and renamed once complete, so a load never sees a partial file.
+ *
+ * All methods which take or return program handles, and {@link #isSupported()}, must be called on the GL thread.
+ */
+public final class ProgramBinaryCache {
+
+    private static final String TAG = "ProgramBinaryCache";
+    private static final String FILE_EXTENSION = ".bin";
+    private static final String TEMPORARY_FILE_EXTENSION = ".tmp";
+    private static final int FILE_VERSION = 1;
+    // The version, format and length fields in front of the binary
+    private static final int HEADER_SIZE = 12;
+
+    private static ProgramBinaryCache instance = null;
+
+    private File mCacheDirectory;
+    private boolean mEnabled = true;
+    private Executor mWriteExecutor;
+    private String mDriverIdentity;
+    private int mGLESMajorVersion;
+
+    private int mHits;
+    private int mMisses;
+    private int mRejected;
+    private final AtomicInteger mStored = new AtomicInteger();
+
+    private ProgramBinaryCache() {
+    }
+
+    public static ProgramBinaryCache getInstance() {
+        if (instance == null) {
+            instance = new ProgramBinaryCache();
+        }
+        return instance;
+    }
+
+    /**
+     * Sets the directory the binaries are stored in. The {@link org.rajawali3d.renderer.Renderer} sets this to a
+     * folder in the application's cache directory unless a directory was set already.
+     *
+     * @param directory {@link File} The directory, or null to disable the disk cache.
+     */
+    public void setCacheDirectory(@Nullable File directory) {
+        mCacheDirectory = directory;
+    }
+
+    @Nullable
+    public File getCacheDirectory() {
+        return mCacheDirectory;
+    }
+
+    /**
+     * Enables or disables the cache. When disabled, programs are always compiled from source.
+     *
+     * @param enabled {@code boolean} Whether or not to use the cache.
+     */
+    public void setEnabled(boolean enabled) {
+        mEnabled = enabled;
+    }
+
+    public boolean isEnabled() {
+        return mEnabled;
+    }
+
+    /**
+     * Sets the executor the binaries are written to disk on. By default a single background thread is used.
+     *
+     * @param executor {@link Executor} The executor, or null to use the default one.
+     */
+    public void setWriteExecutor(@Nullable Executor executor) {
+        mWriteExecutor = executor;
+    }
+
+    /**
+     * Forgets the driver of the previous context. Called by the {@link org.rajawali3d.renderer.Renderer} whenever its
+     * context is created, the new one may be backed by another driver or OpenGL ES version.
+     */
+    public void onContextCreated() {
+        mDriverIdentity = null;
+        mGLESMajorVersion = 0;
+    }
+
+    /**
+     * Checks whether binaries can be loaded and stored on this device with the current configuration.
+     *
+     * @return {@code boolean} True if the cache can be used.
+     */
+    public boolean isSupported() {
+        return mEnabled && mCacheDirectory != null && getDriverIdentity() != null && mGLESMajorVersion >= 3;
+    }
+
+    /**
+     * Tries to create a program from a previously stored binary.
+     *
+     * @param vertexSource   {@link String} The final vertex shader source.
+     * @param fragmentSource {@link String} The final fragment shader source.
+     *
+     * @return {@code int} The linked program handle, or 0 if there was no usable binary.
+     */
+    public int loadProgram(@NonNull String vertexSource, @NonNull String fragmentSource) {
+        if (!isSupported()) {
+            ++mMisses;
+            return 0;
+        }
+
+        final File file = getFile(vertexSource, fragmentSource);
+        if (file == null || !file.exists()) {
+            ++mMisses;
+            return 0;
+        }
+
+        final int format;
+        final byte[] binary;
+        DataInputStream stream = null;
+        try {
+            stream = new DataInputStream(new FileInputStream(file));
+            if (stream.readInt() != FILE_VERSION) {
+                throw new IOException("Unknown file version");
+            }
+            format = stream.readInt();
+            final int length = stream.readInt();
+            // A damaged length must not turn into a huge or negative allocation
+            if (length <= 0 || length > file.length() - HEADER_SIZE) {
+                throw new IOException("Invalid binary length " + length);
+            }
+            binary = new byte[length];
+            stream.readFully(binary);
+        } catch (IOException e) {
+            RajLog.w(TAG + ": Discarding unreadable program binary " + file.getName() + ": " + e.getMessage());
+            deleteFile(file);
+            ++mMisses;
+            return 0;
+        } finally {
+            close(stream);
+        }
+
+        final ByteBuffer buffer = ByteBuffer.allocateDirect(binary.length).order(ByteOrder.nativeOrder());
+        buffer.put(binary).position(0);
+
+        final AGLBackend gl = AGLBackend.getCurrent();
+        final int program = gl.glCreateProgram();
+        if (program == 0) {
+            ++mMisses;
+            return 0;
+        }
+        gl.glProgramBinary(program, format, buffer, binary.length);
+
+        final int[] linkStatus = new int[1];
+        gl.glGetProgramiv(program, GLES20.GL_LINK_STATUS, linkStatus, 0);
+        if (linkStatus[0] != GLES20.GL_TRUE) {
+            // The driver no longer accepts this binary, the caller compiles the source instead
+            RajLog.w(TAG + ": Program binary " + file.getName() + " was rejected by the driver.");
+            gl.glDeleteProgram(program);
+            deleteFile(file);
+            ++mRejected;
+            ++mMisses;
+            return 0;
+        }
+
+        ++mHits;
+        return program;
+    }
+
+    /**
+     * Prepares a program, which is about to be linked, to have its binary retrieved afterwards.
+     *
+     * @param program {@code int} The program handle.
+     */
+    public void prepareForLink(int program) {
+        if (isSupported()) {
+            AGLBackend.getCurrent().glProgramParameteri(program, GLES30.GL_PROGRAM_BINARY_RETRIEVABLE_HINT,
+                    GLES20.GL_TRUE);
+        }
+    }
+
+    /**
+     * Stores the binary of a successfully linked program. The binary is retrieved right away, it is written to disk
+     * in the background.
+     *
+     * @param program        {@code int} The linked program handle.
+     * @param vertexSource   {@link String} The final vertex shader source.
+     * @param fragmentSource {@link String} The final fragment shader source.
+     */
+    public void storeProgram(int program, @NonNull final String vertexSource,
+                             @NonNull final String fragmentSource) {
+        if (!isSupported()) {
+            return;
+        }
+
+        final AGLBackend gl = AGLBackend.getCurrent();
+        final int[] values = new int[1];
+        gl.glGetProgramiv(program, GLES20.GL_LINK_STATUS, values, 0);
+        if (values[0] != GLES20.GL_TRUE) {
+            return;
+        }
+        gl.glGetProgramiv(program, GLES30.GL_PROGRAM_BINARY_LENGTH, values, 0);
+        final int length = values[0];
+        if (length <= 0) {
+            return;
+        }
+
+        final ByteBuffer buffer = ByteBuffer.allocateDirect(length).order(ByteOrder.nativeOrder());
+        final IntBuffer writtenLength = IntBuffer.allocate(1);
+        final IntBuffer format = IntBuffer.allocate(1);
+        gl.glGetProgramBinary(program, length, writtenLength, format, buffer);
+        if (writtenLength.get(0) <= 0 || writtenLength.get(0) > length) {
+            return;
+        }
+
+        final byte[] binary = new byte[writtenLength.get(0)];
+        buffer.position(0);
+        buffer.get(binary);
+
+        final File directory = mCacheDirectory;
+        final String driverIdentity = mDriverIdentity;
+        final int binaryFormat = format.get(0);
+        getWriteExecutor().execute(new Runnable() {
+            @Override
+            public void run() {
+                writeFile(directory, driverIdentity, vertexSource, fragmentSource, binaryFormat, binary);
+            }
+        });
+    }
+
+    /**
+     * Deletes all stored binaries.
+     */
+    public void clear() {
+        if (mCacheDirectory == null) return;
+        final File[] files = mCacheDirectory.listFiles();
+        if (files == null) return;
+        for (File file : files) {
+            if (file.getName().endsWith(FILE_EXTENSION) || file.getName().endsWith(TEMPORARY_FILE_EXTENSION)) {
+                deleteFile(file);
+            }
+        }
+    }
+
+    /**
+     * @return {@code int} The number of programs which were loaded from a binary.
+     */
+    public int getHitCount() {
+        return mHits;
+    }
+
+    /**
+     * @return {@code int} The number of programs for which no usable binary was available, including rejected ones.
+     */
+    public int getMissCount() {
+        return mMisses;
+    }
+
+    /**
+     * @return {@code int} The number of binaries which were rejected by the driver.
+     */
+    public int getRejectedCount() {
+        return mRejected;
+    }
+
+    /**
+     * @return {@code int} The number of binaries which were written to disk.
+     */
+    public int getStoredCount() {
+        return mStored.get();
+    }
+
+    /**
+     * Resets the hit, miss, rejected and stored counters.
+     */
+    public void resetStatistics() {
+        mHits = 0;
+        mMisses = 0;
+        mRejected = 0;
+        mStored.set(0);
+    }
+
+    @Nullable
+    private String getDriverIdentity() {
+        if (mDriverIdentity == null) {
+            final AGLBackend gl = AGLBackend.getCurrent();
+            final String renderer = gl.glGetString(GLES20.GL_RENDERER);
+            final String version = gl.glGetString(GLES20.GL_VERSION);
+            if (renderer == null || version == null) {
+                // There is no current context
+                return null;
+            }
+            mDriverIdentity = renderer + "|" + version;
+            mGLESMajorVersion = parseMajorVersion(version);
+        }
+        return mDriverIdentity;
+    }
+
+    @NonNull
+    private Executor getWriteExecutor() {
+        if (mWriteExecutor == null) {
+            mWriteExecutor = Executors.newSingleThreadExecutor();
+        }
+        return mWriteExecutor;
+    }
+
+    private void writeFile(@NonNull File directory, @NonNull String driverIdentity, @NonNull String vertexSource,
+                           @NonNull String fragmentSource, int format, @NonNull byte[] binary) {
+        final File file = getFile(directory, driverIdentity, vertexSource, fragmentSource);
+        if (file == null || (!directory.exists() && !directory.mkdirs())) {
+            return;
+        }
+
+        final File temporaryFile = new File(directory, file.getName() + TEMPORARY_FILE_EXTENSION);
+        DataOutputStream stream = null;
+        try {
+            stream = new DataOutputStream(new FileOutputStream(temporaryFile));
+            stream.writeInt(FILE_VERSION);
+            stream.writeInt(format);
+            stream.writeInt(binary.length);
+            stream.write(binary);
+            stream.close();
+            stream = null;
+            if (!temporaryFile.renameTo(file)) {
+                throw new IOException("Could not rename " + temporaryFile.getName());
+            }
+            mStored.incrementAndGet();
+        } catch (IOException e) {
+            RajLog.w(TAG + ": Could not store program binary " + file.getName() + ": " + e.getMessage());
+        } finally {
+            close(stream);
+            deleteFile(temporaryFile);
+        }
+    }
+
+    @Nullable
+    private File getFile(@NonNull String vertexSource, @NonNull String fragmentSource) {
+        final String driverIdentity = getDriverIdentity();
+        return driverIdentity == null ? null : getFile(mCacheDirectory, driverIdentity, vertexSource, fragmentSource);
+    }
+
+    @Nullable
+    private static File getFile(@NonNull File directory, @NonNull String driverIdentity, @NonNull String vertexSource,
+                                @NonNull String fragmentSource) {
+        try {
+            final MessageDigest digest = MessageDigest.getInstance("SHA-1");
+            digest.update(driverIdentity.getBytes("UTF-8"));
+            digest.update((byte) 0);
+            digest.update(vertexSource.getBytes("UTF-8"));
+            digest.update((byte) 0);
+            digest.update(fragmentSource.getBytes("UTF-8"));
+            final byte[] hash = digest.digest();
+            final StringBuilder name = new StringBuilder(hash.length * 2 + FILE_EXTENSION.length());
+            for (byte b : hash) {
+                name.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            }
+            name.append(FILE_EXTENSION);
+            return new File(directory, name.toString());
+        } catch (NoSuchAlgorithmException e) {
+            RajLog.e(TAG + ": " + e.getMessage());
+        } catch (UnsupportedEncodingException e) {
+            RajLog.e(TAG + ": " + e.getMessage());
+        }
+        return null;
+    }
+
+    private static int parseMajorVersion(@NonNull String version) {
+        // The version string is "OpenGL ES <major>.<minor> <vendor specific information>"
+        final String[] parts = version.split(" ");
+        if (parts.length < 3) {
+            return 0;
+        }
+        final int dot = parts[2].indexOf('.');
+        try {
+            return Integer.parseInt(dot < 0 ? parts[2] : parts[2].substring(0, dot));
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    private static void deleteFile(@NonNull File file) {
+        if (file.exists() && !file.delete()) {
+            RajLog.w(TAG + ": Could not delete " + file.getName());
+        }
+    }
+
+    private static void close(@Nullable Closeable closeable) {
+        if (closeable == null) return;
+        try {
+            closeable.close();
+        } catch (IOException ignored) {
+        }
+    }
+}
@@ -12,14 +12,16 @@
  */
 package org.rajawali3d.materials.shaders;
 
-import android.opengl.GLES20;
+import org.rajawali3d.renderer.gl.AGLBackend;
 import org.rajawali3d.util.RajLog;
 import org.rajawali3d.util.RawShaderLoader;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.Hashtable;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
 
@@ -165,6 +167,13 @@ public abstract class AShader extends AShaderBase {
 	protected List<IShaderFragment> mShaderFragments;
 	protected int mProgramHandle;
 	protected boolean mNeedsBuild = true;
+	/**
+	 * Uniform and attribute locations looked up by name, valid for {@link #mLocationsProgram} only. These may be
+	 * shared with other shaders using the same program, see {@link #setLocationCache(int, Map, Map)}.
+	 */
+	private Map<String, Integer> mUniformLocations = new HashMap<>();
+	private Map<String, Integer> mAttributeLocations = new HashMap<>();
+	private int mLocationsProgram;
 
 	public AShader() {}
 
@@ -288,26 +297,92 @@ public abstract class AShader extends AShaderBase {
 
 	public void setUniform1f(String name, float value)
 	{
-		int handle = getUniformLocation(mProgramHandle, name);
-		GLES20.glUniform1f(handle, value);
+		setUniform1f(getUniformLocation(mProgramHandle, name), value);
 	}
 
 	public void setUniform2fv(String name, float[] value)
 	{
-		int handle = getUniformLocation(mProgramHandle, name);
-		GLES20.glUniform2fv(handle, 1, value, 0);
+		setUniform2fv(getUniformLocation(mProgramHandle, name), value);
 	}
 
 	public void setUniform3fv(String name, float[] value)
 	{
-		int handle = getUniformLocation(mProgramHandle, name);
-		GLES20.glUniform3fv(handle, 1, value, 0);
+		setUniform3fv(getUniformLocation(mProgramHandle, name), value);
 	}
 
 	public void setUniform1i(String name, int value)
 	{
-		int handle = getUniformLocation(mProgramHandle, name);
-		GLES20.glUniform1i(handle, value);
+		setUniform1i(getUniformLocation(mProgramHandle, name), value);
+	}
+
+	/*
+	 * The handle based setters below are meant for locations that were resolved once in
+	 * setLocations(), so no string lookups are needed while drawing.
+	 */
+
+	public void setUniform1f(int handle, float value)
+	{
+		AGLBackend.getCurrent().glUniform1f(handle, value);
+	}
+
+	public void setUniform2fv(int handle, float[] value)
+	{
+		AGLBackend.getCurrent().glUniform2fv(handle, 1, value, 0);
+	}
+
+	public void setUniform3fv(int handle, float[] value)
+	{
+		AGLBackend.getCurrent().glUniform3fv(handle, 1, value, 0);
+	}
+
+	public void setUniform4fv(int handle, float[] value)
+	{
+		AGLBackend.getCurrent().glUniform4fv(handle, 1, value, 0);
+	}
+
+	public void setUniform1i(int handle, int value)
+	{
+		AGLBackend.getCurrent().glUniform1i(handle, value);
+	}
+
+	/**
+	 * Resolves the location of a uniform in the current program. Intended to be called from
+	 * {@link #setLocations(int)} so that the returned handle can be passed to the handle based setters.
+	 *
+	 * @param name The name of the uniform
+	 * @return The location of the uniform, or -1 if it is not an active uniform
+	 */
+	public int getUniformHandle(String name)
+	{
+		return getUniformLocation(mProgramHandle, name);
+	}
+
+	/**
+	 * Discards the cached uniform and attribute locations. This must be called whenever the program this
+	 * shader is part of is (re)linked, as program handles may be reused by GL.
+	 */
+	public void invalidateUniformLocations()
+	{
+		// New maps, the old ones may be shared with other shaders
+		mUniformLocations = new HashMap<>();
+		mAttributeLocations = new HashMap<>();
+		mLocationsProgram = 0;
+	}
+
+	/**
+	 * Makes this shader use location maps shared by all shaders of a program, so each location is only looked up
+	 * once per program instead of once per shader instance.
+	 *
+	 * @param programHandle The program the locations belong to
+	 * @param uniformLocations The shared uniform locations
+	 * @param attributeLocations The shared attribute locations
+	 */
+	public void setLocationCache(int programHandle, Map<String, Integer> uniformLocations,
+								 Map<String, Integer> attributeLocations)
+	{
+		mUniformLocations = uniformLocations;
+		mAttributeLocations = attributeLocations;
+		mLocationsProgram = programHandle;
 	}
 
 	/**
@@ -584,8 +659,17 @@ public abstract class AShader extends AShaderBase {
 	}
 
 	protected int getUniformLocation(int programHandle, String name) {
-		int result = GLES20.glGetUniformLocation(programHandle, name);
+		if (programHandle != mLocationsProgram) {
+			invalidateUniformLocations();
+			mLocationsProgram = programHandle;
+		}
+		Integer cached = mUniformLocations.get(name);
+		if (cached != null) {
+			return cached;
+		}
+		int result = AGLBackend.getCurrent().glGetUniformLocation(programHandle, name);
         if (result < 0 && RajLog.isDebugEnabled()) RajLog.e("Getting location of uniform: " + name + " returned -1!");
+		mUniformLocations.put(name, result);
 		return result;
 	}
 
@@ -598,7 +682,16 @@ public abstract class AShader extends AShaderBase {
 	}
 
 	protected int getAttribLocation(int programHandle, String name) {
-		int result = GLES20.glGetAttribLocation(programHandle, name);
+		if (programHandle != mLocationsProgram) {
+			invalidateUniformLocations();
+			mLocationsProgram = programHandle;
+		}
+		Integer cached = mAttributeLocations.get(name);
+		if (cached != null) {
+			return cached;
+		}
+		int result = AGLBackend.getCurrent().glGetAttribLocation(programHandle, name);
+		mAttributeLocations.put(name, result);
 		return result;
 	}
 
@@ -977,6 +1070,20 @@ public abstract class AShader extends AShaderBase {
 		return s;
 	}
 
+	public ShaderVar cross(ShaderVar var1, ShaderVar var2)
+	{
+		ShaderVar s = new ShaderVar("cross(" + var1.getName() + ", " + var2.getName() + ")", DataType.VEC3);
+		s.mInitialized = true;
+		return s;
+	}
+
+	public ShaderVar sign(ShaderVar var)
+	{
+		ShaderVar s = new ShaderVar("sign(" + var.getName() + ")", DataType.FLOAT);
+		s.mInitialized = true;
+		return s;
+	}
+
 	public ShaderVar cos(ShaderVar var)
 	{
 		ShaderVar s = new ShaderVar("cos(" + var.getName() + ")", DataType.FLOAT);
@@ -1293,6 +1400,14 @@ public abstract class AShader extends AShaderBase {
 		return v;
 	}
 
+	public ShaderVar castMat3(ShaderVar column0, ShaderVar column1, ShaderVar column2)
+	{
+		ShaderVar v = new ShaderVar("mat3(" + column0.getName() + ", " + column1.getName() + ", "
+				+ column2.getName() + ")", DataType.MAT3);
+		v.mInitialized = true;
+		return v;
+	}
+
 	public ShaderVar castMat4(float value)
 	{
 		return castMat4(new RFloat(Float.toString(value)));
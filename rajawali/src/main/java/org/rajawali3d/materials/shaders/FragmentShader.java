@@ -12,9 +12,8 @@
  */
 package org.rajawali3d.materials.shaders;
 
-import android.opengl.GLES20;
-
 import org.rajawali3d.lights.ALight;
+import org.rajawali3d.renderer.gl.AGLBackend;
 
 import java.util.List;
 
@@ -112,7 +111,7 @@ public class FragmentShader extends AShader {
 	public void applyParams() {
 		super.applyParams();
 
-		GLES20.glUniform1f(muColorInfluenceHandle, mColorInfluence);
+		AGLBackend.getCurrent().glUniform1f(muColorInfluenceHandle, mColorInfluence);
 	}
 
 	@Override
@@ -19,6 +19,7 @@ import org.rajawali3d.materials.Material.PluginInsertLocation;
 import org.rajawali3d.materials.plugins.SkeletalAnimationMaterialPlugin.SkeletalAnimationShaderVar;
 import org.rajawali3d.materials.shaders.fragments.animation.SkeletalAnimationVertexShaderFragment;
 import org.rajawali3d.math.Matrix4;
+import org.rajawali3d.renderer.gl.AGLBackend;
 
 import java.util.List;
 
@@ -36,6 +37,10 @@ public class VertexShader extends AShader {
     private RVec3 maNormal;
     private RVec4 maPosition;
     private RVec4 maVertexColor;
+    private RMat4 maInstanceModelMatrix;
+    private RVec4 maInstanceColor;
+    @SuppressWarnings("unused")
+    private RVec4 maInstanceData;
 
     private RVec2 mvTextureCoord;
     private RVec3 mvCubeTextureCoord;
@@ -62,6 +67,9 @@ public class VertexShader extends AShader {
     private int maNormalHandle;
     private int maPositionHandle;
     private int maVertexColorBufferHandle;
+    private int maInstanceModelMatrixHandle;
+    private int maInstanceColorHandle;
+    private int maInstanceDataHandle;
 
     private float[] mColor = new float[]{ 1, 0, 0, 1 };
     private float        mTime;
@@ -71,6 +79,7 @@ public class VertexShader extends AShader {
     private boolean      mHasSkyTexture;
     private boolean      mUseVertexColors;
     private boolean      mTimeEnabled;
+    private boolean      mUseInstancing;
 
     public VertexShader() {
         super(ShaderType.VERTEX);
@@ -112,6 +121,11 @@ public class VertexShader extends AShader {
         if (mUseVertexColors) {
             maVertexColor = (RVec4) addAttribute(DefaultShaderVar.A_VERTEX_COLOR);
         }
+        if (mUseInstancing) {
+            maInstanceModelMatrix = (RMat4) addAttribute(DefaultShaderVar.A_INSTANCE_MODEL_MATRIX);
+            maInstanceColor = (RVec4) addAttribute(DefaultShaderVar.A_INSTANCE_COLOR);
+            maInstanceData = (RVec4) addAttribute(DefaultShaderVar.A_INSTANCE_DATA);
+        }
 
         // -- varyings
 
@@ -141,6 +155,25 @@ public class VertexShader extends AShader {
         } else {
             mgColor.assign(muColor);
         }
+        if (mUseInstancing) {
+            // Instance transforms are applied in object space, before the model matrix of the object itself.
+            mgPosition.assign(maInstanceModelMatrix.multiply(mgPosition));
+            // Normals need the inverse transpose of the instance rotation and scale, which is its cofactor matrix
+            // divided by the determinant. The normal is normalized after the model transform, so dividing by the
+            // sign of the determinant is enough, it flips the normals of mirrored instances back.
+            RVec3 instanceX = new RVec3("instanceX");
+            RVec3 instanceY = new RVec3("instanceY");
+            RVec3 instanceZ = new RVec3("instanceZ");
+            RMat3 instanceNormalMatrix = new RMat3("instanceNormalMatrix");
+            instanceX.assign(castVec3(maInstanceModelMatrix.elementAt(0)));
+            instanceY.assign(castVec3(maInstanceModelMatrix.elementAt(1)));
+            instanceZ.assign(castVec3(maInstanceModelMatrix.elementAt(2)));
+            instanceNormalMatrix.assign(castMat3(cross(instanceY, instanceZ), cross(instanceZ, instanceX),
+                    cross(instanceX, instanceY)));
+            mgNormal.assign(instanceNormalMatrix.multiply(mgNormal));
+            mgNormal.assignMultiply(sign(dot(instanceX, cross(instanceY, instanceZ))));
+            mgColor.assignMultiply(maInstanceColor);
+        }
 
         // -- do fragment stuff
         boolean hasSkeletalAnimation = false;
@@ -187,9 +220,10 @@ public class VertexShader extends AShader {
 
     @Override
     public void applyParams() {
+        final AGLBackend gl = AGLBackend.getCurrent();
         super.applyParams();
-        GLES20.glUniform4fv(muColorHandle, 1, mColor, 0);
-        GLES20.glUniform1f(muTimeHandle, mTime);
+        gl.glUniform4fv(muColorHandle, 1, mColor, 0);
+        gl.glUniform1f(muTimeHandle, mTime);
     }
 
     @Override
@@ -200,6 +234,11 @@ public class VertexShader extends AShader {
         if (mUseVertexColors) {
             maVertexColorBufferHandle = getAttribLocation(programHandle, DefaultShaderVar.A_VERTEX_COLOR);
         }
+        if (mUseInstancing) {
+            maInstanceModelMatrixHandle = getAttribLocation(programHandle, DefaultShaderVar.A_INSTANCE_MODEL_MATRIX);
+            maInstanceColorHandle = getAttribLocation(programHandle, DefaultShaderVar.A_INSTANCE_COLOR);
+            maInstanceDataHandle = getAttribLocation(programHandle, DefaultShaderVar.A_INSTANCE_DATA);
+        }
 
         muMVPMatrixHandle = getUniformLocation(programHandle, DefaultShaderVar.U_MVP_MATRIX);
         muNormalMatrixHandle = getUniformLocation(programHandle, DefaultShaderVar.U_NORMAL_MATRIX);
@@ -217,9 +256,10 @@ public class VertexShader extends AShader {
     }
 
     public void setVertices(final int vertexBufferHandle, final int type, final int stride, final int offset) {
-        GLES20.glBindBuffer(GLES20.GL_ARRAY_BUFFER, vertexBufferHandle);
-        GLES20.glEnableVertexAttribArray(maPositionHandle);
-        GLES20.glVertexAttribPointer(maPositionHandle, 3, type, false, stride, offset);
+        final AGLBackend gl = AGLBackend.getCurrent();
+        gl.glBindBuffer(GLES20.GL_ARRAY_BUFFER, vertexBufferHandle);
+        gl.glEnableVertexAttribArray(maPositionHandle);
+        gl.glVertexAttribPointer(maPositionHandle, 3, type, false, stride, offset);
     }
 
     public void setTextureCoords(final int textureCoordBufferHandle) {
@@ -228,12 +268,13 @@ public class VertexShader extends AShader {
 
     public void setTextureCoords(final int textureCoordBufferHandle, final int type, final int stride,
                                  final int offset) {
+        final AGLBackend gl = AGLBackend.getCurrent();
         if (maTextureCoordHandle < 0) {
             return;
         }
-        GLES20.glBindBuffer(GLES20.GL_ARRAY_BUFFER, textureCoordBufferHandle);
-        GLES20.glEnableVertexAttribArray(maTextureCoordHandle);
-        GLES20.glVertexAttribPointer(maTextureCoordHandle, 2, type, false, stride, offset);
+        gl.glBindBuffer(GLES20.GL_ARRAY_BUFFER, textureCoordBufferHandle);
+        gl.glEnableVertexAttribArray(maTextureCoordHandle);
+        gl.glVertexAttribPointer(maTextureCoordHandle, 2, type, false, stride, offset);
     }
 
     public void setNormals(final int normalBufferHandle) {
@@ -241,12 +282,13 @@ public class VertexShader extends AShader {
     }
 
     public void setNormals(final int normalBufferHandle, final int type, final int stride, final int offset) {
+        final AGLBackend gl = AGLBackend.getCurrent();
         if (maNormalHandle < 0) {
             return;
         }
-        GLES20.glBindBuffer(GLES20.GL_ARRAY_BUFFER, normalBufferHandle);
-        GLES20.glEnableVertexAttribArray(maNormalHandle);
-        GLES20.glVertexAttribPointer(maNormalHandle, 3, type, false, stride, offset);
+        gl.glBindBuffer(GLES20.GL_ARRAY_BUFFER, normalBufferHandle);
+        gl.glEnableVertexAttribArray(maNormalHandle);
+        gl.glVertexAttribPointer(maNormalHandle, 3, type, false, stride, offset);
     }
 
     public void setVertexColors(final int vertexColorBufferHandle) {
@@ -254,32 +296,118 @@ public class VertexShader extends AShader {
     }
 
     public void setVertexColors(final int vertexColorBufferHandle, final int type, final int stride, final int offset) {
+        final AGLBackend gl = AGLBackend.getCurrent();
         if (maVertexColorBufferHandle < 0) {
             return;
         }
-        GLES20.glBindBuffer(GLES20.GL_ARRAY_BUFFER, vertexColorBufferHandle);
-        GLES20.glEnableVertexAttribArray(maVertexColorBufferHandle);
-        GLES20.glVertexAttribPointer(maVertexColorBufferHandle, 4, type, false, stride, offset);
+        gl.glBindBuffer(GLES20.GL_ARRAY_BUFFER, vertexColorBufferHandle);
+        gl.glEnableVertexAttribArray(maVertexColorBufferHandle);
+        gl.glVertexAttribPointer(maVertexColorBufferHandle, 4, type, false, stride, offset);
+    }
+
+    /**
+     * Sources the per instance attributes from an interleaved buffer with one element per instance. Each element
+     * holds the 16 floats of the column major instance model matrix, followed by the 4 color floats and the 4 custom
+     * data floats. Requires OpenGL ES 3.0, call {@link #unsetInstanceAttributes()} after drawing.
+     *
+     * @param instanceBufferHandle {@code int} Handle of the buffer holding the instance data.
+     * @param stride               {@code int} Size of one instance element in bytes.
+     */
+    public void setInstanceAttributes(final int instanceBufferHandle, final int stride) {
+        if (maInstanceModelMatrixHandle < 0) {
+            return;
+        }
+        AGLBackend.getCurrent().glBindBuffer(GLES20.GL_ARRAY_BUFFER, instanceBufferHandle);
+        for (int i = 0; i < 4; ++i) {
+            // A mat4 attribute occupies four consecutive locations, one per column
+            setInstanceAttribute(maInstanceModelMatrixHandle + i, stride, i * 16);
+        }
+        setInstanceAttribute(maInstanceColorHandle, stride, 64);
+        setInstanceAttribute(maInstanceDataHandle, stride, 80);
+    }
+
+    /**
+     * Resets the per instance attributes set by {@link #setInstanceAttributes(int, int)}. The attribute divisors are
+     * context state and would otherwise affect the attributes of the next program using the same locations.
+     */
+    public void unsetInstanceAttributes() {
+        if (maInstanceModelMatrixHandle < 0) {
+            return;
+        }
+        for (int i = 0; i < 4; ++i) {
+            unsetInstanceAttribute(maInstanceModelMatrixHandle + i);
+        }
+        unsetInstanceAttribute(maInstanceColorHandle);
+        unsetInstanceAttribute(maInstanceDataHandle);
+    }
+
+    /**
+     * Sets the per instance attributes to constant values for the next draw call. This is used to draw instances one
+     * at a time when hardware instancing is not available.
+     *
+     * @param instanceData {@code float[]} The instance data, laid out as for {@link #setInstanceAttributes(int, int)}.
+     * @param offset       {@code int} Offset of the instance in the array.
+     */
+    public void setInstanceValues(final float[] instanceData, final int offset) {
+        final AGLBackend gl = AGLBackend.getCurrent();
+        if (maInstanceModelMatrixHandle < 0) {
+            return;
+        }
+        for (int i = 0; i < 4; ++i) {
+            gl.glDisableVertexAttribArray(maInstanceModelMatrixHandle + i);
+            gl.glVertexAttrib4fv(maInstanceModelMatrixHandle + i, instanceData, offset + i * 4);
+        }
+        if (maInstanceColorHandle >= 0) {
+            gl.glDisableVertexAttribArray(maInstanceColorHandle);
+            gl.glVertexAttrib4fv(maInstanceColorHandle, instanceData, offset + 16);
+        }
+        if (maInstanceDataHandle >= 0) {
+            gl.glDisableVertexAttribArray(maInstanceDataHandle);
+            gl.glVertexAttrib4fv(maInstanceDataHandle, instanceData, offset + 20);
+        }
+    }
+
+    private static void setInstanceAttribute(final int handle, final int stride, final int offset) {
+        final AGLBackend gl = AGLBackend.getCurrent();
+        if (handle < 0) {
+            return;
+        }
+        gl.glEnableVertexAttribArray(handle);
+        gl.glVertexAttribPointer(handle, 4, GLES20.GL_FLOAT, false, stride, offset);
+        gl.glVertexAttribDivisor(handle, 1);
+    }
+
+    private static void unsetInstanceAttribute(final int handle) {
+        if (handle < 0) {
+            return;
+        }
+        final AGLBackend gl = AGLBackend.getCurrent();
+        gl.glVertexAttribDivisor(handle, 0);
+        gl.glDisableVertexAttribArray(handle);
     }
 
     public void setMVPMatrix(float[] mvpMatrix) {
-        GLES20.glUniformMatrix4fv(muMVPMatrixHandle, 1, false, mvpMatrix, 0);
+        AGLBackend.getCurrent().glUniformMatrix4fv(muMVPMatrixHandle, 1, false, mvpMatrix, 0);
     }
 
     public void setModelMatrix(Matrix4 modelMatrix) {
-        GLES20.glUniformMatrix4fv(muModelMatrixHandle, 1, false, modelMatrix.getFloatValues(), 0);
+        AGLBackend.getCurrent().glUniformMatrix4fv(muModelMatrixHandle, 1, false, modelMatrix.getFloatValues(), 0);
+    }
+
+    public void setModelMatrix(float[] modelMatrix) {
+        AGLBackend.getCurrent().glUniformMatrix4fv(muModelMatrixHandle, 1, false, modelMatrix, 0);
     }
 
     public void setNormalMatrix(float[] normalMatrix) {
-        GLES20.glUniformMatrix3fv(muNormalMatrixHandle, 1, false, normalMatrix, 0);
+        AGLBackend.getCurrent().glUniformMatrix3fv(muNormalMatrixHandle, 1, false, normalMatrix, 0);
     }
 
     public void setInverseViewMatrix(float[] inverseViewMatrix) {
-        GLES20.glUniformMatrix4fv(muInverseViewMatrixHandle, 1, false, inverseViewMatrix, 0);
+        AGLBackend.getCurrent().glUniformMatrix4fv(muInverseViewMatrixHandle, 1, false, inverseViewMatrix, 0);
     }
 
     public void setModelViewMatrix(float[] modelViewMatrix) {
-        GLES20.glUniformMatrix4fv(muModelViewMatrixHandle, 1, false, modelViewMatrix, 0);
+        AGLBackend.getCurrent().glUniformMatrix4fv(muModelViewMatrixHandle, 1, false, modelViewMatrix, 0);
     }
 
     public void setColor(int color) {
@@ -317,6 +445,10 @@ public class VertexShader extends AShader {
         mUseVertexColors = value;
     }
 
+    public void useInstancing(boolean value) {
+        mUseInstancing = value;
+    }
+
     public void enableTime(boolean value) {
         mTimeEnabled = value;
     }
@@ -16,6 +16,7 @@ import org.rajawali3d.materials.Material.PluginInsertLocation;
 import org.rajawali3d.materials.plugins.SkeletalAnimationMaterialPlugin.SkeletalAnimationShaderVar;
 import org.rajawali3d.materials.shaders.AShader;
 import org.rajawali3d.materials.shaders.IShaderFragment;
+import org.rajawali3d.renderer.gl.AGLBackend;
 import org.rajawali3d.util.ArrayUtils;
 import android.opengl.GLES20;
 
@@ -142,34 +143,38 @@ public class SkeletalAnimationVertexShaderFragment extends AShader implements IS
 	}
 	
 	public void setBone1Indices(final int boneIndex1BufferHandle) {
-		GLES20.glBindBuffer(GLES20.GL_ARRAY_BUFFER, boneIndex1BufferHandle);
-		GLES20.glEnableVertexAttribArray(maBoneIndex1Handle);
-		GLES20.glVertexAttribPointer(maBoneIndex1Handle, 4, GLES20.GL_FLOAT, false, 0, 0);
+		final AGLBackend gl = AGLBackend.getCurrent();
+		gl.glBindBuffer(GLES20.GL_ARRAY_BUFFER, boneIndex1BufferHandle);
+		gl.glEnableVertexAttribArray(maBoneIndex1Handle);
+		gl.glVertexAttribPointer(maBoneIndex1Handle, 4, GLES20.GL_FLOAT, false, 0, 0);
 	}
 
 	public void setBone2Indices(final int boneIndex2BufferHandle) {
-		GLES20.glBindBuffer(GLES20.GL_ARRAY_BUFFER, boneIndex2BufferHandle);
-		GLES20.glEnableVertexAttribArray(maBoneIndex2Handle);
-		GLES20.glVertexAttribPointer(maBoneIndex2Handle, 4, GLES20.GL_FLOAT, false, 0, 0);
+		final AGLBackend gl = AGLBackend.getCurrent();
+		gl.glBindBuffer(GLES20.GL_ARRAY_BUFFER, boneIndex2BufferHandle);
+		gl.glEnableVertexAttribArray(maBoneIndex2Handle);
+		gl.glVertexAttribPointer(maBoneIndex2Handle, 4, GLES20.GL_FLOAT, false, 0, 0);
 	}
 
 	public void setBone1Weights(final int boneWeights1BufferHandle) {
-		GLES20.glBindBuffer(GLES20.GL_ARRAY_BUFFER, boneWeights1BufferHandle);
-		GLES20.glEnableVertexAttribArray(maBoneWeight1Handle);
-		GLES20.glVertexAttribPointer(maBoneWeight1Handle, 4, GLES20.GL_FLOAT, false, 0, 0);
+		final AGLBackend gl = AGLBackend.getCurrent();
+		gl.glBindBuffer(GLES20.GL_ARRAY_BUFFER, boneWeights1BufferHandle);
+		gl.glEnableVertexAttribArray(maBoneWeight1Handle);
+		gl.glVertexAttribPointer(maBoneWeight1Handle, 4, GLES20.GL_FLOAT, false, 0, 0);
 	}
 
 	public void setBone2Weights(final int boneWeights2BufferHandle) {
-		GLES20.glBindBuffer(GLES20.GL_ARRAY_BUFFER, boneWeights2BufferHandle);
-		GLES20.glEnableVertexAttribArray(maBoneWeight2Handle);
-		GLES20.glVertexAttribPointer(maBoneWeight2Handle, 4, GLES20.GL_FLOAT, false, 0, 0);
+		final AGLBackend gl = AGLBackend.getCurrent();
+		gl.glBindBuffer(GLES20.GL_ARRAY_BUFFER, boneWeights2BufferHandle);
+		gl.glEnableVertexAttribArray(maBoneWeight2Handle);
+		gl.glVertexAttribPointer(maBoneWeight2Handle, 4, GLES20.GL_FLOAT, false, 0, 0);
 	}
 
 	public void setBoneMatrix(double[] boneMatrix) {
 		if (mTempBoneArray == null) {
 			mTempBoneArray = new float[boneMatrix.length];
 		}
-		GLES20.glUniformMatrix4fv(muBoneMatrixHandle, mNumJoints, false, 
+		AGLBackend.getCurrent().glUniformMatrix4fv(muBoneMatrixHandle, mNumJoints, false, 
 				ArrayUtils.convertDoublesToFloats(boneMatrix, mTempBoneArray), 0);
 	}
 	
@@ -16,6 +16,7 @@ import org.rajawali3d.materials.Material.PluginInsertLocation;
 import org.rajawali3d.materials.plugins.VertexAnimationMaterialPlugin.VertexAnimationShaderVar;
 import org.rajawali3d.materials.shaders.AShader;
 import org.rajawali3d.materials.shaders.IShaderFragment;
+import org.rajawali3d.renderer.gl.AGLBackend;
 import android.opengl.GLES20;
 
 public class VertexAnimationVertexShaderFragment extends AShader implements IShaderFragment {
@@ -77,22 +78,24 @@ public class VertexAnimationVertexShaderFragment extends AShader implements ISha
 
 	public void setNextFrameVertices(final int vertexBufferHandle)
 	{
-		GLES20.glBindBuffer(GLES20.GL_ARRAY_BUFFER, vertexBufferHandle);
-		GLES20.glEnableVertexAttribArray(maNextFramePositionHandle);
-		GLES20.glVertexAttribPointer(maNextFramePositionHandle, 3, GLES20.GL_FLOAT,
+		final AGLBackend gl = AGLBackend.getCurrent();
+		gl.glBindBuffer(GLES20.GL_ARRAY_BUFFER, vertexBufferHandle);
+		gl.glEnableVertexAttribArray(maNextFramePositionHandle);
+		gl.glVertexAttribPointer(maNextFramePositionHandle, 3, GLES20.GL_FLOAT,
 				false, 0, 0);
 	}
 
 	public void setNextFrameNormals(final int normalBufferHandle)
 	{
-		GLES20.glBindBuffer(GLES20.GL_ARRAY_BUFFER, normalBufferHandle);
-		GLES20.glEnableVertexAttribArray(maNextFrameNormalHandle);
-		GLES20.glVertexAttribPointer(maNextFrameNormalHandle, 3, GLES20.GL_FLOAT,
+		final AGLBackend gl = AGLBackend.getCurrent();
+		gl.glBindBuffer(GLES20.GL_ARRAY_BUFFER, normalBufferHandle);
+		gl.glEnableVertexAttribArray(maNextFrameNormalHandle);
+		gl.glVertexAttribPointer(maNextFrameNormalHandle, 3, GLES20.GL_FLOAT,
 				false, 0, 0);
 	}
 	
 	public void setInterpolation(double interpolation) {
-		GLES20.glUniform1f(muInterpolationHandle, (float) interpolation);
+		AGLBackend.getCurrent().glUniform1f(muInterpolationHandle, (float) interpolation);
 	}
 	
 	@Override
@@ -17,7 +17,7 @@ import android.graphics.Bitmap;
 import android.graphics.Bitmap.Config;
 import android.graphics.BitmapFactory;
 import android.opengl.GLES20;
-import android.opengl.GLUtils;
+import org.rajawali3d.renderer.gl.AGLBackend;
 
 import java.nio.ByteBuffer;
 
@@ -119,6 +119,7 @@ public abstract class ASingleTexture extends ATexture
 
 	void add() throws TextureException
 	{
+		final AGLBackend gl = AGLBackend.getCurrent();
 		if(mCompressedTexture != null)
 		{
 			mCompressedTexture.add();
@@ -139,39 +140,39 @@ public abstract class ASingleTexture extends ATexture
 		}
 
 		int[] genTextureNames = new int[1];
-		GLES20.glGenTextures(1, genTextureNames, 0);
+		gl.glGenTextures(1, genTextureNames, 0);
 		int textureId = genTextureNames[0];
 
 		if (textureId > 0)
 		{
-			GLES20.glBindTexture(GLES20.GL_TEXTURE_2D, textureId);
+			gl.glBindTexture(GLES20.GL_TEXTURE_2D, textureId);
 
 			if (isMipmap())
 			{
 				if (mFilterType == FilterType.LINEAR)
-					GLES20.glTexParameterf(GLES20.GL_TEXTURE_2D, GLES20.GL_TEXTURE_MIN_FILTER,
+					gl.glTexParameterf(GLES20.GL_TEXTURE_2D, GLES20.GL_TEXTURE_MIN_FILTER,
 							GLES20.GL_LINEAR_MIPMAP_LINEAR);
 				else
-					GLES20.glTexParameterf(GLES20.GL_TEXTURE_2D, GLES20.GL_TEXTURE_MIN_FILTER,
+					gl.glTexParameterf(GLES20.GL_TEXTURE_2D, GLES20.GL_TEXTURE_MIN_FILTER,
 							GLES20.GL_NEAREST_MIPMAP_NEAREST);
 			} else {
 				if (mFilterType == FilterType.LINEAR)
-					GLES20.glTexParameterf(GLES20.GL_TEXTURE_2D, GLES20.GL_TEXTURE_MIN_FILTER, GLES20.GL_LINEAR);
+					gl.glTexParameterf(GLES20.GL_TEXTURE_2D, GLES20.GL_TEXTURE_MIN_FILTER, GLES20.GL_LINEAR);
 				else
-					GLES20.glTexParameterf(GLES20.GL_TEXTURE_2D, GLES20.GL_TEXTURE_MIN_FILTER, GLES20.GL_NEAREST);
+					gl.glTexParameterf(GLES20.GL_TEXTURE_2D, GLES20.GL_TEXTURE_MIN_FILTER, GLES20.GL_NEAREST);
 			}
 
 			if (mFilterType == FilterType.LINEAR)
-				GLES20.glTexParameterf(GLES20.GL_TEXTURE_2D, GLES20.GL_TEXTURE_MAG_FILTER, GLES20.GL_LINEAR);
+				gl.glTexParameterf(GLES20.GL_TEXTURE_2D, GLES20.GL_TEXTURE_MAG_FILTER, GLES20.GL_LINEAR);
 			else
-				GLES20.glTexParameterf(GLES20.GL_TEXTURE_2D, GLES20.GL_TEXTURE_MAG_FILTER, GLES20.GL_NEAREST);
+				gl.glTexParameterf(GLES20.GL_TEXTURE_2D, GLES20.GL_TEXTURE_MAG_FILTER, GLES20.GL_NEAREST);
 
 			if (mWrapType == WrapType.REPEAT) {
-				GLES20.glTexParameteri(GLES20.GL_TEXTURE_2D, GLES20.GL_TEXTURE_WRAP_S, GLES20.GL_REPEAT);
-				GLES20.glTexParameteri(GLES20.GL_TEXTURE_2D, GLES20.GL_TEXTURE_WRAP_T, GLES20.GL_REPEAT);
+				gl.glTexParameteri(GLES20.GL_TEXTURE_2D, GLES20.GL_TEXTURE_WRAP_S, GLES20.GL_REPEAT);
+				gl.glTexParameteri(GLES20.GL_TEXTURE_2D, GLES20.GL_TEXTURE_WRAP_T, GLES20.GL_REPEAT);
 			} else {
-				GLES20.glTexParameteri(GLES20.GL_TEXTURE_2D, GLES20.GL_TEXTURE_WRAP_S, GLES20.GL_CLAMP_TO_EDGE);
-				GLES20.glTexParameteri(GLES20.GL_TEXTURE_2D, GLES20.GL_TEXTURE_WRAP_T, GLES20.GL_CLAMP_TO_EDGE);
+				gl.glTexParameteri(GLES20.GL_TEXTURE_2D, GLES20.GL_TEXTURE_WRAP_S, GLES20.GL_CLAMP_TO_EDGE);
+				gl.glTexParameteri(GLES20.GL_TEXTURE_2D, GLES20.GL_TEXTURE_WRAP_T, GLES20.GL_CLAMP_TO_EDGE);
 			}
 
 			if (mBitmap == null)
@@ -179,13 +180,13 @@ public abstract class ASingleTexture extends ATexture
 				if (mWidth == 0 || mHeight == 0 || mBitmapFormat == 0)
 					throw new TextureException(
 							"Could not create ByteBuffer texture. One or more of the following properties haven't been set: width, height or bitmap format");
-				GLES20.glTexImage2D(GLES20.GL_TEXTURE_2D, 0, mBitmapFormat, mWidth, mHeight, 0, mBitmapFormat,
+				gl.glTexImage2D(GLES20.GL_TEXTURE_2D, 0, mBitmapFormat, mWidth, mHeight, 0, mBitmapFormat,
 						GLES20.GL_UNSIGNED_BYTE, mByteBuffer);
 			} else
-				GLUtils.texImage2D(GLES20.GL_TEXTURE_2D, 0, mBitmapFormat, mBitmap, 0);
+				gl.texImage2D(GLES20.GL_TEXTURE_2D, 0, mBitmapFormat, mBitmap, 0);
 
 			if (isMipmap())
-				GLES20.glGenerateMipmap(GLES20.GL_TEXTURE_2D);
+				gl.glGenerateMipmap(GLES20.GL_TEXTURE_2D);
 
 			setTextureId(textureId);
 		} else {
@@ -205,7 +206,7 @@ public abstract class ASingleTexture extends ATexture
 			}
 		}
 
-		GLES20.glBindTexture(GLES20.GL_TEXTURE_2D, 0);
+		gl.glBindTexture(GLES20.GL_TEXTURE_2D, 0);
 	}
 
 	void remove() throws TextureException
@@ -213,11 +214,12 @@ public abstract class ASingleTexture extends ATexture
 		if(mCompressedTexture != null)
 			mCompressedTexture.remove();
 		else
-			GLES20.glDeleteTextures(1, new int[] { mTextureId }, 0);
+			AGLBackend.getCurrent().glDeleteTextures(1, new int[] { mTextureId }, 0);
 	}
 
 	void replace() throws TextureException
 	{
+		final AGLBackend gl = AGLBackend.getCurrent();
 		if(mCompressedTexture != null)
 		{
 			mCompressedTexture.replace();
@@ -230,7 +232,7 @@ public abstract class ASingleTexture extends ATexture
 		if (mBitmap == null && (mByteBuffer == null || mByteBuffer.limit() == 0))
 			throw new TextureException("Texture could not be replaced because there is no Bitmap or ByteBuffer set.");
 
-		GLES20.glBindTexture(GLES20.GL_TEXTURE_2D, mTextureId);
+		gl.glBindTexture(GLES20.GL_TEXTURE_2D, mTextureId);
 
 		if (mBitmap != null)
 		{
@@ -240,18 +242,18 @@ public abstract class ASingleTexture extends ATexture
 			if(bitmapFormat != mBitmapFormat)
 				throw new TextureException("Texture could not be updated because the bitmap format is different from the original");
 
-			GLUtils.texSubImage2D(GLES20.GL_TEXTURE_2D, 0, 0, 0, mBitmap, mBitmapFormat, GLES20.GL_UNSIGNED_BYTE);
+			gl.texSubImage2D(GLES20.GL_TEXTURE_2D, 0, 0, 0, mBitmap, mBitmapFormat, GLES20.GL_UNSIGNED_BYTE);
 		} else if(mByteBuffer != null) {
 			if (mWidth == 0 || mHeight == 0 || mBitmapFormat == 0)
 				throw new TextureException(
 						"Could not update ByteBuffer texture. One or more of the following properties haven't been set: width, height or bitmap format");
-			GLES20.glTexSubImage2D(GLES20.GL_TEXTURE_2D, 0, 0, 0, mWidth, mHeight, mBitmapFormat, GLES20.GL_UNSIGNED_BYTE, mByteBuffer);
+			gl.glTexSubImage2D(GLES20.GL_TEXTURE_2D, 0, 0, 0, mWidth, mHeight, mBitmapFormat, GLES20.GL_UNSIGNED_BYTE, mByteBuffer);
 		}
 
 		if (mMipmap)
-			GLES20.glGenerateMipmap(GLES20.GL_TEXTURE_2D);
+			gl.glGenerateMipmap(GLES20.GL_TEXTURE_2D);
 
-		GLES20.glBindTexture(GLES20.GL_TEXTURE_2D, 0);
+		gl.glBindTexture(GLES20.GL_TEXTURE_2D, 0);
 	}
 
 	void reset() throws TextureException
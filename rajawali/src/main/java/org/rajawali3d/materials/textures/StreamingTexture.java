@@ -19,6 +19,8 @@ import android.opengl.GLES11Ext;
 import android.opengl.GLES20;
 import android.view.Surface;
 
+import org.rajawali3d.renderer.GLStateCache;
+
 import java.io.IOException;
 
 public class StreamingTexture extends ATexture {
@@ -111,8 +113,11 @@ public class StreamingTexture extends ATexture {
     }
 
     public void update() {
-        if (mSurfaceTexture != null)
+        if (mSurfaceTexture != null) {
             mSurfaceTexture.updateTexImage();
+            // The surface texture binds itself to the active texture unit
+            GLStateCache.getCurrent().invalidateTextureBindings();
+        }
     }
 
     public void updateMediaPlayer(MediaPlayer mediaPlayer) {
@@ -19,6 +19,7 @@ import java.util.concurrent.CopyOnWriteArrayList;
 
 import org.rajawali3d.materials.AResourceManager;
 import org.rajawali3d.materials.textures.ATexture.TextureException;
+import org.rajawali3d.renderer.GLStateCache;
 import org.rajawali3d.renderer.Renderer;
 
 import android.opengl.GLES20;
@@ -114,6 +115,7 @@ public final class TextureManager extends AResourceManager {
 		} catch (TextureException e) {
 			throw new RuntimeException(e);
 		}
+		invalidateTextureBindings();
 
 		if (!isUpdatingAfterContextWasLost)
 			mTextureList.add(texture);
@@ -142,6 +144,7 @@ public final class TextureManager extends AResourceManager {
 		} catch (TextureException e) {
 			throw new RuntimeException(e);
 		}
+		invalidateTextureBindings();
 	}
 
 	/**
@@ -181,6 +184,7 @@ public final class TextureManager extends AResourceManager {
 			throw new RuntimeException(e);
 		}
 		mTextureList.remove(texture);
+		invalidateTextureBindings();
 	}
 
 	/**
@@ -241,6 +245,7 @@ public final class TextureManager extends AResourceManager {
 
 			if(Renderer.hasGLContext())
 				GLES20.glDeleteTextures(count, textures, 0);
+			invalidateTextureBindings();
 
 			if (mRenderers.size() > 0) {
 				mRenderer = mRenderers.get(mRenderers.size() - 1);
@@ -266,6 +271,15 @@ public final class TextureManager extends AResourceManager {
 
 	public void taskResizeRenderTarget(RenderTargetTexture renderTargetTexture) {
 		renderTargetTexture.resize();
+		invalidateTextureBindings();
+	}
+
+	/**
+	 * Textures bind themselves directly while they are uploaded or deleted, which the {@link GLStateCache} of the
+	 * current context has to be told about.
+	 */
+	private void invalidateTextureBindings() {
+		GLStateCache.getCurrent().invalidateTextureBindings();
 	}
 
 	/**
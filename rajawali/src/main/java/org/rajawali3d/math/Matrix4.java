@@ -19,6 +19,7 @@ import org.rajawali3d.math.vector.Vector3;
 import org.rajawali3d.math.vector.Vector3.Axis;
 import org.rajawali3d.util.ArrayUtils;
 
+import java.nio.FloatBuffer;
 import java.util.Arrays;
 
 /**
@@ -60,6 +61,46 @@ public final class Matrix4 implements Cloneable {
     public static final int M32 = 11;
     public static final int M33 = 15;
 
+    /**
+     * The classes of transformation a matrix can hold, from the most to the least specific. The cheaper the class,
+     * the cheaper its inverse and normal matrix: see {@link #inverse(TransformType)} and
+     * {@link #setToNormalMatrix(TransformType)}.
+     */
+    public enum TransformType {
+        /**
+         * Rotation, reflection and translation: the upper 3x3 is orthonormal and the bottom row is (0, 0, 0, 1).
+         */
+        RIGID,
+        /**
+         * A rigid transformation with a scale which is the same on all axes: the columns of the upper 3x3 are
+         * orthogonal and have the same length.
+         */
+        UNIFORM_SCALE,
+        /**
+         * Any linear transformation and a translation: the bottom row is (0, 0, 0, 1).
+         */
+        AFFINE,
+        /**
+         * Any matrix, such as a projection.
+         */
+        PROJECTIVE;
+
+        /**
+         * Determines the class of the product of two matrices of this class and the provided one, in either order.
+         *
+         * @param other {@link TransformType} The class of the other matrix.
+         *
+         * @return {@link TransformType} The least specific of the two classes.
+         */
+        @NonNull
+        public TransformType combine(@NonNull TransformType other) {
+            return ordinal() >= other.ordinal() ? this : other;
+        }
+    }
+
+    // Relative tolerance for the orthogonality and lengths of the columns when classifying a matrix
+    private static final double TRANSFORM_TYPE_TOLERANCE = 1e-10;
+
     @NonNull
     @Size(16)
     private double[] m = new double[16]; //The matrix values
@@ -351,6 +392,124 @@ public final class Matrix4 implements Cloneable {
         return this;
     }
 
+    /**
+     * Inverts this {@link Matrix4}, which must be of the provided class of transformation. Rigid and uniformly scaled
+     * transformations are inverted by transposing their rotation, other affine transformations by inverting their
+     * upper 3x3 only, which is considerably cheaper than the general inverse. The result is undefined if the matrix
+     * isn't of the provided class, use {@link #getTransformType()} if it isn't known.
+     *
+     * @param type {@link TransformType} The class of transformation of this matrix.
+     *
+     * @return A reference to this {@link Matrix4} to facilitate chaining.
+     *
+     * @throws IllegalStateException if this matrix is singular and cannot be inverted
+     */
+    @NonNull
+    public Matrix4 inverse(@NonNull TransformType type) throws IllegalStateException {
+        if (type == TransformType.PROJECTIVE) {
+            return inverse();
+        }
+        if (!setToInverseTransposeLinear(type, mTmp)) {
+            throw new IllegalStateException("Matrix is singular and cannot be inverted.");
+        }
+        // The inverse of the upper 3x3 is the transpose of the inverse transpose
+        final double tx = m[M03];
+        final double ty = m[M13];
+        final double tz = m[M23];
+        m[M00] = mTmp[M00];
+        m[M01] = mTmp[M10];
+        m[M02] = mTmp[M20];
+        m[M10] = mTmp[M01];
+        m[M11] = mTmp[M11];
+        m[M12] = mTmp[M21];
+        m[M20] = mTmp[M02];
+        m[M21] = mTmp[M12];
+        m[M22] = mTmp[M22];
+        m[M03] = -(m[M00] * tx + m[M01] * ty + m[M02] * tz);
+        m[M13] = -(m[M10] * tx + m[M11] * ty + m[M12] * tz);
+        m[M23] = -(m[M20] * tx + m[M21] * ty + m[M22] * tz);
+        m[M30] = 0;
+        m[M31] = 0;
+        m[M32] = 0;
+        m[M33] = 1;
+        return this;
+    }
+
+    /**
+     * Determines the most specific class of transformation this {@link Matrix4} holds. The columns are compared with
+     * a small relative tolerance, so matrices composed from rotations and scales are classified as such despite
+     * rounding errors.
+     *
+     * @return {@link TransformType} The class of transformation.
+     */
+    @NonNull
+    public TransformType getTransformType() {
+        if (m[M30] != 0 || m[M31] != 0 || m[M32] != 0 || m[M33] != 1) {
+            return TransformType.PROJECTIVE;
+        }
+        final double xx = m[M00] * m[M00] + m[M10] * m[M10] + m[M20] * m[M20];
+        final double yy = m[M01] * m[M01] + m[M11] * m[M11] + m[M21] * m[M21];
+        final double zz = m[M02] * m[M02] + m[M12] * m[M12] + m[M22] * m[M22];
+        final double xy = m[M00] * m[M01] + m[M10] * m[M11] + m[M20] * m[M21];
+        final double xz = m[M00] * m[M02] + m[M10] * m[M12] + m[M20] * m[M22];
+        final double yz = m[M01] * m[M02] + m[M11] * m[M12] + m[M21] * m[M22];
+        final double tolerance = TRANSFORM_TYPE_TOLERANCE * Math.max(xx, Math.max(yy, zz));
+        if (Math.abs(xy) > tolerance || Math.abs(xz) > tolerance || Math.abs(yz) > tolerance
+            || Math.abs(xx - yy) > tolerance || Math.abs(xx - zz) > tolerance) {
+            return TransformType.AFFINE;
+        }
+        if (Math.abs(xx - 1) > TRANSFORM_TYPE_TOLERANCE) {
+            return TransformType.UNIFORM_SCALE;
+        }
+        return TransformType.RIGID;
+    }
+
+    /**
+     * Calculates the inverse transpose of the upper 3x3 of this matrix into the upper 3x3 of the provided array.
+     *
+     * @return {@code boolean} False if the upper 3x3 is singular.
+     */
+    private boolean setToInverseTransposeLinear(@NonNull TransformType type, @NonNull @Size(min = 16) double[] out) {
+        if (type == TransformType.RIGID) {
+            // The inverse of a rotation is its transpose, so the inverse transpose is the rotation itself
+            System.arraycopy(m, 0, out, 0, 16);
+            return true;
+        }
+        if (type == TransformType.UNIFORM_SCALE) {
+            // For A = sR the inverse is the transpose divided by s squared
+            final double scale2 = (m[M00] * m[M00] + m[M10] * m[M10] + m[M20] * m[M20]
+                                   + m[M01] * m[M01] + m[M11] * m[M11] + m[M21] * m[M21]
+                                   + m[M02] * m[M02] + m[M12] * m[M12] + m[M22] * m[M22]) / 3.0;
+            if (scale2 == 0) {
+                return false;
+            }
+            final double inverseScale2 = 1.0 / scale2;
+            for (int i = 0; i < 16; ++i) {
+                out[i] = m[i] * inverseScale2;
+            }
+            return true;
+        }
+        // The inverse transpose is the cofactor matrix divided by the determinant
+        final double c00 = m[M11] * m[M22] - m[M12] * m[M21];
+        final double c01 = m[M12] * m[M20] - m[M10] * m[M22];
+        final double c02 = m[M10] * m[M21] - m[M11] * m[M20];
+        final double det = m[M00] * c00 + m[M01] * c01 + m[M02] * c02;
+        if (det == 0) {
+            return false;
+        }
+        final double inverseDet = 1.0 / det;
+        out[M00] = c00 * inverseDet;
+        out[M01] = c01 * inverseDet;
+        out[M02] = c02 * inverseDet;
+        out[M10] = (m[M02] * m[M21] - m[M01] * m[M22]) * inverseDet;
+        out[M11] = (m[M00] * m[M22] - m[M02] * m[M20]) * inverseDet;
+        out[M12] = (m[M01] * m[M20] - m[M00] * m[M21]) * inverseDet;
+        out[M20] = (m[M01] * m[M12] - m[M02] * m[M11]) * inverseDet;
+        out[M21] = (m[M02] * m[M10] - m[M00] * m[M12]) * inverseDet;
+        out[M22] = (m[M00] * m[M11] - m[M01] * m[M10]) * inverseDet;
+        return true;
+    }
+
     /**
      * Transposes this {@link Matrix4}.
      *
@@ -677,6 +836,205 @@ public final class Matrix4 implements Cloneable {
         return projectVector(r);
     }
 
+    /**
+     * Transforms packed points by this {@link Matrix4}, as {@link Vector3#multiply(Matrix4)} does for a single point.
+     * The bottom row of the matrix is ignored, so the result isn't divided by w: use {@link #projectVector(Vector3)}
+     * for projections.
+     *
+     * The source and destination may be the same array to transform in place, as long as the ranges don't partially
+     * overlap.
+     *
+     * @param src       {@code float[]} The source points.
+     * @param srcOffset {@code int} The index of the x component of the first source point.
+     * @param srcStride {@code int} The number of floats from one source point to the next, at least 3.
+     * @param dst       {@code float[]} The array to store the transformed points in.
+     * @param dstOffset {@code int} The index of the x component of the first destination point.
+     * @param dstStride {@code int} The number of floats from one destination point to the next, at least 3.
+     * @param count     {@code int} The number of points to transform.
+     *
+     * @throws IllegalArgumentException if a stride is less than 3 or the count is negative.
+     * @throws IndexOutOfBoundsException if a range doesn't fit in its array.
+     */
+    public void transformPoints(@NonNull float[] src, int srcOffset, int srcStride, @NonNull float[] dst,
+                                int dstOffset, int dstStride, int count) {
+        transform(src, srcOffset, srcStride, dst, dstOffset, dstStride, count, true);
+    }
+
+    /**
+     * Transforms packed points in place by this {@link Matrix4}.
+     *
+     * @param points {@code float[]} The points.
+     * @param offset {@code int} The index of the x component of the first point.
+     * @param stride {@code int} The number of floats from one point to the next, at least 3.
+     * @param count  {@code int} The number of points to transform.
+     *
+     * @see #transformPoints(float[], int, int, float[], int, int, int)
+     */
+    public void transformPoints(@NonNull float[] points, int offset, int stride, int count) {
+        transform(points, offset, stride, points, offset, stride, count, true);
+    }
+
+    /**
+     * Transforms packed directions by this {@link Matrix4}, as {@link #rotateVector(Vector3)} does for a single
+     * vector: the translation is ignored and the results are not normalized. Normals must be transformed by the
+     * normal matrix, see {@link #setToNormalMatrix()}.
+     *
+     * @param src       {@code float[]} The source directions.
+     * @param srcOffset {@code int} The index of the x component of the first source direction.
+     * @param srcStride {@code int} The number of floats from one source direction to the next, at least 3.
+     * @param dst       {@code float[]} The array to store the transformed directions in.
+     * @param dstOffset {@code int} The index of the x component of the first destination direction.
+     * @param dstStride {@code int} The number of floats from one destination direction to the next, at least 3.
+     * @param count     {@code int} The number of directions to transform.
+     *
+     * @see #transformPoints(float[], int, int, float[], int, int, int)
+     */
+    public void transformDirections(@NonNull float[] src, int srcOffset, int srcStride, @NonNull float[] dst,
+                                    int dstOffset, int dstStride, int count) {
+        transform(src, srcOffset, srcStride, dst, dstOffset, dstStride, count, false);
+    }
+
+    /**
+     * Transforms packed directions in place by this {@link Matrix4}.
+     *
+     * @param directions {@code float[]} The directions.
+     * @param offset     {@code int} The index of the x component of the first direction.
+     * @param stride     {@code int} The number of floats from one direction to the next, at least 3.
+     * @param count      {@code int} The number of directions to transform.
+     *
+     * @see #transformDirections(float[], int, int, float[], int, int, int)
+     */
+    public void transformDirections(@NonNull float[] directions, int offset, int stride, int count) {
+        transform(directions, offset, stride, directions, offset, stride, count, false);
+    }
+
+    /**
+     * Transforms packed points stored in buffers by this {@link Matrix4}. Offsets are absolute indices, the positions
+     * and limits of the buffers are left unchanged.
+     *
+     * @param src       {@link FloatBuffer} The source points.
+     * @param srcOffset {@code int} The index of the x component of the first source point.
+     * @param srcStride {@code int} The number of floats from one source point to the next, at least 3.
+     * @param dst       {@link FloatBuffer} The buffer to store the transformed points in.
+     * @param dstOffset {@code int} The index of the x component of the first destination point.
+     * @param dstStride {@code int} The number of floats from one destination point to the next, at least 3.
+     * @param count     {@code int} The number of points to transform.
+     *
+     * @see #transformPoints(float[], int, int, float[], int, int, int)
+     */
+    public void transformPoints(@NonNull FloatBuffer src, int srcOffset, int srcStride, @NonNull FloatBuffer dst,
+                                int dstOffset, int dstStride, int count) {
+        transform(src, srcOffset, srcStride, dst, dstOffset, dstStride, count, true);
+    }
+
+    /**
+     * Transforms packed points stored in a buffer in place by this {@link Matrix4}.
+     *
+     * @param points {@link FloatBuffer} The points.
+     * @param offset {@code int} The index of the x component of the first point.
+     * @param stride {@code int} The number of floats from one point to the next, at least 3.
+     * @param count  {@code int} The number of points to transform.
+     *
+     * @see #transformPoints(FloatBuffer, int, int, FloatBuffer, int, int, int)
+     */
+    public void transformPoints(@NonNull FloatBuffer points, int offset, int stride, int count) {
+        transform(points, offset, stride, points, offset, stride, count, true);
+    }
+
+    /**
+     * Transforms packed directions stored in buffers by this {@link Matrix4}. Offsets are absolute indices, the
+     * positions and limits of the buffers are left unchanged.
+     *
+     * @param src       {@link FloatBuffer} The source directions.
+     * @param srcOffset {@code int} The index of the x component of the first source direction.
+     * @param srcStride {@code int} The number of floats from one source direction to the next, at least 3.
+     * @param dst       {@link FloatBuffer} The buffer to store the transformed directions in.
+     * @param dstOffset {@code int} The index of the x component of the first destination direction.
+     * @param dstStride {@code int} The number of floats from one destination direction to the next, at least 3.
+     * @param count     {@code int} The number of directions to transform.
+     *
+     * @see #transformDirections(float[], int, int, float[], int, int, int)
+     */
+    public void transformDirections(@NonNull FloatBuffer src, int srcOffset, int srcStride, @NonNull FloatBuffer dst,
+                                    int dstOffset, int dstStride, int count) {
+        transform(src, srcOffset, srcStride, dst, dstOffset, dstStride, count, false);
+    }
+
+    /**
+     * Transforms packed directions stored in a buffer in place by this {@link Matrix4}.
+     *
+     * @param directions {@link FloatBuffer} The directions.
+     * @param offset     {@code int} The index of the x component of the first direction.
+     * @param stride     {@code int} The number of floats from one direction to the next, at least 3.
+     * @param count      {@code int} The number of directions to transform.
+     *
+     * @see #transformDirections(FloatBuffer, int, int, FloatBuffer, int, int, int)
+     */
+    public void transformDirections(@NonNull FloatBuffer directions, int offset, int stride, int count) {
+        transform(directions, offset, stride, directions, offset, stride, count, false);
+    }
+
+    private void transform(@NonNull float[] src, int srcOffset, int srcStride, @NonNull float[] dst, int dstOffset,
+                           int dstStride, int count, boolean translate) {
+        checkRange(src.length, srcOffset, srcStride, count);
+        checkRange(dst.length, dstOffset, dstStride, count);
+        // The matrix is read into locals once, so the loop body is only loads, multiply-adds and stores which the
+        // JIT can unroll with the bounds checks hoisted by the range checks above
+        final float m00 = (float) m[M00], m01 = (float) m[M01], m02 = (float) m[M02];
+        final float m10 = (float) m[M10], m11 = (float) m[M11], m12 = (float) m[M12];
+        final float m20 = (float) m[M20], m21 = (float) m[M21], m22 = (float) m[M22];
+        final float tx = translate ? (float) m[M03] : 0f;
+        final float ty = translate ? (float) m[M13] : 0f;
+        final float tz = translate ? (float) m[M23] : 0f;
+        for (int i = 0, s = srcOffset, d = dstOffset; i < count; ++i, s += srcStride, d += dstStride) {
+            final float x = src[s];
+            final float y = src[s + 1];
+            final float z = src[s + 2];
+            dst[d] = m00 * x + m01 * y + m02 * z + tx;
+            dst[d + 1] = m10 * x + m11 * y + m12 * z + ty;
+            dst[d + 2] = m20 * x + m21 * y + m22 * z + tz;
+        }
+    }
+
+    private void transform(@NonNull FloatBuffer src, int srcOffset, int srcStride, @NonNull FloatBuffer dst,
+                           int dstOffset, int dstStride, int count, boolean translate) {
+        checkRange(src.limit(), srcOffset, srcStride, count);
+        checkRange(dst.limit(), dstOffset, dstStride, count);
+        if (src.hasArray() && dst.hasArray()) {
+            // Heap buffers are transformed through their arrays, which avoids a call per component
+            transform(src.array(), src.arrayOffset() + srcOffset, srcStride, dst.array(),
+                      dst.arrayOffset() + dstOffset, dstStride, count, translate);
+            return;
+        }
+        final float m00 = (float) m[M00], m01 = (float) m[M01], m02 = (float) m[M02];
+        final float m10 = (float) m[M10], m11 = (float) m[M11], m12 = (float) m[M12];
+        final float m20 = (float) m[M20], m21 = (float) m[M21], m22 = (float) m[M22];
+        final float tx = translate ? (float) m[M03] : 0f;
+        final float ty = translate ? (float) m[M13] : 0f;
+        final float tz = translate ? (float) m[M23] : 0f;
+        for (int i = 0, s = srcOffset, d = dstOffset; i < count; ++i, s += srcStride, d += dstStride) {
+            final float x = src.get(s);
+            final float y = src.get(s + 1);
+            final float z = src.get(s + 2);
+            dst.put(d, m00 * x + m01 * y + m02 * z + tx);
+            dst.put(d + 1, m10 * x + m11 * y + m12 * z + ty);
+            dst.put(d + 2, m20 * x + m21 * y + m22 * z + tz);
+        }
+    }
+
+    private static void checkRange(int length, int offset, int stride, int count) {
+        if (stride < 3) {
+            throw new IllegalArgumentException("Stride must be at least 3: " + stride);
+        }
+        if (count < 0) {
+            throw new IllegalArgumentException("Count must not be negative: " + count);
+        }
+        if (count > 0 && (offset < 0 || offset + (long) (count - 1) * stride + 3 > length)) {
+            throw new IndexOutOfBoundsException("Range of " + count + " vectors with stride " + stride
+                                                + " at offset " + offset + " doesn't fit in a length of " + length);
+        }
+    }
+
     /**
      * Sets translation of this {@link Matrix4} based on the provided components.
      *
@@ -728,6 +1086,45 @@ public final class Matrix4 implements Cloneable {
         return inverse().transpose();
     }
 
+    /**
+     * Removes the translational component, inverts and transposes the matrix, which must be of the provided class of
+     * transformation. For rigid transformations the normal matrix is the rotation itself and for uniformly scaled
+     * ones the matrix divided by the squared scale, so only affine transformations need an inverse, and only of their
+     * upper 3x3. The result is undefined if the matrix isn't of the provided class.
+     *
+     * @param type {@link TransformType} The class of transformation of this matrix.
+     *
+     * @return A reference to this {@link Matrix4} to facilitate chaining.
+     *
+     * @throws IllegalStateException if this matrix is singular and cannot be inverted
+     */
+    @NonNull
+    public Matrix4 setToNormalMatrix(@NonNull TransformType type) throws IllegalStateException {
+        if (type == TransformType.PROJECTIVE) {
+            return setToNormalMatrix();
+        }
+        if (!setToInverseTransposeLinear(type, mTmp)) {
+            throw new IllegalStateException("Matrix is singular and cannot be inverted.");
+        }
+        m[M00] = mTmp[M00];
+        m[M01] = mTmp[M01];
+        m[M02] = mTmp[M02];
+        m[M10] = mTmp[M10];
+        m[M11] = mTmp[M11];
+        m[M12] = mTmp[M12];
+        m[M20] = mTmp[M20];
+        m[M21] = mTmp[M21];
+        m[M22] = mTmp[M22];
+        m[M03] = 0;
+        m[M13] = 0;
+        m[M23] = 0;
+        m[M30] = 0;
+        m[M31] = 0;
+        m[M32] = 0;
+        m[M33] = 1;
+        return this;
+    }
+
     /**
      * Sets this {@link Matrix4} to a perspective projection matrix.
      *
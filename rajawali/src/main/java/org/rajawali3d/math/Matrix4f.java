@@ -0,0 +1,140 @@
+/**
+ * Copyright 2013 Dennis Ippel
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.rajawali3d.math;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Size;
+
+/**
+ * Single precision companion of {@link Matrix4}, encapsulating a column major 4x4 matrix backed by a float array.
+ *
+ * {@link Matrix4} remains the type to accumulate transformations in, since double precision matters for world space
+ * positions. This class holds the result in the layout OpenGL expects, so it can be uploaded as a uniform as often as
+ * needed without converting it again on every draw call.
+ *
+ * This class is not thread safe and must be confined to a single thread or protected by
+ * some external locking mechanism if necessary.
+ */
+public final class Matrix4f {
+
+    @NonNull
+    @Size(16)
+    private final float[] m = new float[16]; //The matrix values
+
+    @NonNull @Size(16) private final float[] mTmp = new float[16]; //A scratch matrix
+
+    /**
+     * Constructs a default identity {@link Matrix4f}.
+     */
+    public Matrix4f() {
+        identity();
+    }
+
+    /**
+     * Constructs a new {@link Matrix4f} based on the given double precision matrix.
+     *
+     * @param matrix {@link Matrix4} The matrix to convert.
+     */
+    public Matrix4f(@NonNull Matrix4 matrix) {
+        setAll(matrix);
+    }
+
+    /**
+     * Sets the elements of this {@link Matrix4f} to the single precision values of the provided {@link Matrix4}.
+     *
+     * @param matrix {@link Matrix4} to convert.
+     *
+     * @return A reference to this {@link Matrix4f} to facilitate chaining.
+     */
+    @NonNull
+    public Matrix4f setAll(@NonNull Matrix4 matrix) {
+        matrix.toFloatArray(m);
+        return this;
+    }
+
+    /**
+     * Sets the elements of this {@link Matrix4f} based on the elements of the provided {@link Matrix4f}.
+     *
+     * @param matrix {@link Matrix4f} to copy.
+     *
+     * @return A reference to this {@link Matrix4f} to facilitate chaining.
+     */
+    @NonNull
+    public Matrix4f setAll(@NonNull Matrix4f matrix) {
+        System.arraycopy(matrix.m, 0, m, 0, 16);
+        return this;
+    }
+
+    /**
+     * Sets the elements of this {@link Matrix4f} based on the provided float array. The array length must be greater
+     * than or equal to 16 and the array will be copied from the 0 index.
+     *
+     * @param matrix float array containing the values for the matrix in column major order.
+     *
+     * @return A reference to this {@link Matrix4f} to facilitate chaining.
+     */
+    @NonNull
+    public Matrix4f setAll(@NonNull @Size(min = 16) float[] matrix) {
+        System.arraycopy(matrix, 0, m, 0, 16);
+        return this;
+    }
+
+    /**
+     * Sets this {@link Matrix4f} to an identity matrix.
+     *
+     * @return A reference to this {@link Matrix4f} to facilitate chaining.
+     */
+    @NonNull
+    public Matrix4f identity() {
+        android.opengl.Matrix.setIdentityM(m, 0);
+        return this;
+    }
+
+    /**
+     * Multiplies this {@link Matrix4f} with the given one, storing the result in this {@link Matrix4f}.
+     * <pre>
+     * A.multiply(B) results in A = AB.
+     * </pre>
+     *
+     * @param matrix {@link Matrix4f} The RHS {@link Matrix4f}.
+     *
+     * @return A reference to this {@link Matrix4f} to facilitate chaining.
+     */
+    @NonNull
+    public Matrix4f multiply(@NonNull Matrix4f matrix) {
+        System.arraycopy(m, 0, mTmp, 0, 16);
+        android.opengl.Matrix.multiplyMM(m, 0, mTmp, 0, matrix.m, 0);
+        return this;
+    }
+
+    /**
+     * Returns the backing array of this {@link Matrix4f}, which can be passed to GL directly.
+     *
+     * @return float array containing the backing array. The returned array is owned
+     * by this {@link Matrix4f} and is subject to change as the implementation sees fit.
+     */
+    @NonNull
+    @Size(16)
+    public float[] getFloatValues() {
+        return m;
+    }
+
+    /**
+     * Copies the values of this {@link Matrix4f} into the provided double precision {@link Matrix4}.
+     *
+     * @param matrix {@link Matrix4} to store the values in.
+     */
+    public void toMatrix4(@NonNull Matrix4 matrix) {
+        matrix.setAll(m);
+    }
+}
@@ -26,11 +26,14 @@ import org.rajawali3d.postprocessing.IPostProcessingComponent.PostProcessingComp
 import org.rajawali3d.postprocessing.passes.CopyPass;
 import org.rajawali3d.postprocessing.passes.EffectPass;
 import org.rajawali3d.primitives.ScreenQuad;
+import org.rajawali3d.renderer.FrameProfiler;
+import org.rajawali3d.renderer.GpuTimer;
 import org.rajawali3d.renderer.Renderer;
 import org.rajawali3d.renderer.RenderTarget;
 import org.rajawali3d.scene.Scene;
 import org.rajawali3d.scenegraph.IGraphNode.GRAPH_TYPE;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.concurrent.CopyOnWriteArrayList;
@@ -47,6 +50,8 @@ public class PostProcessingManager {
     protected List<IPass>                    mPasses;
     protected boolean mComponentsDirty = false;
     protected int mNumPasses;
+    // GPU timer scope of each pass, rebuilt with the passes list
+    private final List<String> mPassScopeNames = new ArrayList<>();
     protected int mWidth;
     protected int mHeight;
 
@@ -166,6 +171,9 @@ public class PostProcessingManager {
     }
 
     public void render(@IntRange(from = 0) long ellapsedTime, @FloatRange(from = 0d) double deltaTime) {
+        final FrameProfiler profiler = FrameProfiler.getCurrent();
+        final FrameProfiler.Phase outerPhase = profiler.enterPhase(FrameProfiler.Phase.POST_PROCESSING);
+        final GpuTimer gpuTimer = GpuTimer.getCurrent();
         if (mComponentsDirty) {
             updatePassesList();
             mComponentsDirty = false;
@@ -193,7 +201,10 @@ public class PostProcessingManager {
             }
             final boolean depthOrRenderPass = type == PassType.RENDER || type == PassType.DEPTH;
             final Scene renderScene = depthOrRenderPass ? mRenderer.getCurrentScene() : mScene;
+            final String scope = mPassScopeNames.get(i);
+            gpuTimer.beginScope(scope);
             pass.render(renderScene, mRenderer, mScreenQuad, mWriteBuffer, mReadBuffer, ellapsedTime, deltaTime);
+            gpuTimer.endScope(scope);
 
             if (pass.needsSwap() && i < mNumPasses - 1) {
                 if (maskActive) {
@@ -218,6 +229,7 @@ public class PostProcessingManager {
 
         // Restore the viewport dimensions
         mRenderer.clearOverrideViewportDimensions();
+        profiler.exitPhase(outerPhase);
     }
 
     @NonNull
@@ -243,6 +255,11 @@ public class PostProcessingManager {
         }
 
         mNumPasses = mPasses.size();
+
+        mPassScopeNames.clear();
+        for (int i = 0; i < mNumPasses; ++i) {
+            mPassScopeNames.add("Pass " + i + " " + mPasses.get(i).getClass().getSimpleName());
+        }
     }
 
     public boolean isEmpty() {
@@ -12,10 +12,9 @@
  */
 package org.rajawali3d.postprocessing.passes;
 
-import android.opengl.GLES20;
-
 import org.rajawali3d.postprocessing.APass;
 import org.rajawali3d.primitives.ScreenQuad;
+import org.rajawali3d.renderer.GLStateCache;
 import org.rajawali3d.renderer.Renderer;
 import org.rajawali3d.renderer.RenderTarget;
 import org.rajawali3d.scene.Scene;
@@ -33,6 +32,6 @@ public class ClearMaskPass extends APass {
 	@Override
 	public void render(Scene scene, Renderer renderer, ScreenQuad screenQuad, RenderTarget writeBuffer, RenderTarget readBuffer, long ellapsedTime, double deltaTime) {
 		// Disable stencil test so next rendering pass won't be masked.
-		GLES20.glDisable(GLES20.GL_STENCIL_TEST);
+		GLStateCache.getCurrent().setStencilTestEnabled(false);
 	}
 }
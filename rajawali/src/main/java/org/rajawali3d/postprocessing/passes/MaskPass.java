@@ -19,6 +19,7 @@ import android.opengl.GLES20;
 
 import org.rajawali3d.postprocessing.APass;
 import org.rajawali3d.primitives.ScreenQuad;
+import org.rajawali3d.renderer.GLStateCache;
 import org.rajawali3d.renderer.Renderer;
 import org.rajawali3d.renderer.RenderTarget;
 import org.rajawali3d.scene.Scene;
@@ -59,8 +60,9 @@ public class MaskPass extends APass {
 	@Override
 	public void render(Scene scene, Renderer render, ScreenQuad screenQuad, RenderTarget writeBuffer, RenderTarget readBuffer, long ellapsedTime, double deltaTime) {
 		// Do not update color or depth.
+		final GLStateCache glState = GLStateCache.getCurrent();
 		GLES20.glColorMask(false, false, false, false);
-		GLES20.glDepthMask(false);
+		glState.setDepthMask(false);
 
 		// Set up stencil.
 		int writeValue, clearValue;
@@ -73,7 +75,7 @@ public class MaskPass extends APass {
 			clearValue = 0;
 		}
 
-		GLES20.glEnable(GLES20.GL_STENCIL_TEST);
+		glState.setStencilTestEnabled(true);
 		GLES20.glStencilOp(GLES20.GL_REPLACE, GLES20.GL_REPLACE, GLES20.GL_REPLACE);
 		GLES20.glStencilFunc(GLES20.GL_ALWAYS, writeValue, 0xffffffff);
 		GLES20.glClearStencil(clearValue);
@@ -84,7 +86,7 @@ public class MaskPass extends APass {
 
 		// Re-enable color and depth.
 		GLES20.glColorMask(true, true, true, true);
-		GLES20.glDepthMask(true);
+		glState.setDepthMask(true);
 
 		// Only render where stencil is set to 1.
 		GLES20.glStencilFunc(GLES20.GL_EQUAL, 1, 0xffffffff);
@@ -4,6 +4,7 @@ import org.rajawali3d.cameras.Camera;
 import org.rajawali3d.materials.Material;
 import org.rajawali3d.math.Matrix4;
 import org.rajawali3d.math.vector.Vector3.Axis;
+import org.rajawali3d.scene.RenderQueue;
 
 
 public class PointSprite extends Plane {
@@ -21,4 +22,11 @@ public class PointSprite extends Plane {
 		setLookAt(camera.getPosition());		
 		super.render(camera, vpMatrix, projMatrix, vMatrix, parentMatrix, sceneMaterial);
 	}
+
+	@Override
+	public void queueForRender(RenderQueue queue, Camera camera, final Matrix4 vpMatrix, final Matrix4 projMatrix,
+			final Matrix4 vMatrix, final Matrix4 parentMatrix, Material sceneMaterial) {
+		setLookAt(camera.getPosition());
+		super.queueForRender(queue, camera, vpMatrix, projMatrix, vMatrix, parentMatrix, sceneMaterial);
+	}
 }
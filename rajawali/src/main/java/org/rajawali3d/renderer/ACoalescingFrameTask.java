@@ -0,0 +1,80 @@
+/**
+ * Copyright 2013 Dennis Ippel
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.rajawali3d.renderer;
+
+import android.support.annotation.NonNull;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * A frame task which collects items from any number of calls and processes them together in a single run, for
+ * instance to add thousands of children to a scene with one list update instead of one task each.
+ *
+ * Items are added with {@link #add(Object)}. Only the call which finds the task idle has to queue it, all items added
+ * before the task runs are then handled by that single run.
+ *
+ * @param <T> The type of the collected items.
+ */
+public abstract class ACoalescingFrameTask<T> extends AFrameTask {
+
+    private final ConcurrentLinkedQueue<T> mItems = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean mQueued = new AtomicBoolean();
+    private final List<T> mBatch = new ArrayList<>();
+
+    /**
+     * Adds an item to be processed by the next run of this task. May be called from any thread.
+     *
+     * @param item The item.
+     *
+     * @return {@code boolean} True if the caller has to queue this task, false if it is already queued.
+     */
+    public boolean add(@NonNull T item) {
+        mItems.add(item);
+        return mQueued.compareAndSet(false, true);
+    }
+
+    /**
+     * @return {@code boolean} True if this task is queued and items added now will be handled by that run.
+     */
+    public boolean isQueued() {
+        return mQueued.get();
+    }
+
+    /**
+     * Processes all collected items in the order they were added.
+     *
+     * @param items {@link List} of the items. Only valid for the duration of the call.
+     */
+    protected abstract void doTask(@NonNull List<T> items);
+
+    @Override
+    protected final void doTask() {
+        // Items added from here on need a new run
+        mQueued.set(false);
+        T item;
+        while ((item = mItems.poll()) != null) {
+            mBatch.add(item);
+        }
+        if (mBatch.isEmpty()) {
+            return;
+        }
+        try {
+            doTask(mBatch);
+        } finally {
+            mBatch.clear();
+        }
+    }
+}
@@ -7,8 +7,44 @@ import org.rajawali3d.util.RajLog;
  */
 public abstract class AFrameTask implements Runnable {
 
+    /**
+     * Runs before all other tasks and is never deferred to a later frame by the frame budget.
+     */
+    public static final int PRIORITY_HIGH = 0;
+    /**
+     * The default priority.
+     */
+    public static final int PRIORITY_NORMAL = 1;
+    /**
+     * Runs after all high and normal priority tasks which fit in the frame budget.
+     */
+    public static final int PRIORITY_LOW = 2;
+
+    private int mPriority = PRIORITY_NORMAL;
+
     protected abstract void doTask();
 
+    /**
+     * Sets the priority of this task. Tasks of the same priority run in the order they were queued; tasks of
+     * different priorities may run out of order, so only tasks which don't depend on each other should be given
+     * different priorities. Must be set before the task is queued.
+     *
+     * @param priority {@code int} One of {@link #PRIORITY_HIGH}, {@link #PRIORITY_NORMAL} or {@link #PRIORITY_LOW}.
+     *
+     * @return A reference to this task to facilitate chaining.
+     */
+    public AFrameTask setPriority(int priority) {
+        if (priority < PRIORITY_HIGH || priority > PRIORITY_LOW) {
+            throw new IllegalArgumentException("Unknown priority: " + priority);
+        }
+        mPriority = priority;
+        return this;
+    }
+
+    public int getPriority() {
+        return mPriority;
+    }
+
     @Override
     public void run() {
         try {
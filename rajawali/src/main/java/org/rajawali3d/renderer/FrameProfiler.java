@@ -0,0 +1,388 @@
+/**
+ * Copyright 2013 Dennis Ippel
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.rajawali3d.renderer;
+
+import android.opengl.GLES20;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.util.Arrays;
+
+/**
+ * Records where the CPU time of each frame goes, together with the number of draw calls, triangles, program switches,
+ * texture binds and buffer uploads.
+ *
+ * There is one profiler per GL thread. Each {@link Renderer} owns one and makes it current on its GL thread, so
+ * rendering code can reach it through {@link #getCurrent()}. Phases don't nest: entering a phase ends the running one,
+ * so the time of a scene rendered by a post processing pass counts towards the scene's phases, not the pass. Time
+ * outside of any phase is recorded as {@link Phase#OTHER}.
+ *
+ * The records of the last frames are kept in a ring buffer and each completed record is passed to the
+ * {@link OnFrameProfiledListener}. While disabled, all recording methods return right away.
+ */
+public class FrameProfiler {
+
+    /**
+     * The phases a frame is divided into.
+     */
+    public enum Phase {
+        OTHER, FRAME_TASKS, CALLBACKS, ANIMATIONS, TRANSFORMS, CULLING, SKYBOX, DRAW, PLUGINS, POST_PROCESSING
+    }
+
+    /**
+     * Receives each completed {@link FrameRecord}. Called on the GL thread.
+     */
+    public interface OnFrameProfiledListener {
+
+        /**
+         * @param record {@link FrameRecord} The completed frame. It is reused for later frames, so it must be copied
+         *               to be kept.
+         */
+        void onFrameProfiled(@NonNull FrameRecord record);
+    }
+
+    /**
+     * Timings and statistics of a single frame.
+     */
+    public static final class FrameRecord {
+
+        private long mFrameNumber;
+        private long mStartTime;
+        private long mDuration;
+        private final long[] mPhaseDurations = new long[PHASES.length];
+        private int mDrawCalls;
+        private long mTriangles;
+        private int mProgramSwitches;
+        private int mTextureBinds;
+        private int mBufferUploads;
+        private long mUploadedBytes;
+
+        public void setAll(@NonNull FrameRecord record) {
+            mFrameNumber = record.mFrameNumber;
+            mStartTime = record.mStartTime;
+            mDuration = record.mDuration;
+            System.arraycopy(record.mPhaseDurations, 0, mPhaseDurations, 0, mPhaseDurations.length);
+            mDrawCalls = record.mDrawCalls;
+            mTriangles = record.mTriangles;
+            mProgramSwitches = record.mProgramSwitches;
+            mTextureBinds = record.mTextureBinds;
+            mBufferUploads = record.mBufferUploads;
+            mUploadedBytes = record.mUploadedBytes;
+        }
+
+        private void reset(long frameNumber, long startTime) {
+            mFrameNumber = frameNumber;
+            mStartTime = startTime;
+            mDuration = 0;
+            Arrays.fill(mPhaseDurations, 0);
+            mDrawCalls = 0;
+            mTriangles = 0;
+            mProgramSwitches = 0;
+            mTextureBinds = 0;
+            mBufferUploads = 0;
+            mUploadedBytes = 0;
+        }
+
+        public long getFrameNumber() {
+            return mFrameNumber;
+        }
+
+        /**
+         * @return {@code long} The {@link System#nanoTime()} at the start of the frame.
+         */
+        public long getStartTime() {
+            return mStartTime;
+        }
+
+        /**
+         * @return {@code long} The CPU time of the whole frame in nanoseconds.
+         */
+        public long getDuration() {
+            return mDuration;
+        }
+
+        /**
+         * @param phase {@link Phase} The phase.
+         *
+         * @return {@code long} The CPU time spent in the phase in nanoseconds.
+         */
+        public long getPhaseDuration(@NonNull Phase phase) {
+            return mPhaseDurations[phase.ordinal()];
+        }
+
+        public int getDrawCalls() {
+            return mDrawCalls;
+        }
+
+        public long getTriangles() {
+            return mTriangles;
+        }
+
+        public int getProgramSwitches() {
+            return mProgramSwitches;
+        }
+
+        public int getTextureBinds() {
+            return mTextureBinds;
+        }
+
+        public int getBufferUploads() {
+            return mBufferUploads;
+        }
+
+        public long getUploadedBytes() {
+            return mUploadedBytes;
+        }
+
+        @Override
+        public String toString() {
+            final StringBuilder sb = new StringBuilder();
+            sb.append("Frame ").append(mFrameNumber).append(": ").append(mDuration / 1000).append("us");
+            for (Phase phase : PHASES) {
+                sb.append(", ").append(phase).append(' ').append(mPhaseDurations[phase.ordinal()] / 1000).append("us");
+            }
+            sb.append(", draw calls ").append(mDrawCalls)
+                .append(", triangles ").append(mTriangles)
+                .append(", program switches ").append(mProgramSwitches)
+                .append(", texture binds ").append(mTextureBinds)
+                .append(", buffer uploads ").append(mBufferUploads).append(" (").append(mUploadedBytes).append(" bytes)");
+            return sb.toString();
+        }
+    }
+
+    public static final int DEFAULT_CAPACITY = 120;
+
+    private static final Phase[] PHASES = Phase.values();
+
+    private static final ThreadLocal<FrameProfiler> sCurrent = new ThreadLocal<FrameProfiler>() {
+        @Override
+        protected FrameProfiler initialValue() {
+            return new FrameProfiler();
+        }
+    };
+
+    private final FrameRecord mCurrent = new FrameRecord();
+    private final FrameRecord[] mRecords;
+    private int mRecordCount;
+    private int mNextRecord;
+    private long mFrameNumber;
+
+    private volatile boolean mEnabled;
+    private volatile OnFrameProfiledListener mListener;
+    // Latched at the start of each frame, so enabling or disabling never produces a partial record
+    private boolean mActive;
+    private Phase mPhase = Phase.OTHER;
+    private long mPhaseStart;
+
+    public FrameProfiler() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param capacity {@code int} The number of frames to keep records of.
+     */
+    public FrameProfiler(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Capacity must be at least 1.");
+        }
+        mRecords = new FrameRecord[capacity];
+        for (int i = 0; i < capacity; ++i) {
+            mRecords[i] = new FrameRecord();
+        }
+    }
+
+    /**
+     * Retrieves the profiler of the GL thread the caller runs on.
+     *
+     * @return {@link FrameProfiler} The current profiler.
+     */
+    public static FrameProfiler getCurrent() {
+        return sCurrent.get();
+    }
+
+    /**
+     * Makes the provided profiler the current one for the calling thread. Called by {@link Renderer} on its GL thread.
+     *
+     * @param profiler {@link FrameProfiler} The profiler of the calling thread.
+     */
+    public static void setCurrent(FrameProfiler profiler) {
+        sCurrent.set(profiler);
+    }
+
+    /**
+     * Enables or disables profiling, starting with the next frame.
+     *
+     * @param enabled {@code boolean} Whether or not to profile.
+     */
+    public void setEnabled(boolean enabled) {
+        mEnabled = enabled;
+    }
+
+    public boolean isEnabled() {
+        return mEnabled;
+    }
+
+    public void setOnFrameProfiledListener(@Nullable OnFrameProfiledListener listener) {
+        mListener = listener;
+    }
+
+    /**
+     * Starts recording a frame. Called by {@link Renderer} at the start of each frame.
+     */
+    public void beginFrame() {
+        mActive = mEnabled;
+        if (!mActive) {
+            return;
+        }
+        final long now = System.nanoTime();
+        mCurrent.reset(mFrameNumber++, now);
+        mPhase = Phase.OTHER;
+        mPhaseStart = now;
+    }
+
+    /**
+     * Completes the record of the running frame, stores it and passes it to the listener. Called by {@link Renderer}
+     * at the end of each frame.
+     */
+    public void endFrame() {
+        if (!mActive) {
+            return;
+        }
+        final long now = System.nanoTime();
+        mCurrent.mPhaseDurations[mPhase.ordinal()] += now - mPhaseStart;
+        mCurrent.mDuration = now - mCurrent.mStartTime;
+        final GLStateCache glState = GLStateCache.getCurrent();
+        mCurrent.mProgramSwitches = glState.getProgramSwitches();
+        mCurrent.mTextureBinds = glState.getTextureBinds();
+        mActive = false;
+        mPhase = Phase.OTHER;
+
+        synchronized (mRecords) {
+            mRecords[mNextRecord].setAll(mCurrent);
+            mNextRecord = (mNextRecord + 1) % mRecords.length;
+            if (mRecordCount < mRecords.length) {
+                ++mRecordCount;
+            }
+        }
+        final OnFrameProfiledListener listener = mListener;
+        if (listener != null) {
+            listener.onFrameProfiled(mCurrent);
+        }
+    }
+
+    /**
+     * Attributes the time from now on to the provided phase, until another phase is entered.
+     *
+     * @param phase {@link Phase} The phase to enter.
+     *
+     * @return {@link Phase} The phase which was running, to be passed to {@link #exitPhase(Phase)}.
+     */
+    @NonNull
+    public Phase enterPhase(@NonNull Phase phase) {
+        final Phase previous = mPhase;
+        if (mActive && phase != previous) {
+            final long now = System.nanoTime();
+            mCurrent.mPhaseDurations[previous.ordinal()] += now - mPhaseStart;
+            mPhaseStart = now;
+            mPhase = phase;
+        }
+        return previous;
+    }
+
+    /**
+     * Returns to the phase which was running before the matching {@link #enterPhase(Phase)}.
+     *
+     * @param previous {@link Phase} The phase returned by {@link #enterPhase(Phase)}.
+     */
+    public void exitPhase(@NonNull Phase previous) {
+        enterPhase(previous);
+    }
+
+    /**
+     * Counts a draw call.
+     *
+     * @param mode      {@code int} The primitive mode, for instance {@link GLES20#GL_TRIANGLES}.
+     * @param count     {@code int} The number of indices or vertices drawn.
+     * @param instances {@code int} The number of instances drawn.
+     */
+    public void countDrawCall(int mode, int count, int instances) {
+        if (!mActive) {
+            return;
+        }
+        ++mCurrent.mDrawCalls;
+        final int triangles;
+        switch (mode) {
+            case GLES20.GL_TRIANGLES:
+                triangles = count / 3;
+                break;
+            case GLES20.GL_TRIANGLE_STRIP:
+            case GLES20.GL_TRIANGLE_FAN:
+                triangles = Math.max(0, count - 2);
+                break;
+            default:
+                triangles = 0;
+        }
+        mCurrent.mTriangles += (long) triangles * instances;
+    }
+
+    /**
+     * Counts an upload of buffer data.
+     *
+     * @param bytes {@code long} The number of bytes uploaded.
+     */
+    public void countBufferUpload(long bytes) {
+        if (!mActive) {
+            return;
+        }
+        ++mCurrent.mBufferUploads;
+        mCurrent.mUploadedBytes += bytes;
+    }
+
+    /**
+     * @return {@code int} The number of frame records available, up to the capacity.
+     */
+    public int getRecordCount() {
+        synchronized (mRecords) {
+            return mRecordCount;
+        }
+    }
+
+    /**
+     * Copies a stored frame record. May be called from any thread.
+     *
+     * @param age    {@code int} 0 for the last completed frame, 1 for the one before and so on.
+     * @param record {@link FrameRecord} to copy the values to.
+     *
+     * @return {@code boolean} True if a record of that age was available.
+     */
+    public boolean getRecord(int age, @NonNull FrameRecord record) {
+        synchronized (mRecords) {
+            if (age < 0 || age >= mRecordCount) {
+                return false;
+            }
+            final int index = (mNextRecord - 1 - age + mRecords.length) % mRecords.length;
+            record.setAll(mRecords[index]);
+            return true;
+        }
+    }
+
+    /**
+     * Removes all stored frame records.
+     */
+    public void clear() {
+        synchronized (mRecords) {
+            mRecordCount = 0;
+            mNextRecord = 0;
+        }
+    }
+}
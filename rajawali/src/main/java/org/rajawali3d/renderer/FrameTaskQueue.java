@@ -0,0 +1,120 @@
+/**
+ * Copyright 2013 Dennis Ippel
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.rajawali3d.renderer;
+
+import android.support.annotation.NonNull;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Queue of {@link AFrameTask}s which are offered from any thread and run on the GL thread at the start of a frame.
+ *
+ * Offering never blocks: each priority has its own lock-free queue. When running the tasks, high priority tasks
+ * always run. Normal and low priority tasks run until the frame budget is used up, the rest is left for the next
+ * frame. At least one task runs per frame so the queue always makes progress. Without a budget, which is the
+ * default, every queued task runs in the same frame.
+ */
+public class FrameTaskQueue {
+
+    private final ConcurrentLinkedQueue<AFrameTask> mHighPriority = new ConcurrentLinkedQueue<>();
+    private final ConcurrentLinkedQueue<AFrameTask> mNormalPriority = new ConcurrentLinkedQueue<>();
+    private final ConcurrentLinkedQueue<AFrameTask> mLowPriority = new ConcurrentLinkedQueue<>();
+
+    private volatile long mFrameBudgetNanos;
+
+    /**
+     * Queues a task to run at the start of one of the next frames. May be called from any thread.
+     *
+     * @param task {@link AFrameTask} The task.
+     *
+     * @return {@code boolean} True if the task was queued.
+     */
+    public boolean offer(@NonNull AFrameTask task) {
+        switch (task.getPriority()) {
+            case AFrameTask.PRIORITY_HIGH:
+                return mHighPriority.offer(task);
+            case AFrameTask.PRIORITY_LOW:
+                return mLowPriority.offer(task);
+            default:
+                return mNormalPriority.offer(task);
+        }
+    }
+
+    /**
+     * Sets the time which may be spent running normal and low priority tasks per frame.
+     *
+     * @param frameBudgetNanos {@code long} The budget in nanoseconds, 0 to run all queued tasks each frame.
+     */
+    public void setFrameBudget(long frameBudgetNanos) {
+        mFrameBudgetNanos = frameBudgetNanos;
+    }
+
+    public long getFrameBudget() {
+        return mFrameBudgetNanos;
+    }
+
+    /**
+     * @return {@code boolean} True if no tasks are queued.
+     */
+    public boolean isEmpty() {
+        return mHighPriority.isEmpty() && mNormalPriority.isEmpty() && mLowPriority.isEmpty();
+    }
+
+    /**
+     * Runs the queued tasks. Must only be called from the GL thread.
+     *
+     * @return {@code int} The number of tasks which were run.
+     */
+    public int run() {
+        int count = 0;
+        AFrameTask task;
+        while ((task = mHighPriority.poll()) != null) {
+            task.run();
+            ++count;
+        }
+
+        final long budget = mFrameBudgetNanos;
+        final long start = budget > 0 ? System.nanoTime() : 0;
+        boolean ranBudgeted = false;
+        while (true) {
+            if (ranBudgeted && budget > 0 && System.nanoTime() - start >= budget) {
+                break;
+            }
+            task = mNormalPriority.poll();
+            if (task == null) {
+                task = mLowPriority.poll();
+                if (task == null) {
+                    break;
+                }
+            }
+            task.run();
+            ++count;
+            ranBudgeted = true;
+            // Tasks may queue high priority tasks, those still run this frame
+            while ((task = mHighPriority.poll()) != null) {
+                task.run();
+                ++count;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Removes all queued tasks without running them.
+     */
+    public void clear() {
+        mHighPriority.clear();
+        mNormalPriority.clear();
+        mLowPriority.clear();
+    }
+}
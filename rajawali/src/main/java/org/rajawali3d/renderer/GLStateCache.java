@@ -0,0 +1,356 @@
+/**
+ * Copyright 2013 Dennis Ippel
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.rajawali3d.renderer;
+
+import android.opengl.GLES20;
+import org.rajawali3d.renderer.gl.AGLBackend;
+
+import java.util.Arrays;
+
+/**
+ * Shadow copy of the fixed function OpenGL state which Rajawali changes while drawing. Calls which would not change
+ * the current state are skipped.
+ *
+ * There is one cache per OpenGL context. Each {@link Renderer} owns one and makes it current on its GL thread, so
+ * rendering code can reach it through {@link #getCurrent()}. The cache only knows about changes made through it; code
+ * which calls {@link AGLBackend} or {@code GLES20} directly for the tracked state has to call {@link #invalidate()}
+ * (or {@link #invalidateTextureBindings()} for texture binds) afterwards. The {@link Renderer} only invalidates the
+ * cache when the surface is created, so the tracked state carries over from one frame to the next.
+ *
+ * The number of issued and skipped calls is counted and can be used to check the savings.
+ */
+public class GLStateCache {
+
+    private static final int UNKNOWN = -1;
+    private static final int FALSE   = 0;
+    private static final int TRUE    = 1;
+
+    /**
+     * The number of texture units whose bindings are tracked. Binds on higher units are always issued.
+     */
+    private static final int MAX_TRACKED_TEXTURE_UNITS = 32;
+
+    private static final ThreadLocal<GLStateCache> sCurrent = new ThreadLocal<GLStateCache>() {
+        @Override
+        protected GLStateCache initialValue() {
+            return new GLStateCache();
+        }
+    };
+
+    private int mCullFaceEnabled;
+    private int mCullFaceMode;
+    private int mFrontFace;
+    private int mDepthTestEnabled;
+    private int mDepthFunc;
+    private int mDepthMask;
+    private int mBlendEnabled;
+    private int mBlendSFactor;
+    private int mBlendDFactor;
+    private int mStencilTestEnabled;
+    private int mProgram;
+    private int mFramebuffer;
+    private int mActiveTextureUnit;
+    private final int[] mBoundTextures = new int[MAX_TRACKED_TEXTURE_UNITS];
+    private final int[] mBoundTextureTargets = new int[MAX_TRACKED_TEXTURE_UNITS];
+
+    private int mIssuedCalls;
+    private int mSkippedCalls;
+    private int mLastFrameIssuedCalls;
+    private int mLastFrameSkippedCalls;
+    private int mProgramSwitches;
+    private int mTextureBinds;
+
+    public GLStateCache() {
+        invalidate();
+    }
+
+    /**
+     * Retrieves the state cache of the OpenGL context bound to the calling thread.
+     *
+     * @return {@link GLStateCache} The current state cache.
+     */
+    public static GLStateCache getCurrent() {
+        return sCurrent.get();
+    }
+
+    /**
+     * Makes the provided cache the current one for the calling thread. Called by {@link Renderer} on its GL thread.
+     *
+     * @param cache {@link GLStateCache} The cache of the OpenGL context bound to the calling thread.
+     */
+    public static void setCurrent(GLStateCache cache) {
+        sCurrent.set(cache);
+    }
+
+    /**
+     * Forgets all tracked state so that the next call for each piece of state is issued. Must be called when the
+     * OpenGL context was (re)created or when the state was changed without going through this cache.
+     */
+    public void invalidate() {
+        mCullFaceEnabled = UNKNOWN;
+        mCullFaceMode = UNKNOWN;
+        mFrontFace = UNKNOWN;
+        mDepthTestEnabled = UNKNOWN;
+        mDepthFunc = UNKNOWN;
+        mDepthMask = UNKNOWN;
+        mBlendEnabled = UNKNOWN;
+        mBlendSFactor = UNKNOWN;
+        mBlendDFactor = UNKNOWN;
+        mStencilTestEnabled = UNKNOWN;
+        mProgram = UNKNOWN;
+        mFramebuffer = UNKNOWN;
+        invalidateTextureBindings();
+    }
+
+    /**
+     * Forgets the active texture unit and all texture bindings. Must be called after textures were bound without
+     * going through this cache, as is done when textures are uploaded or deleted.
+     */
+    public void invalidateTextureBindings() {
+        mActiveTextureUnit = UNKNOWN;
+        Arrays.fill(mBoundTextures, UNKNOWN);
+        Arrays.fill(mBoundTextureTargets, UNKNOWN);
+    }
+
+    /**
+     * Moves the call counters of the running frame to the last frame counters and resets them. Called by
+     * {@link Renderer} at the start of each frame.
+     */
+    public void onFrameStart() {
+        mLastFrameIssuedCalls = mIssuedCalls;
+        mLastFrameSkippedCalls = mSkippedCalls;
+        mIssuedCalls = 0;
+        mSkippedCalls = 0;
+        mProgramSwitches = 0;
+        mTextureBinds = 0;
+    }
+
+    public void setCullFaceEnabled(boolean enabled) {
+        if (update(mCullFaceEnabled, enabled)) {
+            mCullFaceEnabled = enabled ? TRUE : FALSE;
+            setCapability(GLES20.GL_CULL_FACE, enabled);
+        }
+    }
+
+    public void setCullFace(int mode) {
+        if (update(mCullFaceMode, mode)) {
+            mCullFaceMode = mode;
+            AGLBackend.getCurrent().glCullFace(mode);
+        }
+    }
+
+    public void setFrontFace(int mode) {
+        if (update(mFrontFace, mode)) {
+            mFrontFace = mode;
+            AGLBackend.getCurrent().glFrontFace(mode);
+        }
+    }
+
+    public void setDepthTestEnabled(boolean enabled) {
+        if (update(mDepthTestEnabled, enabled)) {
+            mDepthTestEnabled = enabled ? TRUE : FALSE;
+            setCapability(GLES20.GL_DEPTH_TEST, enabled);
+        }
+    }
+
+    public void setDepthFunc(int func) {
+        if (update(mDepthFunc, func)) {
+            mDepthFunc = func;
+            AGLBackend.getCurrent().glDepthFunc(func);
+        }
+    }
+
+    public void setDepthMask(boolean enabled) {
+        if (update(mDepthMask, enabled)) {
+            mDepthMask = enabled ? TRUE : FALSE;
+            AGLBackend.getCurrent().glDepthMask(enabled);
+        }
+    }
+
+    public void setBlendEnabled(boolean enabled) {
+        if (update(mBlendEnabled, enabled)) {
+            mBlendEnabled = enabled ? TRUE : FALSE;
+            setCapability(GLES20.GL_BLEND, enabled);
+        }
+    }
+
+    public void setBlendFunc(int sFactor, int dFactor) {
+        if (mBlendSFactor != sFactor || mBlendDFactor != dFactor) {
+            mBlendSFactor = sFactor;
+            mBlendDFactor = dFactor;
+            ++mIssuedCalls;
+            AGLBackend.getCurrent().glBlendFunc(sFactor, dFactor);
+        } else {
+            ++mSkippedCalls;
+        }
+    }
+
+    public void setStencilTestEnabled(boolean enabled) {
+        if (update(mStencilTestEnabled, enabled)) {
+            mStencilTestEnabled = enabled ? TRUE : FALSE;
+            setCapability(GLES20.GL_STENCIL_TEST, enabled);
+        }
+    }
+
+    public void useProgram(int program) {
+        if (update(mProgram, program)) {
+            mProgram = program;
+            ++mProgramSwitches;
+            AGLBackend.getCurrent().glUseProgram(program);
+        }
+    }
+
+    public void bindFramebuffer(int framebuffer) {
+        if (update(mFramebuffer, framebuffer)) {
+            mFramebuffer = framebuffer;
+            AGLBackend.getCurrent().glBindFramebuffer(GLES20.GL_FRAMEBUFFER, framebuffer);
+        }
+    }
+
+    /**
+     * Selects the active texture unit.
+     *
+     * @param unit {@code int} The zero based texture unit, without the {@link GLES20#GL_TEXTURE0} offset.
+     */
+    public void setActiveTexture(int unit) {
+        if (update(mActiveTextureUnit, unit)) {
+            mActiveTextureUnit = unit;
+            AGLBackend.getCurrent().glActiveTexture(GLES20.GL_TEXTURE0 + unit);
+        }
+    }
+
+    /**
+     * Binds a texture to a texture unit, selecting the unit first if needed. The bind is skipped if the texture is
+     * already bound to the same target on that unit.
+     *
+     * @param unit    {@code int} The zero based texture unit, without the {@link GLES20#GL_TEXTURE0} offset.
+     * @param target  {@code int} The texture target, for instance {@link GLES20#GL_TEXTURE_2D}.
+     * @param texture {@code int} The texture handle, 0 to unbind.
+     */
+    public void bindTexture(int unit, int target, int texture) {
+        final boolean tracked = unit < MAX_TRACKED_TEXTURE_UNITS;
+        if (tracked && mBoundTextureTargets[unit] == target && mBoundTextures[unit] == texture) {
+            ++mSkippedCalls;
+            return;
+        }
+        setActiveTexture(unit);
+        ++mIssuedCalls;
+        ++mTextureBinds;
+        if (tracked) {
+            mBoundTextures[unit] = texture;
+            mBoundTextureTargets[unit] = target;
+        }
+        AGLBackend.getCurrent().glBindTexture(target, texture);
+    }
+
+    /**
+     * Marks the provided texture as no longer bound on any unit, for instance because it was deleted and its handle
+     * may be reused.
+     *
+     * @param texture {@code int} The texture handle.
+     */
+    public void forgetTexture(int texture) {
+        for (int i = 0; i < MAX_TRACKED_TEXTURE_UNITS; ++i) {
+            if (mBoundTextures[i] == texture) {
+                mBoundTextures[i] = UNKNOWN;
+                mBoundTextureTargets[i] = UNKNOWN;
+            }
+        }
+    }
+
+    /**
+     * Marks the provided program as no longer current, for instance because it was deleted. The next
+     * {@link #useProgram(int)} call with the same handle will be issued.
+     *
+     * @param program {@code int} The program handle.
+     */
+    public void forgetProgram(int program) {
+        if (mProgram == program) {
+            mProgram = UNKNOWN;
+        }
+    }
+
+    /**
+     * Marks the provided framebuffer as no longer bound, for instance because it was deleted.
+     *
+     * @param framebuffer {@code int} The framebuffer handle.
+     */
+    public void forgetFramebuffer(int framebuffer) {
+        if (mFramebuffer == framebuffer) {
+            mFramebuffer = UNKNOWN;
+        }
+    }
+
+    /**
+     * @return {@code int} The number of state calls issued to OpenGL so far this frame.
+     */
+    public int getIssuedCalls() {
+        return mIssuedCalls;
+    }
+
+    /**
+     * @return {@code int} The number of state calls skipped so far this frame.
+     */
+    public int getSkippedCalls() {
+        return mSkippedCalls;
+    }
+
+    /**
+     * @return {@code int} The number of state calls issued to OpenGL during the last complete frame.
+     */
+    public int getLastFrameIssuedCalls() {
+        return mLastFrameIssuedCalls;
+    }
+
+    /**
+     * @return {@code int} The number of state calls skipped during the last complete frame.
+     */
+    public int getLastFrameSkippedCalls() {
+        return mLastFrameSkippedCalls;
+    }
+
+    /**
+     * @return {@code int} The number of programs made current so far this frame.
+     */
+    public int getProgramSwitches() {
+        return mProgramSwitches;
+    }
+
+    /**
+     * @return {@code int} The number of textures bound so far this frame.
+     */
+    public int getTextureBinds() {
+        return mTextureBinds;
+    }
+
+    private boolean update(int current, boolean value) {
+        return update(current, value ? TRUE : FALSE);
+    }
+
+    private boolean update(int current, int value) {
+        if (current == value) {
+            ++mSkippedCalls;
+            return false;
+        }
+        ++mIssuedCalls;
+        return true;
+    }
+
+    private static void setCapability(int capability, boolean enabled) {
+        if (enabled) {
+            AGLBackend.getCurrent().glEnable(capability);
+        } else {
+            AGLBackend.getCurrent().glDisable(capability);
+        }
+    }
+}
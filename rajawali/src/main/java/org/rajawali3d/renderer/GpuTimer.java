@@ -0,0 +1,483 @@
+/**
+ * Copyright 2013 Dennis Ippel
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.rajawali3d.renderer;
+
+import android.opengl.GLES20;
+import android.opengl.GLES30;
+import android.support.annotation.NonNull;
+import org.rajawali3d.renderer.gl.AGLBackend;
+import org.rajawali3d.util.Capabilities;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * Measures how long named scopes take on the GPU, using {@code GL_EXT_disjoint_timer_query}.
+ *
+ * Each {@link org.rajawali3d.scene.Scene} render, each post processing pass and each bound {@link RenderTarget} is a
+ * scope. Only one timer query can run at a time, so scopes don't nest: entering a scope ends the query of the
+ * enclosing one, which resumes with a new query when the inner scope ends. The time of a scope therefore excludes the scopes inside of it.
+ *
+ * Query results are read at the start of later frames, once the GPU has made them available, so timing never stalls
+ * the pipeline. The results of a frame are summed per scope and kept in a sliding window, from which the minimum,
+ * average and maximum are calculated. Results from periods the GPU reports as disjoint, for instance because of a
+ * frequency change, are discarded.
+ *
+ * The Android SDK only exposes the query functions through {@link GLES30}, so timing requires an OpenGL ES 3.0
+ * context which also supports the extension. Otherwise enabling it has no effect. There is one timer per GL thread,
+ * made current by the {@link Renderer} which owns it.
+ */
+public class GpuTimer {
+
+    public static final String EXTENSION = "GL_EXT_disjoint_timer_query";
+    public static final int DEFAULT_WINDOW_SIZE = 60;
+
+    private static final int GL_TIME_ELAPSED_EXT = 0x88BF;
+    private static final int GL_GPU_DISJOINT_EXT = 0x8FBB;
+    private static final int MAX_QUERIES = 256;
+    private static final int MAX_SCOPE_DEPTH = 16;
+
+    private static final int UNKNOWN = -1;
+    private static final int FALSE   = 0;
+    private static final int TRUE    = 1;
+
+    /**
+     * The minimum, average and maximum GPU time of a scope over the sliding window.
+     */
+    public static final class ScopeStatistics {
+
+        private String mName;
+        private int mSampleCount;
+        private long mMinimum;
+        private long mAverage;
+        private long mMaximum;
+
+        public String getName() {
+            return mName;
+        }
+
+        /**
+         * @return {@code int} The number of frames the statistics are based on.
+         */
+        public int getSampleCount() {
+            return mSampleCount;
+        }
+
+        /**
+         * @return {@code long} The shortest GPU time per frame in nanoseconds.
+         */
+        public long getMinimum() {
+            return mMinimum;
+        }
+
+        /**
+         * @return {@code long} The average GPU time per frame in nanoseconds.
+         */
+        public long getAverage() {
+            return mAverage;
+        }
+
+        /**
+         * @return {@code long} The longest GPU time per frame in nanoseconds.
+         */
+        public long getMaximum() {
+            return mMaximum;
+        }
+
+        @Override
+        public String toString() {
+            return mName + ": min " + mMinimum / 1000 + "us, avg " + mAverage / 1000 + "us, max " + mMaximum / 1000
+                + "us over " + mSampleCount + " frames";
+        }
+    }
+
+    private static final class Scope {
+
+        final String mName;
+        final long[] mSamples;
+        int mSampleCount;
+        int mNextSample;
+        // Accumulates the segments of the frame being collected, GL thread only
+        long mFrameTime;
+        boolean mTouched;
+
+        Scope(String name, int windowSize) {
+            mName = name;
+            mSamples = new long[windowSize];
+        }
+
+        synchronized void addSample(long time) {
+            mSamples[mNextSample] = time;
+            mNextSample = (mNextSample + 1) % mSamples.length;
+            if (mSampleCount < mSamples.length) {
+                ++mSampleCount;
+            }
+        }
+
+        synchronized void getStatistics(ScopeStatistics statistics) {
+            long min = Long.MAX_VALUE;
+            long max = 0;
+            long sum = 0;
+            for (int i = 0; i < mSampleCount; ++i) {
+                final long sample = mSamples[i];
+                min = Math.min(min, sample);
+                max = Math.max(max, sample);
+                sum += sample;
+            }
+            statistics.mName = mName;
+            statistics.mSampleCount = mSampleCount;
+            statistics.mMinimum = mSampleCount == 0 ? 0 : min;
+            statistics.mAverage = mSampleCount == 0 ? 0 : sum / mSampleCount;
+            statistics.mMaximum = max;
+        }
+
+        synchronized void clear() {
+            mSampleCount = 0;
+            mNextSample = 0;
+        }
+    }
+
+    private static final ThreadLocal<GpuTimer> sCurrent = new ThreadLocal<GpuTimer>() {
+        @Override
+        protected GpuTimer initialValue() {
+            return new GpuTimer();
+        }
+    };
+
+    private final int mWindowSize;
+    private final HashMap<String, Scope> mScopes = new HashMap<>();
+    private final ArrayList<Scope> mTouchedScopes = new ArrayList<>();
+    private final int[] mParam = new int[1];
+
+    private final int[] mFreeQueries = new int[MAX_QUERIES];
+    private int mFreeCount;
+    private int mAllocatedQueries;
+
+    // FIFO of ended queries waiting for their result
+    private final int[] mPendingQueries = new int[MAX_QUERIES];
+    private final Scope[] mPendingScopes = new Scope[MAX_QUERIES];
+    private final long[] mPendingFrames = new long[MAX_QUERIES];
+    private int mPendingHead;
+    private int mPendingCount;
+
+    private final Scope[] mScopeStack = new Scope[MAX_SCOPE_DEPTH];
+    private int mDepth;
+    private int mOverflowDepth;
+    private int mRunningQuery;
+
+    private volatile boolean mEnabled;
+    private boolean mActive;
+    private int mSupported = UNKNOWN;
+    private long mFrameNumber;
+    private long mCollectingFrame = -1;
+    private int mDroppedSegments;
+
+    public GpuTimer() {
+        this(DEFAULT_WINDOW_SIZE);
+    }
+
+    /**
+     * @param windowSize {@code int} The number of frames the statistics of each scope are calculated over.
+     */
+    public GpuTimer(int windowSize) {
+        if (windowSize < 1) {
+            throw new IllegalArgumentException("Window size must be at least 1.");
+        }
+        mWindowSize = windowSize;
+    }
+
+    /**
+     * Retrieves the GPU timer of the GL thread the caller runs on.
+     *
+     * @return {@link GpuTimer} The current GPU timer.
+     */
+    public static GpuTimer getCurrent() {
+        return sCurrent.get();
+    }
+
+    /**
+     * Makes the provided timer the current one for the calling thread. Called by {@link Renderer} on its GL thread.
+     *
+     * @param timer {@link GpuTimer} The timer of the OpenGL context bound to the calling thread.
+     */
+    public static void setCurrent(GpuTimer timer) {
+        sCurrent.set(timer);
+    }
+
+    /**
+     * Enables or disables GPU timing, starting with the next frame. Has no effect if timer queries are not supported.
+     *
+     * @param enabled {@code boolean} Whether or not to time scopes.
+     */
+    public void setEnabled(boolean enabled) {
+        mEnabled = enabled;
+    }
+
+    public boolean isEnabled() {
+        return mEnabled;
+    }
+
+    /**
+     * Checks whether the current context supports timer queries. Must be called on the GL thread.
+     *
+     * @return {@code boolean} True if GPU timing is available.
+     */
+    public boolean isSupported() {
+        if (mSupported == UNKNOWN) {
+            mSupported = Capabilities.getGLESMajorVersion() >= 3 && Capabilities.getInstance().hasExtension(EXTENSION)
+                ? TRUE : FALSE;
+        }
+        return mSupported == TRUE;
+    }
+
+    /**
+     * Forgets all queries, which belong to a lost context. Called by {@link Renderer} when the surface is created.
+     */
+    public void reset() {
+        mFreeCount = 0;
+        mAllocatedQueries = 0;
+        for (int i = 0; i < MAX_QUERIES; ++i) {
+            mPendingScopes[i] = null;
+        }
+        mPendingHead = 0;
+        mPendingCount = 0;
+        for (int i = 0; i < MAX_SCOPE_DEPTH; ++i) {
+            mScopeStack[i] = null;
+        }
+        mDepth = 0;
+        mOverflowDepth = 0;
+        mRunningQuery = 0;
+        discardCollectingFrame();
+        mSupported = UNKNOWN;
+        mActive = false;
+    }
+
+    /**
+     * Collects the available results of earlier frames and starts timing a new one. Called by {@link Renderer} at the
+     * start of each frame.
+     */
+    public void beginFrame() {
+        mActive = mEnabled && isSupported();
+        if (mPendingCount > 0) {
+            collectResults();
+        }
+        ++mFrameNumber;
+    }
+
+    /**
+     * Ends all scopes which are still open. Called by {@link Renderer} at the end of each frame.
+     */
+    public void endFrame() {
+        if (!mActive) {
+            return;
+        }
+        endSegment();
+        for (int i = 0; i < mDepth; ++i) {
+            mScopeStack[i] = null;
+        }
+        mDepth = 0;
+        mOverflowDepth = 0;
+    }
+
+    /**
+     * Starts timing a scope. Every call must be matched by a call to {@link #endScope(String)} with the same name.
+     *
+     * @param name {@link String} The name of the scope. Results of scopes with the same name are added up.
+     */
+    public void beginScope(@NonNull String name) {
+        if (!mActive) {
+            return;
+        }
+        if (mDepth == MAX_SCOPE_DEPTH) {
+            ++mOverflowDepth;
+            return;
+        }
+        Scope scope = mScopes.get(name);
+        if (scope == null) {
+            scope = new Scope(name, mWindowSize);
+            synchronized (mScopes) {
+                mScopes.put(name, scope);
+            }
+        }
+        endSegment();
+        mScopeStack[mDepth++] = scope;
+        beginSegment(scope);
+    }
+
+    /**
+     * Stops timing a scope and resumes timing the enclosing one.
+     *
+     * @param name {@link String} The name passed to {@link #beginScope(String)}.
+     */
+    public void endScope(@NonNull String name) {
+        if (!mActive || mDepth == 0) {
+            return;
+        }
+        if (mOverflowDepth > 0) {
+            --mOverflowDepth;
+            return;
+        }
+        if (!mScopeStack[mDepth - 1].mName.equals(name)) {
+            // Unbalanced, for instance a render target which was unbound without being bound through it
+            return;
+        }
+        endSegment();
+        mScopeStack[--mDepth] = null;
+        if (mDepth > 0) {
+            beginSegment(mScopeStack[mDepth - 1]);
+        }
+    }
+
+    /**
+     * @return {@link List} of the names of all scopes timed so far. May be called from any thread.
+     */
+    @NonNull
+    public List<String> getScopeNames() {
+        synchronized (mScopes) {
+            return new ArrayList<>(mScopes.keySet());
+        }
+    }
+
+    /**
+     * Calculates the statistics of a scope over the sliding window. May be called from any thread.
+     *
+     * @param name       {@link String} The name of the scope.
+     * @param statistics {@link ScopeStatistics} to store the results in.
+     *
+     * @return {@code boolean} True if the scope is known.
+     */
+    public boolean getStatistics(@NonNull String name, @NonNull ScopeStatistics statistics) {
+        final Scope scope;
+        synchronized (mScopes) {
+            scope = mScopes.get(name);
+        }
+        if (scope == null) {
+            return false;
+        }
+        scope.getStatistics(statistics);
+        return true;
+    }
+
+    /**
+     * Clears the sliding windows of all scopes. May be called from any thread.
+     */
+    public void clearStatistics() {
+        synchronized (mScopes) {
+            for (Scope scope : mScopes.values()) {
+                scope.clear();
+            }
+        }
+    }
+
+    /**
+     * @return {@code int} The number of scope segments which could not be timed because too many queries were waiting
+     * for their results.
+     */
+    public int getDroppedSegmentCount() {
+        return mDroppedSegments;
+    }
+
+    private void beginSegment(Scope scope) {
+        final int query = obtainQuery();
+        if (query == 0) {
+            ++mDroppedSegments;
+            return;
+        }
+        AGLBackend.getCurrent().glBeginQuery(GL_TIME_ELAPSED_EXT, query);
+        mRunningQuery = query;
+    }
+
+    private void endSegment() {
+        if (mRunningQuery == 0) {
+            return;
+        }
+        AGLBackend.getCurrent().glEndQuery(GL_TIME_ELAPSED_EXT);
+        final int index = (mPendingHead + mPendingCount) % MAX_QUERIES;
+        mPendingQueries[index] = mRunningQuery;
+        mPendingScopes[index] = mScopeStack[mDepth - 1];
+        mPendingFrames[index] = mFrameNumber;
+        ++mPendingCount;
+        mRunningQuery = 0;
+    }
+
+    private int obtainQuery() {
+        if (mFreeCount > 0) {
+            return mFreeQueries[--mFreeCount];
+        }
+        if (mAllocatedQueries == MAX_QUERIES) {
+            return 0;
+        }
+        AGLBackend.getCurrent().glGenQueries(1, mParam, 0);
+        ++mAllocatedQueries;
+        return mParam[0];
+    }
+
+    private void collectResults() {
+        final AGLBackend gl = AGLBackend.getCurrent();
+        // Checking for a disjoint period also resets the flag
+        gl.glGetIntegerv(GL_GPU_DISJOINT_EXT, mParam, 0);
+        final boolean disjoint = mParam[0] != 0;
+        if (disjoint) {
+            discardCollectingFrame();
+        }
+
+        while (mPendingCount > 0) {
+            final int query = mPendingQueries[mPendingHead];
+            gl.glGetQueryObjectuiv(query, GLES30.GL_QUERY_RESULT_AVAILABLE, mParam, 0);
+            if (mParam[0] == GLES20.GL_FALSE) {
+                // Results become available in order, the remaining ones are not ready either
+                break;
+            }
+            final Scope scope = mPendingScopes[mPendingHead];
+            final long frame = mPendingFrames[mPendingHead];
+            mPendingScopes[mPendingHead] = null;
+            mPendingHead = (mPendingHead + 1) % MAX_QUERIES;
+            --mPendingCount;
+            mFreeQueries[mFreeCount++] = query;
+
+            if (disjoint) {
+                continue;
+            }
+            gl.glGetQueryObjectuiv(query, GLES30.GL_QUERY_RESULT, mParam, 0);
+            if (frame != mCollectingFrame) {
+                // All segments of the previous frame are in
+                commitCollectingFrame();
+                mCollectingFrame = frame;
+            }
+            if (!scope.mTouched) {
+                scope.mTouched = true;
+                scope.mFrameTime = 0;
+                mTouchedScopes.add(scope);
+            }
+            scope.mFrameTime += mParam[0] & 0xFFFFFFFFL;
+        }
+    }
+
+    private void commitCollectingFrame() {
+        for (int i = 0, j = mTouchedScopes.size(); i < j; ++i) {
+            final Scope scope = mTouchedScopes.get(i);
+            scope.addSample(scope.mFrameTime);
+            scope.mTouched = false;
+        }
+        mTouchedScopes.clear();
+    }
+
+    private void discardCollectingFrame() {
+        for (int i = 0, j = mTouchedScopes.size(); i < j; ++i) {
+            mTouchedScopes.get(i).mTouched = false;
+        }
+        mTouchedScopes.clear();
+        mCollectingFrame = -1;
+    }
+}
@@ -19,6 +19,7 @@ import org.rajawali3d.materials.textures.ATexture.FilterType;
 import org.rajawali3d.materials.textures.ATexture.WrapType;
 import org.rajawali3d.materials.textures.RenderTargetTexture;
 import org.rajawali3d.materials.textures.TextureManager;
+import org.rajawali3d.renderer.gl.AGLBackend;
 import org.rajawali3d.util.RajLog;
 
 /**
@@ -34,6 +35,7 @@ public class RenderTarget {
 	protected int mOffsetX;
 	protected int mOffsetY;
 	protected String mName;
+	private final String mGpuTimerScope;
 	protected boolean mMipmaps;
 	protected int mGLType;
 	protected Config mBitmapConfig;
@@ -81,6 +83,7 @@ public class RenderTarget {
 			int glType, Config bitmapConfig, FilterType filterType,
 			WrapType wrapType) {
 		mName = name;
+		mGpuTimerScope = "RenderTarget " + name;
 		mWidth = width;
 		mHeight = height;
 		mOffsetX = offsetX;
@@ -244,53 +247,55 @@ public class RenderTarget {
 	}
 
 	public void create() {
+		final AGLBackend gl = AGLBackend.getCurrent();
 		int[] bufferHandles = new int[1];
-		GLES20.glGenFramebuffers(1, bufferHandles, 0);
+		gl.glGenFramebuffers(1, bufferHandles, 0);
 		mFrameBufferHandle = bufferHandles[0];
 
-		GLES20.glBindFramebuffer(GLES20.GL_FRAMEBUFFER, mFrameBufferHandle);
+		GLStateCache.getCurrent().bindFramebuffer(mFrameBufferHandle);
 
 		checkGLError("Could not create framebuffer: ");
 		// -- add the texture directly. we can afford to do this because the create()
 		//    method is called in a thread safe manner.
 		TextureManager.getInstance().taskAdd(mTexture);
 
-		GLES20.glFramebufferTexture2D(
+		gl.glFramebufferTexture2D(
 			      GLES20.GL_FRAMEBUFFER, GLES20.GL_COLOR_ATTACHMENT0, GLES20.GL_TEXTURE_2D, mTexture.getTextureId(), 0);
 
 		checkGLError("Could not create framebuffer 2: ");
 
-		GLES20.glGenRenderbuffers(1, bufferHandles, 0);
-		GLES20.glBindRenderbuffer(GLES20.GL_RENDERBUFFER, bufferHandles[0]);
-		GLES20.glRenderbufferStorage(GLES20.GL_RENDERBUFFER, GLES20.GL_DEPTH_COMPONENT16, mWidth, mHeight);
-		GLES20.glFramebufferRenderbuffer(GLES20.GL_FRAMEBUFFER, GLES20.GL_DEPTH_ATTACHMENT, GLES20.GL_RENDERBUFFER, bufferHandles[0]);
+		gl.glGenRenderbuffers(1, bufferHandles, 0);
+		gl.glBindRenderbuffer(GLES20.GL_RENDERBUFFER, bufferHandles[0]);
+		gl.glRenderbufferStorage(GLES20.GL_RENDERBUFFER, GLES20.GL_DEPTH_COMPONENT16, mWidth, mHeight);
+		gl.glFramebufferRenderbuffer(GLES20.GL_FRAMEBUFFER, GLES20.GL_DEPTH_ATTACHMENT, GLES20.GL_RENDERBUFFER, bufferHandles[0]);
 
 		checkGLError("Could not create framebuffer 3: ");
 /*
 		if (mStencilBuffer)
 		{
 
-			GLES20.glGenRenderbuffers(1, bufferHandles, 0);
+			gl.glGenRenderbuffers(1, bufferHandles, 0);
 			mStencilBufferHandle = bufferHandles[0];
-			GLES20.glBindRenderbuffer(GLES20.GL_RENDERBUFFER, mStencilBufferHandle);
-			GLES20.glRenderbufferStorage(GLES20.GL_RENDERBUFFER, GLES20.GL_STENCIL_INDEX8, mWidth, mHeight);
-			GLES20.glFramebufferRenderbuffer(GLES20.GL_FRAMEBUFFER, GLES20.GL_STENCIL_ATTACHMENT,
+			gl.glBindRenderbuffer(GLES20.GL_RENDERBUFFER, mStencilBufferHandle);
+			gl.glRenderbufferStorage(GLES20.GL_RENDERBUFFER, GLES20.GL_STENCIL_INDEX8, mWidth, mHeight);
+			gl.glFramebufferRenderbuffer(GLES20.GL_FRAMEBUFFER, GLES20.GL_STENCIL_ATTACHMENT,
 					GLES20.GL_RENDERBUFFER, mStencilBufferHandle);
 
 			checkGLError("Could not create stencil buffer: ");
 		}
 	*/
-		GLES20.glBindFramebuffer(GLES20.GL_FRAMEBUFFER, 0);
+		GLStateCache.getCurrent().bindFramebuffer(0);
 	}
 
 	public void bind() {
-		GLES20.glBindFramebuffer(GLES20.GL_FRAMEBUFFER, mFrameBufferHandle);
-		GLES20.glFramebufferTexture2D(
+		final AGLBackend gl = AGLBackend.getCurrent();
+		GLStateCache.getCurrent().bindFramebuffer(mFrameBufferHandle);
+		gl.glFramebufferTexture2D(
 			      GLES20.GL_FRAMEBUFFER, GLES20.GL_COLOR_ATTACHMENT0, GLES20.GL_TEXTURE_2D, mTexture.getTextureId(), 0);
 
-		int status = GLES20.glCheckFramebufferStatus(GLES20.GL_FRAMEBUFFER);
+		int status = gl.glCheckFramebufferStatus(GLES20.GL_FRAMEBUFFER);
 		if (status != GLES20.GL_FRAMEBUFFER_COMPLETE) {
-			GLES20.glBindFramebuffer(GLES20.GL_FRAMEBUFFER, 0);
+			GLStateCache.getCurrent().bindFramebuffer(0);
 			String errorString = "";
 			switch(status)
 			{
@@ -310,14 +315,17 @@ public class RenderTarget {
 			}
 			throw new RuntimeException(errorString);
 		}
+		GpuTimer.getCurrent().beginScope(mGpuTimerScope);
 	}
 
 	public void unbind() {
-		GLES20.glBindFramebuffer(GLES20.GL_FRAMEBUFFER, 0);
+		GpuTimer.getCurrent().endScope(mGpuTimerScope);
+		GLStateCache.getCurrent().bindFramebuffer(0);
 	}
 
 	public void remove() {
-		GLES20.glDeleteFramebuffers(GLES20.GL_FRAMEBUFFER, new int[] { mFrameBufferHandle }, 0);
+		AGLBackend.getCurrent().glDeleteFramebuffers(GLES20.GL_FRAMEBUFFER, new int[] { mFrameBufferHandle }, 0);
+		GLStateCache.getCurrent().forgetFramebuffer(mFrameBufferHandle);
 	}
 
 	public void reload() {
@@ -325,7 +333,7 @@ public class RenderTarget {
 	}
 
 	public void checkGLError(String ex) {
-		int error = GLES20.glGetError();
+		int error = AGLBackend.getCurrent().glGetError();
 		if (error != GLES20.GL_NO_ERROR)
 		{
 			String description = GLU.gluErrorString(error);
@@ -29,12 +29,15 @@ import org.rajawali3d.loader.ALoader;
 import org.rajawali3d.loader.async.IAsyncLoaderCallback;
 import org.rajawali3d.materials.Material;
 import org.rajawali3d.materials.MaterialManager;
+import org.rajawali3d.materials.ProgramBinaryCache;
 import org.rajawali3d.materials.textures.ATexture;
 import org.rajawali3d.materials.textures.RenderTargetTexture;
 import org.rajawali3d.materials.textures.TextureManager;
 import org.rajawali3d.math.Matrix;
 import org.rajawali3d.math.Matrix4;
 import org.rajawali3d.math.vector.Vector3;
+import org.rajawali3d.renderer.gl.AGLBackend;
+import org.rajawali3d.renderer.gl.GLES20Backend;
 import org.rajawali3d.scene.Scene;
 import org.rajawali3d.view.ISurface;
 import org.rajawali3d.util.Capabilities;
@@ -43,14 +46,13 @@ import org.rajawali3d.util.OnFPSUpdateListener;
 import org.rajawali3d.util.RajLog;
 import org.rajawali3d.util.RawShaderLoader;
 
+import java.io.File;
 import java.lang.ref.WeakReference;
 import java.lang.reflect.Constructor;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Locale;
-import java.util.Queue;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.Executor;
 import java.util.concurrent.Executors;
@@ -65,6 +67,7 @@ import javax.microedition.khronos.opengles.GL10;
 
 public abstract class Renderer implements ISurfaceRenderer {
     protected static final int AVAILABLE_CORES = Runtime.getRuntime().availableProcessors();
+    private static final String PROGRAM_CACHE_DIRECTORY = "rajawali_programs";
     protected final Executor mLoaderExecutor = Executors.newFixedThreadPool(AVAILABLE_CORES == 1 ? 1
             : AVAILABLE_CORES - 1);
 
@@ -80,9 +83,14 @@ public abstract class Renderer implements ISurfaceRenderer {
 
     protected TextureManager mTextureManager; // Texture manager for ALL textures across ALL scenes.
     protected MaterialManager mMaterialManager; // Material manager for ALL materials across ALL scenes.
+    protected final GLStateCache mGLStateCache = new GLStateCache(); // Shadowed GL state of this renderer's context.
+    protected final FrameProfiler mFrameProfiler = new FrameProfiler(); // Per frame timings, disabled by default.
+    protected final GpuTimer mGpuTimer = new GpuTimer(); // GPU timings, disabled by default.
+    protected volatile AGLBackend mGLBackend = new GLES20Backend(); // Receives the GL calls of the render path.
 
     // Frame related members
     protected ScheduledExecutorService mTimer; // Timer used to schedule drawing
+    private volatile ShaderWarmUp mShaderWarmUp; // Shader warm-up in progress, if any
     protected double mFrameRate; // Target frame rate to render at
     protected int mFrameCount; // Used for determining FPS
     protected double mLastMeasuredFPS; // Last measured FPS value
@@ -108,7 +116,7 @@ public abstract class Renderer implements ISurfaceRenderer {
 
     protected final List<Scene>                     mScenes; //List of all scenes this renderer is aware of.
     protected final List<RenderTarget>              mRenderTargets; //List of all render targets this renderer is aware of.
-    private final Queue<AFrameTask>                 mFrameTaskQueue;
+    private final FrameTaskQueue                    mFrameTaskQueue;
     private final SparseArray<ModelRunnable>        mLoaderThreads;
     private final SparseArray<IAsyncLoaderCallback> mLoaderCallbacks;
 
@@ -168,7 +176,7 @@ public abstract class Renderer implements ISurfaceRenderer {
         mFrameRate = getRefreshRate();
         mScenes = Collections.synchronizedList(new CopyOnWriteArrayList<Scene>());
         mRenderTargets = Collections.synchronizedList(new CopyOnWriteArrayList<RenderTarget>());
-        mFrameTaskQueue = new LinkedList<>();
+        mFrameTaskQueue = new FrameTaskQueue();
 
         mSceneCachingEnabled = true;
         mSceneInitialized = false;
@@ -191,6 +199,12 @@ public abstract class Renderer implements ISurfaceRenderer {
         mMaterialManager = MaterialManager.getInstance();
         mMaterialManager.setContext(getContext());
 
+        // Store linked programs in the application's cache unless the application chose another location
+        final ProgramBinaryCache programBinaryCache = ProgramBinaryCache.getInstance();
+        if (context != null && programBinaryCache.getCacheDirectory() == null) {
+            programBinaryCache.setCacheDirectory(new File(context.getCacheDir(), PROGRAM_CACHE_DIRECTORY));
+        }
+
         // We are registering now
         if (registerForResources) {
             mTextureManager.registerRenderer(this);
@@ -206,6 +220,54 @@ public abstract class Renderer implements ISurfaceRenderer {
         return mTextureManager;
     }
 
+    /**
+     * Retrieves the GL state cache of this renderer's context. Its counters show how many state changes were
+     * issued and how many were skipped as redundant. Subclasses which change the tracked state with direct GL calls,
+     * for instance in {@link #onRender(long, double)}, must call {@link GLStateCache#invalidate()} afterwards.
+     *
+     * @return {@link GLStateCache} The state cache.
+     */
+    public GLStateCache getGLStateCache() {
+        return mGLStateCache;
+    }
+
+    /**
+     * Retrieves the frame profiler of this renderer. It is disabled by default, see
+     * {@link FrameProfiler#setEnabled(boolean)}.
+     *
+     * @return {@link FrameProfiler} The frame profiler.
+     */
+    public FrameProfiler getFrameProfiler() {
+        return mFrameProfiler;
+    }
+
+    /**
+     * Retrieves the GPU timer of this renderer. It is disabled by default, see {@link GpuTimer#setEnabled(boolean)}.
+     *
+     * @return {@link GpuTimer} The GPU timer.
+     */
+    public GpuTimer getGpuTimer() {
+        return mGpuTimer;
+    }
+
+    /**
+     * Sets the backend the GL calls of the render path are issued to, starting with the next frame. Defaults to
+     * {@link GLES20Backend}. Backends which don't issue the calls to OpenGL, such as
+     * {@link org.rajawali3d.renderer.gl.HeadlessGLBackend}, are meant for tests and benchmarks.
+     *
+     * @param backend {@link AGLBackend} The backend to use.
+     */
+    public void setGLBackend(AGLBackend backend) {
+        if (backend == null) {
+            throw new IllegalArgumentException("The GL backend must not be null.");
+        }
+        mGLBackend = backend;
+    }
+
+    public AGLBackend getGLBackend() {
+        return mGLBackend;
+    }
+
     @Override
     public double getFrameRate() {
         return mFrameRate;
@@ -301,6 +363,13 @@ public abstract class Renderer implements ISurfaceRenderer {
     @Override
     public void onRenderSurfaceCreated(EGLConfig config, GL10 gl, int width, int height) {
         Capabilities.getInstance();
+        AGLBackend.setCurrent(mGLBackend);
+        GLStateCache.setCurrent(mGLStateCache);
+        FrameProfiler.setCurrent(mFrameProfiler);
+        GpuTimer.setCurrent(mGpuTimer);
+        mGLStateCache.invalidate();
+        mGpuTimer.reset();
+        ProgramBinaryCache.getInstance().onContextCreated();
 
         String[] versionString = (GLES20.glGetString(GLES20.GL_VERSION)).split(" ");
         RajLog.d("Open GL ES Version String: " + GLES20.glGetString(GLES20.GL_VERSION));
@@ -372,9 +441,54 @@ public abstract class Renderer implements ISurfaceRenderer {
         startRendering();
     }
 
+    /**
+     * Compiles the shaders of all registered materials before the scene is shown, using a frame budget of 8ms.
+     *
+     * @param listener {@link ShaderWarmUp.OnShaderWarmUpListener} to report progress to, may be null.
+     *
+     * @return {@link ShaderWarmUp} The started warm-up.
+     * @see #warmUpShaders(long, ShaderWarmUp.OnShaderWarmUpListener)
+     */
+    public ShaderWarmUp warmUpShaders(ShaderWarmUp.OnShaderWarmUpListener listener) {
+        return warmUpShaders(TimeUnit.MILLISECONDS.toNanos(8), listener);
+    }
+
+    /**
+     * Compiles the shaders of all registered materials before the scene is shown. On the next frame the current scene
+     * applies its queued changes, so lit materials get their lights, and the shader source is generated on the loader
+     * threads. The GL thread then compiles the materials across as many frames as needed, spending at most the given
+     * budget per frame. The scene isn't rendered until the warm-up is complete, which allows the
+     * application to show a loading screen driven by the listener.
+     *
+     * @param frameBudgetNanos {@code long} The time to spend compiling per frame, in nanoseconds.
+     * @param listener         {@link ShaderWarmUp.OnShaderWarmUpListener} to report progress to, may be null. It is
+     *                         called on the GL thread.
+     *
+     * @return {@link ShaderWarmUp} The started warm-up, which can be used to query progress or cancel it.
+     */
+    public ShaderWarmUp warmUpShaders(long frameBudgetNanos, ShaderWarmUp.OnShaderWarmUpListener listener) {
+        final ShaderWarmUp shaderWarmUp = new ShaderWarmUp(mMaterialManager.getMaterials(), frameBudgetNanos,
+            listener);
+        final ShaderWarmUp previous = mShaderWarmUp;
+        if (previous != null) {
+            previous.cancel();
+        }
+        mShaderWarmUp = shaderWarmUp;
+        return shaderWarmUp;
+    }
+
     @Override
     public void onRenderFrame(GL10 gl) {
+        AGLBackend.setCurrent(mGLBackend);
+        GLStateCache.setCurrent(mGLStateCache);
+        FrameProfiler.setCurrent(mFrameProfiler);
+        GpuTimer.setCurrent(mGpuTimer);
+        mGLStateCache.onFrameStart();
+        mFrameProfiler.beginFrame();
+        mGpuTimer.beginFrame();
+        final FrameProfiler.Phase phase = mFrameProfiler.enterPhase(FrameProfiler.Phase.FRAME_TASKS);
         performFrameTasks(); //Execute any pending frame tasks
+        mFrameProfiler.exitPhase(phase);
         synchronized (mNextSceneLock) {
             //Check if we need to switch the scene, and if so, do it.
             if (mNextScene != null) {
@@ -388,7 +502,25 @@ public abstract class Renderer implements ISurfaceRenderer {
         final double deltaTime = (currentTime - mLastRender) / 1e9;
         mLastRender = currentTime;
 
+        final ShaderWarmUp shaderWarmUp = mShaderWarmUp;
+        if (shaderWarmUp != null) {
+            if (!shaderWarmUp.isStarted()) {
+                getCurrentScene().applyPendingChanges();
+                shaderWarmUp.start(mLoaderExecutor);
+            }
+            if (!shaderWarmUp.onFrame()) {
+                // The scene is held back until its shaders are compiled
+                mGLBackend.glClear(GLES20.GL_COLOR_BUFFER_BIT | GLES20.GL_DEPTH_BUFFER_BIT);
+                mGpuTimer.endFrame();
+                mFrameProfiler.endFrame();
+                return;
+            }
+            mShaderWarmUp = null;
+        }
+
         onRender(elapsedRenderTime, deltaTime);
+        mGpuTimer.endFrame();
+        mFrameProfiler.endFrame();
 
         ++mFrameCount;
         if (mFrameCount % 50 == 0) {
@@ -1018,21 +1150,23 @@ public abstract class Renderer implements ISurfaceRenderer {
     }
 
     protected boolean internalOfferTask(AFrameTask task) {
-        synchronized (mFrameTaskQueue) {
-            return mFrameTaskQueue.offer(task);
-        }
+        return mFrameTaskQueue.offer(task);
     }
 
     protected void performFrameTasks() {
-        synchronized (mFrameTaskQueue) {
-            //Fetch the first task
-            AFrameTask task = mFrameTaskQueue.poll();
-            while (task != null) {
-                task.run();
-                //Retrieve the next task
-                task = mFrameTaskQueue.poll();
-            }
-        }
+        mFrameTaskQueue.run();
+    }
+
+    /**
+     * Limits the time spent per frame on running normal and low priority frame tasks of this renderer. Tasks which
+     * don't fit are run on the next frames. Each {@link Scene} has its own budget, see
+     * {@link Scene#setFrameTaskBudget(long)}.
+     *
+     * @param frameBudgetNanos {@code long} The budget in nanoseconds, 0 to run all queued tasks each frame, which
+     *                         is the default.
+     */
+    public void setFrameTaskBudget(long frameBudgetNanos) {
+        mFrameTaskQueue.setFrameBudget(frameBudgetNanos);
     }
 
     private class RequestRenderTask implements Runnable {
@@ -0,0 +1,189 @@
+/**
+ * Copyright 2013 Dennis Ippel
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.rajawali3d.renderer;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import org.rajawali3d.materials.Material;
+import org.rajawali3d.util.RajLog;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+
+/**
+ * Compiles the shader programs of a set of materials before they are first drawn, so that new objects don't cause
+ * hitches by compiling in the middle of a frame.
+ *
+ * The shader source of each material is generated on worker threads. The GL thread then compiles the prepared
+ * materials during {@link #onFrame()}, stopping once the frame budget is used up and continuing on the next frame.
+ * Started through {@link Renderer#warmUpShaders(long, OnShaderWarmUpListener)}.
+ *
+ * Lit materials can only be compiled once they know their lights, so the warm-up is started after the scene handed
+ * them out. Materials which still can't be compiled then, or fail to link, are left out of the total and compiled
+ * when they are first used.
+ */
+public class ShaderWarmUp {
+
+    /**
+     * Receives the progress of a {@link ShaderWarmUp}. All callbacks happen on the GL thread.
+     */
+    public interface OnShaderWarmUpListener {
+
+        /**
+         * Called after each frame in which materials were compiled.
+         *
+         * @param compiled {@code int} The number of materials whose program was linked so far.
+         * @param total    {@code int} The total number of materials to compile.
+         */
+        void onShaderWarmUpProgress(int compiled, int total);
+
+        /**
+         * Called once all materials are compiled.
+         */
+        void onShaderWarmUpComplete();
+    }
+
+    private final List<Material> mMaterials;
+    private final ConcurrentLinkedQueue<Material> mPrepared = new ConcurrentLinkedQueue<>();
+    private final long mFrameBudgetNanos;
+    private final OnShaderWarmUpListener mListener;
+    private int mTotal;
+    private int mCompiled;
+    private boolean mStarted;
+    private boolean mComplete;
+    private volatile boolean mCancelled;
+
+    /**
+     * @param materials        {@link List} of the {@link Material}s to compile. Materials which are already compiled
+     *                         are skipped.
+     * @param frameBudgetNanos {@code long} The time to spend compiling per frame, in nanoseconds. At least one
+     *                         material is compiled per frame.
+     * @param listener         {@link OnShaderWarmUpListener} to report progress to, may be null.
+     */
+    public ShaderWarmUp(@NonNull List<Material> materials, long frameBudgetNanos,
+                        @Nullable OnShaderWarmUpListener listener) {
+        mMaterials = new ArrayList<>(materials.size());
+        for (int i = 0, j = materials.size(); i < j; ++i) {
+            final Material material = materials.get(i);
+            if (material.needsShaderCompilation()) {
+                mMaterials.add(material);
+            }
+        }
+        mTotal = mMaterials.size();
+        mFrameBudgetNanos = frameBudgetNanos;
+        mListener = listener;
+    }
+
+    /**
+     * Starts generating the shader source of all materials on the provided {@link Executor}. Must be called on the GL
+     * thread, after the lights were handed to the materials.
+     *
+     * @param executor {@link Executor} to generate the shader source on.
+     */
+    public void start(@NonNull Executor executor) {
+        mStarted = true;
+        for (int i = 0, j = mMaterials.size(); i < j; ++i) {
+            final Material material = mMaterials.get(i);
+            if (!material.canCompileShaders()) {
+                // Not part of a scene with lights, it is compiled when it is first used
+                --mTotal;
+                continue;
+            }
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    if (mCancelled) return;
+                    try {
+                        material.prepareShaderSource();
+                    } catch (RuntimeException e) {
+                        // Compiling on the GL thread generates the source again and reports the error there
+                        RajLog.e("Could not prepare shader source: " + e.getMessage());
+                    }
+                    mPrepared.add(material);
+                }
+            });
+        }
+    }
+
+    /**
+     * Compiles prepared materials until the frame budget is used up. Must be called on the GL thread.
+     *
+     * @return {@code boolean} True once all materials are compiled or the warm-up was cancelled.
+     */
+    public boolean onFrame() {
+        if (mComplete) return true;
+        if (mCancelled) {
+            mComplete = true;
+            return true;
+        }
+
+        final long start = System.nanoTime();
+        final int compiledBefore = mCompiled;
+        Material material;
+        while ((material = mPrepared.poll()) != null) {
+            material.compileShaders();
+            if (material.getProgramHandle() > 0 && !material.needsShaderCompilation()) {
+                ++mCompiled;
+            } else {
+                // It is compiled again when it is first used, which reports the error
+                --mTotal;
+            }
+            if (System.nanoTime() - start >= mFrameBudgetNanos) {
+                break;
+            }
+        }
+
+        if (mCompiled != compiledBefore && mListener != null) {
+            mListener.onShaderWarmUpProgress(mCompiled, mTotal);
+        }
+        if (mCompiled == mTotal) {
+            mComplete = true;
+            if (mListener != null) {
+                mListener.onShaderWarmUpComplete();
+            }
+        }
+        return mComplete;
+    }
+
+    /**
+     * Stops the warm-up. Materials which were not compiled yet are compiled when they are first used.
+     */
+    public void cancel() {
+        mCancelled = true;
+    }
+
+    public boolean isStarted() {
+        return mStarted;
+    }
+
+    public boolean isComplete() {
+        return mComplete;
+    }
+
+    public int getCompiledCount() {
+        return mCompiled;
+    }
+
+    public int getTotalCount() {
+        return mTotal;
+    }
+
+    /**
+     * @return {@code float} The fraction of materials compiled, between 0 and 1.
+     */
+    public float getProgress() {
+        return mTotal == 0 ? 1f : (float) mCompiled / mTotal;
+    }
+}
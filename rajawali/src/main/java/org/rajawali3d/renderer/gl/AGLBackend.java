@@ -0,0 +1,214 @@
+/**
+ * Copyright 2013 Dennis Ippel
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.rajawali3d.renderer.gl;
+
+import android.graphics.Bitmap;
+
+import java.nio.Buffer;
+import java.nio.IntBuffer;
+
+/**
+ * The OpenGL ES calls made by the core render path: the {@link org.rajawali3d.renderer.GLStateCache},
+ * {@link org.rajawali3d.scene.Scene}, {@link org.rajawali3d.Object3D}, {@link org.rajawali3d.Geometry3D},
+ * {@link org.rajawali3d.materials.Material} with its shaders, 2D textures,
+ * {@link org.rajawali3d.renderer.RenderTarget}s and the timer queries of the {@link org.rajawali3d.renderer.GpuTimer}.
+ *
+ * The methods mirror their {@link android.opengl.GLES20} and {@link android.opengl.GLUtils} counterparts, or the
+ * {@link android.opengl.GLES30} ones for calls which only exist in OpenGL ES 3.0, such as instanced drawing and
+ * queries. Each {@link org.rajawali3d.renderer.Renderer} owns a backend and makes it current on its GL thread, so
+ * rendering code reaches it through {@link #getCurrent()}. Without one, {@link GLES20Backend} is used.
+ * {@link HeadlessGLBackend} records the calls instead of issuing them, so the render path can be exercised without a
+ * GPU.
+ */
+public abstract class AGLBackend {
+
+    private static final ThreadLocal<AGLBackend> sCurrent = new ThreadLocal<AGLBackend>() {
+        @Override
+        protected AGLBackend initialValue() {
+            return new GLES20Backend();
+        }
+    };
+
+    /**
+     * Retrieves the backend of the GL thread the caller runs on.
+     *
+     * @return {@link AGLBackend} The current backend.
+     */
+    public static AGLBackend getCurrent() {
+        return sCurrent.get();
+    }
+
+    /**
+     * Makes the provided backend the current one for the calling thread. Called by
+     * {@link org.rajawali3d.renderer.Renderer} on its GL thread, and by tests which render without one.
+     *
+     * @param backend {@link AGLBackend} The backend to issue the calls of the calling thread to.
+     */
+    public static void setCurrent(AGLBackend backend) {
+        sCurrent.set(backend);
+    }
+
+    public abstract void glActiveTexture(int texture);
+
+    public abstract void glAttachShader(int program, int shader);
+
+    public abstract void glBeginQuery(int target, int id);
+
+    public abstract void glBindBuffer(int target, int buffer);
+
+    public abstract void glBindFramebuffer(int target, int framebuffer);
+
+    public abstract void glBindRenderbuffer(int target, int renderbuffer);
+
+    public abstract void glBindTexture(int target, int texture);
+
+    public abstract void glBlendFunc(int sfactor, int dfactor);
+
+    public abstract void glBufferData(int target, int size, Buffer data, int usage);
+
+    public abstract void glBufferSubData(int target, int offset, int size, Buffer data);
+
+    public abstract int glCheckFramebufferStatus(int target);
+
+    public abstract void glClear(int mask);
+
+    public abstract void glClearColor(float red, float green, float blue, float alpha);
+
+    public abstract void glClearDepthf(float depth);
+
+    public abstract void glCompileShader(int shader);
+
+    public abstract void glCopyTexImage2D(int target, int level, int internalformat, int x, int y, int width, int height,
+                                          int border);
+
+    public abstract int glCreateProgram();
+
+    public abstract int glCreateShader(int type);
+
+    public abstract void glCullFace(int mode);
+
+    public abstract void glDeleteBuffers(int n, int[] buffers, int offset);
+
+    public abstract void glDeleteFramebuffers(int n, int[] framebuffers, int offset);
+
+    public abstract void glDeleteProgram(int program);
+
+    public abstract void glDeleteShader(int shader);
+
+    public abstract void glDeleteTextures(int n, int[] textures, int offset);
+
+    public abstract void glDepthFunc(int func);
+
+    public abstract void glDepthMask(boolean flag);
+
+    public abstract void glDisable(int cap);
+
+    public abstract void glDisableVertexAttribArray(int index);
+
+    public abstract void glDrawElements(int mode, int count, int type, int offset);
+
+    public abstract void glDrawElementsInstanced(int mode, int count, int type, int offset, int instanceCount);
+
+    public abstract void glEnable(int cap);
+
+    public abstract void glEnableVertexAttribArray(int index);
+
+    public abstract void glEndQuery(int target);
+
+    public abstract void glFramebufferRenderbuffer(int target, int attachment, int renderbuffertarget, int renderbuffer);
+
+    public abstract void glFramebufferTexture2D(int target, int attachment, int textarget, int texture, int level);
+
+    public abstract void glFrontFace(int mode);
+
+    public abstract void glGenBuffers(int n, int[] buffers, int offset);
+
+    public abstract void glGenFramebuffers(int n, int[] framebuffers, int offset);
+
+    public abstract void glGenQueries(int n, int[] ids, int offset);
+
+    public abstract void glGenRenderbuffers(int n, int[] renderbuffers, int offset);
+
+    public abstract void glGenTextures(int n, int[] textures, int offset);
+
+    public abstract void glGenerateMipmap(int target);
+
+    public abstract int glGetAttribLocation(int program, String name);
+
+    public abstract int glGetError();
+
+    public abstract void glGetIntegerv(int pname, int[] params, int offset);
+
+    public abstract void glGetProgramBinary(int program, int bufSize, IntBuffer length, IntBuffer binaryFormat,
+                                            Buffer binary);
+
+    public abstract String glGetProgramInfoLog(int program);
+
+    public abstract void glGetProgramiv(int program, int pname, int[] params, int offset);
+
+    public abstract void glGetQueryObjectuiv(int id, int pname, int[] params, int offset);
+
+    public abstract String glGetShaderInfoLog(int shader);
+
+    public abstract void glGetShaderiv(int shader, int pname, int[] params, int offset);
+
+    public abstract String glGetString(int name);
+
+    public abstract int glGetUniformLocation(int program, String name);
+
+    public abstract boolean glIsBuffer(int buffer);
+
+    public abstract void glLinkProgram(int program);
+
+    public abstract void glProgramBinary(int program, int binaryFormat, Buffer binary, int length);
+
+    public abstract void glProgramParameteri(int program, int pname, int value);
+
+    public abstract void glRenderbufferStorage(int target, int internalformat, int width, int height);
+
+    public abstract void glShaderSource(int shader, String string);
+
+    public abstract void glTexImage2D(int target, int level, int internalformat, int width, int height, int border, int format, int type, Buffer pixels);
+
+    public abstract void glTexParameterf(int target, int pname, float param);
+
+    public abstract void glTexParameteri(int target, int pname, int param);
+
+    public abstract void glTexSubImage2D(int target, int level, int xoffset, int yoffset, int width, int height, int format, int type, Buffer pixels);
+
+    public abstract void glUniform1f(int location, float x);
+
+    public abstract void glUniform1i(int location, int x);
+
+    public abstract void glUniform2fv(int location, int count, float[] v, int offset);
+
+    public abstract void glUniform3fv(int location, int count, float[] v, int offset);
+
+    public abstract void glUniform4fv(int location, int count, float[] v, int offset);
+
+    public abstract void glUniformMatrix3fv(int location, int count, boolean transpose, float[] value, int offset);
+
+    public abstract void glUniformMatrix4fv(int location, int count, boolean transpose, float[] value, int offset);
+
+    public abstract void glUseProgram(int program);
+
+    public abstract void glVertexAttrib4fv(int indx, float[] values, int offset);
+
+    public abstract void glVertexAttribDivisor(int index, int divisor);
+
+    public abstract void glVertexAttribPointer(int indx, int size, int type, boolean normalized, int stride, int offset);
+
+    public abstract void texImage2D(int target, int level, int internalformat, Bitmap bitmap, int border);
+
+    public abstract void texSubImage2D(int target, int level, int xoffset, int yoffset, Bitmap bitmap, int format, int type);
+}
@@ -0,0 +1,754 @@
+/**
+ * Copyright 2013 Dennis Ippel
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.rajawali3d.renderer.gl;
+
+import android.graphics.Bitmap;
+import android.opengl.GLES20;
+import android.opengl.GLES30;
+import android.support.annotation.NonNull;
+
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * {@link AGLBackend} which doesn't need a GPU. Calls are counted and optionally logged, the state they change is
+ * tracked and objects get fake handles, so tests can check the number of draw calls and state changes a render
+ * produces.
+ *
+ * Shaders always compile, programs always link and framebuffers are always complete. Program binaries round trip
+ * through {@link #glGetProgramBinary(int, int, IntBuffer, IntBuffer, Buffer)} and
+ * {@link #glProgramBinary(int, int, Buffer, int)}, binaries in any other format than {@link #BINARY_FORMAT} leave the
+ * program unlinked. Uniform and attribute locations are assigned per program in the order they are first queried.
+ * Queries are available as soon as they end, with a result of 0.
+ * Every call is accepted as is, no errors are raised.
+ *
+ * This class is not thread safe and must be confined to a single thread or protected by
+ * some external locking mechanism if necessary.
+ */
+public class HeadlessGLBackend extends AGLBackend {
+
+    /**
+     * The format of the program binaries this backend produces and accepts.
+     */
+    public static final int BINARY_FORMAT = 0x4845;
+
+    private final Map<String, int[]> mCallCounts = new HashMap<>();
+    private final List<String> mCallLog = new ArrayList<>();
+    private boolean mLogCalls;
+    private int mTotalCalls;
+    private int mDrawCalls;
+    private long mDrawnIndices;
+
+    private int mNextHandle = 1;
+    private final Set<Integer> mBuffers = new HashSet<>();
+    private final Set<Integer> mTextures = new HashSet<>();
+    private final Set<Integer> mFramebuffers = new HashSet<>();
+    private final Set<Integer> mRenderbuffers = new HashSet<>();
+    private final Set<Integer> mShaders = new HashSet<>();
+    private final Set<Integer> mQueries = new HashSet<>();
+    private final Map<Integer, Map<String, Integer>> mPrograms = new HashMap<>();
+    private final Map<Integer, byte[]> mProgramBinaries = new HashMap<>();
+    private final Set<Integer> mUnlinkedPrograms = new HashSet<>();
+
+    private final Set<Integer> mEnabledCapabilities = new HashSet<>();
+    private final Set<Integer> mEnabledAttributes = new HashSet<>();
+    private final Map<Integer, Integer> mBoundBuffers = new HashMap<>();
+    private final Map<Long, Integer> mBoundTextures = new HashMap<>();
+    private int mActiveTexture = GLES20.GL_TEXTURE0;
+    private int mProgram;
+    private int mFramebuffer;
+    private int mRenderbuffer;
+    private int mDepthFunc = GLES20.GL_LESS;
+    private boolean mDepthMask = true;
+    private int mBlendSFactor = GLES20.GL_ONE;
+    private int mBlendDFactor = GLES20.GL_ZERO;
+    private int mCullFace = GLES20.GL_BACK;
+    private int mFrontFace = GLES20.GL_CCW;
+
+    /**
+     * Sets whether every call is added to the call log, which is off by default.
+     *
+     * @param logCalls {@code boolean} True to log the calls.
+     */
+    public void setLogCalls(boolean logCalls) {
+        mLogCalls = logCalls;
+    }
+
+    /**
+     * @return {@link List} of the logged calls, as their names followed by the arguments.
+     */
+    @NonNull
+    public List<String> getCallLog() {
+        return mCallLog;
+    }
+
+    /**
+     * @param name {@link String} The name of the call, for instance {@code "glBindBuffer"}.
+     *
+     * @return {@code int} The number of times the call was made since the last reset.
+     */
+    public int getCallCount(@NonNull String name) {
+        final int[] count = mCallCounts.get(name);
+        return count == null ? 0 : count[0];
+    }
+
+    /**
+     * @return {@code int} The number of calls made since the last reset.
+     */
+    public int getTotalCallCount() {
+        return mTotalCalls;
+    }
+
+    public int getDrawCallCount() {
+        return mDrawCalls;
+    }
+
+    public long getDrawnIndexCount() {
+        return mDrawnIndices;
+    }
+
+    /**
+     * Resets the call counters and clears the call log. The tracked state and objects are kept.
+     */
+    public void resetCounters() {
+        mCallCounts.clear();
+        mCallLog.clear();
+        mTotalCalls = 0;
+        mDrawCalls = 0;
+        mDrawnIndices = 0;
+    }
+
+    public boolean isEnabled(int capability) {
+        return mEnabledCapabilities.contains(capability);
+    }
+
+    public boolean isVertexAttribArrayEnabled(int index) {
+        return mEnabledAttributes.contains(index);
+    }
+
+    public int getBoundBuffer(int target) {
+        final Integer buffer = mBoundBuffers.get(target);
+        return buffer == null ? 0 : buffer;
+    }
+
+    /**
+     * @param unit   {@code int} The zero based texture unit.
+     * @param target {@code int} The texture target.
+     *
+     * @return {@code int} The texture bound to the target on the unit.
+     */
+    public int getBoundTexture(int unit, int target) {
+        final Integer texture = mBoundTextures.get(textureKey(GLES20.GL_TEXTURE0 + unit, target));
+        return texture == null ? 0 : texture;
+    }
+
+    public int getActiveTextureUnit() {
+        return mActiveTexture - GLES20.GL_TEXTURE0;
+    }
+
+    public int getCurrentProgram() {
+        return mProgram;
+    }
+
+    public int getBoundFramebuffer() {
+        return mFramebuffer;
+    }
+
+    public int getBoundRenderbuffer() {
+        return mRenderbuffer;
+    }
+
+    public int getDepthFunc() {
+        return mDepthFunc;
+    }
+
+    public boolean getDepthMask() {
+        return mDepthMask;
+    }
+
+    public int getBlendSFactor() {
+        return mBlendSFactor;
+    }
+
+    public int getBlendDFactor() {
+        return mBlendDFactor;
+    }
+
+    public int getCullFace() {
+        return mCullFace;
+    }
+
+    public int getFrontFace() {
+        return mFrontFace;
+    }
+
+    /**
+     * @return {@code int} The number of buffers which were generated and not deleted.
+     */
+    public int getBufferCount() {
+        return mBuffers.size();
+    }
+
+    /**
+     * @return {@code int} The number of textures which were generated and not deleted.
+     */
+    public int getTextureCount() {
+        return mTextures.size();
+    }
+
+    /**
+     * @return {@code int} The number of programs which were created and not deleted.
+     */
+    public int getProgramCount() {
+        return mPrograms.size();
+    }
+
+    @Override
+    public void glActiveTexture(int texture) {
+        record("glActiveTexture", texture);
+        mActiveTexture = texture;
+    }
+
+    @Override
+    public void glAttachShader(int program, int shader) {
+        record("glAttachShader", program, shader);
+    }
+
+    @Override
+    public void glBeginQuery(int target, int id) {
+        record("glBeginQuery", target, id);
+    }
+
+    @Override
+    public void glBindBuffer(int target, int buffer) {
+        record("glBindBuffer", target, buffer);
+        mBoundBuffers.put(target, buffer);
+    }
+
+    @Override
+    public void glBindFramebuffer(int target, int framebuffer) {
+        record("glBindFramebuffer", target, framebuffer);
+        mFramebuffer = framebuffer;
+    }
+
+    @Override
+    public void glBindRenderbuffer(int target, int renderbuffer) {
+        record("glBindRenderbuffer", target, renderbuffer);
+        mRenderbuffer = renderbuffer;
+    }
+
+    @Override
+    public void glBindTexture(int target, int texture) {
+        record("glBindTexture", target, texture);
+        mBoundTextures.put(textureKey(mActiveTexture, target), texture);
+    }
+
+    @Override
+    public void glBlendFunc(int sfactor, int dfactor) {
+        record("glBlendFunc", sfactor, dfactor);
+        mBlendSFactor = sfactor;
+        mBlendDFactor = dfactor;
+    }
+
+    @Override
+    public void glBufferData(int target, int size, Buffer data, int usage) {
+        record("glBufferData", target, size, usage);
+    }
+
+    @Override
+    public void glBufferSubData(int target, int offset, int size, Buffer data) {
+        record("glBufferSubData", target, offset, size);
+    }
+
+    @Override
+    public int glCheckFramebufferStatus(int target) {
+        record("glCheckFramebufferStatus", target);
+        return GLES20.GL_FRAMEBUFFER_COMPLETE;
+    }
+
+    @Override
+    public void glClear(int mask) {
+        record("glClear", mask);
+    }
+
+    @Override
+    public void glClearColor(float red, float green, float blue, float alpha) {
+        record("glClearColor");
+    }
+
+    @Override
+    public void glClearDepthf(float depth) {
+        record("glClearDepthf");
+    }
+
+    @Override
+    public void glCompileShader(int shader) {
+        record("glCompileShader", shader);
+    }
+
+    @Override
+    public void glCopyTexImage2D(int target, int level, int internalformat, int x, int y, int width, int height,
+                                 int border) {
+        record("glCopyTexImage2D", target, internalformat, width, height);
+    }
+
+    @Override
+    public int glCreateProgram() {
+        record("glCreateProgram");
+        final int program = mNextHandle++;
+        mPrograms.put(program, new HashMap<String, Integer>());
+        return program;
+    }
+
+    @Override
+    public int glCreateShader(int type) {
+        record("glCreateShader", type);
+        final int shader = mNextHandle++;
+        mShaders.add(shader);
+        return shader;
+    }
+
+    @Override
+    public void glCullFace(int mode) {
+        record("glCullFace", mode);
+        mCullFace = mode;
+    }
+
+    @Override
+    public void glDeleteBuffers(int n, int[] buffers, int offset) {
+        record("glDeleteBuffers", n);
+        for (int i = 0; i < n; ++i) {
+            mBuffers.remove(buffers[offset + i]);
+        }
+    }
+
+    @Override
+    public void glDeleteFramebuffers(int n, int[] framebuffers, int offset) {
+        record("glDeleteFramebuffers", n);
+        for (int i = 0; i < n; ++i) {
+            mFramebuffers.remove(framebuffers[offset + i]);
+        }
+    }
+
+    @Override
+    public void glDeleteProgram(int program) {
+        record("glDeleteProgram", program);
+        mPrograms.remove(program);
+        mProgramBinaries.remove(program);
+        mUnlinkedPrograms.remove(program);
+    }
+
+    @Override
+    public void glDeleteShader(int shader) {
+        record("glDeleteShader", shader);
+        mShaders.remove(shader);
+    }
+
+    @Override
+    public void glDeleteTextures(int n, int[] textures, int offset) {
+        record("glDeleteTextures", n);
+        for (int i = 0; i < n; ++i) {
+            mTextures.remove(textures[offset + i]);
+        }
+    }
+
+    @Override
+    public void glDepthFunc(int func) {
+        record("glDepthFunc", func);
+        mDepthFunc = func;
+    }
+
+    @Override
+    public void glDepthMask(boolean flag) {
+        record("glDepthMask", flag ? 1 : 0);
+        mDepthMask = flag;
+    }
+
+    @Override
+    public void glDisable(int cap) {
+        record("glDisable", cap);
+        mEnabledCapabilities.remove(cap);
+    }
+
+    @Override
+    public void glDisableVertexAttribArray(int index) {
+        record("glDisableVertexAttribArray", index);
+        mEnabledAttributes.remove(index);
+    }
+
+    @Override
+    public void glDrawElements(int mode, int count, int type, int offset) {
+        record("glDrawElements", mode, count, type, offset);
+        ++mDrawCalls;
+        mDrawnIndices += count;
+    }
+
+    @Override
+    public void glDrawElementsInstanced(int mode, int count, int type, int offset, int instanceCount) {
+        record("glDrawElementsInstanced", mode, count, type, offset, instanceCount);
+        ++mDrawCalls;
+        mDrawnIndices += (long) count * instanceCount;
+    }
+
+    @Override
+    public void glEnable(int cap) {
+        record("glEnable", cap);
+        mEnabledCapabilities.add(cap);
+    }
+
+    @Override
+    public void glEnableVertexAttribArray(int index) {
+        record("glEnableVertexAttribArray", index);
+        mEnabledAttributes.add(index);
+    }
+
+    @Override
+    public void glEndQuery(int target) {
+        record("glEndQuery", target);
+    }
+
+    @Override
+    public void glFramebufferRenderbuffer(int target, int attachment, int renderbuffertarget, int renderbuffer) {
+        record("glFramebufferRenderbuffer", target, attachment, renderbuffertarget, renderbuffer);
+    }
+
+    @Override
+    public void glFramebufferTexture2D(int target, int attachment, int textarget, int texture, int level) {
+        record("glFramebufferTexture2D", target, attachment, textarget, texture, level);
+    }
+
+    @Override
+    public void glFrontFace(int mode) {
+        record("glFrontFace", mode);
+        mFrontFace = mode;
+    }
+
+    @Override
+    public void glGenBuffers(int n, int[] buffers, int offset) {
+        record("glGenBuffers", n);
+        generate(n, buffers, offset, mBuffers);
+    }
+
+    @Override
+    public void glGenFramebuffers(int n, int[] framebuffers, int offset) {
+        record("glGenFramebuffers", n);
+        generate(n, framebuffers, offset, mFramebuffers);
+    }
+
+    @Override
+    public void glGenQueries(int n, int[] ids, int offset) {
+        record("glGenQueries", n);
+        generate(n, ids, offset, mQueries);
+    }
+
+    @Override
+    public void glGenRenderbuffers(int n, int[] renderbuffers, int offset) {
+        record("glGenRenderbuffers", n);
+        generate(n, renderbuffers, offset, mRenderbuffers);
+    }
+
+    @Override
+    public void glGenTextures(int n, int[] textures, int offset) {
+        record("glGenTextures", n);
+        generate(n, textures, offset, mTextures);
+    }
+
+    @Override
+    public void glGenerateMipmap(int target) {
+        record("glGenerateMipmap", target);
+    }
+
+    @Override
+    public int glGetAttribLocation(int program, String name) {
+        record("glGetAttribLocation", program);
+        return getLocation(program, "attribute " + name);
+    }
+
+    @Override
+    public int glGetError() {
+        record("glGetError");
+        return GLES20.GL_NO_ERROR;
+    }
+
+    @Override
+    public void glGetIntegerv(int pname, int[] params, int offset) {
+        record("glGetIntegerv", pname);
+        params[offset] = 0;
+    }
+
+    @Override
+    public void glGetProgramBinary(int program, int bufSize, IntBuffer length, IntBuffer binaryFormat,
+                                   Buffer binary) {
+        record("glGetProgramBinary", program, bufSize);
+        final byte[] bytes = getProgramBinary(program);
+        final int written = Math.min(bufSize, bytes.length);
+        ((ByteBuffer) binary).put(bytes, 0, written);
+        length.put(0, written);
+        binaryFormat.put(0, BINARY_FORMAT);
+    }
+
+    @Override
+    public String glGetProgramInfoLog(int program) {
+        record("glGetProgramInfoLog", program);
+        return "";
+    }
+
+    @Override
+    public void glGetProgramiv(int program, int pname, int[] params, int offset) {
+        record("glGetProgramiv", program, pname);
+        if (pname == GLES20.GL_LINK_STATUS) {
+            params[offset] = mUnlinkedPrograms.contains(program) ? GLES20.GL_FALSE : GLES20.GL_TRUE;
+        } else if (pname == GLES30.GL_PROGRAM_BINARY_LENGTH) {
+            params[offset] = getProgramBinary(program).length;
+        } else {
+            params[offset] = 0;
+        }
+    }
+
+    @Override
+    public void glGetQueryObjectuiv(int id, int pname, int[] params, int offset) {
+        record("glGetQueryObjectuiv", id, pname);
+        // Queries complete immediately and measure no time
+        params[offset] = pname == GLES30.GL_QUERY_RESULT_AVAILABLE ? GLES20.GL_TRUE : 0;
+    }
+
+    @Override
+    public String glGetShaderInfoLog(int shader) {
+        record("glGetShaderInfoLog", shader);
+        return "";
+    }
+
+    @Override
+    public void glGetShaderiv(int shader, int pname, int[] params, int offset) {
+        record("glGetShaderiv", shader, pname);
+        params[offset] = pname == GLES20.GL_COMPILE_STATUS ? GLES20.GL_TRUE : 0;
+    }
+
+    @Override
+    public String glGetString(int name) {
+        record("glGetString", name);
+        switch (name) {
+            case GLES20.GL_VENDOR:
+                return "Rajawali";
+            case GLES20.GL_RENDERER:
+                return "Headless";
+            case GLES20.GL_VERSION:
+                return "OpenGL ES 3.0 Headless";
+            case GLES20.GL_EXTENSIONS:
+                return "";
+            default:
+                return null;
+        }
+    }
+
+    @Override
+    public int glGetUniformLocation(int program, String name) {
+        record("glGetUniformLocation", program);
+        return getLocation(program, "uniform " + name);
+    }
+
+    @Override
+    public boolean glIsBuffer(int buffer) {
+        record("glIsBuffer", buffer);
+        return mBuffers.contains(buffer);
+    }
+
+    @Override
+    public void glLinkProgram(int program) {
+        record("glLinkProgram", program);
+        mProgramBinaries.remove(program);
+        mUnlinkedPrograms.remove(program);
+    }
+
+    @Override
+    public void glProgramBinary(int program, int binaryFormat, Buffer binary, int length) {
+        record("glProgramBinary", program, binaryFormat, length);
+        if (binaryFormat != BINARY_FORMAT) {
+            mProgramBinaries.remove(program);
+            mUnlinkedPrograms.add(program);
+            return;
+        }
+        final byte[] bytes = new byte[length];
+        ((ByteBuffer) binary).duplicate().get(bytes);
+        mProgramBinaries.put(program, bytes);
+        mUnlinkedPrograms.remove(program);
+    }
+
+    @Override
+    public void glProgramParameteri(int program, int pname, int value) {
+        record("glProgramParameteri", program, pname, value);
+    }
+
+    @Override
+    public void glRenderbufferStorage(int target, int internalformat, int width, int height) {
+        record("glRenderbufferStorage", target, internalformat, width, height);
+    }
+
+    @Override
+    public void glShaderSource(int shader, String string) {
+        record("glShaderSource", shader);
+    }
+
+    @Override
+    public void glTexImage2D(int target, int level, int internalformat, int width, int height, int border, int format,
+                             int type, Buffer pixels) {
+        record("glTexImage2D", target, level, internalformat, width, height);
+    }
+
+    @Override
+    public void glTexParameterf(int target, int pname, float param) {
+        record("glTexParameterf", target, pname);
+    }
+
+    @Override
+    public void glTexParameteri(int target, int pname, int param) {
+        record("glTexParameteri", target, pname, param);
+    }
+
+    @Override
+    public void glTexSubImage2D(int target, int level, int xoffset, int yoffset, int width, int height, int format,
+                                int type, Buffer pixels) {
+        record("glTexSubImage2D", target, level, width, height);
+    }
+
+    @Override
+    public void glUniform1f(int location, float x) {
+        record("glUniform1f", location);
+    }
+
+    @Override
+    public void glUniform1i(int location, int x) {
+        record("glUniform1i", location, x);
+    }
+
+    @Override
+    public void glUniform2fv(int location, int count, float[] v, int offset) {
+        record("glUniform2fv", location, count);
+    }
+
+    @Override
+    public void glUniform3fv(int location, int count, float[] v, int offset) {
+        record("glUniform3fv", location, count);
+    }
+
+    @Override
+    public void glUniform4fv(int location, int count, float[] v, int offset) {
+        record("glUniform4fv", location, count);
+    }
+
+    @Override
+    public void glUniformMatrix3fv(int location, int count, boolean transpose, float[] value, int offset) {
+        record("glUniformMatrix3fv", location, count);
+    }
+
+    @Override
+    public void glUniformMatrix4fv(int location, int count, boolean transpose, float[] value, int offset) {
+        record("glUniformMatrix4fv", location, count);
+    }
+
+    @Override
+    public void glUseProgram(int program) {
+        record("glUseProgram", program);
+        mProgram = program;
+    }
+
+    @Override
+    public void glVertexAttrib4fv(int indx, float[] values, int offset) {
+        record("glVertexAttrib4fv", indx);
+    }
+
+    @Override
+    public void glVertexAttribDivisor(int index, int divisor) {
+        record("glVertexAttribDivisor", index, divisor);
+    }
+
+    @Override
+    public void glVertexAttribPointer(int indx, int size, int type, boolean normalized, int stride, int offset) {
+        record("glVertexAttribPointer", indx, size, type, stride, offset);
+    }
+
+    @Override
+    public void texImage2D(int target, int level, int internalformat, Bitmap bitmap, int border) {
+        record("texImage2D", target, level, internalformat);
+    }
+
+    @Override
+    public void texSubImage2D(int target, int level, int xoffset, int yoffset, Bitmap bitmap, int format, int type) {
+        record("texSubImage2D", target, level, format);
+    }
+
+    private void record(String name, int... arguments) {
+        ++mTotalCalls;
+        final int[] count = mCallCounts.get(name);
+        if (count == null) {
+            mCallCounts.put(name, new int[]{ 1 });
+        } else {
+            ++count[0];
+        }
+        if (mLogCalls) {
+            final StringBuilder sb = new StringBuilder(name).append('(');
+            for (int i = 0; i < arguments.length; ++i) {
+                if (i > 0) {
+                    sb.append(", ");
+                }
+                sb.append(arguments[i]);
+            }
+            mCallLog.add(sb.append(')').toString());
+        }
+    }
+
+    private void generate(int n, int[] handles, int offset, Set<Integer> live) {
+        for (int i = 0; i < n; ++i) {
+            final int handle = mNextHandle++;
+            handles[offset + i] = handle;
+            live.add(handle);
+        }
+    }
+
+    private byte[] getProgramBinary(int program) {
+        if (!mPrograms.containsKey(program) || mUnlinkedPrograms.contains(program)) {
+            return new byte[0];
+        }
+        byte[] bytes = mProgramBinaries.get(program);
+        if (bytes == null) {
+            // Linked programs get a binary which tells them apart
+            bytes = ("program " + program).getBytes();
+            mProgramBinaries.put(program, bytes);
+        }
+        return bytes;
+    }
+
+    private int getLocation(int program, String key) {
+        final Map<String, Integer> locations = mPrograms.get(program);
+        if (locations == null) {
+            return -1;
+        }
+        Integer location = locations.get(key);
+        if (location == null) {
+            location = locations.size();
+            locations.put(key, location);
+        }
+        return location;
+    }
+
+    private static long textureKey(int unit, int target) {
+        return ((long) unit << 32) | (target & 0xFFFFFFFFL);
+    }
+}
@@ -16,6 +16,7 @@ import org.rajawali3d.cameras.Camera2D;
 import org.rajawali3d.materials.Material;
 import org.rajawali3d.math.Matrix4;
 import org.rajawali3d.postprocessing.passes.EffectPass;
+import org.rajawali3d.scene.RenderQueue;
 
 /**
  * <p>
@@ -85,6 +86,15 @@ public class WorkaroundScreenQuad extends Object3D {
         super.render(mCamera, mVPMatrix, projMatrix, viewMatrix, null, sceneMaterial);
     }
 
+    @Override
+    public void queueForRender(RenderQueue queue, Camera camera, final Matrix4 vpMatrix, final Matrix4 projMatrix,
+                               final Matrix4 vMatrix, final Matrix4 parentMatrix, Material sceneMaterial) {
+        final Matrix4 pMatrix = mCamera.getProjectionMatrix();
+        final Matrix4 viewMatrix = mCamera.getViewMatrix();
+        mVPMatrix.setAll(pMatrix).multiply(viewMatrix);
+        super.queueForRender(queue, mCamera, mVPMatrix, projMatrix, viewMatrix, null, sceneMaterial);
+    }
+
     @Override
     protected void setShaderParams(Camera camera) {
         super.setShaderParams(camera);
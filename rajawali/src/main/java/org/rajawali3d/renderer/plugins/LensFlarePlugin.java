@@ -20,7 +20,9 @@ import org.rajawali3d.materials.textures.ASingleTexture;
 import org.rajawali3d.math.Matrix4;
 import org.rajawali3d.math.vector.Vector2;
 import org.rajawali3d.math.vector.Vector3;
+import org.rajawali3d.renderer.GLStateCache;
 import org.rajawali3d.renderer.Renderer;
+import org.rajawali3d.renderer.gl.AGLBackend;
 
 import java.util.Stack;
 
@@ -218,7 +220,7 @@ public final class LensFlarePlugin extends Plugin {
 	protected void init(boolean createVBOs) {
 		mLensFlares = new Stack<LensFlare>();
 		int[] maxVertexTextureImageUnits = new int[1];
-		GLES20.glGetIntegerv(GLES20.GL_MAX_VERTEX_TEXTURE_IMAGE_UNITS, maxVertexTextureImageUnits, 0);
+		AGLBackend.getCurrent().glGetIntegerv(GLES20.GL_MAX_VERTEX_TEXTURE_IMAGE_UNITS, maxVertexTextureImageUnits, 0);
 		mVertexTextureSupported = maxVertexTextureImageUnits[0] != 0;
 
 		int i = 0, j = 0;
@@ -312,26 +314,28 @@ public final class LensFlarePlugin extends Plugin {
 
 		useProgram(mProgram);
 
+		final AGLBackend gl = AGLBackend.getCurrent();
 		// Push the VBOs to the GPU.
-		GLES20.glBindBuffer(GLES20.GL_ARRAY_BUFFER, mGeometry.getVertexBufferInfo().bufferHandle);
-		GLES20.glEnableVertexAttribArray(maPositionHandle);
-		GLES20.glVertexAttribPointer(maPositionHandle, 2, GLES20.GL_FLOAT, false, 0, 0);
-		GLES20.glBindBuffer(GLES20.GL_ARRAY_BUFFER, 0);
+		gl.glBindBuffer(GLES20.GL_ARRAY_BUFFER, mGeometry.getVertexBufferInfo().bufferHandle);
+		gl.glEnableVertexAttribArray(maPositionHandle);
+		gl.glVertexAttribPointer(maPositionHandle, 2, GLES20.GL_FLOAT, false, 0, 0);
+		gl.glBindBuffer(GLES20.GL_ARRAY_BUFFER, 0);
 
 		// Push texture coordinates to the GPU.
-		GLES20.glBindBuffer(GLES20.GL_ARRAY_BUFFER, mGeometry.getTexCoordBufferInfo().bufferHandle);
-		GLES20.glEnableVertexAttribArray(maTextureCoordHandle);
-		GLES20.glVertexAttribPointer(maTextureCoordHandle, 2, GLES20.GL_FLOAT, false, 0, 0);
+		gl.glBindBuffer(GLES20.GL_ARRAY_BUFFER, mGeometry.getTexCoordBufferInfo().bufferHandle);
+		gl.glEnableVertexAttribArray(maTextureCoordHandle);
+		gl.glVertexAttribPointer(maTextureCoordHandle, 2, GLES20.GL_FLOAT, false, 0, 0);
 
 		// Push vertex element indices to the GPU.
-		GLES20.glBindBuffer(GLES20.GL_ELEMENT_ARRAY_BUFFER, mGeometry.getIndexBufferInfo().bufferHandle);
+		gl.glBindBuffer(GLES20.GL_ELEMENT_ARRAY_BUFFER, mGeometry.getIndexBufferInfo().bufferHandle);
 
 		// Set up texture locations.
-		GLES20.glUniform1i(muOcclusionMapTextureHandle, 0);
-		GLES20.glUniform1i(muMapTextureHandle, 1);
+		gl.glUniform1i(muOcclusionMapTextureHandle, 0);
+		gl.glUniform1i(muMapTextureHandle, 1);
 
-		GLES20.glDisable(GLES20.GL_CULL_FACE);
-		GLES20.glDepthMask(false);
+		final GLStateCache glState = GLStateCache.getCurrent();
+		glState.setCullFaceEnabled(false);
+		glState.setDepthMask(false);
 
 		// Calculate camera direction vector.
 		Vector3 cameraPosition = camera.getPosition().clone();
@@ -367,66 +371,61 @@ public final class LensFlarePlugin extends Plugin {
 						screenPositionPixels_x > -64 && screenPositionPixels_x < viewportWidth + 64 &&
 						screenPositionPixels_y > -64 && screenPositionPixels_y < viewportHeight + 64)) {
 					// Bind current framebuffer to texture.
-					GLES20.glActiveTexture(GLES20.GL_TEXTURE1);
-					GLES20.glBindTexture(GLES20.GL_TEXTURE_2D, mMapTexture.getTextureId());
-					GLES20.glCopyTexImage2D(GLES20.GL_TEXTURE_2D, 0, GLES20.GL_RGB,
+					glState.bindTexture(1, GLES20.GL_TEXTURE_2D, mMapTexture.getTextureId());
+					gl.glCopyTexImage2D(GLES20.GL_TEXTURE_2D, 0, GLES20.GL_RGB,
 							(int)screenPositionPixels_x - 8, (int)screenPositionPixels_y - 8, 16, 16, 0);
 
 					// First render pass.
-					GLES20.glUniform1i(muRenderTypeHandle, 1);
-					GLES20.glUniform2fv(muScaleHandle, 1, new float[] { (float) scale.getX(), (float) scale.getY() }, 0);
-					GLES20.glUniform3fv(muScreenPositionHandle, 1, new float[] { (float) screenPosition.x, (float) screenPosition.y, (float) screenPosition.z }, 0);
+					gl.glUniform1i(muRenderTypeHandle, 1);
+					gl.glUniform2fv(muScaleHandle, 1, new float[] { (float) scale.getX(), (float) scale.getY() }, 0);
+					gl.glUniform3fv(muScreenPositionHandle, 1, new float[] { (float) screenPosition.x, (float) screenPosition.y, (float) screenPosition.z }, 0);
 
-					GLES20.glDisable(GLES20.GL_BLEND);
-					GLES20.glEnable(GLES20.GL_DEPTH_TEST);
+					glState.setBlendEnabled(false);
+					glState.setDepthTestEnabled(true);
 
-					GLES20.glDrawElements(GLES20.GL_TRIANGLES, 6, GLES20.GL_UNSIGNED_INT, 0);
+					gl.glDrawElements(GLES20.GL_TRIANGLES, 6, GLES20.GL_UNSIGNED_INT, 0);
 
 					// Copy result to occlusion map.
-					GLES20.glActiveTexture(GLES20.GL_TEXTURE0);
-					GLES20.glBindTexture(GLES20.GL_TEXTURE_2D, mOcclusionMapTexture.getTextureId());
-					GLES20.glCopyTexImage2D(GLES20.GL_TEXTURE_2D, 0, GLES20.GL_RGBA,
+					glState.bindTexture(0, GLES20.GL_TEXTURE_2D, mOcclusionMapTexture.getTextureId());
+					gl.glCopyTexImage2D(GLES20.GL_TEXTURE_2D, 0, GLES20.GL_RGBA,
 							(int)screenPositionPixels_x - 8, (int)screenPositionPixels_y - 8, 16, 16, 0);
 
 					// Second render pass.
-					GLES20.glUniform1i(muRenderTypeHandle, 2);
-					GLES20.glDisable(GLES20.GL_DEPTH_TEST);
+					gl.glUniform1i(muRenderTypeHandle, 2);
+					glState.setDepthTestEnabled(false);
 
-					GLES20.glActiveTexture(GLES20.GL_TEXTURE1);
-					GLES20.glBindTexture(GLES20.GL_TEXTURE_2D, mMapTexture.getTextureId());
-					GLES20.glDrawElements(GLES20.GL_TRIANGLES, 6, GLES20.GL_UNSIGNED_INT, 0);
+					glState.bindTexture(1, GLES20.GL_TEXTURE_2D, mMapTexture.getTextureId());
+					gl.glDrawElements(GLES20.GL_TRIANGLES, 6, GLES20.GL_UNSIGNED_INT, 0);
 
 					// Update the flare's screen positions.
 					lensFlare.setPositionScreen(screenPosition);
 					lensFlare.updateLensFlares();
 
 					// Third render pass.
-					GLES20.glUniform1i(muRenderTypeHandle, 3);
-					GLES20.glEnable(GLES20.GL_BLEND);
+					gl.glUniform1i(muRenderTypeHandle, 3);
+					glState.setBlendEnabled(true);
 
 					// DEBUG - Shows the current uMap and uOcclusionMap textures on screen.
 					// NOTE: UNCOMMENT IF THE LENS FLARE DOES NOT GET OCCLUDED.
 					// IF THE OCCLUSION TEXTURE IS EMPTY, YOU ARE USING RGB_565 IN YOUR EGL CONFIG.
 					// SWITCH TO RGBA_8888.
 					/*
-					GLES20.glUniform3fv(muScreenPositionHandle, 1, new float[] { -0.75f, -0.35f, 0 }, 0);
-					GLES20.glUniform2fv(muScaleHandle, 1, new float[] { (200 / viewportHeight) * invAspect, 200 / viewportHeight }, 0);
-					GLES20.glUniform1f(muRotationHandle, 0);
-					GLES20.glUniform1i(muDebugModeHandle, 1);
-					GLES20.glUniform1f(muOpacityHandle, 1);
-					GLES20.glUniform3fv(muColorHandle, 1, new float[] { 1, 1, 1 }, 0);
-					GLES20.glActiveTexture(GLES20.GL_TEXTURE1);
-					GLES20.glBindTexture(GLES20.GL_TEXTURE_2D, mMapTexture.getTextureId());
-					fix.android.opengl.GLES20.glDrawElements(GLES20.GL_TRIANGLES, 6, mGeometry.areOnlyShortBuffersSupported() ? GLES20.GL_UNSIGNED_SHORT : GLES20.GL_UNSIGNED_INT, 0);
-					GLES20.glBindTexture(GLES20.GL_TEXTURE_2D, 0);
-					GLES20.glBindBuffer(GLES20.GL_ARRAY_BUFFER, 0);
-					GLES20.glUniform3fv(muScreenPositionHandle, 1, new float[] { -0.3f, -0.35f, 0 }, 0);
-					GLES20.glActiveTexture(GLES20.GL_TEXTURE1);
-					GLES20.glBindTexture(GLES20.GL_TEXTURE_2D, mOcclusionMapTexture.getTextureId());
-					fix.android.opengl.GLES20.glDrawElements(GLES20.GL_TRIANGLES, 6, mGeometry.areOnlyShortBuffersSupported() ? GLES20.GL_UNSIGNED_SHORT : GLES20.GL_UNSIGNED_INT, 0);
-					GLES20.glUniform1i(muDebugModeHandle, 0);
-					GLES20.glBindTexture(GLES20.GL_TEXTURE_2D, 0);
-					GLES20.glBindBuffer(GLES20.GL_ARRAY_BUFFER, 0);
+					gl.glUniform3fv(muScreenPositionHandle, 1, new float[] { -0.75f, -0.35f, 0 }, 0);
+					gl.glUniform2fv(muScaleHandle, 1, new float[] { (200 / viewportHeight) * invAspect, 200 / viewportHeight }, 0);
+					gl.glUniform1f(muRotationHandle, 0);
+					gl.glUniform1i(muDebugModeHandle, 1);
+					gl.glUniform1f(muOpacityHandle, 1);
+					gl.glUniform3fv(muColorHandle, 1, new float[] { 1, 1, 1 }, 0);
+					glState.bindTexture(1, GLES20.GL_TEXTURE_2D, mMapTexture.getTextureId());
+					gl.glDrawElements(GLES20.GL_TRIANGLES, 6, mGeometry.areOnlyShortBuffersSupported() ? GLES20.GL_UNSIGNED_SHORT : GLES20.GL_UNSIGNED_INT, 0);
+					glState.bindTexture(1, GLES20.GL_TEXTURE_2D, 0);
+					gl.glBindBuffer(GLES20.GL_ARRAY_BUFFER, 0);
+					gl.glUniform3fv(muScreenPositionHandle, 1, new float[] { -0.3f, -0.35f, 0 }, 0);
+					glState.bindTexture(1, GLES20.GL_TEXTURE_2D, mOcclusionMapTexture.getTextureId());
+					gl.glDrawElements(GLES20.GL_TRIANGLES, 6, mGeometry.areOnlyShortBuffersSupported() ? GLES20.GL_UNSIGNED_SHORT : GLES20.GL_UNSIGNED_INT, 0);
+					gl.glUniform1i(muDebugModeHandle, 0);
+					glState.bindTexture(1, GLES20.GL_TEXTURE_2D, 0);
+					gl.glBindBuffer(GLES20.GL_ARRAY_BUFFER, 0);
 					*/
 					// END DEBUG
 
@@ -442,36 +441,37 @@ public final class LensFlarePlugin extends Plugin {
 							scale.setX(size * invAspect);
 							scale.setY(size);
 
-							GLES20.glUniform3fv(muScreenPositionHandle, 1, new float[] { (float) screenPosition.x, (float) screenPosition.y, (float) screenPosition.z }, 0);
-							GLES20.glUniform2fv(muScaleHandle, 1, new float[] { (float) scale.getX(), (float) scale.getY() }, 0);
-							GLES20.glUniform1f(muRotationHandle, (float) sprite.getRotation());
+							gl.glUniform3fv(muScreenPositionHandle, 1, new float[] { (float) screenPosition.x, (float) screenPosition.y, (float) screenPosition.z }, 0);
+							gl.glUniform2fv(muScaleHandle, 1, new float[] { (float) scale.getX(), (float) scale.getY() }, 0);
+							gl.glUniform1f(muRotationHandle, (float) sprite.getRotation());
 
-							GLES20.glUniform1f(muOpacityHandle, (float) sprite.getOpacity());
-							GLES20.glUniform3fv(muColorHandle, 1, new float[] { (float) sprite.getColor().x, (float) sprite.getColor().y, (float) sprite.getColor().z }, 0);
+							gl.glUniform1f(muOpacityHandle, (float) sprite.getOpacity());
+							gl.glUniform3fv(muColorHandle, 1, new float[] { (float) sprite.getColor().x, (float) sprite.getColor().y, (float) sprite.getColor().z }, 0);
 
-							GLES20.glActiveTexture(GLES20.GL_TEXTURE1);
-							GLES20.glBindTexture(GLES20.GL_TEXTURE_2D, sprite.getTexture().getTextureId());
+							glState.bindTexture(1, GLES20.GL_TEXTURE_2D, sprite.getTexture().getTextureId());
 
 							//GLES20.glBlendEquation(GLES20.GL_FUNC_ADD);
-							GLES20.glBlendFunc(GLES20.GL_SRC_ALPHA, GLES20.GL_ONE);
+							glState.setBlendFunc(GLES20.GL_SRC_ALPHA, GLES20.GL_ONE);
 
 							// Draw the elements.
-							GLES20.glDrawElements(GLES20.GL_TRIANGLES, mGeometry.getNumIndices(),
+							gl.glDrawElements(GLES20.GL_TRIANGLES, mGeometry.getNumIndices(),
 												  GLES20.GL_UNSIGNED_INT, 0);
 
 							// Unbind texture.
-							GLES20.glBindTexture(GLES20.GL_TEXTURE_2D, 0);
-							GLES20.glBindBuffer(GLES20.GL_ARRAY_BUFFER, 0);
+							glState.bindTexture(1, GLES20.GL_TEXTURE_2D, 0);
+							gl.glBindBuffer(GLES20.GL_ARRAY_BUFFER, 0);
 						}
 					}
 				}
 			}
 		}
 		// Unbind element array.
-		GLES20.glBindBuffer(GLES20.GL_ELEMENT_ARRAY_BUFFER, 0);
-		GLES20.glEnable(GLES20.GL_CULL_FACE);
-		GLES20.glEnable(GLES20.GL_DEPTH_TEST);
-		GLES20.glDepthMask(true);
+		gl.glBindBuffer(GLES20.GL_ELEMENT_ARRAY_BUFFER, 0);
+		glState.setCullFaceEnabled(true);
+		glState.setDepthTestEnabled(true);
+		glState.setDepthMask(true);
+		// Textures were bound directly above
+		glState.invalidateTextureBindings();
 	}
 
 	@Override
@@ -488,6 +488,6 @@ public final class LensFlarePlugin extends Plugin {
 		muColorHandle = getUniformLocation("uColor");
 		muMapTextureHandle = getUniformLocation("uMap");
 		muOcclusionMapTextureHandle = getUniformLocation("uOcclusionMap");
-		muDebugModeHandle = GLES20.glGetUniformLocation(mProgram, "uDebugMode"); // UNCOMMENT TO USE DEBUG MODE
+		muDebugModeHandle = getUniformLocation("uDebugMode"); // UNCOMMENT TO USE DEBUG MODE
 	}
 }
@@ -15,7 +15,9 @@ package org.rajawali3d.renderer.plugins;
 import android.opengl.GLES20;
 
 import org.rajawali3d.Geometry3D;
+import org.rajawali3d.renderer.GLStateCache;
 import org.rajawali3d.renderer.Renderer;
+import org.rajawali3d.renderer.gl.AGLBackend;
 import org.rajawali3d.util.RajLog;
 
 
@@ -67,22 +69,23 @@ public abstract class Plugin implements IRendererPlugin {
 			return 0;
 		}
 
-		int program = GLES20.glCreateProgram();
+		final AGLBackend gl = AGLBackend.getCurrent();
+		int program = gl.glCreateProgram();
 		if (program != 0) {
-			GLES20.glAttachShader(program, mVShaderHandle);
-			GLES20.glAttachShader(program, mFShaderHandle);
-			GLES20.glLinkProgram(program);
+			gl.glAttachShader(program, mVShaderHandle);
+			gl.glAttachShader(program, mFShaderHandle);
+			gl.glLinkProgram(program);
 
 			int[] linkStatus = new int[1];
-			GLES20.glGetProgramiv(program, GLES20.GL_LINK_STATUS, linkStatus, 0);
+			gl.glGetProgramiv(program, GLES20.GL_LINK_STATUS, linkStatus, 0);
 			if (linkStatus[0] != GLES20.GL_TRUE) {
 				RajLog.e("Could not link program in " + getClass().getCanonicalName() +": ");
-				RajLog.e(GLES20.glGetProgramInfoLog(program));
+				RajLog.e(gl.glGetProgramInfoLog(program));
 				RajLog.d("-=-=-= VERTEX SHADER =-=-=-");
 				RajLog.d(mVertexShader);
 				RajLog.d("-=-=-= FRAGMENT SHADER =-=-=-");
 				RajLog.d(mFragmentShader);
-				GLES20.glDeleteProgram(program);
+				gl.glDeleteProgram(program);
 				program = 0;
 			}
 		}
@@ -94,11 +97,11 @@ public abstract class Plugin implements IRendererPlugin {
 	}
 
 	protected int getUniformLocation(String name) {
-		return GLES20.glGetUniformLocation(mProgram, name);
+		return AGLBackend.getCurrent().glGetUniformLocation(mProgram, name);
 	}
 
 	protected int getAttribLocation(String name) {
-		return GLES20.glGetAttribLocation(mProgram, name);
+		return AGLBackend.getCurrent().glGetAttribLocation(mProgram, name);
 	}
 
 	/**
@@ -107,17 +110,18 @@ public abstract class Plugin implements IRendererPlugin {
 	protected void init(boolean createVBOs) {}
 
 	protected int loadShader(int shaderType, String source) {
-		int shader = GLES20.glCreateShader(shaderType);
+		final AGLBackend gl = AGLBackend.getCurrent();
+		int shader = gl.glCreateShader(shaderType);
 		if (shader != 0) {
-			GLES20.glShaderSource(shader, source);
-			GLES20.glCompileShader(shader);
+			gl.glShaderSource(shader, source);
+			gl.glCompileShader(shader);
 			int[] compiled = new int[1];
-			GLES20.glGetShaderiv(shader, GLES20.GL_COMPILE_STATUS, compiled, 0);
+			gl.glGetShaderiv(shader, GLES20.GL_COMPILE_STATUS, compiled, 0);
 
 			if (compiled[0] == 0) {
 				RajLog.e("[" +getClass().getName()+ "] Could not compile " + (shaderType == GLES20.GL_FRAGMENT_SHADER ? "fragment" : "vertex") + " shader:");
-				RajLog.e("Shader log: " + GLES20.glGetShaderInfoLog(shader));
-				GLES20.glDeleteShader(shader);
+				RajLog.e("Shader log: " + gl.glGetShaderInfoLog(shader));
+				gl.glDeleteShader(shader);
 				shader = 0;
 			}
 		}
@@ -159,9 +163,11 @@ public abstract class Plugin implements IRendererPlugin {
 	 * Unloads and deletes references to the shader program
 	 */
 	public void unload() {
-		GLES20.glDeleteShader(mVShaderHandle);
-		GLES20.glDeleteShader(mFShaderHandle);
-		GLES20.glDeleteProgram(mProgram);
+		final AGLBackend gl = AGLBackend.getCurrent();
+		gl.glDeleteShader(mVShaderHandle);
+		gl.glDeleteShader(mFShaderHandle);
+		gl.glDeleteProgram(mProgram);
+		GLStateCache.getCurrent().forgetProgram(mProgram);
 	}
 
 	protected void useProgram(int programHandle) {
@@ -169,6 +175,6 @@ public abstract class Plugin implements IRendererPlugin {
 			reload();
 		}
 		// Signal that we'll be using the shader program.
-		GLES20.glUseProgram(programHandle);
+		GLStateCache.getCurrent().useProgram(programHandle);
 	}
 }
@@ -0,0 +1,377 @@
+/**
+ * Copyright 2013 Dennis Ippel
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.rajawali3d.scene;
+
+import org.rajawali3d.Object3D;
+import org.rajawali3d.cameras.Camera;
+import org.rajawali3d.materials.Material;
+import org.rajawali3d.materials.textures.ATexture;
+import org.rajawali3d.math.Matrix4;
+import org.rajawali3d.math.vector.Vector3;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * Collects the visible draws of a {@link Scene} for one frame and submits them sorted, so that consecutive draws
+ * sharing a program, texture set and fixed function state don't rebind them and blended objects are composited
+ * correctly.
+ *
+ * Draws are split in two buckets. The opaque bucket is drawn first and is ordered by program handle, texture set,
+ * material, blend/cull/depth state and finally view depth front to back, or by depth first when
+ * {@link OpaqueSortMode#FRONT_TO_BACK} is selected. Objects with blending enabled go into the transparent bucket,
+ * which is drawn afterwards strictly back to front. The view depth is taken from the center of the object's
+ * transformed bounding box, or from its position when it has none.
+ *
+ * The queue is filled by {@link Object3D#queueForRender}, sorted with {@link #sort()} and drawn with
+ * {@link #submit(Camera, Material)}. It is reused from frame to frame; {@link #clear(Matrix4)} keeps the allocated
+ * items around.
+ *
+ * The program and texture set bind counts of the last frame, both in collection order and in submission order,
+ * are available through {@link #getUnsortedProgramBinds()}, {@link #getSortedProgramBinds()},
+ * {@link #getUnsortedTextureBinds()} and {@link #getSortedTextureBinds()}.
+ */
+public class RenderQueue {
+
+    /**
+     * Ordering of the opaque bucket.
+     */
+    public enum OpaqueSortMode {
+        /**
+         * Minimize state changes, draws sharing the same state are ordered front to back.
+         */
+        STATE,
+        /**
+         * Order strictly front to back to get the most out of early depth rejection, draws at equal depth are
+         * ordered by state.
+         */
+        FRONT_TO_BACK
+    }
+
+    private static final int STATE_DOUBLE_SIDED = 1;
+    private static final int STATE_BACK_SIDED   = 1 << 1;
+    private static final int STATE_BLENDING     = 1 << 2;
+    private static final int STATE_DEPTH_TEST   = 1 << 3;
+    private static final int STATE_DEPTH_MASK   = 1 << 4;
+
+    /**
+     * A single queued draw.
+     */
+    public static final class RenderItem {
+        Object3D mObject;
+        Material mMaterial;
+        int      mProgramHandle;
+        int      mTextureKey;
+        int      mMaterialKey;
+        int      mStateKey;
+        double   mDepth;
+
+        public Object3D getObject() {
+            return mObject;
+        }
+
+        public Material getMaterial() {
+            return mMaterial;
+        }
+
+        public double getDepth() {
+            return mDepth;
+        }
+    }
+
+    private static int compareState(RenderItem lhs, RenderItem rhs) {
+        if (lhs.mProgramHandle != rhs.mProgramHandle) {
+            return lhs.mProgramHandle < rhs.mProgramHandle ? -1 : 1;
+        }
+        if (lhs.mTextureKey != rhs.mTextureKey) {
+            return lhs.mTextureKey < rhs.mTextureKey ? -1 : 1;
+        }
+        if (lhs.mMaterialKey != rhs.mMaterialKey) {
+            return lhs.mMaterialKey < rhs.mMaterialKey ? -1 : 1;
+        }
+        if (lhs.mStateKey != rhs.mStateKey) {
+            return lhs.mStateKey < rhs.mStateKey ? -1 : 1;
+        }
+        return 0;
+    }
+
+    private static final Comparator<RenderItem> STATE_COMPARATOR = new Comparator<RenderItem>() {
+        @Override
+        public int compare(RenderItem lhs, RenderItem rhs) {
+            final int state = compareState(lhs, rhs);
+            return state != 0 ? state : Double.compare(lhs.mDepth, rhs.mDepth);
+        }
+    };
+
+    private static final Comparator<RenderItem> FRONT_TO_BACK_COMPARATOR = new Comparator<RenderItem>() {
+        @Override
+        public int compare(RenderItem lhs, RenderItem rhs) {
+            final int depth = Double.compare(lhs.mDepth, rhs.mDepth);
+            return depth != 0 ? depth : compareState(lhs, rhs);
+        }
+    };
+
+    private static final Comparator<RenderItem> BACK_TO_FRONT_COMPARATOR = new Comparator<RenderItem>() {
+        @Override
+        public int compare(RenderItem lhs, RenderItem rhs) {
+            return Double.compare(rhs.mDepth, lhs.mDepth);
+        }
+    };
+
+    private final ArrayList<RenderItem> mPool = new ArrayList<>();
+    private RenderItem[] mOpaqueItems = new RenderItem[64];
+    private RenderItem[] mTransparentItems = new RenderItem[16];
+    private int mOpaqueCount;
+    private int mTransparentCount;
+    private OpaqueSortMode mOpaqueSortMode = OpaqueSortMode.STATE;
+    private Matrix4 mViewMatrix;
+
+    private RenderItem mLastAdded;
+    private int mUnsortedProgramBinds;
+    private int mUnsortedTextureBinds;
+    private int mSortedProgramBinds;
+    private int mSortedTextureBinds;
+
+    /**
+     * Removes all queued items. The item instances are kept for reuse.
+     *
+     * @param viewMatrix {@link Matrix4} The view matrix of the coming frame, used to compute the view depth.
+     */
+    public void clear(Matrix4 viewMatrix) {
+        for (int i = 0; i < mOpaqueCount; ++i) {
+            mOpaqueItems[i].mObject = null;
+            mOpaqueItems[i].mMaterial = null;
+        }
+        for (int i = 0; i < mTransparentCount; ++i) {
+            mTransparentItems[i].mObject = null;
+            mTransparentItems[i].mMaterial = null;
+        }
+        mOpaqueCount = 0;
+        mTransparentCount = 0;
+        mViewMatrix = viewMatrix;
+        mLastAdded = null;
+        mUnsortedProgramBinds = 0;
+        mUnsortedTextureBinds = 0;
+    }
+
+    /**
+     * Queues a draw of the provided object. The object's matrices and bounds must already be up to date for this
+     * frame. Compiles the material's program if needed, so must be called on the GL thread.
+     *
+     * @param object   The {@link Object3D} to draw
+     * @param material The {@link Material} it will be drawn with
+     */
+    public void add(Object3D object, Material material) {
+        final int poolIndex = mOpaqueCount + mTransparentCount;
+        RenderItem item;
+        if (poolIndex < mPool.size()) {
+            item = mPool.get(poolIndex);
+        } else {
+            item = new RenderItem();
+            mPool.add(item);
+        }
+        item.mObject = object;
+        item.mMaterial = material;
+        // Compile new materials now instead of on their first use, so they are keyed by their actual program.
+        // Lit materials waiting for their lights can't be compiled yet and are keyed by the material instead.
+        material.compileShaders();
+        item.mMaterialKey = System.identityHashCode(material);
+        item.mProgramHandle = material.needsShaderCompilation() ? item.mMaterialKey : material.getProgramHandle();
+        item.mTextureKey = getTextureKey(material);
+        item.mStateKey = getStateKey(object);
+        item.mDepth = getViewDepth(object);
+
+        if (object.isBlendingEnabled()) {
+            if (mTransparentCount == mTransparentItems.length) {
+                mTransparentItems = Arrays.copyOf(mTransparentItems, mTransparentCount * 2);
+            }
+            mTransparentItems[mTransparentCount++] = item;
+        } else {
+            if (mOpaqueCount == mOpaqueItems.length) {
+                mOpaqueItems = Arrays.copyOf(mOpaqueItems, mOpaqueCount * 2);
+            }
+            mOpaqueItems[mOpaqueCount++] = item;
+        }
+
+        if (mLastAdded == null || mLastAdded.mProgramHandle != item.mProgramHandle) {
+            ++mUnsortedProgramBinds;
+        }
+        if (mLastAdded == null || (mLastAdded.mMaterial != material || mLastAdded.mTextureKey != item.mTextureKey)) {
+            ++mUnsortedTextureBinds;
+        }
+        mLastAdded = item;
+    }
+
+    /**
+     * Sorts both buckets and updates the sorted bind counts.
+     */
+    public void sort() {
+        Arrays.sort(mOpaqueItems, 0, mOpaqueCount,
+                mOpaqueSortMode == OpaqueSortMode.STATE ? STATE_COMPARATOR : FRONT_TO_BACK_COMPARATOR);
+        Arrays.sort(mTransparentItems, 0, mTransparentCount, BACK_TO_FRONT_COMPARATOR);
+
+        mSortedProgramBinds = 0;
+        mSortedTextureBinds = 0;
+        RenderItem last = null;
+        for (int i = 0, j = size(); i < j; ++i) {
+            final RenderItem item = get(i);
+            if (last == null || last.mProgramHandle != item.mProgramHandle) {
+                ++mSortedProgramBinds;
+            }
+            if (last == null || (last.mMaterial != item.mMaterial || last.mTextureKey != item.mTextureKey)) {
+                ++mSortedTextureBinds;
+            }
+            last = item;
+        }
+    }
+
+    /**
+     * Draws the opaque bucket followed by the transparent bucket. Programs and textures are only bound when the
+     * material changes from one item to the next.
+     *
+     * @param camera        The camera
+     * @param sceneMaterial The scene-wide Material, if any. When set, the scene owns its texture binding.
+     */
+    public void submit(Camera camera, Material sceneMaterial) {
+        Material current = submit(mOpaqueItems, mOpaqueCount, null, camera, sceneMaterial);
+        current = submit(mTransparentItems, mTransparentCount, current, camera, sceneMaterial);
+        if (current != null && sceneMaterial == null) {
+            current.unbindTextures();
+        }
+    }
+
+    private static Material submit(RenderItem[] items, int count, Material current, Camera camera,
+                                   Material sceneMaterial) {
+        for (int i = 0; i < count; ++i) {
+            final RenderItem item = items[i];
+            final Material material = item.mMaterial;
+            if (material != current) {
+                if (current != null && sceneMaterial == null) {
+                    current.unbindTextures();
+                }
+                material.useProgram();
+                material.bindTextures();
+                current = material;
+            }
+            item.mObject.draw(camera, material, false, true, false);
+        }
+        return current;
+    }
+
+    /**
+     * Sets how the opaque bucket is ordered. Defaults to {@link OpaqueSortMode#STATE}.
+     *
+     * @param mode {@link OpaqueSortMode} The sort mode.
+     */
+    public void setOpaqueSortMode(OpaqueSortMode mode) {
+        mOpaqueSortMode = mode;
+    }
+
+    public OpaqueSortMode getOpaqueSortMode() {
+        return mOpaqueSortMode;
+    }
+
+    /**
+     * @return {@code int} The number of queued items in both buckets.
+     */
+    public int size() {
+        return mOpaqueCount + mTransparentCount;
+    }
+
+    /**
+     * @return {@code int} The number of queued items in the opaque bucket.
+     */
+    public int getOpaqueCount() {
+        return mOpaqueCount;
+    }
+
+    /**
+     * @return {@code int} The number of queued items in the transparent bucket.
+     */
+    public int getTransparentCount() {
+        return mTransparentCount;
+    }
+
+    /**
+     * @param index {@code int} The index of the item, in submission order once the queue is sorted.
+     *
+     * @return {@link RenderItem} The queued item at the specified index.
+     */
+    public RenderItem get(int index) {
+        return index < mOpaqueCount ? mOpaqueItems[index] : mTransparentItems[index - mOpaqueCount];
+    }
+
+    /**
+     * @return {@code int} The number of program changes the last frame would have needed in collection order.
+     */
+    public int getUnsortedProgramBinds() {
+        return mUnsortedProgramBinds;
+    }
+
+    /**
+     * @return {@code int} The number of texture set changes the last frame would have needed in collection order.
+     */
+    public int getUnsortedTextureBinds() {
+        return mUnsortedTextureBinds;
+    }
+
+    /**
+     * @return {@code int} The number of program changes needed by the last frame after sorting.
+     */
+    public int getSortedProgramBinds() {
+        return mSortedProgramBinds;
+    }
+
+    /**
+     * @return {@code int} The number of texture set changes needed by the last frame after sorting.
+     */
+    public int getSortedTextureBinds() {
+        return mSortedTextureBinds;
+    }
+
+    private double getViewDepth(Object3D object) {
+        // View space looks down -z, so the negated view space z is the distance in front of the camera
+        if (mViewMatrix != null && object.getGeometry().hasBoundingBox()) {
+            // Objects such as instanced batches override the bounding box with a larger one
+            final Vector3 center = object.getBoundingBox().getPosition();
+            final double[] v = mViewMatrix.getDoubleValues();
+            return -(v[Matrix4.M20] * center.x + v[Matrix4.M21] * center.y + v[Matrix4.M22] * center.z
+                    + v[Matrix4.M23]);
+        }
+        return -object.getModelViewMatrix().getDoubleValues()[Matrix4.M23];
+    }
+
+    private static int getTextureKey(Material material) {
+        final ArrayList<ATexture> textures = material.getTextureList();
+        int key = 1;
+        for (int i = 0, j = textures.size(); i < j; ++i) {
+            key = 31 * key + textures.get(i).getTextureId();
+        }
+        return key;
+    }
+
+    private static int getStateKey(Object3D object) {
+        int key = 0;
+        if (object.isDoubleSided()) key |= STATE_DOUBLE_SIDED;
+        if (object.isBackSided()) key |= STATE_BACK_SIDED;
+        if (object.isDepthTestEnabled()) key |= STATE_DEPTH_TEST;
+        if (object.isDepthMaskEnabled()) key |= STATE_DEPTH_MASK;
+        if (object.isBlendingEnabled()) {
+            key |= STATE_BLENDING;
+            key |= (object.getBlendFuncSFactor() & 0xFFF) << 8;
+            key |= (object.getBlendFuncDFactor() & 0xFFF) << 20;
+        }
+        return key;
+    }
+}
@@ -18,7 +18,9 @@ import android.opengl.GLES20;
 import android.support.annotation.NonNull;
 
 import org.rajawali3d.cameras.Camera;
+import org.rajawali3d.cameras.CameraFrameConstants;
 import org.rajawali3d.Object3D;
+import org.rajawali3d.TransformPool;
 import org.rajawali3d.animation.Animation;
 import org.rajawali3d.lights.ALight;
 import org.rajawali3d.materials.Material;
@@ -33,24 +35,33 @@ import org.rajawali3d.math.Matrix4;
 import org.rajawali3d.math.vector.Vector3;
 import org.rajawali3d.postprocessing.materials.ShadowMapMaterial;
 import org.rajawali3d.primitives.Cube;
+import org.rajawali3d.renderer.ACoalescingFrameTask;
 import org.rajawali3d.renderer.AFrameTask;
+import org.rajawali3d.renderer.FrameProfiler;
+import org.rajawali3d.renderer.FrameTaskQueue;
+import org.rajawali3d.renderer.GpuTimer;
+import org.rajawali3d.renderer.GLStateCache;
 import org.rajawali3d.renderer.Renderer;
 import org.rajawali3d.renderer.RenderTarget;
+import org.rajawali3d.renderer.gl.AGLBackend;
 import org.rajawali3d.renderer.plugins.IRendererPlugin;
 import org.rajawali3d.renderer.plugins.Plugin;
 import org.rajawali3d.scenegraph.IGraphNode;
 import org.rajawali3d.scenegraph.IGraphNode.GRAPH_TYPE;
+import org.rajawali3d.scenegraph.IGraphNodeMember;
 import org.rajawali3d.scenegraph.Octree;
 import org.rajawali3d.view.ISurface;
 import org.rajawali3d.util.ObjectColorPicker;
 import org.rajawali3d.util.ObjectColorPicker.ColorPickerInfo;
 import org.rajawali3d.util.RajLog;
+import org.rajawali3d.util.SnapshotList;
 
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.LinkedList;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Set;
 import java.util.concurrent.CopyOnWriteArrayList;
 
 /**
@@ -66,6 +77,7 @@ import java.util.concurrent.CopyOnWriteArrayList;
 public class Scene {
 
 	protected final int GL_COVERAGE_BUFFER_BIT_NV = 0x8000;
+	private static final String GPU_TIMER_SCOPE = "Scene";
 	protected double mEyeZ = 4.0; //TODO: Is this necessary?
 
 	protected Renderer mRenderer;
@@ -88,9 +100,10 @@ public class Scene {
 	protected ATexture mSkyboxTexture;
 
     /**
-     * Guarded by {@link #mFrameTaskQueue}.
+     * Guarded by {@link #mLightsDirtyLock}.
      */
 	private volatile boolean                mLightsDirty;
+	private final Object                    mLightsDirtyLock = new Object();
 	protected volatile ColorPickerInfo      mPickerInfo;
 	protected boolean                       mReloadPickerInfo;
 	protected ISurface.ANTI_ALIASING_CONFIG mAntiAliasingConfig;
@@ -98,11 +111,15 @@ public class Scene {
 	protected boolean mAlwaysClearColorBuffer = true;
 	private ShadowMapMaterial mShadowMapMaterial;
 
-	private final List<Object3D> mChildren;
-    private final List<ASceneFrameCallback> mPreCallbacks;
-    private final List<ASceneFrameCallback> mPreDrawCallbacks;
-    private final List<ASceneFrameCallback> mPostCallbacks;
-	private final List<Animation> mAnimations;
+	/**
+	 * Children, animations and frame callbacks are only modified by frame tasks. Their snapshots are published once
+	 * per frame after the tasks ran, and iterated without locking.
+	 */
+	private final SnapshotList<Object3D> mChildren;
+    private final SnapshotList<ASceneFrameCallback> mPreCallbacks;
+    private final SnapshotList<ASceneFrameCallback> mPreDrawCallbacks;
+    private final SnapshotList<ASceneFrameCallback> mPostCallbacks;
+	private final SnapshotList<Animation> mAnimations;
 	private final List<IRendererPlugin> mPlugins;
 	private final List<ALight> mLights;
 
@@ -114,6 +131,8 @@ public class Scene {
 	*/
 	protected Camera mCamera;
 	private final List<Camera> mCameras; //List of all cameras in the scene.
+	private final Set<TransformPool> mUpdatedTransformPools =
+		Collections.newSetFromMap(new IdentityHashMap<TransformPool, Boolean>()); //Pools updated in the current frame
 
 	/**
 	* Temporary camera which will be switched to by the GL thread.
@@ -129,26 +148,34 @@ public class Scene {
 	 * handle the necessary operations at an appropriate time, ensuring
 	 * thread safety and general correct operation.
 	 *
-	 * Guarded by itself
+	 * Lock free, tasks may be offered from any thread.
+	 */
+	private final FrameTaskQueue mFrameTaskQueue;
+	/**
+	 * Collects children added while {@link #mCoalesceChildAdditions} is set, so they are added in one task. Replaced
+	 * whenever another task is queued behind it, so later additions don't jump ahead of that task.
 	 */
-	private final LinkedList<AFrameTask> mFrameTaskQueue;
+	private volatile ACoalescingFrameTask<Object3D> mAddChildrenTask = createAddChildrenTask();
+	private volatile boolean mCoalesceChildAdditions;
 
 	protected boolean mDisplaySceneGraph = false;
+	protected boolean mRenderQueueEnabled = false;
+	protected final RenderQueue mRenderQueue = new RenderQueue();
 	protected IGraphNode mSceneGraph; //The scenegraph for this scene
 	protected GRAPH_TYPE mSceneGraphType = GRAPH_TYPE.NONE; //The type of graph type for this scene.
 
 	public Scene(Renderer renderer) {
 		mRenderer = renderer;
 		mAlpha = 0;
-		mAnimations = Collections.synchronizedList(new CopyOnWriteArrayList<Animation>());
-        mPreCallbacks = Collections.synchronizedList(new CopyOnWriteArrayList<ASceneFrameCallback>());
-        mPreDrawCallbacks = Collections.synchronizedList(new CopyOnWriteArrayList<ASceneFrameCallback>());
-        mPostCallbacks = Collections.synchronizedList(new CopyOnWriteArrayList<ASceneFrameCallback>());
-		mChildren = Collections.synchronizedList(new CopyOnWriteArrayList<Object3D>());
+		mAnimations = new SnapshotList<>();
+        mPreCallbacks = new SnapshotList<>();
+        mPreDrawCallbacks = new SnapshotList<>();
+        mPostCallbacks = new SnapshotList<>();
+		mChildren = new SnapshotList<>();
 		mPlugins = Collections.synchronizedList(new CopyOnWriteArrayList<IRendererPlugin>());
 		mCameras = Collections.synchronizedList(new CopyOnWriteArrayList<Camera>());
 		mLights = Collections.synchronizedList(new CopyOnWriteArrayList<ALight>());
-		mFrameTaskQueue = new LinkedList<>();
+		mFrameTaskQueue = new FrameTaskQueue();
 
 		mCamera = new Camera();
 		mCamera.setZ(mEyeZ);
@@ -429,8 +456,8 @@ public class Scene {
             protected void doTask() {
                 final Object3D old = mChildren.set(location, child);
                 if (mSceneGraph != null) {
-                    //mSceneGraph.removeObject(old);
-                    //mSceneGraph.addObject(child); //TODO: Uncomment
+                    mSceneGraph.removeObject(old);
+                    mSceneGraph.addObject(child);
                 }
             }
         };
@@ -450,8 +477,8 @@ public class Scene {
             protected void doTask() {
                 mChildren.set(mChildren.indexOf(oldChild), newChild);
                 if (mSceneGraph != null) {
-                    //mSceneGraph.removeObject(oldChild);
-                    //mSceneGraph.addObject(newChild); //TODO: Uncomment
+                    mSceneGraph.removeObject(oldChild);
+                    mSceneGraph.addObject(newChild);
                 }
             }
         };
@@ -466,12 +493,17 @@ public class Scene {
 	 * @return True if the child was successfully queued for addition.
 	 */
 	public boolean addChild(final Object3D child) {
+		if (mCoalesceChildAdditions) {
+			// Only the first addition since the last run queues the task
+			final ACoalescingFrameTask<Object3D> task = mAddChildrenTask;
+			return !task.add(child) || internalOfferTask(task);
+		}
         final AFrameTask task = new AFrameTask() {
             @Override
             protected void doTask() {
                 mChildren.add(child);
                 if (mSceneGraph != null) {
-                    //mSceneGraph.addObject(child); //TODO: Uncomment
+                    mSceneGraph.addObject(child);
                 }
                 addShadowMapMaterialPlugin(child, mShadowMapMaterial == null ? null : mShadowMapMaterial.getMaterialPlugin());
             }
@@ -493,7 +525,7 @@ public class Scene {
             protected void doTask() {
                 mChildren.add(index, child);
                 if (mSceneGraph != null) {
-                    //mSceneGraph.addObject(child); //TODO: Uncomment
+                    mSceneGraph.addObject(child);
                 }
             }
         };
@@ -512,7 +544,9 @@ public class Scene {
             protected void doTask() {
                 mChildren.addAll(children);
                 if (mSceneGraph != null) {
-                    //mSceneGraph.addObject(child); //TODO: Uncomment
+                    for (Object3D child : children) {
+                        mSceneGraph.addObject(child);
+                    }
                 }
             }
         };
@@ -531,7 +565,7 @@ public class Scene {
             protected void doTask() {
                 mChildren.remove(child);
                 if (mSceneGraph != null) {
-                    //mSceneGraph.removeObject(child); //TODO: Uncomment
+                    mSceneGraph.removeObject(child);
                 }
             }
         };
@@ -547,9 +581,9 @@ public class Scene {
         final AFrameTask task = new AFrameTask() {
             @Override
             protected void doTask() {
-                /*if (mSceneGraph != null) {
-                    mSceneGraph.removeObjects(new ArrayList<IGraphNodeMember>(mChildren));
-                }*/ //TODO: Uncomment
+                if (mSceneGraph != null) {
+                    mSceneGraph.removeObjects(new ArrayList<IGraphNodeMember>(mChildren.getWorkingCopy()));
+                }
                 mChildren.clear();
             }
         };
@@ -991,11 +1025,12 @@ public class Scene {
 	 * to change this default behavior can override this method.
 	 */
 	public void resetGLState() {
-		GLES20.glEnable(GLES20.GL_CULL_FACE);
-		GLES20.glCullFace(GLES20.GL_BACK);
-		GLES20.glFrontFace(GLES20.GL_CCW);
-		GLES20.glDisable(GLES20.GL_BLEND);
-		GLES20.glEnable(GLES20.GL_DEPTH_TEST);
+		final GLStateCache glState = GLStateCache.getCurrent();
+		glState.setCullFaceEnabled(true);
+		glState.setCullFace(GLES20.GL_BACK);
+		glState.setFrontFace(GLES20.GL_CCW);
+		glState.setBlendEnabled(false);
+		glState.setDepthTestEnabled(true);
 	}
 
 	public void render(long ellapsedTime, double deltaTime, RenderTarget renderTarget) {
@@ -1003,6 +1038,7 @@ public class Scene {
 	}
 
 	public void render(long ellapsedTime, double deltaTime, RenderTarget renderTarget, Material sceneMaterial) {
+		final AGLBackend gl = AGLBackend.getCurrent();
 		// Scene color-picking requests are relative to the prior frame's render
 		// state, so handle any pending request before applying this frame's updates...
 		if (mPickerInfo != null) {
@@ -1011,14 +1047,12 @@ public class Scene {
 			mPickerInfo = null;
 		}
 
+		final FrameProfiler profiler = FrameProfiler.getCurrent();
+		final FrameProfiler.Phase outerPhase = profiler.enterPhase(FrameProfiler.Phase.FRAME_TASKS);
+		final GpuTimer gpuTimer = GpuTimer.getCurrent();
+		gpuTimer.beginScope(GPU_TIMER_SCOPE);
 		performFrameTasks(); //Handle the task queue
-
-        synchronized (mFrameTaskQueue) {
-            if (mLightsDirty) {
-                updateMaterialsWithLights();
-                mLightsDirty = false;
-            }
-        }
+		updateLightsIfDirty();
 
 		synchronized (mNextSkyboxLock) {
 			//Check if we need to switch the skybox, and if so, do it.
@@ -1040,55 +1074,58 @@ public class Scene {
 
 		if (renderTarget != null) {
 			renderTarget.bind();
-			GLES20.glClearColor(mRed, mGreen, mBlue, mAlpha);
+			gl.glClearColor(mRed, mGreen, mBlue, mAlpha);
 		} else {
 //			GLES20.glBindFramebuffer(GLES20.GL_FRAMEBUFFER, 0);
-			GLES20.glClearColor(mRed, mGreen, mBlue, mAlpha);
+			gl.glClearColor(mRed, mGreen, mBlue, mAlpha);
 		}
 
+		final GLStateCache glState = GLStateCache.getCurrent();
 		if (mEnableDepthBuffer) {
 			clearMask |= GLES20.GL_DEPTH_BUFFER_BIT;
-			GLES20.glEnable(GLES20.GL_DEPTH_TEST);
-			GLES20.glDepthFunc(GLES20.GL_LESS);
-			GLES20.glDepthMask(true);
-			GLES20.glClearDepthf(1.0f);
+			glState.setDepthTestEnabled(true);
+			glState.setDepthFunc(GLES20.GL_LESS);
+			glState.setDepthMask(true);
+			gl.glClearDepthf(1.0f);
 		}
 		if (mAntiAliasingConfig.equals(ISurface.ANTI_ALIASING_CONFIG.COVERAGE)) {
 			clearMask |= GL_COVERAGE_BUFFER_BIT_NV;
 		}
 
-		GLES20.glClear(clearMask);
+		gl.glClear(clearMask);
 
         // Execute onPreFrame callbacks
         // We explicitly break out the steps here to help the compiler optimize
-        final int preCount = mPreCallbacks.size();
-        if (preCount > 0) {
-            synchronized (mPreCallbacks) {
-                for (int i = 0; i < preCount; ++i) {
-                    mPreCallbacks.get(i).onPreFrame(ellapsedTime, deltaTime);
-                }
-            }
+        profiler.enterPhase(FrameProfiler.Phase.CALLBACKS);
+        final List<ASceneFrameCallback> preCallbacks = mPreCallbacks.getSnapshot();
+        for (int i = 0, j = preCallbacks.size(); i < j; ++i) {
+            preCallbacks.get(i).onPreFrame(ellapsedTime, deltaTime);
         }
 
         // Update all registered animations
-        synchronized (mAnimations) {
-            for (int i = 0, j = mAnimations.size(); i < j; ++i) {
-                Animation anim = mAnimations.get(i);
-                if (anim.isPlaying())
-                    anim.update(deltaTime);
-            }
+        profiler.enterPhase(FrameProfiler.Phase.ANIMATIONS);
+        final List<Animation> animations = mAnimations.getSnapshot();
+        for (int i = 0, j = animations.size(); i < j; ++i) {
+            Animation anim = animations.get(i);
+            if (anim.isPlaying())
+                anim.update(deltaTime);
         }
 
         // We are beginning the render process so we need to update the camera matrix before fetching its values
+        profiler.enterPhase(FrameProfiler.Phase.OTHER);
         mCamera.onRecalculateModelMatrix(null);
 
-        // Get the view and projection matrices in advance
-		mVMatrix = mCamera.getViewMatrix();
-		mPMatrix = mCamera.getProjectionMatrix();
-		// Pre-multiply View and Projection matrices once for speed
-		mVPMatrix.setAll(mPMatrix).multiply(mVMatrix);
-		mInvVPMatrix.setAll(mVPMatrix).inverse();
-        mCamera.updateFrustum(mInvVPMatrix); // Update frustum plane
+        // Get the view and projection matrices in advance. The camera constants only recalculate the derived
+        // matrices when the camera actually changed and are shared by every object rendered this frame.
+		final CameraFrameConstants frameConstants = mCamera.getFrameConstants();
+		final boolean cameraChanged = frameConstants.update(mCamera.getViewMatrix(), mCamera.getProjectionMatrix());
+		mVMatrix = frameConstants.getViewMatrix();
+		mPMatrix = frameConstants.getProjectionMatrix();
+		mVPMatrix = frameConstants.getViewProjectionMatrix();
+		mInvVPMatrix.setAll(frameConstants.getInverseViewProjectionMatrix());
+		if (cameraChanged) {
+			mCamera.updateFrustum(mVPMatrix); // Update frustum plane
+		}
 
         // Update the model matrices of all the lights
         synchronized (mLights) {
@@ -1100,18 +1137,20 @@ public class Scene {
 
         // Execute onPreDraw callbacks
         // We explicitly break out the steps here to help the compiler optimize
-        final int preDrawCount = mPreDrawCallbacks.size();
-        if (preDrawCount > 0) {
-            synchronized (mPreDrawCallbacks) {
-                for (int i = 0; i < preDrawCount; ++i) {
-                    mPreDrawCallbacks.get(i).onPreDraw(ellapsedTime, deltaTime);
-                }
-            }
+        profiler.enterPhase(FrameProfiler.Phase.CALLBACKS);
+        final List<ASceneFrameCallback> preDrawCallbacks = mPreDrawCallbacks.getSnapshot();
+        for (int i = 0, j = preDrawCallbacks.size(); i < j; ++i) {
+            preDrawCallbacks.get(i).onPreDraw(ellapsedTime, deltaTime);
         }
 
+		// Bring the model matrices up to date before anything is drawn, rather than in between the draw calls
+		profiler.enterPhase(FrameProfiler.Phase.TRANSFORMS);
+		updateTransforms();
+
+		profiler.enterPhase(FrameProfiler.Phase.SKYBOX);
 		if (mSkybox != null) {
-			GLES20.glDisable(GLES20.GL_DEPTH_TEST);
-			GLES20.glDepthMask(false);
+			glState.setDepthTestEnabled(false);
+			glState.setDepthMask(false);
 
 			mSkybox.setPosition(mCamera.getX(), mCamera.getY(), mCamera.getZ());
             // Model matrix updates are deferred to the render method due to parent matrix needs
@@ -1119,8 +1158,8 @@ public class Scene {
 			mSkybox.render(mCamera, mVPMatrix, mPMatrix, mVMatrix, null);
 
 			if (mEnableDepthBuffer) {
-				GLES20.glEnable(GLES20.GL_DEPTH_TEST);
-				GLES20.glDepthMask(true);
+				glState.setDepthTestEnabled(true);
+				glState.setDepthMask(true);
 			}
 		}
 
@@ -1129,12 +1168,31 @@ public class Scene {
 			sceneMaterial.bindTextures();
 		}
 
-        synchronized (mChildren) {
-			for (int i = 0, j = mChildren.size(); i < j; ++i) {
-                // Model matrix updates are deferred to the render method due to parent matrix needs
-				mChildren.get(i).render(mCamera, mVPMatrix, mPMatrix, mVMatrix, sceneMaterial);
+		profiler.enterPhase(FrameProfiler.Phase.CULLING);
+		final List<? extends IGraphNodeMember> visible = getVisibleChildren();
+		profiler.enterPhase(FrameProfiler.Phase.DRAW);
+		if (mRenderQueueEnabled) {
+			mRenderQueue.clear(mVMatrix);
+			for (int i = 0, j = visible.size(); i < j; ++i) {
+				final IGraphNodeMember child = visible.get(i);
+				if (child instanceof Object3D) {
+					((Object3D) child).queueForRender(mRenderQueue, mCamera, mVPMatrix, mPMatrix, mVMatrix,
+							null, sceneMaterial);
+				}
+			}
+			mRenderQueue.sort();
+			mRenderQueue.submit(mCamera, sceneMaterial);
+		} else {
+			for (int i = 0, j = visible.size(); i < j; ++i) {
+				final IGraphNodeMember child = visible.get(i);
+				if (child instanceof Object3D) {
+					// Model matrix updates are deferred to the render method due to parent matrix needs
+					((Object3D) child).render(mCamera, mVPMatrix, mPMatrix, mVMatrix, sceneMaterial);
+				}
 			}
 		}
+		// Objects leave their state behind, restore the defaults for whatever is drawn next
+		resetGLState();
 
 		if (mDisplaySceneGraph) {
 			mSceneGraph.displayGraph(mCamera, mVPMatrix, mPMatrix, mVMatrix);
@@ -1144,10 +1202,12 @@ public class Scene {
 			sceneMaterial.unbindTextures();
 		}
 
+		profiler.enterPhase(FrameProfiler.Phase.PLUGINS);
 		synchronized (mPlugins) {
 			for (int i = 0, j = mPlugins.size(); i < j; i++)
 				mPlugins.get(i).render();
 		}
+		profiler.enterPhase(FrameProfiler.Phase.OTHER);
 
 		if(renderTarget != null) {
 			renderTarget.unbind();
@@ -1155,50 +1215,89 @@ public class Scene {
 
         // Execute onPostFrame callbacks
         // We explicitly break out the steps here to help the compiler optimize
-        final int postCount = mPostCallbacks.size();
-        if (postCount > 0) {
-            synchronized (mPostCallbacks) {
-                for (int i = 0; i < postCount; ++i) {
-                    mPostCallbacks.get(i).onPostFrame(ellapsedTime, deltaTime);
-                }
-            }
+        profiler.enterPhase(FrameProfiler.Phase.CALLBACKS);
+        final List<ASceneFrameCallback> postCallbacks = mPostCallbacks.getSnapshot();
+        for (int i = 0, j = postCallbacks.size(); i < j; ++i) {
+            postCallbacks.get(i).onPostFrame(ellapsedTime, deltaTime);
         }
+        gpuTimer.endScope(GPU_TIMER_SCOPE);
+        profiler.exitPhase(outerPhase);
+	}
+
+	/**
+	 * Brings the model matrices of all children and their descendants up to date. Only the subtrees in which
+	 * something changed since the last frame are visited, see {@link Object3D#updateTransforms()}. The
+	 * {@link TransformPool}s of the children are updated first, once each, so the pooled objects only copy their
+	 * world matrices. Must be called on the GL thread.
+	 */
+	protected void updateTransforms() {
+		final List<Object3D> children = mChildren.getSnapshot();
+		// Descendants are always in the pool of their parent, so the children hold every pool in the scene
+		for (int i = 0, j = children.size(); i < j; ++i) {
+			final TransformPool pool = children.get(i).getTransformPool();
+			if (pool != null && mUpdatedTransformPools.add(pool)) {
+				pool.update();
+			}
+		}
+		mUpdatedTransformPools.clear();
+		for (int i = 0, j = children.size(); i < j; ++i) {
+			children.get(i).updateTransforms();
+		}
+	}
+
+	/**
+	 * Determines which children need to be drawn this frame. Without a scene graph these are all children. With a
+	 * scene graph whole branches outside of the camera frustum are rejected, the children were already moved to
+	 * their new nodes by {@link #updateTransforms()}. Note that the visible children are returned in scene graph
+	 * order rather than in the order they were added. Must be called on the GL thread.
+	 *
+	 * @return {@link List} of the children to draw.
+	 */
+	protected List<? extends IGraphNodeMember> getVisibleChildren() {
+		final List<Object3D> children = mChildren.getSnapshot();
+		if (mSceneGraph == null) {
+			return children;
+		}
+		mSceneGraph.cullFromFrustum(mCamera.getFrustum());
+		return mSceneGraph.getVisibleObjects();
 	}
 
 	protected void doColorPicking(ColorPickerInfo pickerInfo) {
+		final AGLBackend gl = AGLBackend.getCurrent();
 		ObjectColorPicker picker = pickerInfo.getPicker();
 		picker.getRenderTarget().bind();
 
 		// Set background color (to Object3D.UNPICKABLE to prevent any conflicts)
-		GLES20.glClearColor(1.0f, 1.0f, 1.0f, 1.0f);
+		gl.glClearColor(1.0f, 1.0f, 1.0f, 1.0f);
 
 		// Clear buffers used for color-picking
-		GLES20.glClear(GLES20.GL_COLOR_BUFFER_BIT | GLES20.GL_DEPTH_BUFFER_BIT);
+		gl.glClear(GLES20.GL_COLOR_BUFFER_BIT | GLES20.GL_DEPTH_BUFFER_BIT);
 
 		// Get the picking material
 		Material pickingMaterial = picker.getMaterial();
 
 		// Can't blend picking colors
-		GLES20.glDisable(GLES20.GL_BLEND);
+		final GLStateCache glState = GLStateCache.getCurrent();
+		glState.setBlendEnabled(false);
 
 		// Render the Skybox first (no need for depth testing)
 		if (mSkybox != null && mSkybox.isPickingEnabled()) {
-			GLES20.glDisable(GLES20.GL_DEPTH_TEST);
-			GLES20.glDepthMask(false);
+			glState.setDepthTestEnabled(false);
+			glState.setDepthMask(false);
 			mSkybox.renderColorPicking(mCamera, pickingMaterial);
-			GLES20.glEnable(GLES20.GL_DEPTH_TEST);
-			GLES20.glDepthMask(true);
+			glState.setDepthTestEnabled(true);
+			glState.setDepthMask(true);
 		}
 
 		// Render all children using their picking colors
-		synchronized (mChildren) {
-			for (int i = 0, j = mChildren.size(); i < j; ++i) {
-				mChildren.get(i).renderColorPicking(mCamera, pickingMaterial);
-			}
+		final List<Object3D> children = mChildren.getSnapshot();
+		for (int i = 0, j = children.size(); i < j; ++i) {
+			children.get(i).renderColorPicking(mCamera, pickingMaterial);
 		}
 
 		// pickObject() unbinds the renderTarget's framebuffer...
 		ObjectColorPicker.pickObject(pickerInfo);
+		resetGLState();
 	}
 
 	/**
@@ -1208,9 +1307,30 @@ public class Scene {
 	 * @return boolean True on successful addition to queue.
 	 */
 	private boolean internalOfferTask(AFrameTask task) {
-		synchronized (mFrameTaskQueue) {
-			return mFrameTaskQueue.offer(task);
+		final ACoalescingFrameTask<Object3D> addChildrenTask = mAddChildrenTask;
+		if (task != addChildrenTask && addChildrenTask.isQueued()) {
+			// Close the pending batch, additions after this task must also run after it
+			mAddChildrenTask = createAddChildrenTask();
 		}
+		return mFrameTaskQueue.offer(task);
+	}
+
+	private ACoalescingFrameTask<Object3D> createAddChildrenTask() {
+		return new ACoalescingFrameTask<Object3D>() {
+			@Override
+			protected void doTask(List<Object3D> children) {
+				mChildren.addAll(children);
+				final ShadowMapMaterialPlugin plugin = mShadowMapMaterial == null ? null
+					: mShadowMapMaterial.getMaterialPlugin();
+				for (int i = 0, j = children.size(); i < j; ++i) {
+					final Object3D child = children.get(i);
+					if (mSceneGraph != null) {
+						mSceneGraph.addObject(child);
+					}
+					addShadowMapMaterialPlugin(child, plugin);
+				}
+			}
+		};
 	}
 
 	/**
@@ -1218,15 +1338,35 @@ public class Scene {
 	 * start of onDrawFrame() prior to render().
 	 */
 	private void performFrameTasks() {
-		synchronized (mFrameTaskQueue) {
-			//Fetch the first task
-			AFrameTask task = mFrameTaskQueue.poll();
-			while (task != null) {
-                task.run();
-				//Retrieve the next task
-                task = mFrameTaskQueue.poll();
-			}
-		}
+		mFrameTaskQueue.run();
+		// Publish everything the tasks changed at once, so each list is copied at most once per frame
+		mChildren.publish();
+		mAnimations.publish();
+		mPreCallbacks.publish();
+		mPreDrawCallbacks.publish();
+		mPostCallbacks.publish();
+	}
+
+	/**
+	 * Limits the time spent per frame on running normal and low priority frame tasks of this scene, such as
+	 * child additions. Tasks which don't fit are run on the next frames.
+	 *
+	 * @param frameBudgetNanos {@code long} The budget in nanoseconds, 0 to run all queued tasks each frame, which
+	 *                         is the default.
+	 */
+	public void setFrameTaskBudget(long frameBudgetNanos) {
+		mFrameTaskQueue.setFrameBudget(frameBudgetNanos);
+	}
+
+	/**
+	 * Sets whether children added with {@link #addChild(Object3D)} are collected and added together in a single
+	 * frame task, instead of one task per child. This makes adding thousands of children at once much cheaper.
+	 * Queuing any other task ends the current batch, so additions keep their order relative to other changes.
+	 *
+	 * @param coalesce {@code boolean} True to coalesce child additions.
+	 */
+	public void setCoalesceChildAdditions(boolean coalesce) {
+		mCoalesceChildAdditions = coalesce;
 	}
 
 	/**
@@ -1280,19 +1420,39 @@ public class Scene {
      * to be updated on the next render loop.
      */
     public void markLightingDirty() {
-        synchronized (mFrameTaskQueue) {
+        synchronized (mLightsDirtyLock) {
             mLightsDirty = true;
         }
     }
 
+	/**
+	 * Runs the queued tasks and hands the lights to the materials of this scene, as the next render would. This
+	 * lets {@link org.rajawali3d.renderer.ShaderWarmUp} compile lit materials before the scene is first rendered.
+	 * Must be called on the GL thread.
+	 */
+	public void applyPendingChanges() {
+		performFrameTasks();
+		updateLightsIfDirty();
+	}
+
+	private void updateLightsIfDirty() {
+		synchronized (mLightsDirtyLock) {
+			if (mLightsDirty) {
+				updateMaterialsWithLights();
+				mLightsDirty = false;
+			}
+		}
+	}
+
 	/**
 	 * Set the lights on all materials used in this scene. This method
 	 * should only be called when the lights collection is dirty. It will
 	 * trigger compilation of all light-enabled shaders.
 	 */
 	private void updateMaterialsWithLights() {
-		for(Object3D child : mChildren) {
-			updateChildMaterialWithLights(child);
+		final List<Object3D> children = mChildren.getSnapshot();
+		for (int i = 0, j = children.size(); i < j; ++i) {
+			updateChildMaterialWithLights(children.get(i));
 		}
 	}
 
@@ -1323,9 +1483,7 @@ public class Scene {
 	 * @return ArrayList containing the children.
 	 */
 	public ArrayList<Object3D> getChildrenCopy() {
-		ArrayList<Object3D> list = new ArrayList<>();
-		list.addAll(mChildren);
-		return list;
+		return new ArrayList<>(mChildren.getSnapshot());
 	}
 
 	/**
@@ -1335,8 +1493,7 @@ public class Scene {
 	 * @return boolean indicating child's presence as a child of the renderer.
 	 */
 	protected boolean hasChild(Object3D child) {
-		//Thread safety deferred to the List.
-		return mChildren.contains(child);
+		return mChildren.getSnapshot().contains(child);
 	}
 
 	/**
@@ -1345,8 +1502,7 @@ public class Scene {
 	 * @return The current number of children.
 	 */
 	public int getNumChildren() {
-		//Thread safety deferred to the List
-		return mChildren.size();
+		return mChildren.getSnapshot().size();
 	}
 
 	/**
@@ -1385,10 +1541,9 @@ public class Scene {
 	 * Reload all the children
 	 */
 	private void reloadChildren() {
-		synchronized (mChildren) {
-			for (int i = 0, j = mChildren.size(); i < j; ++i)
-				mChildren.get(i).reload();
-		}
+		final List<Object3D> children = mChildren.getSnapshot();
+		for (int i = 0, j = children.size(); i < j; ++i)
+			children.get(i).reload();
 	}
 
 	/**
@@ -1506,6 +1661,46 @@ public class Scene {
 		mDisplaySceneGraph = display;
 	}
 
+	/**
+	 * Sets whether the children of this scene are drawn through a state-sorted {@link RenderQueue}. When enabled,
+	 * the visible objects are collected first and drawn grouped by program, textures and render state instead of
+	 * in hierarchy order, and objects with blending enabled are drawn after all opaque objects, back to front.
+	 * Disabled by default.
+	 *
+	 * @param enabled {@code boolean} True to use the render queue.
+	 */
+	public void setRenderQueueEnabled(boolean enabled) {
+		mRenderQueueEnabled = enabled;
+	}
+
+	/**
+	 * Sets how opaque objects are ordered by the {@link RenderQueue}. Blended objects are always drawn after the
+	 * opaque ones, back to front.
+	 *
+	 * @param mode {@link RenderQueue.OpaqueSortMode} The sort mode for opaque objects.
+	 */
+	public void setOpaqueSortMode(RenderQueue.OpaqueSortMode mode) {
+		mRenderQueue.setOpaqueSortMode(mode);
+	}
+
+	/**
+	 * Retrieve whether the children of this scene are drawn through a {@link RenderQueue}.
+	 *
+	 * @return {@code boolean} True if the render queue is used.
+	 */
+	public boolean isRenderQueueEnabled() {
+		return mRenderQueueEnabled;
+	}
+
+	/**
+	 * Retrieve the {@link RenderQueue} of this scene, for instance to read its bind counts.
+	 *
+	 * @return {@link RenderQueue} The render queue of this scene.
+	 */
+	public RenderQueue getRenderQueue() {
+		return mRenderQueue;
+	}
+
 	/**
 	 * Retrieve the number of triangles this scene contains, recursive method
 	 *
@@ -18,6 +18,7 @@ import java.util.List;
 
 import org.rajawali3d.ATransformable3D;
 import org.rajawali3d.cameras.Camera;
+import org.rajawali3d.cameras.Frustum;
 import org.rajawali3d.bounds.BoundingBox;
 import org.rajawali3d.bounds.BoundingSphere;
 import org.rajawali3d.bounds.IBoundingVolume;
@@ -62,6 +63,7 @@ public abstract class A_nAABBTree extends BoundingBox implements IGraphNode {
 	protected boolean mSplit = false; //Have we split to child partitions
 	protected List<IGraphNodeMember> mMembers; //A list of all the member objects
 	protected List<IGraphNodeMember> mOutside; //A list of all the objects outside the root
+	protected ArrayList<IGraphNodeMember> mVisible; //Result of the last cull, only used by the root
 
 	protected int mOverlap = 0; //Partition overlap
 	protected int mGrowThreshold = 5; //Threshold at which to grow the graph
@@ -151,7 +153,7 @@ public abstract class A_nAABBTree extends BoundingBox implements IGraphNode {
 	/**
 	 * Sets the bounding volume of this node. This should only be called
 	 * for a root node with no children. This sets the initial root node
-	 * to have a volume ~8x the member, centered on the member.
+	 * to have a volume ~8x the member, centered on its bounding volume.
 	 * 
 	 * @param object IGraphNodeMember the member we will be basing
 	 * our bounds on. 
@@ -178,11 +180,14 @@ public abstract class A_nAABBTree extends BoundingBox implements IGraphNode {
 				span_x = (max.x - min.x);
 				span_y = (max.y - min.y);
 				span_z = (max.z - min.z);
+				//The pivot of a container can lie far away from the geometry of its children
+				position = bcube.getPosition();
 			} else if (volume instanceof BoundingSphere) {
 				bsphere = (BoundingSphere) volume;
 				span_x = 2.0*bsphere.getScaledRadius();
 				span_y = span_x;
 				span_z = span_x;
+				position = bsphere.getPosition();
 			}
 		}
 		mMin.x = (float) (position.x - span_x);
@@ -629,8 +634,9 @@ public abstract class A_nAABBTree extends BoundingBox implements IGraphNode {
 	 * @see rajawali.scenegraph.IGraphNode#addObjects(java.util.Collection)
 	 */
 	public void addObjects(Collection<IGraphNodeMember> objects) {
-		// TODO Auto-generated method stub
-		
+		for (IGraphNodeMember object : objects) {
+			addObject(object);
+		}
 	}
 
 	/*
@@ -644,6 +650,10 @@ public abstract class A_nAABBTree extends BoundingBox implements IGraphNode {
 		IGraphNode container = object.getGraphNode();
 		if (container == null) {
 			mOutside.remove(object);
+		} else if (!object.isInGraph()) {
+			//Objects outside of the root bounds are tracked by the root
+			((A_nAABBTree) container).mOutside.remove(object);
+			object.setGraphNode(null, false);
 		} else {
 			if (container == this) {
 				//If this is the container, process the removal
@@ -666,8 +676,9 @@ public abstract class A_nAABBTree extends BoundingBox implements IGraphNode {
 	 * @see rajawali.scenegraph.IGraphNode#removeObjects(java.util.Collection)
 	 */
 	public void removeObjects(Collection<IGraphNodeMember> objects) {
-		// TODO Auto-generated method stub
-		
+		for (IGraphNodeMember object : objects) {
+			removeObject(object);
+		}
 	}
 
 	/*
@@ -683,7 +694,6 @@ public abstract class A_nAABBTree extends BoundingBox implements IGraphNode {
 		}
 		IGraphNode container = object.getGraphNode(); //Get the container node
 		handleRecursiveUpdate((A_nAABBTree) container, object);
-		RajLog.e("Node: " + this + " Object Container: " + container);
 	}
 
 	/**
@@ -694,60 +704,56 @@ public abstract class A_nAABBTree extends BoundingBox implements IGraphNode {
 	 * @param object IGraphNodeMember which is being updated.
 	 */
 	protected void handleRecursiveUpdate(final A_nAABBTree container, IGraphNodeMember object) {
-		//RajLog.i("Rajawali", "Handling recursive update potential.");
+		final IBoundingVolume volume = object.getTransformedBoundingVolume();
+		//Move up the tree until we find a node which still fully contains the object, or hit the root
 		A_nAABBTree local_container = container;
-		boolean updated = false;
-		while (!updated) {
-			if (local_container.contains(object.getTransformedBoundingVolume())) {
-				int fits_in_child = -1;
-				if (mSplit) {
-					for (int j = 0; j < CHILD_COUNT; ++j) {
-						if (mChildren[j].contains(object.getTransformedBoundingVolume())) {
-							//If the member fits in this child, mark that child
-							if (fits_in_child < 0) {
-								fits_in_child = j;
-							} else {
-								//It fits in multiple children, leave it in parent
-								fits_in_child = -1;
-								break;
-							}
-						}
-					}
-					if (fits_in_child >= 0) { //If a single child was marked
-						RajLog.i("Fits in a single child.");
-						local_container.removeFromMembers(object);
-						mChildren[fits_in_child].internalAddObject(object);
-						updated = true;
-					} else { //TODO: WORKS
-						RajLog.i("Fits in multiple children, leaving in place.");
-						updated = true;
-					}
-				} else {
-					RajLog.i("No children so we are leaving in same node.");
-					if (!object.isInGraph()) {
-						RajLog.i("Removing from outside graph and moving to inside root.");
-						local_container.mOutside.remove(object);
-						local_container.internalAddObject(object);
-					}
-					updated = true;
+		while (local_container.mParent != null && !local_container.contains(volume)) {
+			local_container = local_container.mParent;
+		}
+		if (local_container == container && container.contains(volume) && object.isInGraph()) {
+			//Still in the same node, check if it now fits in a single child
+			if (container.mSplit) {
+				final int fits_in_child = container.findContainingChild(volume);
+				if (fits_in_child >= 0) {
+					container.removeFromMembers(object);
+					container.mChildren[fits_in_child].addObject(object);
 				}
-			} else {
-				//RajLog.v("Rajawali", "OUTSIDE");
-				if (local_container.mParent == null) { //TODO: WORKS
-					//RajLog.v("Rajawali", "OUTSIDE");
-					//RajLog.i("Rajawali", "Container is root node. Adding to outside.");
-					if (object.isInGraph()) {
-						local_container.removeFromMembers(object);
-						local_container.addToOutside(object);
-					}
-					//RajLog.e("Rajawali", "Node after addToOutside: " + object.getGraphNode());
-					updated = true;
+			}
+			return;
+		}
+		//Detach the object from its prior location
+		if (object.isInGraph()) {
+			container.removeFromMembers(object);
+		} else {
+			local_container.mOutside.remove(object);
+		}
+		if (local_container.contains(volume)) {
+			local_container.internalAddObject(object);
+		} else {
+			//Only the root can end up here
+			local_container.addToOutside(object);
+		}
+	}
+
+	/**
+	 * Finds the single child which fully contains the provided volume.
+	 *
+	 * @param volume IBoundingVolume to check.
+	 * @return int index of the child, or -1 if no child or more than one child contains it.
+	 */
+	protected int findContainingChild(IBoundingVolume volume) {
+		int fits_in_child = -1;
+		for (int i = 0; i < CHILD_COUNT; ++i) {
+			if (mChildren[i].contains(volume)) {
+				if (fits_in_child < 0) {
+					fits_in_child = i;
 				} else {
-					RajLog.i("Container is not root (" + local_container + "). Moving search up a level.");
-					local_container = local_container.mParent;
+					//It fits in multiple children, leave it in parent
+					return -1;
 				}
 			}
 		}
+		return fits_in_child;
 	}
 
 	/*
@@ -778,9 +784,135 @@ public abstract class A_nAABBTree extends BoundingBox implements IGraphNode {
 	 * (non-Javadoc)
 	 * @see rajawali.scenegraph.IGraphNode#cullFromBoundingVolume(rajawali.bounds.IBoundingVolume)
 	 */
-	public void cullFromBoundingVolume(IBoundingVolume volume) {
-		// TODO Auto-generated method stub
+	public synchronized void cullFromBoundingVolume(IBoundingVolume volume) {
+		final ArrayList<IGraphNodeMember> visible = getVisibleList();
+		visible.clear();
+		if (!(volume instanceof BoundingBox)) {
+			RajLog.e("[" + this.getClass().getName() + "] Culling is only supported for bounding boxes.");
+			return;
+		}
+		final BoundingBox box = (BoundingBox) volume;
+		cull(null, box.getTransformedMin(), box.getTransformedMax(), visible, false);
+		if (mParent == null) {
+			for (int i = 0, j = mOutside.size(); i < j; ++i) {
+				final IGraphNodeMember member = mOutside.get(i);
+				if (isMemberVisible(member, null, box.getTransformedMin(), box.getTransformedMax())) {
+					visible.add(member);
+				}
+			}
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see rajawali.scenegraph.IGraphNode#cullFromFrustum(rajawali.cameras.Frustum)
+	 */
+	public synchronized void cullFromFrustum(Frustum frustum) {
+		final ArrayList<IGraphNodeMember> visible = getVisibleList();
+		visible.clear();
+		cull(frustum, null, null, visible, false);
+		if (mParent == null) {
+			//Members outside of the root bounds can't be culled hierarchically
+			for (int i = 0, j = mOutside.size(); i < j; ++i) {
+				final IGraphNodeMember member = mOutside.get(i);
+				if (isMemberVisible(member, frustum, null, null)) {
+					member.setInsideFrustum(false);
+					visible.add(member);
+				}
+			}
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see rajawali.scenegraph.IGraphNode#getVisibleObjects()
+	 */
+	public List<IGraphNodeMember> getVisibleObjects() {
+		return getVisibleList();
+	}
+
+	private ArrayList<IGraphNodeMember> getVisibleList() {
+		if (mVisible == null) {
+			mVisible = new ArrayList<IGraphNodeMember>();
+		}
+		return mVisible;
+	}
+
+	/**
+	 * Recursively collects the visible members of this node and its children. Either a frustum or
+	 * the extents of an axis aligned box are tested against. A node outside of the volume rejects
+	 * its whole branch and a node fully inside accepts its whole branch without further tests.
+	 *
+	 * @param frustum {@link Frustum} to test against or null to test against the box.
+	 * @param min {@link Vector3} Minimum of the box to test against if there is no frustum.
+	 * @param max {@link Vector3} Maximum of the box to test against if there is no frustum.
+	 * @param visible {@link List} the visible members are added to.
+	 * @param inside boolean True if an ancestor is already known to be fully inside.
+	 */
+	protected void cull(Frustum frustum, Vector3 min, Vector3 max, List<IGraphNodeMember> visible,
+						boolean inside) {
+		if (!inside) {
+			final int result = frustum != null ? frustum.classifyBounds(mTransformedMin, mTransformedMax)
+					: classifyBox(mTransformedMin, mTransformedMax, min, max);
+			if (result == Frustum.OUTSIDE) {
+				return;
+			}
+			inside = result == Frustum.INSIDE;
+		}
+		for (int i = 0, j = mMembers.size(); i < j; ++i) {
+			final IGraphNodeMember member = mMembers.get(i);
+			if (inside || isMemberVisible(member, frustum, min, max)) {
+				if (frustum != null) {
+					member.setInsideFrustum(inside);
+				}
+				visible.add(member);
+			}
+		}
+		if (mSplit) {
+			for (int i = 0; i < CHILD_COUNT; ++i) {
+				mChildren[i].cull(frustum, min, max, visible, inside);
+			}
+		}
+	}
 
+	/**
+	 * Tests a single member against the frustum, or the box if there is no frustum. Members
+	 * without bounding volume are always visible.
+	 */
+	protected boolean isMemberVisible(IGraphNodeMember member, Frustum frustum, Vector3 min, Vector3 max) {
+		final IBoundingVolume volume = member.getTransformedBoundingVolume();
+		if (volume instanceof BoundingBox) {
+			final BoundingBox box = (BoundingBox) volume;
+			return (frustum != null ? frustum.classifyBounds(box.getTransformedMin(), box.getTransformedMax())
+					: classifyBox(box.getTransformedMin(), box.getTransformedMax(), min, max)) != Frustum.OUTSIDE;
+		} else if (volume instanceof BoundingSphere) {
+			final BoundingSphere sphere = (BoundingSphere) volume;
+			if (frustum != null) {
+				return frustum.sphereInFrustum(sphere.getPosition(), sphere.getScaledRadius());
+			}
+			final Vector3 center = sphere.getPosition();
+			final double radius = sphere.getScaledRadius();
+			return center.x + radius >= min.x && center.x - radius <= max.x
+					&& center.y + radius >= min.y && center.y - radius <= max.y
+					&& center.z + radius >= min.z && center.z - radius <= max.z;
+		}
+		return true;
+	}
+
+	/**
+	 * Classifies the box spanned by boxMin/boxMax against the volume spanned by min/max,
+	 * using the {@link Frustum} result constants.
+	 */
+	private static int classifyBox(Vector3 boxMin, Vector3 boxMax, Vector3 min, Vector3 max) {
+		if (boxMax.x < min.x || boxMin.x > max.x || boxMax.y < min.y || boxMin.y > max.y
+				|| boxMax.z < min.z || boxMin.z > max.z) {
+			return Frustum.OUTSIDE;
+		}
+		if (boxMin.x >= min.x && boxMax.x <= max.x && boxMin.y >= min.y && boxMax.y <= max.y
+				&& boxMin.z >= min.z && boxMax.z <= max.z) {
+			return Frustum.INSIDE;
+		}
+		return Frustum.INTERSECT;
 	}
 
 	/*
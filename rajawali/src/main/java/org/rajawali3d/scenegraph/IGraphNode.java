@@ -13,8 +13,10 @@
 package org.rajawali3d.scenegraph;
 
 import java.util.Collection;
+import java.util.List;
 
 import org.rajawali3d.cameras.Camera;
+import org.rajawali3d.cameras.Frustum;
 import org.rajawali3d.bounds.IBoundingVolume;
 import org.rajawali3d.math.Matrix4;
 import org.rajawali3d.math.vector.Vector3;
@@ -120,6 +122,24 @@ public interface IGraphNode {
 	 */
 	public void cullFromBoundingVolume(IBoundingVolume volume);
 
+	/**
+	 * Called to cause the scene graph to determine which objects are
+	 * inside (even partially) the provided frustum. Implementations should
+	 * reject whole branches which are outside of the frustum.
+	 *
+	 * @param frustum {@link Frustum} to test visibility against.
+	 */
+	public void cullFromFrustum(Frustum frustum);
+
+	/**
+	 * Retrieve the objects which passed the last call to {@link #cullFromBoundingVolume(IBoundingVolume)}
+	 * or {@link #cullFromFrustum(Frustum)}.
+	 *
+	 * @return {@link List} of the visible {@link IGraphNodeMember}s. This is the internal list and is
+	 * overwritten by the next cull.
+	 */
+	public List<IGraphNodeMember> getVisibleObjects();
+
 	/**
 	 * Call this in the renderer to cause the scene graph to be
 	 * displayed. It is up to the implementation to determine
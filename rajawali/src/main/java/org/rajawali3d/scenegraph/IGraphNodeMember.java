@@ -51,6 +51,14 @@ public interface IGraphNodeMember {
 	 * @return IBoundingVolume which encloses this members "geometry."
 	 */
 	public IBoundingVolume getTransformedBoundingVolume();
+
+	/**
+	 * Called by the graph for each member found visible by a frustum cull. A member of a node which lies
+	 * entirely inside the frustum is inside as well, and doesn't need to be tested again when it is drawn.
+	 *
+	 * @param inside Boolean indicating if this member is known to be fully inside the frustum.
+	 */
+	public void setInsideFrustum(boolean inside);
 	
 	/**
 	 * Retrieve the position in the scene of this member.
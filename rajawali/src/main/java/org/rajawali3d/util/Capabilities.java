@@ -158,8 +158,9 @@ public class Capabilities {
         mMinAliasedPointSize = getInt(GLES20.GL_ALIASED_POINT_SIZE_RANGE, 2, 0);
         mMaxAliasedPointSize = getInt(GLES20.GL_ALIASED_POINT_SIZE_RANGE, 2, 1);
 
+        // There is no extension string without a current context, as when loading models off the GL thread
         String extensions = GLES20.glGetString(GLES20.GL_EXTENSIONS);
-        mExtensions = extensions.split(" ");
+        mExtensions = extensions != null ? extensions.split(" ") : new String[0];
     }
 
     private int getInt(int pname) {
@@ -235,12 +236,24 @@ public class Capabilities {
      * @throws {@link UnsupportedCapabilityException} if the extension is not available.
      */
     public void verifyExtension(@NonNull String extension) throws UnsupportedCapabilityException {
+        if (!hasExtension(extension)) {
+            throw new UnsupportedCapabilityException("Extension (" + extension + ") is not supported!");
+        }
+    }
+
+    /**
+     * Checks if a particular extension is supported by this device.
+     *
+     * @param extension {@link String} Non-null string of the extension to check for. This is case sensitive.
+     * @return {@code boolean} True if the extension is available.
+     */
+    public boolean hasExtension(@NonNull String extension) {
         for (String ext : mExtensions) {
             if (extension.equals(ext)) {
-                return;
+                return true;
             }
         }
-        throw new UnsupportedCapabilityException("Extension (" + extension + ") is not supported!");
+        return false;
     }
 
     /**
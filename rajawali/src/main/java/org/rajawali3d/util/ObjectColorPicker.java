@@ -24,6 +24,7 @@ import org.rajawali3d.materials.Material;
 import org.rajawali3d.materials.MaterialManager;
 import org.rajawali3d.materials.textures.ATexture.FilterType;
 import org.rajawali3d.materials.textures.ATexture.WrapType;
+import org.rajawali3d.renderer.GLStateCache;
 import org.rajawali3d.renderer.Renderer;
 import org.rajawali3d.renderer.RenderTarget;
 
@@ -98,7 +99,7 @@ public class ObjectColorPicker implements IObjectPicker {
 			GLES20.glReadPixels(pickerInfo.getX(),
 					picker.mRenderer.getViewportHeight() - pickerInfo.getY(),
 					1, 1, GLES20.GL_RGBA, GLES20.GL_UNSIGNED_BYTE, pixelBuffer);
-			GLES20.glBindFramebuffer(GLES20.GL_FRAMEBUFFER, 0);
+			GLStateCache.getCurrent().bindFramebuffer(0);
 			pixelBuffer.rewind();
 
 			final int r = pixelBuffer.get(0) & 0xff;
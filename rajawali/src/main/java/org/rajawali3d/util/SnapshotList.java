@@ -0,0 +1,122 @@
+/**
+ * Copyright 2013 Dennis Ippel
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.rajawali3d.util;
+
+import android.support.annotation.NonNull;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Double buffered list which is modified by a single thread and read by any number of threads.
+ *
+ * Modifications are made to a working copy and only become visible once {@link #publish()} is called, which copies
+ * the working copy into an immutable array snapshot and increments the version. The snapshot can be iterated without
+ * locking, and any number of modifications between two publishes cost a single copy, where a
+ * {@link java.util.concurrent.CopyOnWriteArrayList} copies on every modification.
+ *
+ * All methods except {@link #getSnapshot()} and {@link #getVersion()} must be called from the owning thread, which
+ * for the lists of a {@link org.rajawali3d.scene.Scene} is the GL thread.
+ *
+ * @param <T> The type of the elements.
+ */
+public class SnapshotList<T> {
+
+    private final ArrayList<T> mWorkingCopy = new ArrayList<>();
+    private final List<T> mWorkingCopyView = Collections.unmodifiableList(mWorkingCopy);
+    private volatile List<T> mSnapshot = Collections.emptyList();
+    private volatile int mVersion;
+    private boolean mDirty;
+
+    public boolean add(T element) {
+        mDirty = true;
+        return mWorkingCopy.add(element);
+    }
+
+    public void add(int index, T element) {
+        mDirty = true;
+        mWorkingCopy.add(index, element);
+    }
+
+    public boolean addAll(@NonNull Collection<? extends T> elements) {
+        mDirty = true;
+        return mWorkingCopy.addAll(elements);
+    }
+
+    public T set(int index, T element) {
+        mDirty = true;
+        return mWorkingCopy.set(index, element);
+    }
+
+    public boolean remove(Object element) {
+        final boolean removed = mWorkingCopy.remove(element);
+        mDirty |= removed;
+        return removed;
+    }
+
+    public void clear() {
+        mDirty |= !mWorkingCopy.isEmpty();
+        mWorkingCopy.clear();
+    }
+
+    public int indexOf(Object element) {
+        return mWorkingCopy.indexOf(element);
+    }
+
+    /**
+     * Retrieves the working copy, including modifications which were not published yet.
+     *
+     * @return {@link List} Read only view of the working copy.
+     */
+    @NonNull
+    public List<T> getWorkingCopy() {
+        return mWorkingCopyView;
+    }
+
+    /**
+     * Makes the modifications since the last call visible to readers of the snapshot.
+     *
+     * @return {@code boolean} True if there were modifications to publish.
+     */
+    @SuppressWarnings("unchecked")
+    public boolean publish() {
+        if (!mDirty) {
+            return false;
+        }
+        mDirty = false;
+        mSnapshot = Collections.unmodifiableList(Arrays.asList((T[]) mWorkingCopy.toArray()));
+        ++mVersion;
+        return true;
+    }
+
+    /**
+     * Retrieves the last published contents. The returned list never changes, so it can be iterated from any thread
+     * without locking. Call this once and keep the reference for the duration of the iteration.
+     *
+     * @return {@link List} Read only snapshot of the published contents.
+     */
+    @NonNull
+    public List<T> getSnapshot() {
+        return mSnapshot;
+    }
+
+    /**
+     * @return {@code int} The number of times modifications were published.
+     */
+    public int getVersion() {
+        return mVersion;
+    }
+}
@@ -0,0 +1,346 @@
+/**
+ * Copyright 2013 Dennis Ippel
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.rajawali3d.util;
+
+import android.opengl.GLES20;
+
+import org.rajawali3d.Geometry3D;
+import org.rajawali3d.InstancedObject3D;
+import org.rajawali3d.Object3D;
+import org.rajawali3d.bounds.BoundingBox;
+import org.rajawali3d.materials.Material;
+import org.rajawali3d.math.Matrix4;
+import org.rajawali3d.math.Quaternion;
+import org.rajawali3d.math.vector.Vector3;
+
+import java.nio.Buffer;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.ShortBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Merges static meshes which are drawn with the same {@link Material} into a few large meshes, replacing thousands of
+ * draw calls with a handful.
+ *
+ * {@link #batch(Object3D)} collects the objects below a root which are marked with {@link Object3D#setStatic(boolean)},
+ * groups them by material and render state and bakes their transformations relative to the root into the vertex
+ * data. Each group is split into batches of at most {@link #MAX_VERTICES_PER_BATCH} vertices so 16 bit indices can be
+ * used. The objects of a group are sorted along its longest axis before splitting, so every batch covers a compact
+ * region and keeps a useful bounding box for frustum culling.
+ *
+ * Only opaque triangle meshes are merged; objects with blending enabled need to be sorted individually. The children
+ * of an object which isn't static are never merged, as their transformation depends on a parent which may move.
+ */
+public final class StaticBatcher {
+
+    /**
+     * The maximum number of vertices which can be addressed with 16 bit indices.
+     */
+    public static final int MAX_VERTICES_PER_BATCH = 65536;
+
+    private StaticBatcher() {
+    }
+
+    /**
+     * Merges the static meshes below the provided root. The batches are added to the root inside a new container so
+     * they keep following the transformation of the root. The merged objects are turned into containers, they are
+     * not drawn anymore but their children are. Must not be called while the root is being rendered.
+     *
+     * @param root {@link Object3D} The root of the hierarchy to batch.
+     *
+     * @return {@link Object3D} The container holding the batches.
+     */
+    public static Object3D batch(Object3D root) {
+        final Map<BatchKey, List<Entry>> groups = new LinkedHashMap<>();
+        if (isBatchable(root)) {
+            addEntry(groups, root, new Matrix4());
+        }
+        collect(root, new Matrix4(), new Quaternion(), groups);
+
+        final Object3D container = new Object3D();
+        container.setName("StaticBatch");
+        container.setFrustumTest(true);
+        int numObjects = 0;
+        for (Map.Entry<BatchKey, List<Entry>> group : groups.entrySet()) {
+            final List<Entry> entries = group.getValue();
+            sortAlongLongestAxis(entries);
+            int start = 0;
+            int numVertices = 0;
+            int numIndices = 0;
+            for (int i = 0, j = entries.size(); i < j; ++i) {
+                final Entry entry = entries.get(i);
+                if (i > start && numVertices + entry.mNumVertices > MAX_VERTICES_PER_BATCH) {
+                    container.addChild(createBatch(group.getKey(), entries, start, i, numVertices, numIndices));
+                    start = i;
+                    numVertices = 0;
+                    numIndices = 0;
+                }
+                numVertices += entry.mNumVertices;
+                numIndices += entry.mNumIndices;
+            }
+            container.addChild(createBatch(group.getKey(), entries, start, entries.size(), numVertices, numIndices));
+            numObjects += entries.size();
+        }
+
+        for (List<Entry> entries : groups.values()) {
+            for (int i = 0, j = entries.size(); i < j; ++i) {
+                entries.get(i).mObject.isContainer(true);
+            }
+        }
+        root.addChild(container);
+        RajLog.i("[StaticBatcher] Merged " + numObjects + " objects into " + container.getNumChildren() + " batches.");
+        return container;
+    }
+
+    private static void collect(Object3D parent, Matrix4 parentMatrix, Quaternion tmpOrientation,
+                                Map<BatchKey, List<Entry>> groups) {
+        for (int i = 0, j = parent.getNumChildren(); i < j; ++i) {
+            final Object3D child = parent.getChildAt(i);
+            if (!child.isStatic()) {
+                continue;
+            }
+            final Matrix4 matrix = new Matrix4().setAll(child.getPosition(), child.getScale(),
+                    child.getOrientation(tmpOrientation)).leftMultiply(parentMatrix);
+            if (isBatchable(child)) {
+                addEntry(groups, child, matrix);
+            }
+            collect(child, matrix, tmpOrientation, groups);
+        }
+    }
+
+    private static boolean isBatchable(Object3D object) {
+        if (!object.isStatic() || object.isContainer() || !object.isVisible() || object.isBlendingEnabled()
+                || object.getDrawingMode() != GLES20.GL_TRIANGLES || object.getMaterial() == null
+                || object instanceof InstancedObject3D) {
+            return false;
+        }
+        final Geometry3D geometry = object.getGeometry();
+        return geometry.getVertices() != null && geometry.getIndexBuffer() != null;
+    }
+
+    private static void addEntry(Map<BatchKey, List<Entry>> groups, Object3D object, Matrix4 matrix) {
+        final BatchKey key = new BatchKey(object);
+        List<Entry> entries = groups.get(key);
+        if (entries == null) {
+            entries = new ArrayList<>();
+            groups.put(key, entries);
+        }
+        entries.add(new Entry(object, matrix));
+    }
+
+    private static void sortAlongLongestAxis(List<Entry> entries) {
+        final Vector3 min = new Vector3(Double.MAX_VALUE, Double.MAX_VALUE, Double.MAX_VALUE);
+        final Vector3 max = new Vector3(-Double.MAX_VALUE, -Double.MAX_VALUE, -Double.MAX_VALUE);
+        for (int i = 0, j = entries.size(); i < j; ++i) {
+            final Vector3 center = entries.get(i).mCenter;
+            min.setAll(Math.min(min.x, center.x), Math.min(min.y, center.y), Math.min(min.z, center.z));
+            max.setAll(Math.max(max.x, center.x), Math.max(max.y, center.y), Math.max(max.z, center.z));
+        }
+        final double x = max.x - min.x;
+        final double y = max.y - min.y;
+        final double z = max.z - min.z;
+        final int axis = x >= y && x >= z ? 0 : (y >= z ? 1 : 2);
+        Collections.sort(entries, new Comparator<Entry>() {
+            @Override
+            public int compare(Entry lhs, Entry rhs) {
+                return Double.compare(lhs.getCenter(axis), rhs.getCenter(axis));
+            }
+        });
+    }
+
+    private static Object3D createBatch(BatchKey key, List<Entry> entries, int start, int end, int numVertices,
+                                        int numIndices) {
+        boolean hasNormals = false;
+        boolean hasTextureCoords = false;
+        for (int i = start; i < end; ++i) {
+            final Geometry3D geometry = entries.get(i).mObject.getGeometry();
+            hasNormals |= geometry.hasNormals() && geometry.getNormals() != null;
+            hasTextureCoords |= geometry.hasTextureCoordinates() && geometry.getTextureCoords() != null;
+        }
+        final boolean hasColors = key.mMaterial.usingVertexColors();
+
+        final float[] vertices = new float[numVertices * 3];
+        final float[] normals = hasNormals ? new float[numVertices * 3] : null;
+        final float[] textureCoords = hasTextureCoords ? new float[numVertices * 2] : null;
+        final float[] colors = hasColors ? new float[numVertices * 4] : null;
+        final short[] shortIndices = numVertices <= MAX_VERTICES_PER_BATCH ? new short[numIndices] : null;
+        final int[] intIndices = shortIndices == null ? new int[numIndices] : null;
+
+        final Matrix4 normalMatrix = new Matrix4();
+        int vertexOffset = 0;
+        int indexOffset = 0;
+        for (int i = start; i < end; ++i) {
+            final Entry entry = entries.get(i);
+            final Geometry3D geometry = entry.mObject.getGeometry();
+            final int count = entry.mNumVertices;
+
+            // The source data is copied in bulk and transformed in place, rather than read one float at a time
+            copy(geometry.getVertices(), vertices, vertexOffset * 3, count * 3);
+            entry.mMatrix.transformPoints(vertices, vertexOffset * 3, 3, count);
+
+            final FloatBuffer sourceNormals = geometry.hasNormals() ? geometry.getNormals() : null;
+            if (normals != null && sourceNormals != null) {
+                copy(sourceNormals, normals, vertexOffset * 3, count * 3);
+                normalMatrix.setAll(entry.mMatrix).setToNormalMatrix(entry.mMatrix.getTransformType())
+                        .transformDirections(normals, vertexOffset * 3, 3, count);
+                for (int o = vertexOffset * 3, last = (vertexOffset + count) * 3; o < last; o += 3) {
+                    final double x = normals[o];
+                    final double y = normals[o + 1];
+                    final double z = normals[o + 2];
+                    final double length = Math.sqrt(x * x + y * y + z * z);
+                    final double scale = length > 0 ? 1.0 / length : 0;
+                    normals[o] = (float) (x * scale);
+                    normals[o + 1] = (float) (y * scale);
+                    normals[o + 2] = (float) (z * scale);
+                }
+            }
+
+            final FloatBuffer sourceTextureCoords = geometry.hasTextureCoordinates()
+                    ? geometry.getTextureCoords() : null;
+            if (textureCoords != null && sourceTextureCoords != null) {
+                for (int t = 0, tc = Math.min(count * 2, sourceTextureCoords.limit()); t < tc; ++t) {
+                    textureCoords[vertexOffset * 2 + t] = sourceTextureCoords.get(t);
+                }
+            }
+
+            if (colors != null) {
+                final FloatBuffer sourceColors = geometry.getColors();
+                for (int c = 0, cc = count * 4; c < cc; ++c) {
+                    colors[vertexOffset * 4 + c] = sourceColors != null && c < sourceColors.limit()
+                            ? sourceColors.get(c) : 1f;
+                }
+            }
+
+            // A mirroring transformation turns front faces into back faces, swapping two corners of every triangle
+            // restores the winding
+            final boolean mirrored = entry.mMatrix.determinant() < 0;
+            final Buffer sourceIndices = geometry.getIndexBuffer();
+            for (int k = 0; k < entry.mNumIndices; ++k) {
+                final int corner = k % 3;
+                final int source = !mirrored || corner == 0 ? k : (corner == 1 ? k + 1 : k - 1);
+                final int index = vertexOffset + (sourceIndices instanceof ShortBuffer
+                        ? ((ShortBuffer) sourceIndices).get(source) & 0xFFFF
+                        : ((IntBuffer) sourceIndices).get(source));
+                if (shortIndices != null) {
+                    shortIndices[indexOffset + k] = (short) index;
+                } else {
+                    intIndices[indexOffset + k] = index;
+                }
+            }
+
+            vertexOffset += count;
+            indexOffset += entry.mNumIndices;
+        }
+
+        final Object3D batch = new Object3D();
+        final Geometry3D geometry = batch.getGeometry();
+        geometry.setVertices(vertices);
+        if (normals != null) {
+            geometry.setNormals(normals);
+        }
+        if (textureCoords != null) {
+            geometry.setTextureCoords(textureCoords);
+        }
+        if (colors != null) {
+            geometry.setColors(colors);
+        }
+        if (shortIndices != null) {
+            geometry.setIndices(shortIndices);
+        } else {
+            geometry.setIndices(intIndices);
+        }
+        geometry.getBoundingBox().calculateBounds(geometry);
+        batch.isContainer(false);
+        batch.setMaterial(key.mMaterial);
+        batch.setDoubleSided(key.mDoubleSided);
+        batch.setBackSided(key.mBackSided);
+        batch.setDepthTestEnabled(key.mDepthTest);
+        batch.setDepthMaskEnabled(key.mDepthMask);
+        batch.setFrustumTest(true);
+        return batch;
+    }
+
+    private static void copy(FloatBuffer source, float[] destination, int offset, int length) {
+        // A duplicate is read so the position of the geometry's buffer is left alone
+        final FloatBuffer buffer = source.duplicate();
+        buffer.position(0);
+        buffer.get(destination, offset, length);
+    }
+
+    /**
+     * Objects can only be merged when they are drawn with the same material and the same render state.
+     */
+    private static final class BatchKey {
+        final Material mMaterial;
+        final boolean mDoubleSided;
+        final boolean mBackSided;
+        final boolean mDepthTest;
+        final boolean mDepthMask;
+
+        BatchKey(Object3D object) {
+            mMaterial = object.getMaterial();
+            mDoubleSided = object.isDoubleSided();
+            mBackSided = object.isBackSided();
+            mDepthTest = object.isDepthTestEnabled();
+            mDepthMask = object.isDepthMaskEnabled();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof BatchKey)) {
+                return false;
+            }
+            final BatchKey other = (BatchKey) o;
+            return mMaterial == other.mMaterial && mDoubleSided == other.mDoubleSided
+                    && mBackSided == other.mBackSided && mDepthTest == other.mDepthTest
+                    && mDepthMask == other.mDepthMask;
+        }
+
+        @Override
+        public int hashCode() {
+            int result = System.identityHashCode(mMaterial);
+            result = 31 * result + (mDoubleSided ? 1 : 0);
+            result = 31 * result + (mBackSided ? 1 : 0);
+            result = 31 * result + (mDepthTest ? 1 : 0);
+            return 31 * result + (mDepthMask ? 1 : 0);
+        }
+    }
+
+    private static final class Entry {
+        final Object3D mObject;
+        final Matrix4 mMatrix;
+        final Vector3 mCenter = new Vector3();
+        final int mNumVertices;
+        final int mNumIndices;
+
+        Entry(Object3D object, Matrix4 matrix) {
+            mObject = object;
+            mMatrix = matrix;
+            final Geometry3D geometry = object.getGeometry();
+            mNumVertices = geometry.getVertices().limit() / 3;
+            mNumIndices = geometry.getNumIndices();
+            final BoundingBox bounds = geometry.getBoundingBox();
+            mCenter.setAll(bounds.getMin()).add(bounds.getMax()).multiply(0.5).multiply(matrix);
+        }
+
+        double getCenter(int axis) {
+            return axis == 0 ? mCenter.x : (axis == 1 ? mCenter.y : mCenter.z);
+        }
+    }
+}